@@ -86,7 +86,8 @@ CREATE TABLE IF NOT EXISTS message
     personne_id INT  NOT NULL,
     reunion_id  INT  NOT NULL,
     contenu     TEXT NOT NULL,
-    heure_envoi TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    heure_envoi TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_message_reunion_id (reunion_id, id) -- Pagination de l'historique par curseur (id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- Table pour les invitations en attente
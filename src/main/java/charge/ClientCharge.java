@@ -0,0 +1,295 @@
+package charge;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import protocole.CompressionDeflate;
+import protocole.ProtocoleBinaire;
+
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.CloseReason;
+import javax.websocket.DeploymentException;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.Session;
+import javax.websocket.WebSocketContainer;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Un utilisateur simulé : une session WebSocket, sans interface.
+ *
+ * Les messages de chat envoyés portent l'instant d'envoi (System.nanoTime, même JVM que les récepteurs),
+ * ce qui permet à chaque client de la réunion de mesurer la latence envoi → diffusion reçue.
+ * Les réponses aux demandes de parole arrivent dans l'ordre des demandes (boîte aux lettres par session
+ * côté serveur) : la plus ancienne demande en attente est celle à laquelle on répond.
+ */
+final class ClientCharge extends Endpoint implements MessageHandler.Whole<String> {
+
+    static final String PREFIXE_CHARGE = "charge ";
+
+    private final int numero;
+    private final String login;
+    private final GenerateurCharge.Mesures mesures;
+    private final boolean binaireDemande;
+    // Réponses attendues pendant la préparation (connexion, création, ouverture, rejoindre)
+    private final BlockingQueue<JSONObject> reponses = new LinkedBlockingQueue<>(64);
+    private final ConcurrentLinkedQueue<Long> demandesParoleEnCours = new ConcurrentLinkedQueue<>();
+
+    private volatile Session session;
+    private volatile int personneId = -1;
+    private volatile int reunionId = -1;
+    // Confirmé par le message "welcome" du serveur
+    private volatile boolean binaireActif;
+
+    ClientCharge(int numero, String login, GenerateurCharge.Mesures mesures, boolean binaireDemande) {
+        this.numero = numero;
+        this.login = login;
+        this.mesures = mesures;
+        this.binaireDemande = binaireDemande;
+    }
+
+    void connecter(WebSocketContainer container, URI serveur) throws IOException {
+        try {
+            container.connectToServer(this, ClientEndpointConfig.Builder.create()
+                    .extensions(CompressionDeflate.offre()).build(), serveur);
+        } catch (DeploymentException e) {
+            throw new IOException("Connexion impossible à " + serveur + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void onOpen(Session session, EndpointConfig config) {
+        this.session = session;
+        session.addMessageHandler(this);
+        session.addMessageHandler(ByteBuffer.class, this::surTrameBinaire);
+    }
+
+    private void surTrameBinaire(ByteBuffer trame) {
+        long recu = System.nanoTime();
+        try {
+            traiter(ProtocoleBinaire.versJson(trame), recu);
+        } catch (IllegalArgumentException e) {
+            mesures.erreur();
+        }
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason reason) {
+        this.session = null;
+    }
+
+    @Override
+    public void onError(Session session, Throwable throwable) {
+        mesures.erreur();
+        System.err.println("Client " + login + ": " + throwable.getMessage());
+    }
+
+    @Override
+    public void onMessage(String message) {
+        long recu = System.nanoTime();
+        JSONObject json;
+        try {
+            json = new JSONObject(message);
+        } catch (JSONException e) {
+            mesures.erreur();
+            return;
+        }
+        traiter(json, recu);
+    }
+
+    private void traiter(JSONObject json, long recu) {
+        String type = json.optString("type");
+        switch (type) {
+            case "newMessage":
+                String contenu = json.optString("content");
+                if (contenu.startsWith(PREFIXE_CHARGE)) {
+                    mesures.diffusionRecue(recu - instantEnvoi(contenu));
+                }
+                break;
+            case "demandeParoleResult":
+                Long envoi = demandesParoleEnCours.poll();
+                if (envoi != null) {
+                    mesures.paroleRepondue(recu - envoi, json.optBoolean("success"));
+                }
+                break;
+            case "welcome":
+                binaireActif = binaireDemande && ProtocoleBinaire.BINAIRE.equals(json.optString("protocole"));
+                break;
+            case "error":
+                mesures.erreur();
+                reponses.offer(json);
+                break;
+            default:
+                if (json.has("action")) {
+                    reponses.offer(json);
+                }
+        }
+    }
+
+    /**
+     * Envoie la requête et attend la réponse portant l'action donnée (phase de préparation uniquement).
+     */
+    JSONObject demander(JSONObject requete, String actionAttendue, long delaiMs) throws IOException {
+        reponses.clear();
+        envoyer(requete.toString());
+        long echeance = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delaiMs);
+        try {
+            while (true) {
+                JSONObject reponse = reponses.poll(echeance - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (reponse == null) {
+                    throw new IOException(login + ": pas de réponse " + actionAttendue + " en " + delaiMs + " ms");
+                }
+                if ("error".equals(reponse.optString("type"))) {
+                    throw new IOException(login + ": " + reponse.optString("message"));
+                }
+                if (actionAttendue.equals(reponse.optString("action"))) {
+                    return reponse;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Attente interrompue", e);
+        }
+    }
+
+    void seConnecter(String motDePasse, long delaiMs) throws IOException {
+        JSONObject reponse = demander(new JSONObject().put("modele", "authentification").put("action", "connexion")
+                .put("login", login).put("password", motDePasse), "reponseConnexion", delaiMs);
+        if (!"succes".equals(reponse.optString("statut"))) {
+            throw new IOException(login + ": connexion refusée (" + reponse.optString("message") + ")");
+        }
+        personneId = reponse.getJSONObject("personne").getInt("id");
+    }
+
+    int creerEtOuvrirReunion(String nom, long delaiMs) throws IOException {
+        JSONObject creation = demander(new JSONObject().put("modele", "reunion").put("action", "creation")
+                .put("nom", nom).put("sujet", "Test de charge").put("idOrganisateur", personneId)
+                .put("type", "STANDARD"), "reponseCreation", delaiMs);
+        if (!"succes".equals(creation.optString("statut"))) {
+            throw new IOException(login + ": création refusée (" + creation.optString("message") + ")");
+        }
+        int id = creation.getJSONObject("reunion").getInt("id");
+        JSONObject ouverture = demander(new JSONObject().put("modele", "reunion").put("action", "ouvrir")
+                .put("reunionId", id).put("userId", personneId), "reponseOuverture", delaiMs);
+        if (!"succes".equals(ouverture.optString("statut"))) {
+            throw new IOException(login + ": ouverture refusée (" + ouverture.optString("message") + ")");
+        }
+        return id;
+    }
+
+    void rejoindre(int reunionId, long delaiMs) throws IOException {
+        JSONObject reponse = demander(new JSONObject().put("modele", "reunion").put("action", "rejoindre")
+                .put("code", String.valueOf(reunionId)).put("userId", personneId), "reponseRejoindre", delaiMs);
+        if (!"succes".equals(reponse.optString("statut"))) {
+            throw new IOException(login + ": rejoindre refusé (" + reponse.optString("message") + ")");
+        }
+        this.reunionId = reunionId;
+    }
+
+    void envoyerChat(String remplissage) {
+        String contenu = PREFIXE_CHARGE + numero + " " + System.nanoTime() + " " + remplissage;
+        if (binaireActif) {
+            if (envoyerSansErreur(ProtocoleBinaire.requete(ProtocoleBinaire.ENVOYER_MESSAGE, reunionId, personneId, contenu))) {
+                mesures.chatEnvoye();
+            }
+            return;
+        }
+        if (envoyerSansErreur(new JSONObject().put("modele", "reunion").put("action", "envoyerMessage")
+                .put("reunionId", String.valueOf(reunionId)).put("userId", String.valueOf(personneId))
+                .put("contenu", contenu).toString())) {
+            mesures.chatEnvoye();
+        }
+    }
+
+    void demanderParole() {
+        if (binaireActif) {
+            demandesParoleEnCours.offer(System.nanoTime());
+            if (!envoyerSansErreur(ProtocoleBinaire.requete(ProtocoleBinaire.DEMANDER_PAROLE, reunionId, personneId, null))) {
+                demandesParoleEnCours.poll();
+            }
+            return;
+        }
+        String requete = new JSONObject().put("modele", "reunion").put("action", "demanderParole")
+                .put("reunionId", String.valueOf(reunionId)).put("userId", personneId).toString();
+        demandesParoleEnCours.offer(System.nanoTime());
+        if (!envoyerSansErreur(requete)) {
+            demandesParoleEnCours.poll();
+        }
+    }
+
+    void quitter(boolean cloturer) {
+        if (reunionId == -1 || session == null) {
+            return;
+        }
+        envoyerSansErreur(new JSONObject().put("modele", "reunion").put("action", "quitterReunion")
+                .put("reunionId", String.valueOf(reunionId)).put("userId", personneId).toString());
+        if (cloturer) {
+            envoyerSansErreur(new JSONObject().put("modele", "reunion").put("action", "cloturer")
+                    .put("reunionId", reunionId).put("userId", personneId).toString());
+        }
+    }
+
+    void fermer() {
+        Session s = session;
+        if (s != null && s.isOpen()) {
+            try {
+                s.close(new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, "Fin du test de charge"));
+            } catch (IOException e) {
+                System.err.println("Client " + login + ": fermeture en erreur: " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean envoyerSansErreur(String texte) {
+        try {
+            envoyer(texte);
+            return true;
+        } catch (IOException e) {
+            mesures.erreur();
+            return false;
+        }
+    }
+
+    private synchronized boolean envoyerSansErreur(ByteBuffer trame) {
+        Session s = session;
+        try {
+            if (s == null || !s.isOpen()) {
+                throw new IOException(login + ": session fermée");
+            }
+            s.getBasicRemote().sendBinary(trame);
+            return true;
+        } catch (IOException e) {
+            mesures.erreur();
+            return false;
+        }
+    }
+
+    // Un seul envoi à la fois par session : le RemoteEndpoint.Basic ne supporte pas les envois concurrents
+    private synchronized void envoyer(String texte) throws IOException {
+        Session s = session;
+        if (s == null || !s.isOpen()) {
+            throw new IOException(login + ": session fermée");
+        }
+        s.getBasicRemote().sendText(texte);
+    }
+
+    private static long instantEnvoi(String contenu) {
+        int debut = contenu.indexOf(' ', PREFIXE_CHARGE.length()) + 1;
+        int fin = contenu.indexOf(' ', debut);
+        return Long.parseLong(contenu.substring(debut, fin < 0 ? contenu.length() : fin));
+    }
+
+    int getReunionId() {
+        return reunionId;
+    }
+
+    String getLogin() {
+        return login;
+    }
+}
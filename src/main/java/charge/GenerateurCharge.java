@@ -0,0 +1,328 @@
+package charge;
+
+import model.Personne;
+import model.PersonneManager;
+import protocole.CompressionDeflate;
+import protocole.ProtocoleBinaire;
+import serveur.Histogramme;
+
+import javax.websocket.ContainerProvider;
+import javax.websocket.WebSocketContainer;
+import java.io.IOException;
+import java.net.URI;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Générateur de charge sans interface : simule des utilisateurs qui se connectent, se répartissent
+ * dans des réunions, discutent et demandent la parole, puis affiche les latences et le débit.
+ *
+ * Lancement (serveur démarré, Tyrus client et org.json depuis lib/) :
+ *   java -cp target/classes:lib/* -Dtpbmo.charge.clients=200 -Dtpbmo.charge.reunions=10 charge.GenerateurCharge
+ *
+ * Paramètres (-Dtpbmo.charge.xxx) :
+ *   serveur            URI WebSocket (ws://localhost:8080/)
+ *   protocole          json ou binaire (chat et demandes de parole en trames binaires) (json)
+ *   clients            nombre d'utilisateurs simulés (50)
+ *   reunions           nombre de réunions, les clients y sont répartis également (5)
+ *   prefixeLogin       les comptes sont prefixeLogin1..N (charge)
+ *   motDePasse         mot de passe commun des comptes (charge)
+ *   creerComptes       crée les comptes manquants directement en base, via tpbmo.db.* (false)
+ *   messagesParSeconde messages de chat par client et par seconde (1.0)
+ *   parolesParMinute   demandes de parole par client et par minute (2.0)
+ *   tailleMessage      taille approximative du contenu d'un message en caractères (64)
+ *   chauffeSec         durée de chauffe, non comptée dans les résultats (10)
+ *   dureeSec           durée de la mesure (60)
+ *   rapportSec         intervalle des rapports intermédiaires (5)
+ *
+ * Les clients proposent permessage-deflate comme le client JavaFX ; -Dtpbmo.deflate=false pour comparer sans.
+ *
+ * La latence de diffusion est mesurée par chaque destinataire, l'expéditeur compris :
+ * un message dans une réunion de n clients donne n mesures.
+ */
+public class GenerateurCharge {
+
+    private static final long DELAI_REPONSE_MS = 10_000;
+
+    private final boolean binaire = ProtocoleBinaire.BINAIRE.equals(System.getProperty("tpbmo.charge.protocole", ProtocoleBinaire.JSON));
+    private final URI serveur = URI.create(System.getProperty("tpbmo.charge.serveur", "ws://localhost:8080/")
+            + (binaire ? "?" + ProtocoleBinaire.PARAMETRE + "=" + ProtocoleBinaire.BINAIRE : ""));
+    private final int nbClients = Integer.getInteger("tpbmo.charge.clients", 50);
+    private final int nbReunions = Integer.getInteger("tpbmo.charge.reunions", 5);
+    private final String prefixeLogin = System.getProperty("tpbmo.charge.prefixeLogin", "charge");
+    private final String motDePasse = System.getProperty("tpbmo.charge.motDePasse", "charge");
+    private final boolean creerComptes = Boolean.getBoolean("tpbmo.charge.creerComptes");
+    private final double messagesParSeconde = Double.parseDouble(System.getProperty("tpbmo.charge.messagesParSeconde", "1.0"));
+    private final double parolesParMinute = Double.parseDouble(System.getProperty("tpbmo.charge.parolesParMinute", "2.0"));
+    private final int tailleMessage = Integer.getInteger("tpbmo.charge.tailleMessage", 64);
+    private final int chauffeSec = Integer.getInteger("tpbmo.charge.chauffeSec", 10);
+    private final int dureeSec = Integer.getInteger("tpbmo.charge.dureeSec", 60);
+    private final int rapportSec = Integer.getInteger("tpbmo.charge.rapportSec", 5);
+
+    private final Mesures mesures = new Mesures();
+    private final List<ClientCharge> clients = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        new GenerateurCharge().executer();
+    }
+
+    private void executer() throws Exception {
+        if (nbClients < 1 || nbReunions < 1 || nbReunions > nbClients) {
+            throw new IllegalArgumentException("Il faut au moins un client par réunion: " + nbClients + "/" + nbReunions);
+        }
+        System.out.printf("Charge: %d clients, %d réunions, %.2f msg/s et %.2f paroles/min par client, serveur %s (%s)%n",
+                nbClients, nbReunions, messagesParSeconde, parolesParMinute, serveur,
+                binaire ? ProtocoleBinaire.BINAIRE : ProtocoleBinaire.JSON);
+        if (creerComptes) {
+            preparerComptes();
+        }
+
+        WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+        ExecutorService preparation = Executors.newFixedThreadPool(Math.min(32, nbClients));
+        try {
+            connecterClients(container, preparation);
+            preparerReunions(preparation);
+        } finally {
+            preparation.shutdown();
+        }
+
+        ScheduledExecutorService planificateur = Executors.newScheduledThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors()));
+        try {
+            planifierActivite(planificateur);
+            System.out.println("Chauffe pendant " + chauffeSec + " s...");
+            Thread.sleep(TimeUnit.SECONDS.toMillis(chauffeSec));
+
+            mesures.demarrer();
+            long debut = System.nanoTime();
+            Mesures.Instantane precedent = mesures.instantane();
+            for (int ecoule = 0; ecoule < dureeSec; ecoule += rapportSec) {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(Math.min(rapportSec, dureeSec - ecoule)));
+                Mesures.Instantane courant = mesures.instantane();
+                afficherIntervalle(courant, precedent);
+                precedent = courant;
+            }
+            long duree = System.nanoTime() - debut;
+            planificateur.shutdownNow();
+            // Laisse arriver les diffusions des derniers messages envoyés
+            Thread.sleep(2_000);
+            mesures.arreter();
+            afficherResultats(duree);
+        } finally {
+            planificateur.shutdownNow();
+            terminer();
+        }
+    }
+
+    private void preparerComptes() throws SQLException {
+        PersonneManager personneManager = PersonneManager.getInstance();
+        int crees = 0;
+        for (int i = 1; i <= nbClients; i++) {
+            String login = prefixeLogin + i;
+            Personne existante = personneManager.obtenirPersonneParLogin(login);
+            if (existante == null) {
+                personneManager.enregistrerPersonne("Charge", "Client " + i, login, motDePasse);
+                crees++;
+            }
+        }
+        System.out.println(crees + " compte(s) de charge créé(s)");
+    }
+
+    private void connecterClients(WebSocketContainer container, ExecutorService preparation) throws Exception {
+        List<Future<?>> connexions = new ArrayList<>();
+        for (int i = 1; i <= nbClients; i++) {
+            ClientCharge client = new ClientCharge(i, prefixeLogin + i, mesures, binaire);
+            clients.add(client);
+            connexions.add(preparation.submit(() -> {
+                client.connecter(container, serveur);
+                client.seConnecter(motDePasse, DELAI_REPONSE_MS);
+                return null;
+            }));
+        }
+        attendre(connexions);
+        System.out.println(nbClients + " clients connectés et authentifiés");
+    }
+
+    /**
+     * Le premier client de chaque groupe crée et ouvre la réunion, puis tout le groupe la rejoint.
+     */
+    private void preparerReunions(ExecutorService preparation) throws Exception {
+        List<Future<?>> groupes = new ArrayList<>();
+        long horodatage = System.currentTimeMillis();
+        for (int r = 0; r < nbReunions; r++) {
+            List<ClientCharge> groupe = groupe(r);
+            String nom = "charge-" + horodatage + "-" + (r + 1);
+            groupes.add(preparation.submit(() -> {
+                int reunionId = groupe.get(0).creerEtOuvrirReunion(nom, DELAI_REPONSE_MS);
+                for (ClientCharge client : groupe) {
+                    client.rejoindre(reunionId, DELAI_REPONSE_MS);
+                }
+                return null;
+            }));
+        }
+        attendre(groupes);
+        System.out.println(nbReunions + " réunions ouvertes, " + (nbClients / nbReunions) + " à "
+                + ((nbClients + nbReunions - 1) / nbReunions) + " clients par réunion");
+    }
+
+    private List<ClientCharge> groupe(int reunion) {
+        List<ClientCharge> groupe = new ArrayList<>();
+        for (int i = reunion; i < clients.size(); i += nbReunions) {
+            groupe.add(clients.get(i));
+        }
+        return groupe;
+    }
+
+    private void planifierActivite(ScheduledExecutorService planificateur) {
+        String remplissage = "x".repeat(Math.max(0, tailleMessage - 32));
+        ThreadLocalRandom aleatoire = ThreadLocalRandom.current();
+        for (ClientCharge client : clients) {
+            if (messagesParSeconde > 0) {
+                long periode = (long) (TimeUnit.SECONDS.toNanos(1) / messagesParSeconde);
+                // Départs étalés sur une période pour ne pas envoyer tous les messages au même instant
+                planificateur.scheduleAtFixedRate(() -> client.envoyerChat(remplissage),
+                        aleatoire.nextLong(periode), periode, TimeUnit.NANOSECONDS);
+            }
+            if (parolesParMinute > 0) {
+                long periode = (long) (TimeUnit.MINUTES.toNanos(1) / parolesParMinute);
+                planificateur.scheduleAtFixedRate(client::demanderParole,
+                        aleatoire.nextLong(periode), periode, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private void terminer() {
+        for (int r = 0; r < nbReunions && r < clients.size(); r++) {
+            List<ClientCharge> groupe = groupe(r);
+            for (int i = groupe.size() - 1; i >= 0; i--) {
+                // L'organisateur part en dernier et clôture la réunion
+                groupe.get(i).quitter(i == 0);
+            }
+        }
+        clients.forEach(ClientCharge::fermer);
+    }
+
+    private void afficherIntervalle(Mesures.Instantane courant, Mesures.Instantane precedent) {
+        double secondes = (courant.nanos - precedent.nanos) / 1e9;
+        System.out.printf("[%5.0fs] envoyés %8.1f msg/s  diffusions reçues %9.1f /s  paroles %6.1f /s  erreurs %d  | diffusion p50=%.2fms p99=%.2fms%n",
+                (courant.nanos - mesures.debutNanos) / 1e9,
+                (courant.envoyes - precedent.envoyes) / secondes,
+                (courant.recues - precedent.recues) / secondes,
+                (courant.paroles - precedent.paroles) / secondes,
+                courant.erreurs,
+                mesures.diffusion.percentile(50) / 1000.0, mesures.diffusion.percentile(99) / 1000.0);
+    }
+
+    private void afficherResultats(long dureeNanos) {
+        double secondes = dureeNanos / 1e9;
+        long envoyes = mesures.envoyes.sum();
+        long recues = mesures.diffusion.getTotal();
+        long attendues = 0;
+        for (int r = 0; r < nbReunions; r++) {
+            attendues += (long) groupe(r).size() * groupe(r).size();
+        }
+        // Chaque client envoie au même rythme : un message est attendu par tous les membres de sa réunion
+        double diffusionsParMessage = (double) attendues / nbClients;
+
+        System.out.println();
+        System.out.println("=== Résultats sur " + Math.round(secondes) + " s ===");
+        System.out.printf("Messages envoyés      : %d (%.1f msg/s)%n", envoyes, envoyes / secondes);
+        System.out.printf("Diffusions reçues     : %d (%.1f /s), attendues ~%.0f%n",
+                recues, recues / secondes, envoyes * diffusionsParMessage);
+        System.out.println("Latence de diffusion  : " + mesures.diffusion.resume());
+        System.out.printf("Demandes de parole    : %d réponses (%d acceptées)%n",
+                mesures.parole.getTotal(), mesures.parolesAcceptees.sum());
+        System.out.println("Latence de parole     : " + mesures.parole.resume());
+        System.out.println("Erreurs               : " + mesures.erreurs.sum());
+        System.out.println("Compression           : " + CompressionDeflate.resume());
+    }
+
+    private static void attendre(List<Future<?>> taches) throws Exception {
+        for (Future<?> tache : taches) {
+            try {
+                tache.get();
+            } catch (java.util.concurrent.ExecutionException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Compteurs partagés par tous les clients ; seules les mesures prises entre demarrer() et arreter() comptent.
+     */
+    static final class Mesures {
+
+        final Histogramme diffusion = new Histogramme(5);
+        final Histogramme parole = new Histogramme(5);
+        final LongAdder envoyes = new LongAdder();
+        final LongAdder parolesAcceptees = new LongAdder();
+        final LongAdder erreurs = new LongAdder();
+        private volatile boolean actif;
+        private volatile long debutNanos;
+
+        void demarrer() {
+            debutNanos = System.nanoTime();
+            actif = true;
+        }
+
+        void arreter() {
+            actif = false;
+        }
+
+        void chatEnvoye() {
+            if (actif) {
+                envoyes.increment();
+            }
+        }
+
+        void diffusionRecue(long latenceNanos) {
+            if (actif) {
+                diffusion.enregistrer(TimeUnit.NANOSECONDS.toMicros(latenceNanos));
+            }
+        }
+
+        void paroleRepondue(long latenceNanos, boolean acceptee) {
+            if (actif) {
+                parole.enregistrer(TimeUnit.NANOSECONDS.toMicros(latenceNanos));
+                if (acceptee) {
+                    parolesAcceptees.increment();
+                }
+            }
+        }
+
+        void erreur() {
+            erreurs.increment();
+        }
+
+        Instantane instantane() {
+            return new Instantane(System.nanoTime(), envoyes.sum(), diffusion.getTotal(), parole.getTotal(), erreurs.sum());
+        }
+
+        static final class Instantane {
+            final long nanos;
+            final long envoyes;
+            final long recues;
+            final long paroles;
+            final long erreurs;
+
+            Instantane(long nanos, long envoyes, long recues, long paroles, long erreurs) {
+                this.nanos = nanos;
+                this.envoyes = envoyes;
+                this.recues = recues;
+                this.paroles = paroles;
+                this.erreurs = erreurs;
+            }
+        }
+    }
+}
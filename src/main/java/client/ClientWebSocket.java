@@ -7,18 +7,27 @@ import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.stage.Stage;
 import org.json.JSONObject;
+import protocole.CompressionDeflate;
+import protocole.ProtocoleBinaire;
 
 import javax.websocket.*;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
 import java.util.Timer;
 import java.util.TimerTask;
 
 @ClientEndpoint
 public class ClientWebSocket {
 
+    // -Dtpbmo.protocole=binaire : demande le protocole binaire compact (chat, entrée/sortie, parole)
+    private static final boolean BINAIRE_DEMANDE =
+            ProtocoleBinaire.BINAIRE.equals(System.getProperty("tpbmo.protocole", ProtocoleBinaire.JSON));
+
     private Session session;
+    // Vrai une fois que le message "welcome" du serveur a confirmé le protocole binaire
+    private volatile boolean binaireActif = false;
     private boolean reconnexionEnCours = false;
     private String ipServeurStockee;
     private boolean estConnecteAuServeur = false;
@@ -47,6 +56,7 @@ public class ClientWebSocket {
     @OnOpen
     public void onOpen(Session session) {
         this.session = session;
+        this.binaireActif = false;
         this.reconnexionEnCours = false;
         this.estConnecteAuServeur = true;
         System.out.println("Connecté au serveur WebSocket - Session ID: " + session.getId());
@@ -140,6 +150,7 @@ public class ClientWebSocket {
                 } else if ("admin".equals(modele) && controllerAdmin != null) {
                     controllerAdmin.traiterReponseAdmin(message); //
                 } else if ("welcome".equals(typeMessage)) {
+                    binaireActif = BINAIRE_DEMANDE && ProtocoleBinaire.BINAIRE.equals(jsonMessage.optString("protocole"));
                     System.out.println("Message serveur (type: " + typeMessage + "): " + jsonMessage.optString("message"));
                 } else if ("error".equals(typeMessage)) {
                     String errorMsgContent = jsonMessage.optString("message", "Erreur inconnue du serveur.");
@@ -159,6 +170,18 @@ public class ClientWebSocket {
         });
     }
 
+    /**
+     * Trame binaire : convertie en son équivalent JSON puis routée comme un message texte.
+     */
+    @OnMessage
+    public void onMessage(ByteBuffer message) {
+        try {
+            onMessage(ProtocoleBinaire.versJson(message).toString());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Trame binaire invalide reçue du serveur: " + e.getMessage());
+        }
+    }
+
     @OnClose
     public void onClose(Session session, CloseReason reason) {
         // ... (code de la version précédente, Platform.runLater est déjà là)
@@ -275,7 +298,12 @@ public class ClientWebSocket {
         // ... (code de la version précédente, les Platform.runLater sont déjà là pour les alertes)
         if (session != null && session.isOpen() && estConnecteAuServeur) {
             try {
-                session.getBasicRemote().sendText(jsonRequete);
+                ByteBuffer binaire = binaireActif ? ProtocoleBinaire.depuisJson(new JSONObject(jsonRequete)) : null;
+                if (binaire != null) {
+                    session.getBasicRemote().sendBinary(binaire);
+                } else {
+                    session.getBasicRemote().sendText(jsonRequete);
+                }
                 System.out.println("Requête envoyée au serveur : " + jsonRequete);
             } catch (IOException e) {
                 System.err.println("Erreur lors de l'envoi de la requête : " + e.getMessage());
@@ -322,9 +350,13 @@ public class ClientWebSocket {
         new Thread(() -> {
             try {
                 WebSocketContainer container = ContainerProvider.getWebSocketContainer();
-                String webSocketUrl = "ws://" + ipServeurStockee + ":8080/";
+                String webSocketUrl = "ws://" + ipServeurStockee + ":8080/"
+                        + (BINAIRE_DEMANDE ? "?" + ProtocoleBinaire.PARAMETRE + "=" + ProtocoleBinaire.BINAIRE : "");
                 System.out.println("Tentative de connexion à: " + webSocketUrl);
-                container.connectToServer(this, new URI(webSocketUrl));
+                // Connexion programmatique : seule une ClientEndpointConfig permet de proposer la compression
+                ClientEndpointConfig config = ClientEndpointConfig.Builder.create()
+                        .extensions(CompressionDeflate.offre()).build();
+                container.connectToServer(new EndpointCompresse(), config, new URI(webSocketUrl));
             } catch (DeploymentException | IOException | URISyntaxException e) {
                 System.err.println("Échec de la connexion WebSocket à " + ipServeurStockee + ": " + e.getMessage());
                 final String errorTitle;
@@ -351,6 +383,28 @@ public class ClientWebSocket {
         }).start();
     }
 
+    /**
+     * Relaie les événements de la connexion vers les méthodes annotées de ce client.
+     */
+    private final class EndpointCompresse extends Endpoint {
+        @Override
+        public void onOpen(Session session, EndpointConfig config) {
+            session.addMessageHandler(String.class, (MessageHandler.Whole<String>) ClientWebSocket.this::onMessage);
+            session.addMessageHandler(ByteBuffer.class, (MessageHandler.Whole<ByteBuffer>) ClientWebSocket.this::onMessage);
+            ClientWebSocket.this.onOpen(session);
+        }
+
+        @Override
+        public void onClose(Session session, CloseReason reason) {
+            ClientWebSocket.this.onClose(session, reason);
+        }
+
+        @Override
+        public void onError(Session session, Throwable throwable) {
+            ClientWebSocket.this.onError(session, throwable);
+        }
+    }
+
     public boolean isConnected() {
         return estConnecteAuServeur && session != null && session.isOpen();
     }
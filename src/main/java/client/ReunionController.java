@@ -17,12 +17,19 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import org.json.JSONObject;
 import org.json.JSONArray;
+import protocole.ParticipantsVersionnes;
 
 import java.io.IOException;
 import java.time.Duration; // Remplacé java.time.Duration par son équivalent pour le calcul
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -41,7 +48,7 @@ public class ReunionController {
     @FXML private Button inviteButton;
     @FXML private VBox participantsPane;
     @FXML private Label participantCountLabel;
-    @FXML private ListView<String> participantsListView;
+    @FXML private ListView<Participant> participantsListView;
     @FXML
     private Button btnSupprimerReunion;
 
@@ -54,17 +61,41 @@ public class ReunionController {
 
     private Timer durationTimerObj;
     private LocalDateTime startTime;
-    private ObservableList<String> participantsObservableList = FXCollections.observableArrayList();
+    private ObservableList<Participant> participantsObservableList = FXCollections.observableArrayList();
+    // Liste versionnée par id, source de participantsObservableList
+    private final ParticipantsVersionnes participants = new ParticipantsVersionnes();
+    private boolean demandeParticipantsEnCours = false;
     private boolean isInitialized = false; // Ajout du flag d'initialisation
 
+    // Historique paginé : on charge la page la plus récente, puis les plus anciennes en remontant
+    private static final int TAILLE_PAGE_HISTORIQUE = 50;
+    private final Set<Integer> messagesAffiches = new HashSet<>();
+    private int plusAncienMessageId = -1;
+    private boolean historiqueComplet = false;
+    private boolean chargementHistoriqueEnCours = false;
+
 
     @FXML
     public void initialize() {
         participantsListView.setItems(participantsObservableList);
+        participantsListView.setCellFactory(liste -> new ListCell<>() {
+            @Override
+            protected void updateItem(Participant participant, boolean empty) {
+                super.updateItem(participant, empty);
+                setText(empty || participant == null ? null : libelleParticipant(participant.id(), participant.nom()));
+            }
+        });
         participantsPane.setVisible(false);
         participantsPane.setManaged(false);
         updateStatusIndicatorStyle(false, "Connexion...");
         messageInput.setOnAction(event -> envoyerMessage());
+        messageScrollPane.vvalueProperty().addListener((obs, ancienne, nouvelle) -> {
+            // Sans curseur (historique vide ou pas encore reçu), -1 rechargerait la dernière page
+            if (nouvelle.doubleValue() <= messageScrollPane.getVmin()
+                    && !historiqueComplet && plusAncienMessageId >= 0) {
+                demanderPageHistorique(plusAncienMessageId);
+            }
+        });
     }
 
     public void setClientWebSocket(ClientWebSocket clientWebSocket) {
@@ -123,20 +154,32 @@ public class ReunionController {
 
     private void fetchInitialReunionData() {
         if (clientWebSocket != null && clientWebSocket.isConnected() && isInitialized) {
-            JSONObject participantsRequest = new JSONObject();
-            participantsRequest.put("modele", "reunion");
-            participantsRequest.put("action", "getParticipants");
-            participantsRequest.put("reunionId", currentReunionId);
-            clientWebSocket.envoyerRequete(participantsRequest.toString());
+            demanderParticipants();
 
-            JSONObject messagesRequest = new JSONObject();
-            messagesRequest.put("modele", "reunion");
-            messagesRequest.put("action", "getHistoriqueMessages");
-            messagesRequest.put("reunionId", currentReunionId);
-            clientWebSocket.envoyerRequete(messagesRequest.toString());
+            demanderPageHistorique(-1);
         }
     }
 
+    /**
+     * Demande une page d'historique : la plus récente si avantId vaut -1, sinon celle qui précède avantId.
+     */
+    private void demanderPageHistorique(int avantId) {
+        if (chargementHistoriqueEnCours || (avantId != -1 && historiqueComplet)
+                || clientWebSocket == null || !clientWebSocket.isConnected() || !isInitialized) {
+            return;
+        }
+        chargementHistoriqueEnCours = true;
+        JSONObject messagesRequest = new JSONObject();
+        messagesRequest.put("modele", "reunion");
+        messagesRequest.put("action", "getHistoriqueMessages");
+        messagesRequest.put("reunionId", currentReunionId);
+        messagesRequest.put("limit", TAILLE_PAGE_HISTORIQUE);
+        if (avantId != -1) {
+            messagesRequest.put("beforeId", avantId);
+        }
+        clientWebSocket.envoyerRequete(messagesRequest.toString());
+    }
+
 
     private void updateStatusIndicatorStyle(boolean isConnected, String statusText) {
         Platform.runLater(() -> {
@@ -216,62 +259,48 @@ public class ReunionController {
                         String joinedUserName = json.optString("username", "Un utilisateur");
                         int joinedUserId = json.optInt("userId", -1);
                         addSystemMessage(joinedUserName + " a rejoint la réunion.");
-                        if (!participantsObservableList.contains(joinedUserName) && (joinedUserId != currentUserId || !participantsObservableList.contains(currentUserName + " (Vous)"))) {
-                             participantsObservableList.add(joinedUserId == currentUserId ? currentUserName + " (Vous)" : joinedUserName);
+                        if (json.has("version")) {
+                            appliquerMouvement(participants.entrer(json.optLong("version"), joinedUserId, joinedUserName),
+                                    () -> placerParticipant(new Participant(joinedUserId, joinedUserName)));
                         }
-                        updateParticipantCountDisplay();
                         break;
                     case "userLeft":
                         String leftUserName = json.optString("username", "Un utilisateur");
-                        // int leftUserId = json.optInt("userId", -1); // Non utilisé directement ici
+                        int leftUserId = json.optInt("userId", -1);
                         addSystemMessage(leftUserName + " a quitté la réunion.");
-                        participantsObservableList.remove(leftUserName);
-                        participantsObservableList.remove(leftUserName + " (Vous)"); // Au cas où
-                        updateParticipantCountDisplay();
+                        if (json.has("version")) {
+                            appliquerMouvement(participants.sortir(json.optLong("version"), leftUserId),
+                                    () -> participantsObservableList.removeIf(p -> p.id() == leftUserId));
+                        }
                         break;
                     case "invitationResult":
                          handleInvitationResult(json);
                         break;
                     case "listeParticipants":
+                        demandeParticipantsEnCours = false;
                         JSONArray participantsArray = json.optJSONArray("participants");
                         if (participantsArray != null) {
-                            participantsObservableList.clear();
-                            boolean selfInList = false;
+                            Map<Integer, String> liste = new LinkedHashMap<>();
                             for (int i = 0; i < participantsArray.length(); i++) {
                                 JSONObject participantJson = participantsArray.optJSONObject(i);
-                                String participantName = participantJson.optString("nom", "Participant inconnu");
-                                int participantId = participantJson.optInt("id", -1);
-                                if (participantId == currentUserId) {
-                                    participantsObservableList.add(currentUserName + " (Vous)");
-                                    selfInList = true;
-                                } else {
-                                    participantsObservableList.add(participantName);
-                                }
-                            }
-                            if (!selfInList && currentUserName != null && !currentUserName.isEmpty()) {
-                                // S'assurer que l'utilisateur actuel est dans la liste s'il n'y est pas déjà
-                                // Cela peut arriver si la liste initiale du serveur ne contient pas l'utilisateur qui vient de rejoindre.
-                                // participantsObservableList.add(0, currentUserName + " (Vous)"); // Ajouté en premier
+                                liste.put(participantJson.optInt("id", -1), participantJson.optString("nom", "Participant inconnu"));
                             }
+                            // Sans version (erreur serveur), les prochains changements redemanderont la liste
+                            participants.remplacer(json.optLong("version", 0), liste);
+                            List<Participant> affiches = new ArrayList<>(liste.size());
+                            liste.forEach((id, nom) -> affiches.add(new Participant(id, nom)));
+                            participantsObservableList.setAll(affiches);
                         }
                         updateParticipantCountDisplay();
                         break;
                     case "historiqueMessages":
+                        chargementHistoriqueEnCours = false;
                         JSONArray messagesArray = json.optJSONArray("messages");
                         if (messagesArray != null) {
-                            boolean hadPreviousMessages = !messageArea.getChildren().isEmpty();
-                            if(hadPreviousMessages && messageArea.getChildren().get(0) instanceof Label && ((Label)messageArea.getChildren().get(0)).getText().startsWith("Début de l'historique")){
-                                // Ne pas re-effacer si on a déjà chargé l'historique une fois.
+                            if (json.has("beforeId")) {
+                                afficherPageAnterieure(messagesArray, json.optBoolean("hasMore"));
                             } else {
-                                messageArea.getChildren().clear();
-                                addSystemMessage("Début de l'historique des messages.");
-                            }
-                            for (int i = 0; i < messagesArray.length(); i++) {
-                                displayMessage(messagesArray.getJSONObject(i), true);
-                            }
-                            if (!hadPreviousMessages && messagesArray.length() > 0) { // Seulement si c'est le premier chargement d'historique
-                                 addSystemMessage("Fin de l'historique des messages.");
-                                 Platform.runLater(() -> messageScrollPane.setVvalue(1.0)); // Scroll en bas après chargement historique
+                                afficherDernierePage(messagesArray, json.optBoolean("hasMore"));
                             }
                         }
                         break;
@@ -289,7 +318,89 @@ public class ReunionController {
         });
     }
 
+    /**
+     * Premier chargement : remplace la zone par la page la plus récente et descend en bas.
+     */
+    private void afficherDernierePage(JSONArray messagesArray, boolean encore) {
+        messageArea.getChildren().clear();
+        messagesAffiches.clear();
+        plusAncienMessageId = -1;
+        historiqueComplet = !encore;
+        if (historiqueComplet) {
+            addSystemMessage("Début de l'historique des messages.");
+        }
+        for (int i = 0; i < messagesArray.length(); i++) {
+            displayMessage(messagesArray.getJSONObject(i), true);
+        }
+        if (messagesArray.length() > 0) {
+            plusAncienMessageId = messagesArray.getJSONObject(0).optInt("id", -1);
+            addSystemMessage("Fin de l'historique des messages.");
+        }
+        Platform.runLater(() -> messageScrollPane.setVvalue(1.0)); // Scroll en bas après chargement historique
+        completerSiVueNonRemplie();
+    }
+
+    /**
+     * Page plus ancienne reçue en remontant : insérée en tête sans faire sauter la vue.
+     */
+    private void afficherPageAnterieure(JSONArray messagesArray, boolean encore) {
+        double hauteurAvant = messageArea.getHeight();
+        double vueHauteur = messageScrollPane.getViewportBounds().getHeight();
+        double positionAvant = messageScrollPane.getVvalue() * Math.max(0, hauteurAvant - vueHauteur);
+
+        List<javafx.scene.Node> page = new ArrayList<>();
+        for (int i = 0; i < messagesArray.length(); i++) {
+            JSONObject messageJson = messagesArray.getJSONObject(i);
+            if (messagesAffiches.add(messageJson.optInt("id", -1))) {
+                page.add(creerBulleMessage(messageJson));
+            }
+        }
+        if (messagesArray.length() > 0) {
+            plusAncienMessageId = messagesArray.getJSONObject(0).optInt("id", plusAncienMessageId);
+        }
+        historiqueComplet = !encore;
+        if (historiqueComplet) {
+            page.add(0, creerMessageSysteme("Début de l'historique des messages."));
+        }
+        messageArea.getChildren().addAll(0, page);
+
+        // Garde sous les yeux le message qui était en haut avant l'insertion
+        messageScrollPane.layout();
+        double hauteurApres = messageArea.getHeight();
+        double defilable = hauteurApres - vueHauteur;
+        if (defilable > 0) {
+            messageScrollPane.setVvalue((positionAvant + hauteurApres - hauteurAvant) / defilable);
+        }
+        completerSiVueNonRemplie();
+    }
+
+    /**
+     * Tant que les messages ne remplissent pas la vue, il n'y a rien à faire défiler : le vvalue ne change pas
+     * et la page précédente ne serait jamais demandée. On la demande donc aussitôt.
+     */
+    private void completerSiVueNonRemplie() {
+        Platform.runLater(() -> {
+            messageScrollPane.layout();
+            if (!historiqueComplet && plusAncienMessageId >= 0
+                    && messageArea.getHeight() <= messageScrollPane.getViewportBounds().getHeight()) {
+                demanderPageHistorique(plusAncienMessageId);
+            }
+        });
+    }
+
     private void displayMessage(JSONObject json, boolean isHistory) {
+        // Un message peut arriver en direct puis dans une page d'historique (ou l'inverse)
+        if (json.has("id") && !messagesAffiches.add(json.optInt("id"))) {
+            return;
+        }
+        messageArea.getChildren().add(creerBulleMessage(json));
+
+        if (!isHistory) {
+             Platform.runLater(() -> messageScrollPane.setVvalue(1.0));
+        }
+    }
+
+    private VBox creerBulleMessage(JSONObject json) {
         String senderName = json.optString("sender", "Inconnu");
         String content = json.optString("content", "");
         int messageUserId = -1;
@@ -363,29 +474,20 @@ public class ReunionController {
         bubbleWrapper.getChildren().add(bubble);
         messageContainer.getChildren().add(bubbleWrapper);
 
-        // Pour l'historique, on ajoute les messages en haut (ou dans l'ordre reçu du serveur)
-        // Pour les nouveaux messages, on ajoute en bas.
-        if (isHistory) {
-            // Si l'historique est chargé en une fois, l'ordre est déjà géré par la boucle.
-            // Si les messages d'historique arrivent un par un et doivent être insérés au début :
-            // messageArea.getChildren().add(0, messageContainer); // Pour insérer en haut
-            messageArea.getChildren().add(messageContainer); // Ajoute à la fin, suppose que le serveur envoie dans l'ordre chronologique
-        } else {
-            messageArea.getChildren().add(messageContainer);
-        }
-
-        if (!isHistory) {
-             Platform.runLater(() -> messageScrollPane.setVvalue(1.0));
-        }
+        return messageContainer;
     }
 
     private void addSystemMessage(String text) {
+        messageArea.getChildren().add(creerMessageSysteme(text));
+    }
+
+    private Label creerMessageSysteme(String text) {
         Label systemLabel = new Label(text);
         systemLabel.getStyleClass().add("secondary-text");
         systemLabel.setMaxWidth(Double.MAX_VALUE);
         systemLabel.setAlignment(Pos.CENTER);
         systemLabel.setPadding(new Insets(5,0,5,0));
-        messageArea.getChildren().add(systemLabel);
+        return systemLabel;
     }
 
     @FXML
@@ -430,16 +532,55 @@ public class ReunionController {
         participantsPane.setVisible(!isVisible);
         participantsPane.setManaged(!isVisible);
 
-        if (!isVisible) { // Si on vient de le rendre visible
-            // Rafraîchir la liste des participants
-            JSONObject participantsRequest = new JSONObject();
-            participantsRequest.put("modele", "reunion");
-            participantsRequest.put("action", "getParticipants");
-            participantsRequest.put("reunionId", currentReunionId);
-            clientWebSocket.envoyerRequete(participantsRequest.toString());
+        // La liste est tenue à jour par les arrivées/départs : on ne la redemande que si on ne l'a pas encore
+        if (!isVisible && participants.getVersion() == 0) {
+            demanderParticipants();
         }
     }
 
+    /**
+     * Applique à l'affichage un changement accepté par la liste versionnée ; sur un trou, redemande la liste complète.
+     */
+    private void appliquerMouvement(ParticipantsVersionnes.Resultat resultat, Runnable affichage) {
+        switch (resultat) {
+            case APPLIQUE -> {
+                affichage.run();
+                updateParticipantCountDisplay();
+            }
+            case TROU -> demanderParticipants();
+            case IGNORE -> { }
+        }
+    }
+
+    /**
+     * Ajoute le participant, ou remplace sur place l'entrée de même id (changement de nom).
+     */
+    private void placerParticipant(Participant participant) {
+        for (int i = 0; i < participantsObservableList.size(); i++) {
+            if (participantsObservableList.get(i).id() == participant.id()) {
+                participantsObservableList.set(i, participant);
+                return;
+            }
+        }
+        participantsObservableList.add(participant);
+    }
+
+    private String libelleParticipant(int participantId, String nom) {
+        return participantId == currentUserId ? currentUserName + " (Vous)" : nom;
+    }
+
+    private void demanderParticipants() {
+        if (demandeParticipantsEnCours || clientWebSocket == null || !clientWebSocket.isConnected()) {
+            return;
+        }
+        demandeParticipantsEnCours = true;
+        JSONObject participantsRequest = new JSONObject();
+        participantsRequest.put("modele", "reunion");
+        participantsRequest.put("action", "getParticipants");
+        participantsRequest.put("reunionId", currentReunionId);
+        clientWebSocket.envoyerRequete(participantsRequest.toString());
+    }
+
     private void updateParticipantCountDisplay() {
         // Compte basé sur la liste observable qui devrait être la source de vérité
         int count = participantsObservableList.size();
@@ -605,4 +746,10 @@ public class ReunionController {
             showAlert(Alert.AlertType.ERROR, "Erreur de Suppression", message);
         }
     }
+
+    /**
+     * Entrée de la liste des participants, identifiée par id (deux participants peuvent porter le même nom).
+     */
+    private record Participant(int id, String nom) {
+    }
 }
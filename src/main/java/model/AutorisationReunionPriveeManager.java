@@ -10,15 +10,20 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class AutorisationReunionPriveeManager {
-    private Connection connection;
 
-    public AutorisationReunionPriveeManager() throws SQLException {
-        this.connection = Database.getConnection();
+    private static final AutorisationReunionPriveeManager INSTANCE = new AutorisationReunionPriveeManager();
+
+    private AutorisationReunionPriveeManager() {
+    }
+
+    public static AutorisationReunionPriveeManager getInstance() {
+        return INSTANCE;
     }
 
     public boolean autoriserAcces(int personneId, int reunionId) throws SQLException {
         String sql = "INSERT INTO autorisation_reunion_privee (personne_id, reunion_id) VALUES (?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, personneId);
             pstmt.setInt(2, reunionId);
             int affectedRows = pstmt.executeUpdate();
@@ -33,7 +38,8 @@ public class AutorisationReunionPriveeManager {
 
     public boolean retirerAutorisation(int personneId, int reunionId) throws SQLException {
         String sql = "DELETE FROM autorisation_reunion_privee WHERE personne_id = ? AND reunion_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, personneId);
             pstmt.setInt(2, reunionId);
             int affectedRows = pstmt.executeUpdate();
@@ -44,7 +50,8 @@ public class AutorisationReunionPriveeManager {
     public List<Personne> obtenirPersonnesAutorisees(int reunionId) throws SQLException {
         List<Personne> autorisees = new ArrayList<>();
         String sql = "SELECT p.id, p.nom, p.prenom, p.login, p.password, p.connecte FROM personne p JOIN autorisation_reunion_privee arp ON p.id = arp.personne_id WHERE arp.reunion_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, reunionId);
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
@@ -63,7 +70,8 @@ public class AutorisationReunionPriveeManager {
 
     public boolean estAutorise(int personneId, int reunionId) throws SQLException {
         String sql = "SELECT COUNT(*) FROM autorisation_reunion_privee WHERE personne_id = ? AND reunion_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, personneId);
             pstmt.setInt(2, reunionId);
             ResultSet rs = pstmt.executeQuery();
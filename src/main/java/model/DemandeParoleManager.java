@@ -6,19 +6,25 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
 
 public class DemandeParoleManager {
-    private Connection connection;
 
-    public DemandeParoleManager() throws SQLException {
-        this.connection = Database.getConnection();
+    private static final DemandeParoleManager INSTANCE = new DemandeParoleManager();
+
+    private DemandeParoleManager() {
+    }
+
+    public static DemandeParoleManager getInstance() {
+        return INSTANCE;
     }
 
     public DemandeParole demanderParole(int personneId, int reunionId) throws SQLException {
         String sql = "INSERT INTO demande_parole (personne_id, reunion_id) VALUES (?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
             pstmt.setInt(1, personneId);
             pstmt.setInt(2, reunionId);
             int affectedRows = pstmt.executeUpdate();
@@ -26,7 +32,7 @@ public class DemandeParoleManager {
                 try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
                         int newId = generatedKeys.getInt(1);
-                        return obtenirDemandeParoleParId(newId);
+                        return lireDemande(connection, newId);
                     } else {
                         throw new SQLException("Creating request failed, no ID obtained.");
                     }
@@ -38,12 +44,13 @@ public class DemandeParoleManager {
             if (e.getSQLState().equals("23000") && e.getMessage().contains("Duplicate entry")) {
                 // Gérer le cas où la personne a déjà une demande en attente dans cette réunion
                 String sqlSelect = "SELECT id FROM demande_parole WHERE personne_id = ? AND reunion_id = ? AND statut = 'EN_ATTENTE'";
-                try (PreparedStatement pstmtSelect = connection.prepareStatement(sqlSelect)) {
+                try (Connection connection = Database.getConnection();
+                     PreparedStatement pstmtSelect = connection.prepareStatement(sqlSelect)) {
                     pstmtSelect.setInt(1, personneId);
                     pstmtSelect.setInt(2, reunionId);
                     ResultSet rs = pstmtSelect.executeQuery();
                     if (rs.next()) {
-                        return obtenirDemandeParoleParId(rs.getInt("id"));
+                        return lireDemande(connection, rs.getInt("id"));
                     }
                 }
             }
@@ -54,7 +61,8 @@ public class DemandeParoleManager {
     public boolean accordParole(int demandeParoleId, int animateurId) throws SQLException {
         // Vous pourriez ajouter une vérification pour s'assurer que l'animateur est bien l'animateur de la réunion
         String sql = "UPDATE demande_parole SET statut = ? WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, DemandeParole.Statut.ACCORDEE.toString());
             pstmt.setInt(2, demandeParoleId);
             int affectedRows = pstmt.executeUpdate();
@@ -65,7 +73,8 @@ public class DemandeParoleManager {
     public boolean refuserParole(int demandeParoleId, int animateurId) throws SQLException {
         // Similaire à accordParole, vérifiez l'animateur si nécessaire
         String sql = "UPDATE demande_parole SET statut = ? WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, DemandeParole.Statut.REFUSEE.toString());
             pstmt.setInt(2, demandeParoleId);
             int affectedRows = pstmt.executeUpdate();
@@ -75,7 +84,8 @@ public class DemandeParoleManager {
 
     public DemandeParole obtenirProchaineDemandeParole(int reunionId) throws SQLException {
         String sql = "SELECT id, personne_id, reunion_id, heure_demande, statut FROM demande_parole WHERE reunion_id = ? AND statut = 'EN_ATTENTE' ORDER BY heure_demande ASC LIMIT 1";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, reunionId);
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
@@ -93,8 +103,9 @@ public class DemandeParoleManager {
 
     public List<DemandeParole> obtenirDemandesEnAttente(int reunionId) throws SQLException {
         List<DemandeParole> demandes = new ArrayList<>();
-        String sql = "SELECT id, personne_id, reunion_id, heure_demande, statut FROM demande_parole WHERE reunion_id = ? AND statut = 'EN_ATTENTE' ORDER BY heure_demande ASC";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        String sql = "SELECT id, personne_id, reunion_id, heure_demande, statut FROM demande_parole WHERE reunion_id = ? AND statut = 'EN_ATTENTE' ORDER BY heure_demande ASC, id ASC";
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, reunionId);
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
@@ -112,7 +123,8 @@ public class DemandeParoleManager {
 
     public DemandeParole obtenirDemandesParPersonneEtReunion(int personneId, int reunionId) throws SQLException {
         String sql = "SELECT id, personne_id, reunion_id, heure_demande, statut FROM demande_parole WHERE personne_id = ? AND reunion_id = ? ORDER BY heure_demande DESC LIMIT 1";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, personneId);
             pstmt.setInt(2, reunionId);
             ResultSet rs = pstmt.executeQuery();
@@ -132,7 +144,8 @@ public class DemandeParoleManager {
     public List<DemandeParole> obtenirDemandesPourReunion(int reunionId) throws SQLException {
         List<DemandeParole> demandes = new ArrayList<>();
         String sql = "SELECT id, personne_id, reunion_id, heure_demande, statut FROM demande_parole WHERE reunion_id = ? ORDER BY heure_demande ASC";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, reunionId);
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
@@ -150,7 +163,8 @@ public class DemandeParoleManager {
 
     public boolean changerStatutDemandeParole(int demandeParoleId, DemandeParole.Statut statut) throws SQLException {
         String sql = "UPDATE demande_parole SET statut = ? WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, statut.toString());
             pstmt.setInt(2, demandeParoleId);
             int affectedRows = pstmt.executeUpdate();
@@ -160,6 +174,12 @@ public class DemandeParoleManager {
 
     // NOUVELLE MÉTHODE : obtenirDemandeParoleParId
     public DemandeParole obtenirDemandeParoleParId(int id) throws SQLException {
+        try (Connection connection = Database.getConnection()) {
+            return lireDemande(connection, id);
+        }
+    }
+
+    private DemandeParole lireDemande(Connection connection, int id) throws SQLException {
         String sql = "SELECT id, personne_id, reunion_id, heure_demande, statut FROM demande_parole WHERE id = ?";
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, id);
@@ -199,7 +219,8 @@ public class DemandeParoleManager {
      */
     public boolean aDemandeEnAttente(int personneId, int reunionId) throws SQLException {
         String sql = "SELECT COUNT(*) FROM demande_parole WHERE personne_id = ? AND reunion_id = ? AND statut = 'EN_ATTENTE'";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, personneId);
             pstmt.setInt(2, reunionId);
             ResultSet rs = pstmt.executeQuery();
@@ -215,11 +236,64 @@ public class DemandeParoleManager {
      */
     public boolean annulerDemandesEnAttente(int personneId, int reunionId) throws SQLException {
         String sql = "UPDATE demande_parole SET statut = 'REFUSEE' WHERE personne_id = ? AND reunion_id = ? AND statut = 'EN_ATTENTE'";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, personneId);
             pstmt.setInt(2, reunionId);
             int affectedRows = pstmt.executeUpdate();
             return affectedRows > 0;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Écrit en une transaction les demandes créées en mémoire (id et heure déjà attribués)
+     * puis les changements de statut des demandes existantes.
+     */
+    public void enregistrerLot(List<DemandeParole> nouvelles, List<DemandeParole> modifiees) throws SQLException {
+        String sqlInsert = "INSERT INTO demande_parole (id, personne_id, reunion_id, heure_demande, statut) VALUES (?, ?, ?, ?, ?)";
+        String sqlUpdate = "UPDATE demande_parole SET statut = ? WHERE id = ?";
+        try (Connection connection = Database.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(sqlInsert);
+                 PreparedStatement update = connection.prepareStatement(sqlUpdate)) {
+                for (DemandeParole demande : nouvelles) {
+                    insert.setInt(1, demande.getId());
+                    insert.setInt(2, demande.getPersonneId());
+                    insert.setInt(3, demande.getReunionId());
+                    insert.setTimestamp(4, Timestamp.valueOf(demande.getHeureDemande()));
+                    insert.setString(5, demande.getStatut().toString());
+                    insert.addBatch();
+                }
+                for (DemandeParole demande : modifiees) {
+                    update.setString(1, demande.getStatut().toString());
+                    update.setInt(2, demande.getId());
+                    update.addBatch();
+                }
+                if (!nouvelles.isEmpty()) {
+                    insert.executeBatch();
+                }
+                if (!modifiees.isEmpty()) {
+                    update.executeBatch();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Plus grand id de demande existant (0 si la table est vide).
+     */
+    public int obtenirDernierId() throws SQLException {
+        String sql = "SELECT COALESCE(MAX(id), 0) FROM demande_parole";
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
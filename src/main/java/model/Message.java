@@ -8,6 +8,8 @@ public class Message {
     private int idReunion;
     private String contenu;
     private LocalDateTime heureEnvoi;
+    // Nom affiché de l'expéditeur, renseigné quand le message est lu avec sa jointure sur personne
+    private String nomExpediteur;
 
     public Message(int id, int idPersonne, int idReunion, String contenu) {
         this.id = id;
@@ -56,4 +58,12 @@ public class Message {
     public void setHeureEnvoi(LocalDateTime heureEnvoi) {
         this.heureEnvoi = heureEnvoi;
     }
-}
\ No newline at end of file
+
+    public String getNomExpediteur() {
+        return nomExpediteur;
+    }
+
+    public void setNomExpediteur(String nomExpediteur) {
+        this.nomExpediteur = nomExpediteur;
+    }
+}
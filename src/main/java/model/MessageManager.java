@@ -5,19 +5,26 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class MessageManager {
-    private Connection connection;
 
-    public MessageManager() throws SQLException {
-        this.connection = Database.getConnection(); //
+    private static final MessageManager INSTANCE = new MessageManager();
+
+    private MessageManager() {
+    }
+
+    public static MessageManager getInstance() {
+        return INSTANCE;
     }
 
     public Message envoyerMessage(int personneId, int reunionId, String contenu) throws SQLException {
         String sql = "INSERT INTO message (personne_id, reunion_id, contenu) VALUES (?, ?, ?)"; //
-        try (PreparedStatement pstmt = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
             pstmt.setInt(1, personneId);
             pstmt.setInt(2, reunionId);
             pstmt.setString(3, contenu);
@@ -26,7 +33,7 @@ public class MessageManager {
                 try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
                         int newId = generatedKeys.getInt(1);
-                        return obtenirMessageParId(newId);
+                        return lireMessage(connection, newId);
                     } else {
                         throw new SQLException("Creating message failed, no ID obtained.");
                     }
@@ -43,7 +50,8 @@ public class MessageManager {
         String sql = "SELECT m.id, m.personne_id, m.reunion_id, m.contenu, m.heure_envoi, p.nom, p.prenom " +
                 "FROM message m JOIN personne p ON m.personne_id = p.id " +
                 "WHERE m.reunion_id = ? ORDER BY m.heure_envoi ASC"; //
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, reunionId);
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
@@ -57,13 +65,101 @@ public class MessageManager {
                         rs.getString("contenu")
                 ); //
                 message.setHeureEnvoi(rs.getTimestamp("heure_envoi").toLocalDateTime()); //
+                message.setNomExpediteur(nomAffiche(rs.getString("prenom"), rs.getString("nom"), message.getIdPersonne()));
                 messages.add(message);
             }
         }
         return messages;
     }
 
-    private Message obtenirMessageParId(int id) throws SQLException {
+    /**
+     * Page de l'historique d'une réunion par curseur sur l'id (index (reunion_id, id)), en ordre chronologique.
+     * Avec apresId, retourne les messages qui suivent ; sinon ceux qui précèdent avantId (ou les plus récents si null).
+     * Jusqu'à limite messages sont retournés.
+     */
+    public List<Message> obtenirPageMessages(int reunionId, Integer avantId, Integer apresId, int limite) throws SQLException {
+        boolean versLeBas = apresId != null;
+        String sql = "SELECT m.id, m.personne_id, m.reunion_id, m.contenu, m.heure_envoi, p.nom, p.prenom " +
+                "FROM message m JOIN personne p ON m.personne_id = p.id " +
+                "WHERE m.reunion_id = ?" +
+                (versLeBas ? " AND m.id > ? ORDER BY m.id ASC" : (avantId != null ? " AND m.id < ?" : "") + " ORDER BY m.id DESC") +
+                " LIMIT ?";
+        List<Message> messages = new ArrayList<>();
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            int i = 1;
+            pstmt.setInt(i++, reunionId);
+            if (versLeBas) {
+                pstmt.setInt(i++, apresId);
+            } else if (avantId != null) {
+                pstmt.setInt(i++, avantId);
+            }
+            pstmt.setInt(i, limite);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Message message = new Message(rs.getInt("id"), rs.getInt("personne_id"),
+                            rs.getInt("reunion_id"), rs.getString("contenu"));
+                    message.setHeureEnvoi(rs.getTimestamp("heure_envoi").toLocalDateTime());
+                    message.setNomExpediteur(nomAffiche(rs.getString("prenom"), rs.getString("nom"), message.getIdPersonne()));
+                    messages.add(message);
+                }
+            }
+        }
+        if (!versLeBas) {
+            Collections.reverse(messages);
+        }
+        return messages;
+    }
+
+    /**
+     * Nom affiché d'un expéditeur : "prénom nom", ou "Utilisateur <id>" si les deux sont vides.
+     */
+    public static String nomAffiche(String prenom, String nom, int personneId) {
+        String nomComplet = ((prenom != null ? prenom : "") + " " + (nom != null ? nom : "")).trim();
+        return nomComplet.isEmpty() ? "Utilisateur " + personneId : nomComplet;
+    }
+
+    /**
+     * Insère un lot de messages dont l'id et l'heure ont déjà été attribués par le serveur,
+     * en une seule transaction et un seul aller-retour JDBC (batch).
+     */
+    public void enregistrerLot(List<Message> messages) throws SQLException {
+        String sql = "INSERT INTO message (id, personne_id, reunion_id, contenu, heure_envoi) VALUES (?, ?, ?, ?, ?)";
+        try (Connection connection = Database.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                for (Message message : messages) {
+                    pstmt.setInt(1, message.getId());
+                    pstmt.setInt(2, message.getIdPersonne());
+                    pstmt.setInt(3, message.getIdReunion());
+                    pstmt.setString(4, message.getContenu());
+                    pstmt.setTimestamp(5, Timestamp.valueOf(message.getHeureEnvoi()));
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Plus grand id de message existant (0 si la table est vide).
+     */
+    public int obtenirDernierId() throws SQLException {
+        String sql = "SELECT COALESCE(MAX(id), 0) FROM message";
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private Message lireMessage(Connection connection, int id) throws SQLException {
         String sql = "SELECT id, personne_id, reunion_id, contenu, heure_envoi FROM message WHERE id = ?"; //
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, id);
@@ -9,15 +9,20 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class ParticipationManager {
-    private Connection connection;
 
-    public ParticipationManager() throws SQLException {
-        this.connection = Database.getConnection();
+    private static final ParticipationManager INSTANCE = new ParticipationManager();
+
+    private ParticipationManager() {
+    }
+
+    public static ParticipationManager getInstance() {
+        return INSTANCE;
     }
 
     public boolean entrerDansReunion(int personneId, int reunionId) throws SQLException {
         String sql = "INSERT INTO participation (personne_id, reunion_id) VALUES (?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, personneId);
             pstmt.setInt(2, reunionId);
             int affectedRows = pstmt.executeUpdate();
@@ -33,7 +38,8 @@ public class ParticipationManager {
 
     public boolean sortirDeReunion(int personneId, int reunionId) throws SQLException {
         String sql = "DELETE FROM participation WHERE personne_id = ? AND reunion_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, personneId);
             pstmt.setInt(2, reunionId);
             int affectedRows = pstmt.executeUpdate();
@@ -44,7 +50,8 @@ public class ParticipationManager {
     public List<Personne> obtenirParticipants(int reunionId) throws SQLException {
         List<Personne> participants = new ArrayList<>();
         String sql = "SELECT p.id, p.nom, p.prenom, p.login, p.password, p.connecte FROM personne p JOIN participation pa ON p.id = pa.personne_id WHERE pa.reunion_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, reunionId);
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
@@ -63,7 +70,8 @@ public class ParticipationManager {
 
     public boolean estParticipant(int personneId, int reunionId) throws SQLException {
         String sql = "SELECT COUNT(*) FROM participation WHERE personne_id = ? AND reunion_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, personneId);
             pstmt.setInt(2, reunionId);
             ResultSet rs = pstmt.executeQuery();
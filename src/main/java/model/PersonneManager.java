@@ -6,17 +6,76 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class PersonneManager {
-    private Connection connection;
 
-    public PersonneManager() throws SQLException {
-        this.connection = Database.getConnection();
+    // Cache partagé des données d'affichage (id, nom, prénom, login) : borné, LRU, avec durée de vie
+    private static final int CACHE_TAILLE_MAX = Integer.getInteger("tpbmo.cache.personnes.max", 10_000);
+    private static volatile long dureeCacheMs = Long.getLong("tpbmo.cache.personnes.ttlMs", 300_000L);
+    private static final Map<Integer, Affichage> cacheParId = lru();
+    private static final Map<String, Affichage> cacheParLogin = lru();
+    private static final AtomicLong succesCache = new AtomicLong();
+    private static final AtomicLong echecsCache = new AtomicLong();
+
+    private static final PersonneManager INSTANCE = new PersonneManager();
+
+    private PersonneManager() {
+    }
+
+    public static PersonneManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Données d'affichage d'une personne, sans mot de passe ni statut de connexion.
+     * Immuable : les instances sont partagées par le cache.
+     */
+    public static final class Affichage {
+        private final int id;
+        private final String nom;
+        private final String prenom;
+        private final String login;
+        private final long expireA;
+
+        private Affichage(int id, String nom, String prenom, String login) {
+            this.id = id;
+            this.nom = nom;
+            this.prenom = prenom;
+            this.login = login;
+            this.expireA = System.currentTimeMillis() + dureeCacheMs;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getNom() {
+            return nom;
+        }
+
+        public String getPrenom() {
+            return prenom;
+        }
+
+        public String getLogin() {
+            return login;
+        }
+
+        /**
+         * "prénom nom", ou "Utilisateur <id>" si les deux sont vides.
+         */
+        public String getNomComplet() {
+            return MessageManager.nomAffiche(prenom, nom, id);
+        }
     }
 
     public Personne connecter(String login, String password) throws SQLException {
         String sql = "SELECT id, nom, prenom, login, password, connecte FROM personne WHERE login = ? AND password = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, login);
             pstmt.setString(2, password);
             ResultSet rs = pstmt.executeQuery();
@@ -29,7 +88,7 @@ public class PersonneManager {
                         rs.getString("password"),
                         rs.getBoolean("connecte")
                 );
-                mettreAJourStatutConnexion(personne.getId(), true);
+                mettreAJourStatutConnexion(connection, personne.getId(), true);
                 personne.setConnecte(true);
                 return personne;
             }
@@ -38,22 +97,26 @@ public class PersonneManager {
     }
 
     public void deconnecter(int personneId) throws SQLException {
-        mettreAJourStatutConnexion(personneId, false);
+        try (Connection connection = Database.getConnection()) {
+            mettreAJourStatutConnexion(connection, personneId, false);
+        }
     }
 
     public Personne enregistrerPersonne(String nom, String prenom, String login, String password) throws SQLException {
         String sql = "INSERT INTO personne (nom, prenom, login, password) VALUES (?, ?, ?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
             pstmt.setString(1, nom);
             pstmt.setString(2, prenom);
             pstmt.setString(3, login);
             pstmt.setString(4, password);
             int affectedRows = pstmt.executeUpdate();
+            invaliderCache(login);
             if (affectedRows > 0) {
                 try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
                         int newId = generatedKeys.getInt(1);
-                        return obtenirPersonneParId(newId);
+                        return lirePersonne(connection, newId);
                     } else {
                         throw new SQLException("Creating user failed, no ID obtained.");
                     }
@@ -65,6 +128,12 @@ public class PersonneManager {
     }
 
     public Personne obtenirPersonneParId(int id) throws SQLException {
+        try (Connection connection = Database.getConnection()) {
+            return lirePersonne(connection, id);
+        }
+    }
+
+    private Personne lirePersonne(Connection connection, int id) throws SQLException {
         String sql = "SELECT id, nom, prenom, login, password, connecte FROM personne WHERE id = ?";
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, id);
@@ -85,7 +154,8 @@ public class PersonneManager {
 
     public Personne obtenirPersonneParLogin(String login) throws SQLException {
         String sql = "SELECT id, nom, prenom, login, password, connecte FROM personne WHERE login = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, login);
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
@@ -102,7 +172,118 @@ public class PersonneManager {
         }
     }
 
-    private void mettreAJourStatutConnexion(int personneId, boolean connecte) throws SQLException {
+    /**
+     * Données d'affichage par id, servies depuis le cache tant qu'elles n'ont pas expiré.
+     * Retourne null si la personne n'existe pas (les absences ne sont pas mises en cache).
+     */
+    public Affichage obtenirAffichageParId(int id) throws SQLException {
+        Affichage affichage = lireCache(cacheParId, id);
+        if (affichage != null) {
+            return affichage;
+        }
+        String sql = "SELECT id, nom, prenom, login FROM personne WHERE id = ?";
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, id);
+            return chargerAffichage(pstmt);
+        }
+    }
+
+    /**
+     * Données d'affichage par login, servies depuis le cache tant qu'elles n'ont pas expiré.
+     */
+    public Affichage obtenirAffichageParLogin(String login) throws SQLException {
+        Affichage affichage = lireCache(cacheParLogin, login);
+        if (affichage != null) {
+            return affichage;
+        }
+        String sql = "SELECT id, nom, prenom, login FROM personne WHERE login = ?";
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, login);
+            return chargerAffichage(pstmt);
+        }
+    }
+
+    private Affichage chargerAffichage(PreparedStatement pstmt) throws SQLException {
+        try (ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next()) {
+                return null;
+            }
+            Affichage affichage = new Affichage(rs.getInt("id"), rs.getString("nom"),
+                    rs.getString("prenom"), rs.getString("login"));
+            synchronized (cacheParId) {
+                cacheParId.put(affichage.getId(), affichage);
+            }
+            synchronized (cacheParLogin) {
+                cacheParLogin.put(affichage.getLogin(), affichage);
+            }
+            return affichage;
+        }
+    }
+
+    private static <K> Affichage lireCache(Map<K, Affichage> cache, K cle) {
+        Affichage affichage;
+        synchronized (cache) {
+            affichage = cache.get(cle);
+            if (affichage != null && affichage.expireA < System.currentTimeMillis()) {
+                cache.remove(cle);
+                affichage = null;
+            }
+        }
+        if (affichage != null) {
+            succesCache.incrementAndGet();
+        } else {
+            echecsCache.incrementAndGet();
+        }
+        return affichage;
+    }
+
+    /**
+     * Oublie les données d'affichage associées à ce login (et à l'id correspondant).
+     */
+    public static void invaliderCache(String login) {
+        Affichage affichage;
+        synchronized (cacheParLogin) {
+            affichage = cacheParLogin.remove(login);
+        }
+        if (affichage != null) {
+            synchronized (cacheParId) {
+                cacheParId.remove(affichage.getId());
+            }
+        }
+    }
+
+    public static long getDureeCacheMs() {
+        return dureeCacheMs;
+    }
+
+    /**
+     * Durée de vie des données d'affichage mises en cache à partir de maintenant (les entrées déjà en cache
+     * gardent leur échéance).
+     */
+    public static void definirDureeCache(long ms) {
+        dureeCacheMs = ms;
+    }
+
+    public static long getSuccesCache() {
+        return succesCache.get();
+    }
+
+    public static long getEchecsCache() {
+        return echecsCache.get();
+    }
+
+    private static <K> Map<K, Affichage> lru() {
+        return new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Affichage> eldest) {
+                return size() > CACHE_TAILLE_MAX;
+            }
+        };
+    }
+
+    private void mettreAJourStatutConnexion(Connection connection, int personneId, boolean connecte) throws SQLException {
         String sql = "UPDATE personne SET connecte = ? WHERE id = ?";
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setBoolean(1, connecte);
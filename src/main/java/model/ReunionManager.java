@@ -1,6 +1,7 @@
 package model;
 
 import serveur.Database;
+import serveur.Journal;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -9,13 +10,174 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ReunionManager {
-    private Connection connection;
 
-    public ReunionManager() throws SQLException {
-        this.connection = Database.getConnection();
+    // État de contrôle des réunions (type, statut, organisateur, animateur), partagé par tous les managers.
+    // Toute écriture sur ces colonnes passe par ce manager, qui met le cache à jour dans la foulée.
+    private static final int CACHE_TAILLE_MAX = Integer.getInteger("tpbmo.cache.reunions.max", 5_000);
+    private static final Map<Integer, EtatReunion> cacheEtats = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, EtatReunion> eldest) {
+            return size() > CACHE_TAILLE_MAX;
+        }
+    };
+    // Génération par réunion, augmentée à chaque écriture : un lecteur qui a lu la base avant l'écriture ne met
+    // pas en cache son état, devenu périmé. Tableau borné : deux réunions qui partagent une case ne font que
+    // rater une mise en cache.
+    private static final long[] generations = new long[1024];
+    private static final AtomicLong succesCache = new AtomicLong();
+    private static final AtomicLong echecsCache = new AtomicLong();
+
+    private static final ReunionManager INSTANCE = new ReunionManager();
+
+    private ReunionManager() {
+    }
+
+    public static ReunionManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Ce qu'il faut savoir d'une réunion pour décider d'une action de contrôle
+     * (qui peut ouvrir, inviter, gérer la parole...). Immuable : les instances sont partagées par le cache.
+     */
+    public static final class EtatReunion {
+        private final int id;
+        private final String nom;
+        private final LocalDateTime debut;
+        private final Reunion.Type type;
+        private final String statut;
+        private final int organisateurId;
+        private final Integer animateurId;
+
+        EtatReunion(int id, String nom, LocalDateTime debut, Reunion.Type type, String statut, int organisateurId, Integer animateurId) {
+            this.id = id;
+            this.nom = nom;
+            this.debut = debut;
+            this.type = type;
+            this.statut = statut;
+            this.organisateurId = organisateurId;
+            this.animateurId = animateurId;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getNom() {
+            return nom;
+        }
+
+        public LocalDateTime getDebut() {
+            return debut;
+        }
+
+        public Reunion.Type getType() {
+            return type;
+        }
+
+        /**
+         * Statut tel qu'en base (PLANIFIEE, OUVERTE, FERMEE), null si non renseigné.
+         */
+        public String getStatut() {
+            return statut;
+        }
+
+        public int getOrganisateurId() {
+            return organisateurId;
+        }
+
+        public Integer getAnimateurId() {
+            return animateurId;
+        }
+
+        /**
+         * Vrai si l'utilisateur est l'organisateur ou l'animateur de la réunion.
+         */
+        public boolean estDirigeePar(int personneId) {
+            return personneId == organisateurId || (animateurId != null && personneId == animateurId);
+        }
+
+        EtatReunion avecStatut(String nouveauStatut) {
+            return new EtatReunion(id, nom, debut, type, nouveauStatut, organisateurId, animateurId);
+        }
+
+        EtatReunion avecAnimateur(Integer nouvelAnimateur) {
+            return new EtatReunion(id, nom, debut, type, statut, organisateurId, nouvelAnimateur);
+        }
+    }
+
+    /**
+     * État de contrôle d'une réunion, servi depuis la mémoire après la première lecture.
+     * Retourne null si la réunion n'existe pas.
+     */
+    public EtatReunion obtenirEtatReunion(int reunionId) throws SQLException {
+        EtatReunion etat;
+        long generation;
+        synchronized (cacheEtats) {
+            etat = cacheEtats.get(reunionId);
+            generation = generations[caseGeneration(reunionId)];
+        }
+        if (etat != null) {
+            succesCache.incrementAndGet();
+            return etat;
+        }
+        echecsCache.incrementAndGet();
+
+        String sql = "SELECT id, nom, debut, type, statut, organisateur_id, animateur_id FROM reunion WHERE id = ?";
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, reunionId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                Integer animateurId = rs.getObject("animateur_id") != null ? rs.getInt("animateur_id") : null;
+                etat = new EtatReunion(rs.getInt("id"), rs.getString("nom"), rs.getTimestamp("debut").toLocalDateTime(),
+                        Reunion.Type.valueOf(rs.getString("type")), rs.getString("statut"),
+                        rs.getInt("organisateur_id"), animateurId);
+            }
+        }
+        synchronized (cacheEtats) {
+            if (generations[caseGeneration(reunionId)] != generation) {
+                // Écrite depuis la lecture : l'état lu n'est rendu qu'à cet appelant, le suivant relira la base
+                return etat;
+            }
+            // Une lecture concurrente a pu publier le même état entre-temps : on garde le sien
+            EtatReunion existant = cacheEtats.putIfAbsent(reunionId, etat);
+            return existant != null ? existant : etat;
+        }
+    }
+
+    private static int caseGeneration(int reunionId) {
+        return Math.floorMod(reunionId, generations.length);
+    }
+
+    private static void remplacerEtat(EtatReunion etat) {
+        synchronized (cacheEtats) {
+            generations[caseGeneration(etat.getId())]++;
+            cacheEtats.put(etat.getId(), etat);
+        }
+    }
+
+    private static void invaliderEtat(int reunionId) {
+        synchronized (cacheEtats) {
+            generations[caseGeneration(reunionId)]++;
+            cacheEtats.remove(reunionId);
+        }
+    }
+
+    public static long getSuccesCache() {
+        return succesCache.get();
+    }
+
+    public static long getEchecsCache() {
+        return echecsCache.get();
     }
 
     /**
@@ -24,7 +186,8 @@ public class ReunionManager {
     public Reunion planifierReunion(String nom, String sujet, String agenda, LocalDateTime debut, int duree, Reunion.Type type, int organisateurId, Integer animateurId) throws SQLException {
         String sql = "INSERT INTO reunion (nom, sujet, agenda, debut, duree, type, organisateur_id, animateur_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
             pstmt.setString(1, nom);
             pstmt.setString(2, sujet);
             pstmt.setString(3, agenda);
@@ -44,8 +207,8 @@ public class ReunionManager {
                 try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
                         int newId = generatedKeys.getInt(1);
-                        System.out.println("Nouvelle réunion créée avec ID: " + newId);
-                        return consulterDetailsReunion(newId);
+                        Journal.info("reunion.creee", "reunion", newId);
+                        return lireReunion(connection, newId);
                     } else {
                         throw new SQLException("Creating meeting failed, no ID obtained.");
                     }
@@ -60,6 +223,12 @@ public class ReunionManager {
      * Consulte les détails d'une réunion par son ID
      */
     public Reunion consulterDetailsReunion(int reunionId) throws SQLException {
+        try (Connection connection = Database.getConnection()) {
+            return lireReunion(connection, reunionId);
+        }
+    }
+
+    private Reunion lireReunion(Connection connection, int reunionId) throws SQLException {
         String sql = "SELECT id, nom, sujet, agenda, debut, duree, type, organisateur_id, animateur_id FROM reunion WHERE id = ?";
 
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
@@ -91,7 +260,8 @@ public class ReunionManager {
     public boolean modifierReunion(int reunionId, String nom, String sujet, String agenda, LocalDateTime debut, int duree) throws SQLException {
         String sql = "UPDATE reunion SET nom = ?, sujet = ?, agenda = ?, debut = ?, duree = ? WHERE id = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, nom);
             pstmt.setString(2, sujet);
             pstmt.setString(3, agenda);
@@ -100,6 +270,7 @@ public class ReunionManager {
             pstmt.setInt(6, reunionId);
 
             int affectedRows = pstmt.executeUpdate();
+            invaliderEtat(reunionId);
             return affectedRows > 0;
         }
     }
@@ -108,41 +279,33 @@ public class ReunionManager {
      * Ouvre une réunion (vérifie que l'utilisateur est animateur ou organisateur)
      */
     public boolean ouvrirReunion(int reunionId, int animateurId) throws SQLException {
-        String sql = "SELECT COUNT(*) FROM reunion WHERE id = ? AND (animateur_id = ? OR organisateur_id = ?)";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, reunionId);
-            pstmt.setInt(2, animateurId);
-            pstmt.setInt(3, animateurId);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next() && rs.getInt(1) > 0) {
-                // Ici on pourrait ajouter une logique pour marquer la réunion comme "ouverte"
-                // Pour l'instant, on vérifie juste les permissions
-                return true;
-            }
-            return false;
-        }
+        return changerStatut(reunionId, animateurId, "OUVERTE",
+                "UPDATE reunion SET statut = 'OUVERTE', heure_ouverture = NOW() WHERE id = ?");
     }
 
     /**
      * Clôture une réunion (vérifie que l'utilisateur est animateur ou organisateur)
      */
     public boolean cloturerReunion(int reunionId, int animateurId) throws SQLException {
-        String sql = "SELECT COUNT(*) FROM reunion WHERE id = ? AND (animateur_id = ? OR organisateur_id = ?)";
+        return changerStatut(reunionId, animateurId, "FERMEE",
+                "UPDATE reunion SET statut = 'FERMEE', heure_fermeture = NOW() WHERE id = ?");
+    }
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+    private boolean changerStatut(int reunionId, int animateurId, String statut, String sql) throws SQLException {
+        EtatReunion etat = obtenirEtatReunion(reunionId);
+        if (etat == null || !etat.estDirigeePar(animateurId)) {
+            return false;
+        }
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, reunionId);
-            pstmt.setInt(2, animateurId);
-            pstmt.setInt(3, animateurId);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next() && rs.getInt(1) > 0) {
-                // Ici on pourrait ajouter une logique pour marquer la réunion comme "fermée"
-                return true;
+            if (pstmt.executeUpdate() == 0) {
+                invaliderEtat(reunionId);
+                return false;
             }
-            return false;
         }
+        remplacerEtat(etat.avecStatut(statut));
+        return true;
     }
 
     /**
@@ -152,7 +315,8 @@ public class ReunionManager {
         List<Reunion> reunions = new ArrayList<>();
         String sql = "SELECT id, nom, sujet, agenda, debut, duree, type, organisateur_id, animateur_id FROM reunion ORDER BY debut DESC";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql);
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
 
             while (rs.next()) {
@@ -183,7 +347,8 @@ public class ReunionManager {
         List<Reunion> reunions = new ArrayList<>();
         String sql = "SELECT id, nom, sujet, agenda, debut, duree, type, organisateur_id, animateur_id FROM reunion WHERE debut >= NOW() ORDER BY debut ASC";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql);
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
 
             while (rs.next()) {
@@ -212,7 +377,8 @@ public class ReunionManager {
         List<Reunion> reunions = new ArrayList<>();
         String sql = "SELECT id, nom, sujet, agenda, debut, duree, type, organisateur_id, animateur_id FROM reunion WHERE organisateur_id = ? ORDER BY debut DESC";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, organisateurId);
             ResultSet rs = pstmt.executeQuery();
 
@@ -241,10 +407,20 @@ public class ReunionManager {
     public boolean definirAnimateur(int reunionId, int animateurId) throws SQLException {
         String sql = "UPDATE reunion SET animateur_id = ? WHERE id = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, animateurId);
             pstmt.setInt(2, reunionId);
             int affectedRows = pstmt.executeUpdate();
+            EtatReunion etat;
+            synchronized (cacheEtats) {
+                etat = cacheEtats.get(reunionId);
+            }
+            if (etat != null && affectedRows > 0) {
+                remplacerEtat(etat.avecAnimateur(animateurId));
+            } else {
+                invaliderEtat(reunionId);
+            }
             return affectedRows > 0;
         }
     }
@@ -255,7 +431,8 @@ public class ReunionManager {
     public Reunion rechercherReunionParNom(String nom) throws SQLException {
         String sql = "SELECT id, nom, sujet, agenda, debut, duree, type, organisateur_id, animateur_id FROM reunion WHERE nom = ? LIMIT 1";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, nom);
             ResultSet rs = pstmt.executeQuery();
 
@@ -284,7 +461,8 @@ public class ReunionManager {
     public boolean reunionExiste(int reunionId) throws SQLException {
         String sql = "SELECT COUNT(*) FROM reunion WHERE id = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, reunionId);
             ResultSet rs = pstmt.executeQuery();
 
@@ -300,34 +478,19 @@ public class ReunionManager {
      */
     public boolean supprimerReunion(int reunionId, int utilisateurId) throws SQLException {
         // Vérifier que l'utilisateur est l'organisateur
-        String checkSql = "SELECT COUNT(*) FROM reunion WHERE id = ? AND organisateur_id = ?";
-
-        try (PreparedStatement checkStmt = connection.prepareStatement(checkSql)) {
-            checkStmt.setInt(1, reunionId);
-            checkStmt.setInt(2, utilisateurId);
-            ResultSet rs = checkStmt.executeQuery();
-
-            if (rs.next() && rs.getInt(1) > 0) {
-                // L'utilisateur est bien l'organisateur, on peut supprimer
-                // Les suppressions en cascade sont gérées par les contraintes FK
-                String deleteSql = "DELETE FROM reunion WHERE id = ?";
-
-                try (PreparedStatement deleteStmt = connection.prepareStatement(deleteSql)) {
-                    deleteStmt.setInt(1, reunionId);
-                    int affectedRows = deleteStmt.executeUpdate();
-                    return affectedRows > 0;
-                }
-            }
+        EtatReunion etat = obtenirEtatReunion(reunionId);
+        if (etat == null || etat.getOrganisateurId() != utilisateurId) {
             return false; // L'utilisateur n'est pas autorisé à supprimer cette réunion
         }
-    }
-
-    /**
-     * Ferme la connexion à la base de données
-     */
-    public void fermerConnexion() throws SQLException {
-        if (connection != null && !connection.isClosed()) {
-            connection.close();
+        // Les suppressions en cascade sont gérées par les contraintes FK
+        String deleteSql = "DELETE FROM reunion WHERE id = ?";
+
+        try (Connection connection = Database.getConnection();
+             PreparedStatement deleteStmt = connection.prepareStatement(deleteSql)) {
+            deleteStmt.setInt(1, reunionId);
+            int affectedRows = deleteStmt.executeUpdate();
+            invaliderEtat(reunionId);
+            return affectedRows > 0;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,390 @@
+package protocole;
+
+import org.glassfish.tyrus.core.extension.ExtendedExtension;
+import org.glassfish.tyrus.core.frame.Frame;
+
+import javax.websocket.Extension;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Extension WebSocket permessage-deflate (RFC 7692), utilisée par le serveur, le client JavaFX et le générateur de charge.
+ *
+ * Les messages texte ou binaires d'au moins {@code seuil} octets sont compressés ; en dessous, le gain est faible
+ * (voire négatif) pour un coût CPU fixe, ils partent tels quels (bit RSV1 à 0, ce que la RFC autorise message par message).
+ * Chaque message est compressé indépendamment (server_no_context_takeover et client_no_context_takeover) :
+ * un peu moins de gain, mais aucun état à conserver entre deux messages d'une session.
+ *
+ * Tyrus applique l'extension connexion par connexion : une diffusion à N sessions présente N fois la même
+ * charge utile. Sans contexte, le résultat ne dépend que des octets et du niveau ; les dernières compressions
+ * sont donc gardées, partagées par toutes les connexions, et une diffusion n'est compressée qu'une fois
+ * (au pire quelques fois si plusieurs envois se croisent avant que la première ne soit mémorisée).
+ *
+ * Les compteurs sont globaux à la JVM, pour mesurer le compromis bande passante / CPU.
+ *
+ * Propriétés : tpbmo.deflate (true/false, true par défaut), tpbmo.deflate.seuil (octets, 512 par défaut),
+ * tpbmo.deflate.niveau (1 à 9, 1 par défaut : sur l'historique, le niveau 6 ne gagne que 5 % de plus pour un CPU presque double),
+ * tpbmo.deflate.memoire (compressions gardées, 16 par défaut ; 0 pour compresser chaque envoi).
+ */
+public final class CompressionDeflate implements ExtendedExtension {
+
+    public static final String NOM = "permessage-deflate";
+    static final String SANS_CONTEXTE_SERVEUR = "server_no_context_takeover";
+    static final String SANS_CONTEXTE_CLIENT = "client_no_context_takeover";
+    static final String FENETRE_SERVEUR = "server_max_window_bits";
+
+    public static final boolean ACTIVE = Boolean.parseBoolean(System.getProperty("tpbmo.deflate", "true"));
+    public static final int SEUIL = Integer.getInteger("tpbmo.deflate.seuil", 512);
+    private static final int NIVEAU = Integer.getInteger("tpbmo.deflate.niveau", Deflater.BEST_SPEED);
+    // Au-delà, un message compressé est refusé (protection contre les « bombes » de décompression)
+    private static final int TAILLE_MAX_DECOMPRESSEE = Integer.getInteger("tpbmo.deflate.tailleMax", 4 * 1024 * 1024);
+
+    private static final int MEMOIRE = Integer.getInteger("tpbmo.deflate.memoire", 16);
+    // Les charges plus grosses ne sont pas gardées : rarement diffusées, et coûteuses à retenir
+    private static final int TAILLE_MAX_MEMOIRE = 64 * 1024;
+
+    // Fin de bloc vide que l'émetteur retire et que le récepteur rajoute (RFC 7692, 7.2.1)
+    private static final byte[] QUEUE = {0x00, 0x00, (byte) 0xff, (byte) 0xff};
+
+    private static final String CLE_INFLATER = "deflate.inflater";
+    private static final String CLE_DEFLATER = "deflate.deflater";
+    private static final String CLE_MESSAGE_COMPRESSE = "deflate.messageCompresse";
+    private static final String CLE_TAILLE_MESSAGE = "deflate.tailleMessage";
+
+    private static final byte CONTINUATION = 0x00;
+    private static final byte TEXTE = 0x01;
+    private static final byte BINAIRE = 0x02;
+
+    private static final LongAdder messagesCompresses = new LongAdder();
+    private static final LongAdder messagesSousSeuil = new LongAdder();
+    private static final LongAdder octetsAvantCompression = new LongAdder();
+    private static final LongAdder octetsApresCompression = new LongAdder();
+    private static final LongAdder nanosCompression = new LongAdder();
+    private static final LongAdder compressionsEffectuees = new LongAdder();
+    private static final LongAdder compressionsPartagees = new LongAdder();
+    private static final LongAdder messagesDecompresses = new LongAdder();
+    private static final LongAdder nanosDecompression = new LongAdder();
+
+    private static final AtomicReferenceArray<Compression> memoire = new AtomicReferenceArray<>(Math.max(MEMOIRE, 1));
+
+    /**
+     * Compression déjà faite d'une charge utile ; resultat est null si elle ne réduisait pas la taille.
+     */
+    private static final class Compression {
+        final int empreinte;
+        final byte[] source;
+        final byte[] resultat;
+
+        Compression(int empreinte, byte[] source, byte[] resultat) {
+            this.empreinte = empreinte;
+            this.source = source;
+            this.resultat = resultat;
+        }
+    }
+
+    private final int seuil;
+    private final List<Parameter> parametres;
+
+    public CompressionDeflate() {
+        this(SEUIL);
+    }
+
+    public CompressionDeflate(int seuil) {
+        if (seuil < 0) {
+            throw new IllegalArgumentException("Seuil de compression invalide: " + seuil);
+        }
+        this.seuil = seuil;
+        this.parametres = List.of(parametre(SANS_CONTEXTE_SERVEUR), parametre(SANS_CONTEXTE_CLIENT));
+    }
+
+    /**
+     * Extensions à proposer côté client : vide si la compression est désactivée.
+     */
+    public static List<Extension> offre() {
+        return ACTIVE ? List.of(new CompressionDeflate()) : Collections.emptyList();
+    }
+
+    /**
+     * Négociation côté serveur : une instance par connexion si le client propose permessage-deflate
+     * avec des paramètres que l'on sait respecter, sinon aucune extension.
+     */
+    public static List<Extension> negocier(List<Extension> demandees) {
+        if (!ACTIVE) {
+            return Collections.emptyList();
+        }
+        for (Extension demandee : demandees) {
+            if (NOM.equals(demandee.getName()) && acceptable(demandee.getParameters())) {
+                List<Extension> resultat = new ArrayList<>(1);
+                resultat.add(new CompressionDeflate());
+                return resultat;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private static boolean acceptable(List<Parameter> demandes) {
+        for (Parameter p : demandes) {
+            // java.util.zip compresse toujours avec une fenêtre de 32 Ko (15 bits)
+            if (FENETRE_SERVEUR.equals(p.getName()) && p.getValue() != null && !"15".equals(p.getValue().trim())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String getName() {
+        return NOM;
+    }
+
+    @Override
+    public List<Parameter> getParameters() {
+        return parametres;
+    }
+
+    @Override
+    public List<Parameter> onExtensionNegotiation(ExtensionContext context, List<Parameter> demandes) {
+        // Réponse du serveur : chaque message est compressé seul, dans les deux sens
+        return List.of(parametre(SANS_CONTEXTE_SERVEUR), parametre(SANS_CONTEXTE_CLIENT));
+    }
+
+    @Override
+    public void onHandshakeResponse(ExtensionContext context, List<Parameter> reponse) {
+        // Côté client, on réinitialise le compresseur après chaque message : rien à adapter
+    }
+
+    @Override
+    public Frame processOutgoing(ExtensionContext context, Frame frame) {
+        byte opcode = frame.getOpcode();
+        // Les messages fragmentés partent non compressés : seul le premier fragment pourrait porter RSV1
+        if ((opcode != TEXTE && opcode != BINAIRE) || !frame.isFin() || frame.isRsv1()) {
+            return frame;
+        }
+        byte[] donnees = frame.getPayloadData();
+        if (donnees.length < seuil) {
+            messagesSousSeuil.increment();
+            return frame;
+        }
+        byte[] compresse = compresserOuReprendre(context, donnees);
+        if (compresse == null) {
+            messagesSousSeuil.increment();
+            return frame;
+        }
+        messagesCompresses.increment();
+        octetsAvantCompression.add(donnees.length);
+        octetsApresCompression.add(compresse.length);
+        return Frame.builder(frame).rsv1(true).payloadData(compresse).payloadLength(compresse.length).build();
+    }
+
+    @Override
+    public Frame processIncoming(ExtensionContext context, Frame frame) {
+        byte opcode = frame.getOpcode();
+        if (frame.isControlFrame()) {
+            return frame;
+        }
+        if (opcode == TEXTE || opcode == BINAIRE) {
+            context.getProperties().put(CLE_MESSAGE_COMPRESSE, frame.isRsv1());
+            context.getProperties().put(CLE_TAILLE_MESSAGE, 0);
+            if (!frame.isRsv1()) {
+                return frame;
+            }
+        } else if (opcode != CONTINUATION || !Boolean.TRUE.equals(context.getProperties().get(CLE_MESSAGE_COMPRESSE))) {
+            return frame;
+        }
+
+        long debut = System.nanoTime();
+        Inflater inflater = inflater(context);
+        int dejaLus = (Integer) context.getProperties().get(CLE_TAILLE_MESSAGE);
+        byte[] donnees = decompresser(inflater, frame.getPayloadData(), frame.isFin(), TAILLE_MAX_DECOMPRESSEE - dejaLus);
+        if (frame.isFin()) {
+            inflater.reset();
+            context.getProperties().put(CLE_MESSAGE_COMPRESSE, false);
+            messagesDecompresses.increment();
+        } else {
+            context.getProperties().put(CLE_TAILLE_MESSAGE, dejaLus + donnees.length);
+        }
+        nanosDecompression.add(System.nanoTime() - debut);
+        return Frame.builder(frame).rsv1(false).payloadData(donnees).payloadLength(donnees.length).build();
+    }
+
+    @Override
+    public void destroy(ExtensionContext context) {
+        Object deflater = context.getProperties().remove(CLE_DEFLATER);
+        if (deflater != null) {
+            synchronized (deflater) {
+                ((Deflater) deflater).end();
+            }
+        }
+        Object inflater = context.getProperties().remove(CLE_INFLATER);
+        if (inflater != null) {
+            ((Inflater) inflater).end();
+        }
+    }
+
+    /**
+     * Charge utile compressée (copie propre à l'appelant), reprise de la mémoire si une autre connexion vient
+     * de compresser les mêmes octets ; null si la compression ne la réduit pas.
+     */
+    private static byte[] compresserOuReprendre(ExtensionContext context, byte[] donnees) {
+        boolean memorisable = MEMOIRE > 0 && donnees.length <= TAILLE_MAX_MEMOIRE;
+        int empreinte = 0;
+        int indice = 0;
+        if (memorisable) {
+            empreinte = Arrays.hashCode(donnees);
+            indice = Math.floorMod(empreinte, MEMOIRE);
+            Compression connue = memoire.get(indice);
+            if (connue != null && connue.empreinte == empreinte && Arrays.equals(connue.source, donnees)) {
+                compressionsPartagees.increment();
+                return connue.resultat != null ? connue.resultat.clone() : null;
+            }
+        }
+        long debut = System.nanoTime();
+        byte[] compresse = compresser(deflater(context), donnees);
+        nanosCompression.add(System.nanoTime() - debut);
+        compressionsEffectuees.increment();
+        if (compresse.length >= donnees.length) {
+            compresse = null;
+        }
+        if (memorisable) {
+            // Copies : Tyrus peut réutiliser ou masquer les tableaux des trames
+            memoire.set(indice, new Compression(empreinte, donnees.clone(), compresse != null ? compresse.clone() : null));
+        }
+        return compresse;
+    }
+
+    private static Deflater deflater(ExtensionContext context) {
+        return (Deflater) context.getProperties().computeIfAbsent(CLE_DEFLATER, cle -> new Deflater(NIVEAU, true));
+    }
+
+    private static Inflater inflater(ExtensionContext context) {
+        return (Inflater) context.getProperties().computeIfAbsent(CLE_INFLATER, cle -> new Inflater(true));
+    }
+
+    static byte[] compresser(Deflater deflater, byte[] donnees) {
+        // Les envois d'une même session peuvent venir de plusieurs threads
+        synchronized (deflater) {
+            deflater.setInput(donnees);
+            ByteArrayOutputStream sortie = new ByteArrayOutputStream(Math.max(64, donnees.length / 4));
+            byte[] tampon = new byte[Math.min(8192, donnees.length + 64)];
+            int n;
+            do {
+                n = deflater.deflate(tampon, 0, tampon.length, Deflater.SYNC_FLUSH);
+                sortie.write(tampon, 0, n);
+            } while (n == tampon.length);
+            deflater.reset();
+            byte[] resultat = sortie.toByteArray();
+            int taille = resultat.length;
+            if (taille >= QUEUE.length && resultat[taille - 1] == (byte) 0xff && resultat[taille - 2] == (byte) 0xff
+                    && resultat[taille - 3] == 0 && resultat[taille - 4] == 0) {
+                byte[] sansQueue = new byte[taille - QUEUE.length];
+                System.arraycopy(resultat, 0, sansQueue, 0, sansQueue.length);
+                return sansQueue;
+            }
+            return resultat;
+        }
+    }
+
+    static byte[] decompresser(Inflater inflater, byte[] donnees, boolean dernier, int tailleMax) {
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream(Math.max(64, donnees.length * 4));
+        byte[] tampon = new byte[8192];
+        try {
+            inflater.setInput(donnees);
+            lireTout(inflater, tampon, sortie, tailleMax);
+            if (dernier) {
+                inflater.setInput(QUEUE);
+                lireTout(inflater, tampon, sortie, tailleMax);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Message compressé invalide: " + e.getMessage(), e);
+        }
+        return sortie.toByteArray();
+    }
+
+    private static void lireTout(Inflater inflater, byte[] tampon, ByteArrayOutputStream sortie, int tailleMax)
+            throws DataFormatException {
+        int n;
+        while ((n = inflater.inflate(tampon)) > 0) {
+            sortie.write(tampon, 0, n);
+            if (sortie.size() > tailleMax) {
+                throw new IllegalStateException("Message décompressé trop grand (> " + TAILLE_MAX_DECOMPRESSEE + " octets)");
+            }
+        }
+    }
+
+    private static Parameter parametre(String nom) {
+        return new Parameter() {
+            @Override
+            public String getName() {
+                return nom;
+            }
+
+            @Override
+            public String getValue() {
+                return null;
+            }
+
+            @Override
+            public String toString() {
+                return nom;
+            }
+        };
+    }
+
+    // === Mesures ===
+
+    public static long getMessagesCompresses() {
+        return messagesCompresses.sum();
+    }
+
+    /**
+     * Messages envoyés sans compression : sous le seuil, ou que la compression n'aurait pas réduits.
+     */
+    public static long getMessagesNonCompresses() {
+        return messagesSousSeuil.sum();
+    }
+
+    public static long getOctetsAvantCompression() {
+        return octetsAvantCompression.sum();
+    }
+
+    public static long getOctetsApresCompression() {
+        return octetsApresCompression.sum();
+    }
+
+    /**
+     * Envois dont la compression a été reprise d'une autre connexion (même charge utile, en général une diffusion).
+     */
+    public static long getCompressionsPartagees() {
+        return compressionsPartagees.sum();
+    }
+
+    public static long getMessagesDecompresses() {
+        return messagesDecompresses.sum();
+    }
+
+    /**
+     * Résumé d'une ligne pour les journaux d'arrêt : volume économisé et temps CPU passé à (dé)compresser.
+     */
+    public static String resume() {
+        long avant = octetsAvantCompression.sum();
+        long apres = octetsApresCompression.sum();
+        long compresses = messagesCompresses.sum();
+        long partagees = compressionsPartagees.sum();
+        long effectuees = compressionsEffectuees.sum();
+        long decompresses = messagesDecompresses.sum();
+        return String.format("%d message(s) compressé(s) (%d sous le seuil de %d o), %d -> %d octets (%.1f %%), "
+                        + "%d compression(s) reprise(s) d'une autre connexion, %.1f µs par compression effectuée ; "
+                        + "%d décompressé(s), %.1f µs/message",
+                compresses, messagesSousSeuil.sum(), SEUIL, avant, apres, avant == 0 ? 0.0 : 100.0 * apres / avant,
+                partagees, effectuees <= 0 ? 0.0 : nanosCompression.sum() / 1_000.0 / effectuees,
+                decompresses, decompresses == 0 ? 0.0 : nanosDecompression.sum() / 1_000.0 / decompresses);
+    }
+}
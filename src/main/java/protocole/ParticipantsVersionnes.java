@@ -0,0 +1,83 @@
+package protocole;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Copie locale, indexée par id, de la liste versionnée des participants d'une réunion.
+ *
+ * Elle part de la liste complète (listeParticipants et sa "version"), puis applique les userJoined/userLeft
+ * dont la version suit exactement la sienne. Un changement plus ancien est ignoré (déjà compris dans la liste) ;
+ * un changement plus récent révèle un trou : il faut redemander la liste complète.
+ * Les notifications sans version ne modifient pas la liste (le participant y figurait déjà).
+ */
+public final class ParticipantsVersionnes {
+
+    public enum Resultat {
+        /** Changement appliqué. */
+        APPLIQUE,
+        /** Changement déjà compris dans la liste, ou liste pas encore reçue. */
+        IGNORE,
+        /** Changements manqués : redemander la liste complète. */
+        TROU
+    }
+
+    private final LinkedHashMap<Integer, String> noms = new LinkedHashMap<>();
+    // 0 tant que la liste complète n'a pas été reçue
+    private long version;
+
+    /**
+     * Remplace la liste par une liste complète reçue à la version donnée.
+     */
+    public void remplacer(long version, Map<Integer, String> participants) {
+        noms.clear();
+        noms.putAll(participants);
+        this.version = version;
+    }
+
+    public Resultat entrer(long version, int personneId, String nom) {
+        Resultat resultat = verifier(version);
+        if (resultat == Resultat.APPLIQUE) {
+            noms.put(personneId, nom);
+            this.version = version;
+        }
+        return resultat;
+    }
+
+    public Resultat sortir(long version, int personneId) {
+        Resultat resultat = verifier(version);
+        if (resultat == Resultat.APPLIQUE) {
+            noms.remove(personneId);
+            this.version = version;
+        }
+        return resultat;
+    }
+
+    private Resultat verifier(long version) {
+        if (this.version == 0 || version <= this.version) {
+            return Resultat.IGNORE;
+        }
+        return version == this.version + 1 ? Resultat.APPLIQUE : Resultat.TROU;
+    }
+
+    public String nom(int personneId) {
+        return noms.get(personneId);
+    }
+
+    public boolean contient(int personneId) {
+        return noms.containsKey(personneId);
+    }
+
+    public Map<Integer, String> getNoms() {
+        return Collections.unmodifiableMap(noms);
+    }
+
+    public int taille() {
+        return noms.size();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,348 @@
+package protocole;
+
+import org.json.JSONObject;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Format binaire compact des messages les plus fréquents, partagé par le serveur et les clients.
+ *
+ * Négocié à la connexion : le client ajoute protocole=binaire à l'URL et le message "welcome" du serveur
+ * confirme par "protocole":"binaire". Seuls les messages ci-dessous ont une forme binaire ;
+ * tous les autres restent en JSON texte sur la même connexion.
+ *
+ * Une trame binaire commence par un octet de code, suivi des champs dans un ordre fixe :
+ * entiers en varint zigzag, booléens sur un octet, chaînes en longueur varint + UTF-8.
+ *
+ *   Client → serveur : ENVOYER_MESSAGE(reunionId, userId, contenu), REJOINDRE / QUITTER / DEMANDER_PAROLE(reunionId, userId)
+ *   Serveur → client : NOUVEAU_MESSAGE(id, reunionId, userId, timestamp, sender, content),
+ *                      UTILISATEUR_ARRIVE / UTILISATEUR_PARTI / PAROLE_ACCORDEE(reunionId, userId, username[, version]),
+ *                      RESULTAT_DEMANDE_PAROLE(success, message)
+ */
+public final class ProtocoleBinaire {
+
+    /** Paramètre de l'URL de connexion et valeur qui demandent le protocole binaire. */
+    public static final String PARAMETRE = "protocole";
+    public static final String BINAIRE = "binaire";
+    public static final String JSON = "json";
+
+    public static final byte ENVOYER_MESSAGE = 0x01;
+    public static final byte REJOINDRE = 0x02;
+    public static final byte QUITTER = 0x03;
+    public static final byte DEMANDER_PAROLE = 0x04;
+
+    public static final byte NOUVEAU_MESSAGE = 0x41;
+    public static final byte UTILISATEUR_ARRIVE = 0x42;
+    public static final byte UTILISATEUR_PARTI = 0x43;
+    public static final byte PAROLE_ACCORDEE = 0x44;
+    public static final byte RESULTAT_DEMANDE_PAROLE = 0x45;
+
+    private ProtocoleBinaire() {
+    }
+
+    // === Encodage ===
+
+    public static ByteBuffer requete(byte code, int reunionId, int userId, String contenu) {
+        Tampon t = new Tampon(16 + (contenu != null ? contenu.length() * 3 : 0));
+        t.octet(code).entier(reunionId).entier(userId);
+        if (code == ENVOYER_MESSAGE) {
+            t.chaine(contenu);
+        }
+        return t.fin();
+    }
+
+    public static ByteBuffer nouveauMessage(int id, int reunionId, int userId, long timestamp, String sender, String content) {
+        Tampon t = new Tampon(32 + (sender.length() + content.length()) * 3);
+        return t.octet(NOUVEAU_MESSAGE).entier(id).entier(reunionId).entier(userId).entier(timestamp)
+                .chaine(sender).chaine(content).fin();
+    }
+
+    /**
+     * Événement de participant pour un type JSON (userJoined, userLeft, paroleAccordee) ; null si le type n'a pas de forme binaire.
+     */
+    public static ByteBuffer evenementParticipant(String type, int reunionId, int userId, String username) {
+        return evenementParticipant(type, reunionId, userId, username, 0);
+    }
+
+    /**
+     * Idem, avec la version de la liste des participants qu'atteint l'événement (omise si 0).
+     */
+    public static ByteBuffer evenementParticipant(String type, int reunionId, int userId, String username, long version) {
+        byte code = codeEvenement(type);
+        if (code == 0) {
+            return null;
+        }
+        Tampon t = new Tampon(26 + username.length() * 3);
+        t.octet(code).entier(reunionId).entier(userId).chaine(username);
+        if (version != 0) {
+            t.entier(version);
+        }
+        return t.fin();
+    }
+
+    public static ByteBuffer resultatDemandeParole(boolean succes, String message) {
+        Tampon t = new Tampon(8 + message.length() * 3);
+        return t.octet(RESULTAT_DEMANDE_PAROLE).booleen(succes).chaine(message).fin();
+    }
+
+    /**
+     * Forme binaire d'une requête JSON cliente, ou null si elle n'en a pas (elle part alors en texte).
+     */
+    public static ByteBuffer depuisJson(JSONObject json) {
+        if (!"reunion".equals(json.optString("modele"))) {
+            return null;
+        }
+        String action = json.optString("action");
+        byte code;
+        int reunionId;
+        switch (action) {
+            case "envoyerMessage" -> code = ENVOYER_MESSAGE;
+            case "rejoindre" -> code = REJOINDRE;
+            case "quitterReunion" -> code = QUITTER;
+            case "demanderParole" -> code = DEMANDER_PAROLE;
+            default -> {
+                return null;
+            }
+        }
+        // rejoindre accepte aussi un nom de réunion : seul un identifiant numérique a une forme binaire
+        reunionId = json.optInt(code == REJOINDRE ? "code" : "reunionId", -1);
+        int userId = json.optInt("userId", -1);
+        if (reunionId < 0 || userId < 0) {
+            return null;
+        }
+        return requete(code, reunionId, userId, code == ENVOYER_MESSAGE ? json.optString("contenu") : null);
+    }
+
+    // === Décodage ===
+
+    /**
+     * Décode une requête cliente. Lève IllegalArgumentException si la trame est inconnue ou tronquée.
+     */
+    public static RequeteBinaire lireRequete(ByteBuffer trame) {
+        Lecteur l = new Lecteur(trame);
+        byte code = l.octet();
+        if (code < ENVOYER_MESSAGE || code > DEMANDER_PAROLE) {
+            throw new IllegalArgumentException("Code de requête binaire inconnu: " + code);
+        }
+        int reunionId = l.entier();
+        int userId = l.entier();
+        String contenu = code == ENVOYER_MESSAGE ? l.chaine() : null;
+        return new RequeteBinaire(code, reunionId, userId, contenu);
+    }
+
+    /**
+     * Équivalent JSON de n'importe quelle trame binaire, identique au message que le protocole texte aurait porté.
+     */
+    public static JSONObject versJson(ByteBuffer trame) {
+        // La position de l'appelant n'est pas modifiée
+        Lecteur l = new Lecteur(trame.duplicate());
+        byte code = l.octet();
+        switch (code) {
+            case ENVOYER_MESSAGE, REJOINDRE, QUITTER, DEMANDER_PAROLE -> {
+                return lireRequete(trame.duplicate()).versJson();
+            }
+            case NOUVEAU_MESSAGE -> {
+                int id = l.entier();
+                int reunionId = l.entier();
+                int userId = l.entier();
+                long timestamp = l.entierLong();
+                return new JSONObject().put("type", "newMessage").put("id", id).put("reunionId", String.valueOf(reunionId))
+                        .put("sender", l.chaine()).put("content", l.chaine()).put("userId", String.valueOf(userId))
+                        .put("timestamp", timestamp);
+            }
+            case UTILISATEUR_ARRIVE, UTILISATEUR_PARTI, PAROLE_ACCORDEE -> {
+                JSONObject json = new JSONObject().put("type", typeEvenement(code)).put("reunionId", l.entier())
+                        .put("userId", l.entier()).put("username", l.chaine());
+                if (l.reste()) {
+                    json.put("version", l.entierLong());
+                }
+                return json;
+            }
+            case RESULTAT_DEMANDE_PAROLE -> {
+                return new JSONObject().put("type", "demandeParoleResult").put("success", l.booleen()).put("message", l.chaine());
+            }
+            default -> throw new IllegalArgumentException("Code de trame binaire inconnu: " + code);
+        }
+    }
+
+    private static byte codeEvenement(String type) {
+        return switch (type) {
+            case "userJoined" -> UTILISATEUR_ARRIVE;
+            case "userLeft" -> UTILISATEUR_PARTI;
+            case "paroleAccordee" -> PAROLE_ACCORDEE;
+            default -> 0;
+        };
+    }
+
+    private static String typeEvenement(byte code) {
+        return switch (code) {
+            case UTILISATEUR_ARRIVE -> "userJoined";
+            case UTILISATEUR_PARTI -> "userLeft";
+            default -> "paroleAccordee";
+        };
+    }
+
+    /**
+     * Requête cliente décodée.
+     */
+    public static final class RequeteBinaire {
+        private final byte code;
+        private final int reunionId;
+        private final int userId;
+        private final String contenu;
+
+        RequeteBinaire(byte code, int reunionId, int userId, String contenu) {
+            this.code = code;
+            this.reunionId = reunionId;
+            this.userId = userId;
+            this.contenu = contenu;
+        }
+
+        public byte getCode() {
+            return code;
+        }
+
+        public String getModele() {
+            return "reunion";
+        }
+
+        public String getAction() {
+            return switch (code) {
+                case ENVOYER_MESSAGE -> "envoyerMessage";
+                case REJOINDRE -> "rejoindre";
+                case QUITTER -> "quitterReunion";
+                default -> "demanderParole";
+            };
+        }
+
+        public int getReunionId() {
+            return reunionId;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        /**
+         * Contenu du message de chat (null pour les autres requêtes).
+         */
+        public String getContenu() {
+            return contenu;
+        }
+
+        public JSONObject versJson() {
+            JSONObject json = new JSONObject().put("modele", getModele()).put("action", getAction()).put("userId", userId);
+            if (code == REJOINDRE) {
+                json.put("code", String.valueOf(reunionId));
+            } else {
+                json.put("reunionId", String.valueOf(reunionId));
+            }
+            if (contenu != null) {
+                json.put("contenu", contenu);
+            }
+            return json;
+        }
+    }
+
+    private static final class Tampon {
+        private byte[] octets;
+        private int position;
+
+        Tampon(int capacite) {
+            octets = new byte[capacite];
+        }
+
+        Tampon octet(byte b) {
+            reserver(1);
+            octets[position++] = b;
+            return this;
+        }
+
+        Tampon booleen(boolean b) {
+            return octet((byte) (b ? 1 : 0));
+        }
+
+        Tampon entier(long valeur) {
+            long zigzag = (valeur << 1) ^ (valeur >> 63);
+            reserver(10);
+            while ((zigzag & ~0x7FL) != 0) {
+                octets[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            octets[position++] = (byte) zigzag;
+            return this;
+        }
+
+        Tampon chaine(String s) {
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            entier(utf8.length);
+            reserver(utf8.length);
+            System.arraycopy(utf8, 0, octets, position, utf8.length);
+            position += utf8.length;
+            return this;
+        }
+
+        ByteBuffer fin() {
+            return ByteBuffer.wrap(octets, 0, position).slice().asReadOnlyBuffer();
+        }
+
+        private void reserver(int n) {
+            if (position + n > octets.length) {
+                octets = Arrays.copyOf(octets, Math.max(octets.length * 2, position + n));
+            }
+        }
+    }
+
+    private static final class Lecteur {
+        private final ByteBuffer tampon;
+
+        Lecteur(ByteBuffer tampon) {
+            this.tampon = tampon;
+        }
+
+        byte octet() {
+            try {
+                return tampon.get();
+            } catch (BufferUnderflowException e) {
+                throw new IllegalArgumentException("Trame binaire tronquée", e);
+            }
+        }
+
+        boolean booleen() {
+            return octet() != 0;
+        }
+
+        boolean reste() {
+            return tampon.hasRemaining();
+        }
+
+        long entierLong() {
+            long resultat = 0;
+            for (int decalage = 0; decalage < 64; decalage += 7) {
+                byte b = octet();
+                resultat |= (long) (b & 0x7F) << decalage;
+                if ((b & 0x80) == 0) {
+                    return (resultat >>> 1) ^ -(resultat & 1);
+                }
+            }
+            throw new IllegalArgumentException("Entier binaire trop long");
+        }
+
+        int entier() {
+            return (int) entierLong();
+        }
+
+        String chaine() {
+            int longueur = entier();
+            if (longueur < 0 || longueur > tampon.remaining()) {
+                throw new IllegalArgumentException("Longueur de chaîne invalide: " + longueur);
+            }
+            byte[] utf8 = new byte[longueur];
+            tampon.get(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+    }
+}
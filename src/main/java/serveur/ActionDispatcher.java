@@ -0,0 +1,232 @@
+package serveur;
+
+import javax.websocket.Session;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exécution des actions reçues par le WebSocket.
+ *
+ * En mode VIRTUEL, les messages sont traités sur des threads virtuels : le thread d'E/S Grizzly
+ * est rendu immédiatement au lieu d'attendre JDBC. Chaque session a sa boîte aux lettres
+ * (SessionMailbox) : ses messages sont traités un par un dans l'ordre d'arrivée, ceux de sessions
+ * différentes en parallèle. Une boîte pleine (tpbmo.actions.profondeurMax) refuse le message
+ * et le client reçoit une erreur.
+ * Le nombre d'actions exécutées simultanément est borné (tpbmo.actions.concurrenceBd)
+ * pour ne pas demander plus de connexions que le pool n'en a.
+ *
+ * Le mode INLINE conserve l'ancien comportement (traitement sur le thread appelant), pour comparaison.
+ */
+public class ActionDispatcher {
+
+    public enum Mode {
+        /** Traitement synchrone sur le thread du conteneur. */
+        INLINE,
+        /** Un thread virtuel par message, ordre conservé par session. */
+        VIRTUEL
+    }
+
+    private static final ActionDispatcher INSTANCE = new ActionDispatcher(
+            Mode.valueOf(System.getProperty("tpbmo.actions.mode", "VIRTUEL")),
+            Integer.getInteger("tpbmo.actions.concurrenceBd", Integer.getInteger("tpbmo.pool.max", 20)),
+            Integer.getInteger("tpbmo.actions.profondeurMax", 256),
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("action-", 0).factory()));
+
+    private final Mode mode;
+    private final Semaphore concurrenceBd;
+    private final int profondeurMax;
+    private final ExecutorService executeur;
+    private final ConcurrentHashMap<String, SessionMailbox<Object>> boites = new ConcurrentHashMap<>();
+    private final SessionMailbox.Observateur observateur = new ObservateurBoites();
+
+    private final AtomicLong traitees = new AtomicLong();
+    private final AtomicLong erreurs = new AtomicLong();
+    private final AtomicLong attenteBdCumuleeMs = new AtomicLong();
+    private final AtomicLong deposes = new AtomicLong();
+    private final AtomicLong rejetes = new AtomicLong();
+    private final AtomicLong sortis = new AtomicLong();
+    private final AtomicLong attenteFileCumuleeNanos = new AtomicLong();
+    private final AtomicInteger profondeurMaxObservee = new AtomicInteger();
+
+    ActionDispatcher(Mode mode, int concurrenceBd, int profondeurMax, ExecutorService executeur) {
+        if (concurrenceBd < 1 || profondeurMax < 1) {
+            throw new IllegalArgumentException("Limite de concurrence ou profondeur invalide: " + concurrenceBd + "/" + profondeurMax);
+        }
+        this.mode = mode;
+        this.concurrenceBd = new Semaphore(concurrenceBd, true);
+        this.profondeurMax = profondeurMax;
+        this.executeur = executeur;
+    }
+
+    public static ActionDispatcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Planifie le traitement d'un message texte (JSON) reçu de la session.
+     */
+    public void soumettre(String message, Session session) {
+        soumettreMessage(message, session);
+    }
+
+    /**
+     * Planifie le traitement d'une trame binaire reçue de la session, dans la même file que ses messages texte.
+     */
+    public void soumettre(ByteBuffer trame, Session session) {
+        soumettreMessage(trame, session);
+    }
+
+    private void soumettreMessage(Object message, Session session) {
+        if (mode == Mode.INLINE) {
+            executer(message, session);
+            return;
+        }
+        SessionMailbox<Object> boite = boiteDe(session);
+        if (!boite.deposer(message)) {
+            OutboundDispatcher.getInstance().envoyer(session, boite.estFermee()
+                    ? "{\"type\":\"error\",\"message\":\"Serveur en cours d'arrêt, requête non traitée\"}"
+                    : "{\"type\":\"error\",\"message\":\"Trop de requêtes en attente, réessayez plus tard\"}");
+        }
+    }
+
+    private SessionMailbox<Object> boiteDe(Session session) {
+        SessionMailbox<Object> boite = boites.get(session.getId());
+        if (boite == null) {
+            boite = boites.computeIfAbsent(session.getId(),
+                    id -> new SessionMailbox<>(session, profondeurMax, executeur, this::executerLimite, observateur));
+        }
+        return boite;
+    }
+
+    /**
+     * Ferme la boîte d'une session fermée : le message en cours va à son terme, les suivants sont abandonnés.
+     */
+    public void liberer(Session session) {
+        SessionMailbox<Object> boite = boites.remove(session.getId());
+        if (boite != null) {
+            boite.fermer();
+        }
+    }
+
+    /**
+     * Messages en attente par identifiant de session, pour la supervision.
+     */
+    public Map<String, Integer> profondeurs() {
+        Map<String, Integer> resultat = new HashMap<>();
+        boites.forEach((id, boite) -> resultat.put(id, boite.profondeur()));
+        return resultat;
+    }
+
+    private void executerLimite(Object message, Session session) {
+        long debut = System.nanoTime();
+        try {
+            concurrenceBd.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        attenteBdCumuleeMs.addAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - debut));
+        try {
+            executer(message, session);
+        } finally {
+            concurrenceBd.release();
+        }
+    }
+
+    private void executer(Object message, Session session) {
+        try {
+            if (message instanceof ByteBuffer trame) {
+                ActionHandler.handleAction(trame, session);
+            } else {
+                ActionHandler.handleAction((String) message, session);
+            }
+            traitees.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            // Hors du thread du conteneur, personne d'autre ne verrait l'exception
+            erreurs.incrementAndGet();
+            Journal.erreur("action.echec", e, "session", session.getId());
+
+            String errorResponse = "{\"type\":\"error\",\"message\":\"Erreur lors du traitement de la requête\"}";
+            OutboundDispatcher.getInstance().envoyer(session, errorResponse);
+        }
+    }
+
+    /**
+     * Attend la fin des actions en cours (au plus delaiMs) puis arrête l'exécuteur.
+     */
+    public void arreter(long delaiMs) {
+        executeur.shutdown();
+        try {
+            executeur.awaitTermination(delaiMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public long getTraitees() {
+        return traitees.get();
+    }
+
+    public long getErreurs() {
+        return erreurs.get();
+    }
+
+    public long getAttenteBdCumuleeMs() {
+        return attenteBdCumuleeMs.get();
+    }
+
+    public long getDeposes() {
+        return deposes.get();
+    }
+
+    public long getRejetes() {
+        return rejetes.get();
+    }
+
+    public int getProfondeurMaxObservee() {
+        return profondeurMaxObservee.get();
+    }
+
+    /**
+     * Temps moyen passé par un message dans sa boîte avant traitement.
+     */
+    public double getAttenteFileMoyenneMs() {
+        long n = sortis.get();
+        return n == 0 ? 0 : attenteFileCumuleeNanos.get() / 1_000_000.0 / n;
+    }
+
+    /**
+     * Compteurs des boîtes aux lettres (dépôts, refus, attente en file).
+     */
+    private final class ObservateurBoites implements SessionMailbox.Observateur {
+        @Override
+        public void depose(int profondeur) {
+            deposes.incrementAndGet();
+            profondeurMaxObservee.accumulateAndGet(profondeur, Math::max);
+        }
+
+        @Override
+        public void rejete() {
+            rejetes.incrementAndGet();
+        }
+
+        @Override
+        public void traite(long attenteNanos) {
+            sortis.incrementAndGet();
+            attenteFileCumuleeNanos.addAndGet(attenteNanos);
+        }
+    }
+}
@@ -1,30 +1,24 @@
 package serveur;
 
-import org.json.JSONObject;
 import javax.websocket.Session;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.ByteBuffer;
 
 public class ActionHandler {
-    private static final Map<String, WebSocketAction> actions = new HashMap<>();
+    private static final ActionRouter routeur = ActionRouter.construire(
+            new ReunionService(),
+            new AuthentificationService());
+    // Tu peux ajouter d'autres services ici, comme new UtilisateurService()
 
-    static {
-        actions.put("reunion", new ReunionService());
-        actions.put("authentification", new AuthentificationService());
-        // Tu peux ajouter d'autres services ici comme:
-        // actions.put("utilisateur", new UtilisateurService());
+    public static void handleAction(String message, Session session) throws IOException {
+        routeur.router(message, session);
     }
 
-    public static void handleAction(String message, Session session) throws IOException {
-        JSONObject json = new JSONObject(message);
-        String modele = json.optString("modele");
+    public static void handleAction(ByteBuffer message, Session session) throws IOException {
+        routeur.router(message, session);
+    }
 
-        WebSocketAction action = actions.get(modele);
-        if (action != null) {
-            action.execute(json, session);
-        } else {
-            session.getBasicRemote().sendText("Erreur: Modèle inconnu '" + modele + "'");
-        }
+    public static ActionRouter getRouteur() {
+        return routeur;
     }
 }
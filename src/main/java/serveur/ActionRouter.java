@@ -0,0 +1,222 @@
+package serveur;
+
+import protocole.ProtocoleBinaire;
+
+import javax.websocket.Session;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aiguillage des actions WebSocket : chaque service déclare au démarrage un traitement par couple
+ * (modele, action), rangé dans une table à plat et immuable. Un message coûte un repérage de ses champs
+ * (Enveloppe) et une recherche dans la table, quel que soit le nombre d'actions.
+ *
+ * Les erreurs non traitées par une action sont renvoyées au client sous forme de message "error".
+ * Chaque route compte ses invocations, ses erreurs et ses exécutions en cours, et mesure ses durées
+ * (exposées par Metriques).
+ */
+public final class ActionRouter {
+
+    /**
+     * Traitement qui envoie lui-même sa (ou ses) réponse(s).
+     */
+    @FunctionalInterface
+    public interface Traitement {
+        void traiter(Requete requete) throws IOException, SQLException;
+    }
+
+    /**
+     * Traitement dont la réponse est renvoyée à l'émetteur (rien n'est envoyé si elle est null).
+     */
+    @FunctionalInterface
+    public interface TraitementAvecReponse {
+        String traiter(Requete requete) throws IOException, SQLException;
+    }
+
+    private final Map<String, Route> routes;
+    private final Set<String> modeles;
+    private final LongAdder inconnues = new LongAdder();
+
+    private ActionRouter(Map<String, Route> routes, Set<String> modeles) {
+        this.routes = Map.copyOf(routes);
+        this.modeles = Set.copyOf(modeles);
+    }
+
+    /**
+     * Construit la table à partir des services ; deux déclarations du même couple sont une erreur de démarrage.
+     */
+    public static ActionRouter construire(WebSocketAction... services) {
+        Map<String, Route> routes = new HashMap<>();
+        Set<String> modeles = new HashSet<>();
+        for (WebSocketAction service : services) {
+            modeles.add(service.modele());
+            service.enregistrer(new Routes(service.modele(), routes));
+        }
+        return new ActionRouter(routes, modeles);
+    }
+
+    /**
+     * Analyse l'enveloppe et exécute le traitement de l'action.
+     */
+    public void router(String message, Session session) throws IOException {
+        // Seuls les champs lus sont décodés ; l'arbre JSONObject n'est construit que si le traitement le demande
+        Enveloppe enveloppe = Enveloppe.lire(message);
+        executer(enveloppe.texte("modele"), enveloppe.texte("action"), enveloppe, session);
+    }
+
+    /**
+     * Décode une requête binaire (voir ProtocoleBinaire) et l'exécute comme son équivalent JSON.
+     */
+    public void router(ByteBuffer trame, Session session) throws IOException {
+        ProtocoleBinaire.RequeteBinaire requete = ProtocoleBinaire.lireRequete(trame);
+        executer(requete.getModele(), requete.getAction(), new DonneesBinaires(requete), session);
+    }
+
+    private void executer(String modele, String action, Donnees donnees, Session session) throws IOException {
+        Route route = routes.get(cle(modele, action));
+        if (route == null) {
+            inconnues.increment();
+            String erreur = modeles.contains(modele)
+                    ? "Action inconnue '" + action + "' dans le modèle " + modele
+                    : "Modèle inconnu '" + modele + "'";
+            envoyerErreur(session, erreur);
+            return;
+        }
+
+        route.invocations.increment();
+        route.enCours.incrementAndGet();
+        long debut = System.nanoTime();
+        Requete requete = new Requete(modele, action, donnees, session);
+        try {
+            route.traitement.traiter(requete);
+        } catch (SQLException e) {
+            route.erreurs.increment();
+            signaler(requete, "Erreur SQL", e);
+            envoyerErreur(session, "Erreur serveur SQL: " + e.getMessage());
+        } catch (IOException e) {
+            route.erreurs.increment();
+            signaler(requete, "Erreur IO", e);
+            envoyerErreur(session, "Erreur serveur IO: " + e.getMessage());
+        } catch (RuntimeException e) {
+            route.erreurs.increment();
+            signaler(requete, "Erreur inattendue", e);
+            envoyerErreur(session, "Erreur serveur inattendue: " + e.getMessage());
+        } finally {
+            route.enCours.decrementAndGet();
+            route.durees.enregistrer(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - debut));
+        }
+    }
+
+    /**
+     * Nombre d'invocations par "modele/action", dans l'ordre alphabétique.
+     */
+    public Map<String, Long> getInvocations() {
+        Map<String, Long> resultat = new TreeMap<>();
+        routes.forEach((cle, route) -> resultat.put(cle, route.invocations.sum()));
+        return resultat;
+    }
+
+    /**
+     * Nombre d'exceptions remontées par "modele/action", dans l'ordre alphabétique.
+     */
+    public Map<String, Long> getErreurs() {
+        Map<String, Long> resultat = new TreeMap<>();
+        routes.forEach((cle, route) -> resultat.put(cle, route.erreurs.sum()));
+        return resultat;
+    }
+
+    /**
+     * Routes par "modele/action", pour l'exposition des métriques.
+     */
+    Map<String, Route> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Messages dont le couple (modele, action) n'est pas déclaré.
+     */
+    public long getInconnues() {
+        return inconnues.sum();
+    }
+
+    /**
+     * Couples (modele, action) déclarés.
+     */
+    public Set<String> getActions() {
+        return Collections.unmodifiableSet(new TreeSet<>(routes.keySet()));
+    }
+
+    private static String cle(String modele, String action) {
+        return modele + "/" + action;
+    }
+
+    private static void signaler(Requete requete, String nature, Exception e) {
+        Journal.erreur("action.erreur", e, "action", requete, "nature", nature);
+    }
+
+    private static void envoyerErreur(Session session, String message) {
+        if (session.isOpen()) {
+            OutboundDispatcher.getInstance().envoyer(session, EcrivainJson.objet()
+                    .champ("type", "error").champ("statut", "echec").champ("message", message).trame());
+        }
+    }
+
+    /**
+     * Déclaration des actions d'un service, liée à son modèle.
+     */
+    public static final class Routes {
+        private final String modele;
+        private final Map<String, Route> routes;
+
+        private Routes(String modele, Map<String, Route> routes) {
+            this.modele = modele;
+            this.routes = routes;
+        }
+
+        public Routes traiter(String action, Traitement traitement) {
+            String cle = cle(modele, action);
+            if (routes.putIfAbsent(cle, new Route(modele, action, traitement)) != null) {
+                throw new IllegalStateException("Action déclarée deux fois: " + cle);
+            }
+            return this;
+        }
+
+        public Routes repondre(String action, TraitementAvecReponse traitement) {
+            return traiter(action, requete -> {
+                String reponse = traitement.traiter(requete);
+                Session session = requete.getSession();
+                if (reponse != null && session.isOpen()) {
+                    OutboundDispatcher.getInstance().envoyer(session, reponse);
+                }
+            });
+        }
+    }
+
+    static final class Route {
+        final String modele;
+        final String action;
+        final Traitement traitement;
+        final LongAdder invocations = new LongAdder();
+        final LongAdder erreurs = new LongAdder();
+        final AtomicInteger enCours = new AtomicInteger();
+        // Durées en microsecondes, erreurs comprises
+        final Histogramme durees = new Histogramme();
+
+        Route(String modele, String action, Traitement traitement) {
+            this.modele = modele;
+            this.action = action;
+            this.traitement = traitement;
+        }
+    }
+}
@@ -0,0 +1,464 @@
+package serveur;
+
+import java.lang.ref.Cleaner;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pool borné de connexions JDBC.
+ * Les connexions rendues par {@link #emprunter()} sont des proxys : close() rend la
+ * connexion physique au pool au lieu de la fermer.
+ */
+public class ConnectionPool {
+
+    /**
+     * Fabrique des connexions physiques (DriverManager en production, simulée dans les tests).
+     */
+    public interface ConnectionFactory {
+        Connection creer() throws SQLException;
+    }
+
+    /**
+     * Paramètres du pool. Les durées sont en millisecondes ; 0 désactive la fonctionnalité correspondante.
+     */
+    public static class Configuration {
+        int tailleMin = 2;
+        int tailleMax = 20;
+        long delaiAcquisitionMs = 5_000;
+        long delaiInactiviteMs = 10 * 60_000;
+        long seuilFuiteMs = 60_000;
+        int delaiValidationSec = 2;
+        long periodeMaintenanceMs = 30_000;
+
+        public Configuration tailleMin(int tailleMin) { this.tailleMin = tailleMin; return this; }
+        public Configuration tailleMax(int tailleMax) { this.tailleMax = tailleMax; return this; }
+        public Configuration delaiAcquisitionMs(long delai) { this.delaiAcquisitionMs = delai; return this; }
+        public Configuration delaiInactiviteMs(long delai) { this.delaiInactiviteMs = delai; return this; }
+        public Configuration seuilFuiteMs(long seuil) { this.seuilFuiteMs = seuil; return this; }
+        public Configuration delaiValidationSec(int delai) { this.delaiValidationSec = delai; return this; }
+        public Configuration periodeMaintenanceMs(long periode) { this.periodeMaintenanceMs = periode; return this; }
+    }
+
+    /**
+     * Photographie des compteurs du pool, destinée à la supervision.
+     */
+    public static class Statistiques {
+        public final int total;
+        public final int actives;
+        public final int inactives;
+        public final int threadsEnAttente;
+        public final long emprunts;
+        public final long expirations;
+        public final long creees;
+        public final long detruites;
+        public final long fuitesDetectees;
+        public final long recupereesSansFermeture;
+        public final long attenteCumuleeMs;
+
+        Statistiques(int total, int actives, int inactives, int threadsEnAttente, long emprunts, long expirations,
+                     long creees, long detruites, long fuitesDetectees, long recupereesSansFermeture, long attenteCumuleeMs) {
+            this.total = total;
+            this.actives = actives;
+            this.inactives = inactives;
+            this.threadsEnAttente = threadsEnAttente;
+            this.emprunts = emprunts;
+            this.expirations = expirations;
+            this.creees = creees;
+            this.detruites = detruites;
+            this.fuitesDetectees = fuitesDetectees;
+            this.recupereesSansFermeture = recupereesSansFermeture;
+            this.attenteCumuleeMs = attenteCumuleeMs;
+        }
+
+        @Override
+        public String toString() {
+            return "Pool{total=" + total + ", actives=" + actives + ", inactives=" + inactives +
+                    ", enAttente=" + threadsEnAttente + ", emprunts=" + emprunts + ", expirations=" + expirations +
+                    ", creees=" + creees + ", detruites=" + detruites + ", fuites=" + fuitesDetectees +
+                    ", recuperees=" + recupereesSansFermeture + ", attenteCumuleeMs=" + attenteCumuleeMs + '}';
+        }
+    }
+
+    private static final Cleaner CLEANER = Cleaner.create();
+    // Une connexion rendue il y a moins longtemps que ce délai n'est pas revalidée (évite un ping par emprunt)
+    private static final long VALIDATION_INUTILE_SOUS_MS = 500;
+
+    private final ConnectionFactory fabrique;
+    private final Configuration config;
+
+    private final ReentrantLock verrou = new ReentrantLock();
+    private final Condition disponible = verrou.newCondition();
+    private final Deque<Entree> inactives = new ArrayDeque<>();
+    private final Set<Bail> baux = ConcurrentHashMap.newKeySet();
+    private int total = 0;
+    private int threadsEnAttente = 0;
+    private boolean ferme = false;
+
+    private final AtomicLong emprunts = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong creees = new AtomicLong();
+    private final AtomicLong detruites = new AtomicLong();
+    private final AtomicLong fuitesDetectees = new AtomicLong();
+    private final AtomicLong recupereesSansFermeture = new AtomicLong();
+    private final AtomicLong attenteCumuleeMs = new AtomicLong();
+
+    private final ScheduledExecutorService maintenance;
+
+    private ConnectionPool(ConnectionFactory fabrique, Configuration config) {
+        if (config.tailleMax < 1 || config.tailleMin < 0 || config.tailleMin > config.tailleMax) {
+            throw new IllegalArgumentException("Tailles de pool invalides: min=" + config.tailleMin + ", max=" + config.tailleMax);
+        }
+        this.fabrique = fabrique;
+        this.config = config;
+        if (config.periodeMaintenanceMs > 0) {
+            this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "pool-jdbc-maintenance");
+                t.setDaemon(true);
+                return t;
+            });
+        } else {
+            this.maintenance = null;
+        }
+    }
+
+    /**
+     * Crée le pool puis planifie sa maintenance, une fois l'objet entièrement construit.
+     */
+    public static ConnectionPool creer(ConnectionFactory fabrique, Configuration config) {
+        ConnectionPool pool = new ConnectionPool(fabrique, config);
+        if (pool.maintenance != null) {
+            pool.maintenance.scheduleWithFixedDelay(pool::maintenir,
+                    config.periodeMaintenanceMs, config.periodeMaintenanceMs, TimeUnit.MILLISECONDS);
+        }
+        return pool;
+    }
+
+    /**
+     * Emprunte une connexion ; attend au plus {@code delaiAcquisitionMs} si le pool est plein.
+     */
+    public Connection emprunter() throws SQLException {
+        long debut = System.nanoTime();
+        long restantNs = TimeUnit.MILLISECONDS.toNanos(config.delaiAcquisitionMs);
+
+        while (true) {
+            Entree entree = null;
+            boolean creer = false;
+
+            verrou.lock();
+            try {
+                while (true) {
+                    if (ferme) {
+                        throw new SQLException("Le pool de connexions est fermé");
+                    }
+                    entree = inactives.pollFirst();
+                    if (entree != null) break;
+                    if (total < config.tailleMax) {
+                        total++;
+                        creer = true;
+                        break;
+                    }
+                    if (restantNs <= 0) {
+                        expirations.incrementAndGet();
+                        throw new SQLException("Aucune connexion disponible après " + config.delaiAcquisitionMs
+                                + " ms (pool plein: " + total + "/" + config.tailleMax + ")", "08001");
+                    }
+                    threadsEnAttente++;
+                    try {
+                        restantNs = disponible.awaitNanos(restantNs);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrompu en attendant une connexion", e);
+                    } finally {
+                        threadsEnAttente--;
+                    }
+                }
+            } finally {
+                verrou.unlock();
+            }
+
+            Connection physique;
+            if (creer) {
+                try {
+                    physique = fabrique.creer();
+                    creees.incrementAndGet();
+                } catch (SQLException | RuntimeException e) {
+                    libererCreneau();
+                    throw e;
+                }
+            } else if (System.currentTimeMillis() - entree.depuis < VALIDATION_INUTILE_SOUS_MS || estValide(entree.physique)) {
+                physique = entree.physique;
+            } else {
+                detruire(entree.physique);
+                libererCreneau();
+                continue;
+            }
+
+            emprunts.incrementAndGet();
+            long attenteNs = System.nanoTime() - debut;
+            attenteCumuleeMs.addAndGet(TimeUnit.NANOSECONDS.toMillis(attenteNs));
+            Metriques.getInstance().attenteConnexion(attenteNs);
+            return envelopper(physique);
+        }
+    }
+
+    public Statistiques getStatistiques() {
+        verrou.lock();
+        try {
+            return new Statistiques(total, total - inactives.size(), inactives.size(), threadsEnAttente,
+                    emprunts.get(), expirations.get(), creees.get(), detruites.get(),
+                    fuitesDetectees.get(), recupereesSansFermeture.get(), attenteCumuleeMs.get());
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Ferme toutes les connexions inactives et refuse les emprunts suivants.
+     * Les connexions encore empruntées sont fermées à leur restitution.
+     */
+    public void fermer() {
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+        }
+        Deque<Entree> aFermer;
+        verrou.lock();
+        try {
+            ferme = true;
+            aFermer = new ArrayDeque<>(inactives);
+            total -= inactives.size();
+            inactives.clear();
+            disponible.signalAll();
+        } finally {
+            verrou.unlock();
+        }
+        for (Entree e : aFermer) {
+            detruire(e.physique);
+        }
+    }
+
+    // === Cycle de vie interne ===
+
+    private Connection envelopper(Connection physique) {
+        Bail bail = new Bail(this, physique, config.seuilFuiteMs > 0 ? new Throwable("Connexion empruntée ici") : null);
+        GestionnaireProxy gestionnaire = new GestionnaireProxy(bail);
+        Connection proxy = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, gestionnaire);
+        // Si l'appelant oublie close(), la connexion revient au pool quand le proxy est collecté
+        gestionnaire.nettoyage = CLEANER.register(proxy, bail);
+        baux.add(bail);
+        return proxy;
+    }
+
+    private void restituer(Bail bail) {
+        baux.remove(bail);
+        Metriques.getInstance().detentionConnexion(System.nanoTime() - bail.emprunteeNs);
+        if (!bail.fermeExplicitement) {
+            recupereesSansFermeture.incrementAndGet();
+        }
+        Connection physique = bail.physique;
+        boolean reutilisable = reinitialiser(physique);
+
+        verrou.lock();
+        try {
+            if (reutilisable && !ferme) {
+                inactives.offerFirst(new Entree(physique));
+                disponible.signal();
+                return;
+            }
+            total--;
+            disponible.signal();
+        } finally {
+            verrou.unlock();
+        }
+        detruire(physique);
+    }
+
+    private boolean reinitialiser(Connection physique) {
+        try {
+            if (physique.isClosed()) return false;
+            if (!physique.getAutoCommit()) {
+                physique.rollback();
+                physique.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean estValide(Connection physique) {
+        try {
+            return !physique.isClosed() && physique.isValid(config.delaiValidationSec);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void detruire(Connection physique) {
+        detruites.incrementAndGet();
+        try {
+            physique.close();
+        } catch (SQLException e) {
+            Journal.attention("pool.fermeture.echec", "erreur", e.getMessage());
+        }
+    }
+
+    private void libererCreneau() {
+        verrou.lock();
+        try {
+            total--;
+            disponible.signal();
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Éviction des connexions inactives trop anciennes, remise à niveau du minimum et détection des fuites.
+     */
+    void maintenir() {
+        long maintenant = System.currentTimeMillis();
+        Deque<Entree> aFermer = new ArrayDeque<>();
+        int aCreer;
+
+        verrou.lock();
+        try {
+            if (ferme) return;
+            if (config.delaiInactiviteMs > 0) {
+                Iterator<Entree> it = inactives.descendingIterator(); // les plus anciennes sont en fin de file
+                while (it.hasNext() && total - aFermer.size() > config.tailleMin) {
+                    Entree e = it.next();
+                    if (maintenant - e.depuis >= config.delaiInactiviteMs) {
+                        it.remove();
+                        aFermer.add(e);
+                    }
+                }
+                total -= aFermer.size();
+            }
+            aCreer = Math.max(0, config.tailleMin - total);
+            total += aCreer;
+        } finally {
+            verrou.unlock();
+        }
+
+        for (Entree e : aFermer) {
+            detruire(e.physique);
+        }
+        for (int i = 0; i < aCreer; i++) {
+            try {
+                Connection physique = fabrique.creer();
+                creees.incrementAndGet();
+                verrou.lock();
+                try {
+                    inactives.offerLast(new Entree(physique));
+                    disponible.signal();
+                } finally {
+                    verrou.unlock();
+                }
+            } catch (SQLException | RuntimeException e) {
+                libererCreneau();
+                Journal.attention("pool.reserve.echec", "erreur", e.getMessage());
+            }
+        }
+
+        if (config.seuilFuiteMs > 0) {
+            for (Bail bail : baux) {
+                if (!bail.fuiteSignalee && maintenant - bail.emprunteeA >= config.seuilFuiteMs) {
+                    bail.fuiteSignalee = true;
+                    fuitesDetectees.incrementAndGet();
+                    // bail.origine (si présent) porte la pile de l'emprunt
+                    Journal.attention("pool.fuite", bail.origine, "dureeMs", maintenant - bail.emprunteeA);
+                }
+            }
+        }
+    }
+
+    private static final class Entree {
+        final Connection physique;
+        final long depuis = System.currentTimeMillis();
+
+        Entree(Connection physique) {
+            this.physique = physique;
+        }
+    }
+
+    /**
+     * État d'un emprunt. Sert aussi d'action de nettoyage pour le {@link Cleaner} :
+     * il ne doit donc jamais référencer le proxy.
+     */
+    private static final class Bail implements Runnable {
+        final ConnectionPool pool;
+        final Connection physique;
+        final Throwable origine;
+        final long emprunteeA = System.currentTimeMillis();
+        final long emprunteeNs = System.nanoTime();
+        volatile boolean fermeExplicitement = false;
+        volatile boolean fuiteSignalee = false;
+
+        Bail(ConnectionPool pool, Connection physique, Throwable origine) {
+            this.pool = pool;
+            this.physique = physique;
+            this.origine = origine;
+        }
+
+        @Override
+        public void run() {
+            pool.restituer(this);
+        }
+    }
+
+    private static final class GestionnaireProxy implements InvocationHandler {
+        private final Bail bail;
+        private volatile Cleaner.Cleanable nettoyage;
+        private volatile boolean rendue = false;
+
+        GestionnaireProxy(Bail bail) {
+            this.bail = bail;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!rendue) {
+                        rendue = true;
+                        bail.fermeExplicitement = true;
+                        nettoyage.clean();
+                    }
+                    return null;
+                case "isClosed":
+                    return rendue || bail.physique.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "ConnexionPool[" + bail.physique + (rendue ? ", rendue" : "") + "]";
+                default:
+                    if (rendue) {
+                        throw new SQLException("Connexion déjà rendue au pool");
+                    }
+                    try {
+                        return method.invoke(bail.physique, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
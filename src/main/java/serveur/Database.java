@@ -7,9 +7,17 @@ import java.sql.SQLException;
 public class Database {
 
     // CORRECTION: Utiliser le port 3307 comme défini dans docker-compose.yaml
-    private static final String URL = "jdbc:mysql://localhost:3307/tpbmo_db?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC";
-    private static final String USER = "tpbmo";
-    private static final String PASSWORD = "tpbmo";
+    // Les valeurs peuvent être surchargées par -Dtpbmo.db.url / -Dtpbmo.db.user / -Dtpbmo.db.password
+    // Instructions préparées côté serveur et gardées en cache par connexion physique : les connexions du pool
+    // étant réutilisées, un même SQL n'est préparé qu'une fois par connexion
+    private static final String URL = System.getProperty("tpbmo.db.url",
+            "jdbc:mysql://localhost:3307/tpbmo_db?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC&rewriteBatchedStatements=true"
+                    + "&useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=256&prepStmtCacheSqlLimit=2048");
+    private static final String USER = System.getProperty("tpbmo.db.user", "tpbmo");
+    private static final String PASSWORD = System.getProperty("tpbmo.db.password", "tpbmo");
+
+    // Pool partagé par tous les appelants de getConnection(), créé au premier emprunt
+    private static volatile ConnectionPool pool;
 
     // Variable pour garder une référence au driver
     private static boolean driverLoaded = false;
@@ -19,42 +27,97 @@ public class Database {
         try {
             Class.forName("com.mysql.cj.jdbc.Driver");
             driverLoaded = true;
-            System.out.println("Driver MySQL chargé avec succès");
+            Journal.info("bd.driver", "classe", "com.mysql.cj.jdbc.Driver");
         } catch (ClassNotFoundException e) {
-            System.err.println("ERREUR: Driver MySQL non trouvé. Assurez-vous que mysql-connector-java est dans le classpath.");
-            System.err.println("Ajoutez cette dépendance dans pom.xml:");
-            System.err.println("<dependency>");
-            System.err.println("    <groupId>mysql</groupId>");
-            System.err.println("    <artifactId>mysql-connector-java</artifactId>");
-            System.err.println("    <version>8.0.33</version>");
-            System.err.println("</dependency>");
-            e.printStackTrace();
+            Journal.erreur("bd.driver.absent", e,
+                    "aide", "ajouter mysql:mysql-connector-java:8.0.33 au classpath (pom.xml)");
         }
     }
 
+    /**
+     * Emprunte une connexion au pool. Le close() de la connexion retournée la rend au pool.
+     * Les managers de model n'en gardent aucune : chaque opération emprunte la sienne et la rend avant de retourner.
+     * Ses instructions sont mesurées par {@link MesuresSql} (durée et lignes par gabarit, requêtes lentes).
+     * Dans une {@link UniteDeTravail}, retourne la connexion de l'unité (close() est alors sans effet).
+     */
     public static Connection getConnection() throws SQLException {
+        Connection courante = UniteDeTravail.courante();
+        return courante != null ? courante : emprunterConnexion();
+    }
+
+    static Connection emprunterConnexion() throws SQLException {
+        Connection connexion = getPool().emprunter();
+        return MesuresSql.ACTIVES ? MesuresSql.getInstance().envelopper(connexion) : connexion;
+    }
+
+    /**
+     * Compteurs du pool (connexions actives/inactives, attentes, fuites...) pour la supervision.
+     */
+    public static ConnectionPool.Statistiques getStatistiquesPool() {
+        return getPool().getStatistiques();
+    }
+
+    /**
+     * Ferme le pool et ses connexions inactives (arrêt du serveur).
+     */
+    public static synchronized void fermerPool() {
+        if (pool != null) {
+            pool.fermer();
+            pool = null;
+        }
+    }
+
+    /**
+     * Remplace le pool courant, par exemple pour l'adosser à une autre fabrique de connexions.
+     */
+    static synchronized void configurerPool(ConnectionPool nouveauPool) {
+        if (pool != null) {
+            pool.fermer();
+        }
+        pool = nouveauPool;
+    }
+
+    private static ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (Database.class) {
+                p = pool;
+                if (p == null) {
+                    ConnectionPool.Configuration config = new ConnectionPool.Configuration()
+                            .tailleMin(Integer.getInteger("tpbmo.pool.min", 2))
+                            .tailleMax(Integer.getInteger("tpbmo.pool.max", 20))
+                            .delaiAcquisitionMs(Long.getLong("tpbmo.pool.acquisitionMs", 5_000L))
+                            .delaiInactiviteMs(Long.getLong("tpbmo.pool.inactiviteMs", 600_000L))
+                            .seuilFuiteMs(Long.getLong("tpbmo.pool.fuiteMs", 60_000L));
+                    p = ConnectionPool.creer(Database::ouvrirConnexionPhysique, config);
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    private static Connection ouvrirConnexionPhysique() throws SQLException {
         if (!driverLoaded) {
             throw new SQLException("Driver MySQL non chargé. Vérifiez que mysql-connector-java est dans le classpath.");
         }
 
         try {
             Connection connection = DriverManager.getConnection(URL, USER, PASSWORD);
-            System.out.println("Connexion à la base de données établie avec succès");
+            Journal.debug("bd.connexion", "url", URL);
             return connection;
         } catch (SQLException e) {
-            System.err.println("Erreur de connexion à la base de données:");
-            System.err.println("URL: " + URL);
-            System.err.println("User: " + USER);
-            System.err.println("Erreur: " + e.getMessage());
-
             // Messages d'aide pour le debugging
+            String solution = "";
             if (e.getMessage().contains("Access denied")) {
-                System.err.println("SOLUTION: Vérifiez les identifiants de la base de données");
+                solution = "Vérifiez les identifiants de la base de données";
             } else if (e.getMessage().contains("Connection refused")) {
-                System.err.println("SOLUTION: Vérifiez que MySQL est démarré et accessible sur le port 3307");
+                solution = "Vérifiez que MySQL est démarré et accessible sur le port 3307";
             } else if (e.getMessage().contains("Unknown database")) {
-                System.err.println("SOLUTION: Créez la base de données 'tpbmo_db' ou vérifiez son nom");
+                solution = "Créez la base de données 'tpbmo_db' ou vérifiez son nom";
             }
+            Journal.erreur("bd.connexion.echec", "url", URL, "utilisateur", USER, "erreur", e.getMessage(),
+                    "solution", solution);
 
             throw e;
         }
@@ -63,7 +126,6 @@ public class Database {
     public static void closeConnection(Connection connection) throws SQLException {
         if (connection != null && !connection.isClosed()) {
             connection.close();
-            System.out.println("Connexion à la base de données fermée");
         }
     }
 
@@ -74,7 +136,7 @@ public class Database {
         try (Connection conn = getConnection()) {
             return conn != null && !conn.isClosed();
         } catch (SQLException e) {
-            System.err.println("Test de connexion échoué: " + e.getMessage());
+            Journal.erreur("bd.test.echec", "erreur", e.getMessage());
             return false;
         }
     }
@@ -0,0 +1,51 @@
+package serveur;
+
+import model.DemandeParole;
+
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Pousse les changements des files de parole aux clients concernés, à la place du rappel de getDemandesParole.
+ *
+ * Chaque changement part en un message "fileParole" vers l'animateur et l'organisateur, les personnes encore
+ * en attente (dont la position a pu changer) et la personne visée, sur leurs sessions ouvertes dans la réunion :
+ * {"type":"fileParole","reunionId":..,"sequence":..,"evenement":"ajoutee|accordee|refusee|annulee",
+ *  "demandeId":..,"personneId":..,"nomDemandeur":..,"heureDemande":..,"position":..,"taille":..}
+ * Les séquences d'une file se suivent : un client qui reçoit autre chose que la sienne + 1 redemande
+ * getDemandesParole, dont la réponse porte la séquence de l'instantané.
+ */
+final class DiffusionParole implements FilesParole.Observateur {
+
+    @Override
+    public void surEvenement(FilesParole.Evenement evenement) {
+        DemandeParole demande = evenement.getDemande();
+        int reunionId = evenement.getReunionId();
+
+        String message = EcrivainJson.objet()
+                .champ("type", "fileParole")
+                .champ("reunionId", reunionId)
+                .champ("sequence", evenement.getSequence())
+                .champ("evenement", evenement.getType().name().toLowerCase())
+                .champ("demandeId", demande.getId())
+                .champ("personneId", demande.getPersonneId())
+                .champ("nomDemandeur", evenement.getNomDemandeur())
+                .champ("heureDemande", demande.getHeureDemande().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                .champ("position", evenement.getPosition())
+                .champ("taille", evenement.getTaille())
+                .fin();
+
+        Set<Integer> personnes = new HashSet<>();
+        personnes.add(demande.getPersonneId());
+        for (int personneId : evenement.getDemandeurs()) {
+            personnes.add(personneId);
+        }
+        // Lus avant le verrou de la file : ici, rien que la mémoire
+        for (int personneId : evenement.getDirigeants()) {
+            personnes.add(personneId);
+        }
+        // Seulement leurs sessions ouvertes dans cette réunion
+        OutboundDispatcher.getInstance().diffuser(SessionRegistry.sessionsUtilisateursDansReunion(reunionId, personnes), message);
+    }
+}
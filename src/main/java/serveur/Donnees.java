@@ -0,0 +1,28 @@
+package serveur;
+
+import org.json.JSONObject;
+
+/**
+ * Champs d'une requête reçue, quel que soit son format (JSON texte ou trame binaire).
+ */
+interface Donnees {
+    /**
+     * Valeur du champ en texte ; chaîne vide si absent ou null.
+     */
+    String texte(String cle);
+
+    /**
+     * Valeur entière du champ ; defaut s'il est absent ou invalide.
+     */
+    int entier(String cle, int defaut);
+
+    /**
+     * Vrai si le champ est absent ou vaut null.
+     */
+    boolean estNul(String cle);
+
+    /**
+     * Requête complète en JSON, construite au plus une fois.
+     */
+    JSONObject versJson();
+}
@@ -0,0 +1,51 @@
+package serveur;
+
+import org.json.JSONObject;
+import protocole.ProtocoleBinaire;
+
+/**
+ * Champs d'une requête reçue en binaire, exposés sous les noms du protocole JSON.
+ */
+final class DonneesBinaires implements Donnees {
+
+    private final ProtocoleBinaire.RequeteBinaire requete;
+    private JSONObject json;
+
+    DonneesBinaires(ProtocoleBinaire.RequeteBinaire requete) {
+        this.requete = requete;
+    }
+
+    @Override
+    public String texte(String cle) {
+        return switch (cle) {
+            case "modele" -> requete.getModele();
+            case "action" -> requete.getAction();
+            case "reunionId", "code" -> String.valueOf(requete.getReunionId());
+            case "userId" -> String.valueOf(requete.getUserId());
+            case "contenu" -> requete.getContenu() != null ? requete.getContenu() : "";
+            default -> "";
+        };
+    }
+
+    @Override
+    public int entier(String cle, int defaut) {
+        return switch (cle) {
+            case "reunionId", "code" -> requete.getReunionId();
+            case "userId" -> requete.getUserId();
+            default -> defaut;
+        };
+    }
+
+    @Override
+    public boolean estNul(String cle) {
+        return texte(cle).isEmpty();
+    }
+
+    @Override
+    public JSONObject versJson() {
+        if (json == null) {
+            json = requete.versJson();
+        }
+        return json;
+    }
+}
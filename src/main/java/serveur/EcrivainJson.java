@@ -0,0 +1,144 @@
+package serveur;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Écriture directe d'un objet JSON plat dans un tampon réutilisé, sans arbre JSONObject intermédiaire :
+ *
+ *   String trame = EcrivainJson.objet().champ("type", "newMessage").champ("id", 42).fin();
+ *
+ * Les écrivains sont rendus à une petite réserve par fin() ; un écrivain abandonné avant fin()
+ * est simplement ramassé par le GC. Un écrivain n'est utilisé que par un thread à la fois.
+ */
+public final class EcrivainJson {
+
+    private static final int TAILLE_RESERVE = 64;
+    // Au-delà, le tampon n'est pas gardé : un historique géant ne doit pas rester en mémoire
+    private static final int CAPACITE_MAX_CONSERVEE = 16 * 1024;
+    private static final AtomicReferenceArray<EcrivainJson> RESERVE = new AtomicReferenceArray<>(TAILLE_RESERVE);
+    private static final char[] HEXA = "0123456789abcdef".toCharArray();
+
+    private StringBuilder tampon = new StringBuilder(256);
+    private boolean premierChamp;
+
+    private EcrivainJson() {
+    }
+
+    /**
+     * Commence un nouvel objet avec un écrivain de la réserve.
+     */
+    public static EcrivainJson objet() {
+        EcrivainJson ecrivain = emprunter();
+        ecrivain.tampon.setLength(0);
+        ecrivain.tampon.append('{');
+        ecrivain.premierChamp = true;
+        return ecrivain;
+    }
+
+    public EcrivainJson champ(String cle, String valeur) {
+        cle(cle);
+        if (valeur == null) {
+            tampon.append("null");
+        } else {
+            chaine(valeur);
+        }
+        return this;
+    }
+
+    public EcrivainJson champ(String cle, long valeur) {
+        cle(cle);
+        tampon.append(valeur);
+        return this;
+    }
+
+    public EcrivainJson champ(String cle, boolean valeur) {
+        cle(cle);
+        tampon.append(valeur);
+        return this;
+    }
+
+    /**
+     * Champ dont la valeur est déjà du JSON valide (objet ou tableau encodé ailleurs).
+     */
+    public EcrivainJson champBrut(String cle, String json) {
+        cle(cle);
+        tampon.append(json);
+        return this;
+    }
+
+    /**
+     * Termine l'objet, rend l'écrivain à la réserve et retourne le texte produit.
+     */
+    public String fin() {
+        tampon.append('}');
+        String resultat = tampon.toString();
+        rendre(this);
+        return resultat;
+    }
+
+    public Trame trame() {
+        return Trame.de(fin());
+    }
+
+    private void cle(String cle) {
+        if (premierChamp) {
+            premierChamp = false;
+        } else {
+            tampon.append(',');
+        }
+        chaine(cle);
+        tampon.append(':');
+    }
+
+    private void chaine(String valeur) {
+        StringBuilder sb = tampon;
+        sb.append('"');
+        int debut = 0;
+        int longueur = valeur.length();
+        for (int i = 0; i < longueur; i++) {
+            char c = valeur.charAt(i);
+            // U+2028/U+2029 sont échappés pour que la trame reste valide si elle est évaluée en JavaScript
+            if (c >= 0x20 && c != '"' && c != '\\' && c != '\u2028' && c != '\u2029') {
+                continue;
+            }
+            sb.append(valeur, debut, i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                case '\b' -> sb.append("\\b");
+                case '\f' -> sb.append("\\f");
+                default -> sb.append("\\u").append(HEXA[(c >> 12) & 0xF]).append(HEXA[(c >> 8) & 0xF])
+                        .append(HEXA[(c >> 4) & 0xF]).append(HEXA[c & 0xF]);
+            }
+            debut = i + 1;
+        }
+        sb.append(valeur, debut, longueur);
+        sb.append('"');
+    }
+
+    private static EcrivainJson emprunter() {
+        int depart = (int) (Thread.currentThread().threadId() & (TAILLE_RESERVE - 1));
+        for (int k = 0; k < 4; k++) {
+            EcrivainJson ecrivain = RESERVE.getAndSet((depart + k) & (TAILLE_RESERVE - 1), null);
+            if (ecrivain != null) {
+                return ecrivain;
+            }
+        }
+        return new EcrivainJson();
+    }
+
+    private static void rendre(EcrivainJson ecrivain) {
+        if (ecrivain.tampon.capacity() > CAPACITE_MAX_CONSERVEE) {
+            ecrivain.tampon = new StringBuilder(256);
+        }
+        int depart = (int) (Thread.currentThread().threadId() & (TAILLE_RESERVE - 1));
+        for (int k = 0; k < 4; k++) {
+            if (RESERVE.compareAndSet((depart + k) & (TAILLE_RESERVE - 1), null, ecrivain)) {
+                return;
+            }
+        }
+    }
+}
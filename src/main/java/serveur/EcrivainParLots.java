@@ -0,0 +1,250 @@
+package serveur;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Écrivain unique d'un journal en mémoire, par lots JDBC (persistance différée des messages et des demandes
+ * de parole). Un lot part dès qu'il est plein ou que son plus ancien élément attend depuis delaiMaxMs.
+ *
+ * Une erreur passagère de la base (connexion perdue, délai, interblocage) fait réessayer le lot tant que le
+ * serveur tourne, avec des pauses croissantes ; à l'arrêt, on y renonce après quelques tentatives.
+ * Une erreur sur les données (SQLState de classe 22 ou 23 : clé étrangère vers une réunion supprimée,
+ * contenu trop long...) ne passera jamais : le lot est repris élément par élément et seuls les éléments
+ * fautifs sont rejetés (journalisés en erreur avec leur id, puis oubliés) pour ne pas bloquer les suivants.
+ */
+final class EcrivainParLots<T> {
+
+    /**
+     * Écriture d'un lot en une transaction.
+     */
+    @FunctionalInterface
+    interface Ecriture<T> {
+        void ecrire(List<T> lot) throws SQLException;
+    }
+
+    // Pauses entre deux tentatives d'écriture d'un lot en échec (la dernière est répétée)
+    private static final long[] REPRISES_MS = {100, 500, 2_000, 5_000};
+    // À l'arrêt, on renonce à un lot après ce nombre d'échecs plutôt que de bloquer indéfiniment
+    private static final int TENTATIVES_A_L_ARRET = 3;
+
+    private final String nom;
+    private final BlockingQueue<T> journal;
+    private final int tailleLot;
+    private final long delaiMaxMs;
+    private final Ecriture<T> ecriture;
+    // Appelé une fois le sort des éléments du lot réglé : écrits, rejetés ou perdus
+    private final Consumer<List<T>> oublier;
+    private final Function<T, Object> identifiant;
+
+    private volatile Thread thread;
+    private volatile boolean actif = true;
+
+    private final AtomicLong ecrits = new AtomicLong();
+    private final AtomicLong lots = new AtomicLong();
+    private final AtomicLong echecs = new AtomicLong();
+    private final AtomicLong rejetes = new AtomicLong();
+    private final AtomicLong perdus = new AtomicLong();
+
+    /**
+     * @param nom préfixe des événements du journal ("messages" : messages.ecriture.echec...) et suffixe du thread
+     */
+    EcrivainParLots(String nom, BlockingQueue<T> journal, int tailleLot, long delaiMaxMs,
+                    Ecriture<T> ecriture, Consumer<List<T>> oublier, Function<T, Object> identifiant) {
+        if (tailleLot < 1) {
+            throw new IllegalArgumentException("Taille de lot invalide: " + tailleLot);
+        }
+        this.nom = nom;
+        this.journal = journal;
+        this.tailleLot = tailleLot;
+        this.delaiMaxMs = delaiMaxMs;
+        this.ecriture = ecriture;
+        this.oublier = oublier;
+        this.identifiant = identifiant;
+    }
+
+    /**
+     * Faux dès que l'arrêt est demandé : le propriétaire refuse alors les nouveaux éléments.
+     */
+    boolean estActif() {
+        return actif;
+    }
+
+    boolean estDemarre() {
+        return thread != null;
+    }
+
+    /**
+     * Lance le thread écrivain ; l'appelant s'assure qu'il ne le fait qu'une fois.
+     */
+    void demarrer() {
+        Thread t = new Thread(this::boucleEcriture, "ecriture-" + nom);
+        t.setDaemon(true);
+        t.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::arreter, "arret-ecriture-" + nom));
+        thread = t;
+    }
+
+    private void boucleEcriture() {
+        List<T> lot = new ArrayList<>(tailleLot);
+        while (actif || !journal.isEmpty()) {
+            try {
+                T premier = journal.poll(delaiMaxMs, TimeUnit.MILLISECONDS);
+                if (premier == null) {
+                    continue;
+                }
+                lot.add(premier);
+                // Le plus ancien élément du lot n'attend jamais plus de delaiMaxMs
+                long echeance = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delaiMaxMs);
+                while (lot.size() < tailleLot) {
+                    journal.drainTo(lot, tailleLot - lot.size());
+                    long reste = echeance - System.nanoTime();
+                    if (lot.size() >= tailleLot || reste <= 0 || !actif) {
+                        break;
+                    }
+                    T suivant = journal.poll(reste, TimeUnit.NANOSECONDS);
+                    if (suivant == null) {
+                        break;
+                    }
+                    lot.add(suivant);
+                }
+            } catch (InterruptedException e) {
+                // arreter() réveille l'écrivain : on vide ce qui reste puis on sort
+                actif = false;
+                journal.drainTo(lot);
+            }
+            if (!lot.isEmpty()) {
+                ecrireLot(lot);
+                lot.clear();
+            }
+        }
+    }
+
+    /**
+     * Écrit le lot ; sur une erreur de données, le reprend élément par élément et rejette les fautifs.
+     */
+    void ecrireLot(List<T> lot) {
+        SQLException erreur = ecrireAvecReprises(lot);
+        if (erreur != null) {
+            if (lot.size() == 1) {
+                rejeter(lot.get(0), erreur);
+            } else {
+                Journal.attention(nom + ".lot.repris", "taille", lot.size(), "erreur", erreur.getMessage());
+                for (T element : lot) {
+                    SQLException e = ecrireAvecReprises(List.of(element));
+                    if (e != null) {
+                        rejeter(element, e);
+                    }
+                }
+            }
+        }
+        oublier.accept(lot);
+    }
+
+    /**
+     * Écrit le lot en réessayant les erreurs passagères ; retourne l'erreur de données qui l'en empêche, null sinon
+     * (écrit, ou abandonné à l'arrêt).
+     */
+    private SQLException ecrireAvecReprises(List<T> lot) {
+        for (int tentative = 0; ; tentative++) {
+            try {
+                ecriture.ecrire(lot);
+                ecrits.addAndGet(lot.size());
+                lots.incrementAndGet();
+                return null;
+            } catch (SQLException e) {
+                echecs.incrementAndGet();
+                if (estDefinitive(e)) {
+                    return e;
+                }
+                Journal.attention(nom + ".ecriture.echec", "taille", lot.size(), "tentative", tentative + 1,
+                        "erreur", e.getMessage());
+                if (!actif && tentative + 1 >= TENTATIVES_A_L_ARRET) {
+                    perdus.addAndGet(lot.size());
+                    Journal.erreur(nom + ".perdus", "taille", lot.size(), "premierId", identifiant.apply(lot.get(0)));
+                    return null;
+                }
+                try {
+                    Thread.sleep(REPRISES_MS[Math.min(tentative, REPRISES_MS.length - 1)]);
+                } catch (InterruptedException ie) {
+                    actif = false;
+                }
+            }
+        }
+    }
+
+    private void rejeter(T element, SQLException cause) {
+        rejetes.incrementAndGet();
+        Journal.erreur(nom + ".rejete", "id", identifiant.apply(element), "etatSql", cause.getSQLState(),
+                "erreur", cause.getMessage());
+    }
+
+    /**
+     * Vrai si réessayer ne peut pas réussir : violation de contrainte ou donnée invalide, y compris quand
+     * le pilote l'enveloppe (BatchUpdateException) ou la chaîne.
+     */
+    static boolean estDefinitive(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause() != t ? t.getCause() : null) {
+            if (t instanceof SQLIntegrityConstraintViolationException) {
+                return true;
+            }
+            if (t instanceof SQLException) {
+                String etat = ((SQLException) t).getSQLState();
+                if (etat != null && (etat.startsWith("23") || etat.startsWith("22"))) {
+                    return true;
+                }
+                SQLException suivante = ((SQLException) t).getNextException();
+                if (suivante != null && suivante != t && estDefinitive(suivante)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Demande l'arrêt, laisse l'écrivain vider le journal puis l'attend ; sans effet la seconde fois.
+     */
+    void arreter() {
+        actif = false;
+        Thread t = thread;
+        if (t == null || t == Thread.currentThread()) {
+            return;
+        }
+        try {
+            t.join(30_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (t.isAlive()) {
+            t.interrupt();
+        }
+    }
+
+    long getEcrits() {
+        return ecrits.get();
+    }
+
+    long getLots() {
+        return lots.get();
+    }
+
+    long getEchecs() {
+        return echecs.get();
+    }
+
+    long getRejetes() {
+        return rejetes.get();
+    }
+
+    long getPerdus() {
+        return perdus.get();
+    }
+}
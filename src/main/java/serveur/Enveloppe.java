@@ -0,0 +1,332 @@
+package serveur;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Lecture paresseuse d'un message JSON reçu : un seul passage repère, au premier accès, la position
+ * des clés et des valeurs du premier niveau, sans construire d'arbre. Chaque champ n'est décodé
+ * que lorsqu'on le lit ; les objets imbriqués restent du texte tant qu'on ne les demande pas.
+ *
+ * Les conversions suivent celles de JSONObject.optString/optInt (nombre envoyé en texte, etc.).
+ * Un message mal formé lève JSONException, comme new JSONObject(texte).
+ */
+public final class Enveloppe implements Donnees {
+
+    private final String texte;
+    // Par champ i : début/fin de la clé (sans guillemets) puis de la valeur brute
+    private int[] positions;
+    private String[] clesEchappees;
+    private int nbChamps = -1;
+    private JSONObject json;
+
+    private Enveloppe(String texte) {
+        this.texte = texte;
+    }
+
+    public static Enveloppe lire(String texte) {
+        return new Enveloppe(texte);
+    }
+
+    public String getTexte() {
+        return texte;
+    }
+
+    public boolean contient(String cle) {
+        return indice(cle) >= 0;
+    }
+
+    /**
+     * Valeur du champ en texte ; chaîne vide si absent ou null.
+     */
+    @Override
+    public String texte(String cle) {
+        int i = indice(cle);
+        if (i < 0) {
+            return "";
+        }
+        int debut = positions[4 * i + 2];
+        int fin = positions[4 * i + 3];
+        char c = texte.charAt(debut);
+        if (c == '"') {
+            return decoderChaine(debut + 1, fin - 1);
+        }
+        if (c == 'n' && texte.startsWith("null", debut)) {
+            return "";
+        }
+        return texte.substring(debut, fin);
+    }
+
+    /**
+     * Valeur entière du champ, qu'il soit envoyé en nombre ou en texte ; defaut s'il est absent ou invalide.
+     */
+    @Override
+    public int entier(String cle, int defaut) {
+        int i = indice(cle);
+        if (i < 0) {
+            return defaut;
+        }
+        int debut = positions[4 * i + 2];
+        int fin = positions[4 * i + 3];
+        if (texte.charAt(debut) == '"') {
+            debut++;
+            fin--;
+        }
+        Integer rapide = entierSimple(debut, fin);
+        if (rapide != null) {
+            return rapide;
+        }
+        try {
+            // Décimaux et grands nombres : même conversion (troncature) que JSONObject.optInt
+            return new BigDecimal(texte.substring(debut, fin).trim()).intValue();
+        } catch (NumberFormatException e) {
+            return defaut;
+        }
+    }
+
+    public boolean booleen(String cle, boolean defaut) {
+        String valeur = texte(cle);
+        if ("true".equalsIgnoreCase(valeur)) {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(valeur)) {
+            return false;
+        }
+        return defaut;
+    }
+
+    /**
+     * Vrai si le champ est absent ou vaut null.
+     */
+    @Override
+    public boolean estNul(String cle) {
+        int i = indice(cle);
+        return i < 0 || texte.startsWith("null", positions[4 * i + 2]);
+    }
+
+    /**
+     * Objet JSON complet, construit une seule fois au premier appel, pour les traitements qui en ont besoin.
+     */
+    @Override
+    public JSONObject versJson() {
+        if (json == null) {
+            json = new JSONObject(texte);
+        }
+        return json;
+    }
+
+    private int indice(String cle) {
+        if (nbChamps < 0) {
+            analyser();
+        }
+        int longueur = cle.length();
+        for (int i = 0; i < nbChamps; i++) {
+            if (clesEchappees != null && clesEchappees[i] != null) {
+                if (clesEchappees[i].equals(cle)) {
+                    return i;
+                }
+                continue;
+            }
+            int debut = positions[4 * i];
+            if (positions[4 * i + 1] - debut == longueur && texte.regionMatches(debut, cle, 0, longueur)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void analyser() {
+        positions = new int[4 * 8];
+        int n = 0;
+        int p = espaces(0);
+        attendu(p, '{');
+        p = espaces(p + 1);
+        if (caractere(p) == '}') {
+            nbChamps = 0;
+            return;
+        }
+        while (true) {
+            attendu(p, '"');
+            int finCle = finChaine(p);
+            int debutValeur = espaces(finCle);
+            attendu(debutValeur, ':');
+            debutValeur = espaces(debutValeur + 1);
+            int finValeur = finValeur(debutValeur);
+
+            if (4 * n + 4 > positions.length) {
+                positions = Arrays.copyOf(positions, positions.length * 2);
+            }
+            positions[4 * n] = p + 1;
+            positions[4 * n + 1] = finCle - 1;
+            positions[4 * n + 2] = debutValeur;
+            positions[4 * n + 3] = finValeur;
+            if (texte.indexOf('\\', p + 1) >= 0 && texte.indexOf('\\', p + 1) < finCle - 1) {
+                if (clesEchappees == null) {
+                    clesEchappees = new String[positions.length / 4];
+                } else if (clesEchappees.length <= n) {
+                    clesEchappees = Arrays.copyOf(clesEchappees, positions.length / 4);
+                }
+                clesEchappees[n] = decoderChaine(p + 1, finCle - 1);
+            }
+            n++;
+
+            p = espaces(finValeur);
+            char c = caractere(p);
+            if (c == '}') {
+                break;
+            }
+            attendu(p, ',');
+            p = espaces(p + 1);
+        }
+        nbChamps = n;
+    }
+
+    /**
+     * Position qui suit le guillemet fermant de la chaîne ouverte en p.
+     */
+    private int finChaine(int p) {
+        int i = p + 1;
+        int longueur = texte.length();
+        while (i < longueur) {
+            char c = texte.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '"') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        throw erreur(p, "chaîne non terminée");
+    }
+
+    private int finValeur(int p) {
+        char c = caractere(p);
+        if (c == '"') {
+            return finChaine(p);
+        }
+        if (c == '{' || c == '[') {
+            int profondeur = 0;
+            int i = p;
+            int longueur = texte.length();
+            while (i < longueur) {
+                char d = texte.charAt(i);
+                if (d == '"') {
+                    i = finChaine(i);
+                    continue;
+                }
+                if (d == '{' || d == '[') {
+                    profondeur++;
+                } else if (d == '}' || d == ']') {
+                    if (--profondeur == 0) {
+                        return i + 1;
+                    }
+                }
+                i++;
+            }
+            throw erreur(p, "objet ou tableau non terminé");
+        }
+        int i = p;
+        int longueur = texte.length();
+        while (i < longueur) {
+            char d = texte.charAt(i);
+            if (d == ',' || d == '}' || d == ']' || Character.isWhitespace(d)) {
+                break;
+            }
+            i++;
+        }
+        if (i == p) {
+            throw erreur(p, "valeur attendue");
+        }
+        return i;
+    }
+
+    private Integer entierSimple(int debut, int fin) {
+        if (debut >= fin || fin - debut > 10) {
+            return null;
+        }
+        boolean negatif = texte.charAt(debut) == '-';
+        int i = negatif ? debut + 1 : debut;
+        if (i == fin) {
+            return null;
+        }
+        long valeur = 0;
+        for (; i < fin; i++) {
+            char c = texte.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            valeur = valeur * 10 + (c - '0');
+        }
+        valeur = negatif ? -valeur : valeur;
+        return valeur < Integer.MIN_VALUE || valeur > Integer.MAX_VALUE ? null : (int) valeur;
+    }
+
+    private String decoderChaine(int debut, int fin) {
+        int echappement = texte.indexOf('\\', debut);
+        if (echappement < 0 || echappement >= fin) {
+            return texte.substring(debut, fin);
+        }
+        StringBuilder sb = new StringBuilder(fin - debut);
+        sb.append(texte, debut, echappement);
+        int i = echappement;
+        while (i < fin) {
+            char c = texte.charAt(i);
+            if (c != '\\') {
+                sb.append(c);
+                i++;
+                continue;
+            }
+            char e = texte.charAt(i + 1);
+            switch (e) {
+                case 'n' -> sb.append('\n');
+                case 't' -> sb.append('\t');
+                case 'r' -> sb.append('\r');
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'u' -> {
+                    if (i + 6 > fin) {
+                        throw erreur(i, "échappement unicode incomplet");
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(texte.substring(i + 2, i + 6), 16));
+                    } catch (NumberFormatException ex) {
+                        throw erreur(i, "échappement unicode invalide");
+                    }
+                    i += 4;
+                }
+                default -> sb.append(e);
+            }
+            i += 2;
+        }
+        return sb.toString();
+    }
+
+    private int espaces(int p) {
+        int longueur = texte.length();
+        while (p < longueur && Character.isWhitespace(texte.charAt(p))) {
+            p++;
+        }
+        return p;
+    }
+
+    private char caractere(int p) {
+        if (p >= texte.length()) {
+            throw erreur(p, "fin de message inattendue");
+        }
+        return texte.charAt(p);
+    }
+
+    private void attendu(int p, char c) {
+        if (caractere(p) != c) {
+            throw erreur(p, "'" + c + "' attendu");
+        }
+    }
+
+    private JSONException erreur(int position, String raison) {
+        return new JSONException("Message JSON invalide à la position " + position + " : " + raison);
+    }
+}
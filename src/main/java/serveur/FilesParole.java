@@ -0,0 +1,679 @@
+package serveur;
+
+import model.DemandeParole;
+import model.DemandeParoleManager;
+import model.PersonneManager;
+import model.ReunionManager;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Files de parole des réunions ouvertes, tenues en mémoire : une file FIFO par réunion, une seule demande
+ * en attente par participant. Tant que la réunion est OUVERTE, c'est cette file qui fait foi ;
+ * demander, accorder ou refuser la parole ne touche pas la base sur le chemin de la requête.
+ *
+ * Chaque transition (création, accord, refus) est placée dans un journal que vide un unique thread écrivain
+ * par lots JDBC, dans l'ordre ({@link EcrivainParLots}, partagé avec MessageWriteBehind). Les id sont attribués ici à partir du MAX(id) de demande_parole, comme pour
+ * MessageWriteBehind : aucun autre chemin du serveur ne doit insérer dans demande_parole en cours d'exécution.
+ *
+ * La file d'une réunion est reconstruite au premier accès (redémarrage du serveur, réunion rouverte)
+ * à partir des demandes EN_ATTENTE en base, corrigées des transitions du journal pas encore écrites.
+ * Elle est oubliée à la clôture de la réunion.
+ *
+ * Chaque changement d'une file porte un numéro de séquence (consécutifs au sein d'une file) et est signalé
+ * à l'observateur sous le verrou de la file, donc dans l'ordre des séquences. Une file rechargée repart
+ * d'une autre plage de séquences : un client qui suivait l'ancienne constate un trou et redemande l'instantané.
+ */
+public class FilesParole {
+
+    /**
+     * Accès à la base, remplaçable dans les tests.
+     */
+    interface Stockage {
+        int dernierId() throws SQLException;
+
+        List<DemandeParole> enAttente(int reunionId) throws SQLException;
+
+        DemandeParole parId(int demandeId) throws SQLException;
+
+        void enregistrer(List<DemandeParole> nouvelles, List<DemandeParole> modifiees) throws SQLException;
+
+        boolean estOuverte(int reunionId) throws SQLException;
+
+        /** Nom affiché de la personne, null si elle n'existe pas. */
+        String nom(int personneId) throws SQLException;
+
+        /** Organisateur puis animateur éventuel de la réunion ; vide si elle n'existe pas. */
+        int[] dirigeants(int reunionId) throws SQLException;
+    }
+
+    /**
+     * Reçoit les changements des files, sous le verrou de la file : ne doit ni bloquer ni lire la base
+     * (le nom du demandeur et les dirigeants de la réunion sont lus avant et portés par l'événement).
+     */
+    interface Observateur {
+        void surEvenement(Evenement evenement);
+    }
+
+    /**
+     * Changement d'une file de parole.
+     */
+    public static final class Evenement {
+        public enum Type {AJOUTEE, ACCORDEE, REFUSEE, ANNULEE}
+
+        private final Type type;
+        private final long sequence;
+        private final DemandeParole demande;
+        private final int position;
+        private final int taille;
+        private final int[] demandeurs;
+        private final String nomDemandeur;
+        private final int[] dirigeants;
+
+        Evenement(Type type, long sequence, DemandeParole demande, int position, int taille, int[] demandeurs,
+                  String nomDemandeur, int[] dirigeants) {
+            this.type = type;
+            this.sequence = sequence;
+            this.demande = demande;
+            this.position = position;
+            this.taille = taille;
+            this.demandeurs = demandeurs;
+            this.nomDemandeur = nomDemandeur;
+            this.dirigeants = dirigeants;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public DemandeParole getDemande() {
+            return demande;
+        }
+
+        public int getReunionId() {
+            return demande.getReunionId();
+        }
+
+        /**
+         * Position (à partir de 1) de la demande dans la file : celle qu'elle prend (AJOUTEE) ou qu'elle libère ;
+         * les demandes placées derrière avancent d'un rang. 0 si elle n'est jamais entrée dans la file.
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * Nombre de demandes en attente après le changement.
+         */
+        public int getTaille() {
+            return taille;
+        }
+
+        /**
+         * Personnes ayant une demande en attente après le changement, dans l'ordre de la file.
+         */
+        public int[] getDemandeurs() {
+            return demandeurs.clone();
+        }
+
+        /**
+         * Nom affiché de l'auteur de la demande.
+         */
+        public String getNomDemandeur() {
+            return nomDemandeur;
+        }
+
+        /**
+         * Organisateur puis animateur éventuel de la réunion, lus avant le changement ; vide si inconnus.
+         */
+        public int[] getDirigeants() {
+            return dirigeants.clone();
+        }
+    }
+
+    /**
+     * Contenu d'une file à une séquence donnée.
+     */
+    public static final class Instantane {
+        private final long sequence;
+        private final List<DemandeParole> demandes;
+
+        Instantane(long sequence, List<DemandeParole> demandes) {
+            this.sequence = sequence;
+            this.demandes = demandes;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public List<DemandeParole> getDemandes() {
+            return demandes;
+        }
+    }
+
+    private static final FilesParole INSTANCE = new FilesParole(new StockageBase(), new DiffusionParole(),
+            Integer.getInteger("tpbmo.parole.tailleLot", 100),
+            Long.getLong("tpbmo.parole.delaiMaxMs", 100L));
+
+    private final Stockage stockage;
+    private final Observateur observateur;
+
+    private final ConcurrentHashMap<Integer, File> files = new ConcurrentHashMap<>();
+    // Demandes en attente de toutes les files chargées, par id
+    private final ConcurrentHashMap<Integer, DemandeParole> enAttenteParId = new ConcurrentHashMap<>();
+
+    // Transitions pas encore écrites : le journal dans l'ordre, et le dernier état connu par id
+    // (quelques dizaines d'octets par transition, au rythme des mains levées : le journal n'est pas borné)
+    private final BlockingQueue<Transition> journal = new LinkedBlockingQueue<>();
+    private final ConcurrentSkipListMap<Integer, DemandeParole> nonPersistees = new ConcurrentSkipListMap<>();
+    private final EcrivainParLots<Transition> ecrivain;
+
+    private final Object verrouDemarrage = new Object();
+    private AtomicInteger prochainId;
+
+    // Chaque file chargée reçoit sa propre plage de séquences
+    private final AtomicLong generations = new AtomicLong();
+
+    private final AtomicLong demandes = new AtomicLong();
+    private final AtomicLong decisions = new AtomicLong();
+    private final AtomicLong reconstructions = new AtomicLong();
+
+    FilesParole(Stockage stockage, Observateur observateur, int tailleLot, long delaiMaxMs) {
+        this.stockage = stockage;
+        this.observateur = observateur;
+        this.ecrivain = new EcrivainParLots<>("parole", journal, tailleLot, delaiMaxMs,
+                this::ecrire, this::oublier, t -> t.etat.getId());
+    }
+
+    public static FilesParole getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Enregistre une demande de parole dans la file de la réunion (qui doit être ouverte).
+     * Si accorder est vrai (réunion démocratique), la demande est accordée aussitôt et n'entre pas dans la file.
+     * Retourne null si le participant a déjà une demande en attente.
+     */
+    public DemandeParole demander(int reunionId, int personneId, boolean accorder) throws SQLException {
+        if (!ecrivain.estActif()) {
+            throw new SQLException("Arrêt en cours : demande de parole non acceptée");
+        }
+        demarrer();
+        File file = file(reunionId);
+        Contexte contexte = contexte(reunionId, personneId);
+        synchronized (file) {
+            if (file.attente.containsKey(personneId)) {
+                return null;
+            }
+            DemandeParole demande = new DemandeParole(prochainId.incrementAndGet(), personneId, reunionId,
+                    LocalDateTime.now(), accorder ? DemandeParole.Statut.ACCORDEE : DemandeParole.Statut.EN_ATTENTE);
+            if (!accorder) {
+                file.attente.put(personneId, demande);
+                enAttenteParId.put(demande.getId(), demande);
+            }
+            journaliser(demande, true);
+            demandes.incrementAndGet();
+            signaler(file, accorder ? Evenement.Type.ACCORDEE : Evenement.Type.AJOUTEE, demande,
+                    accorder ? 0 : file.attente.size(), contexte);
+            return copie(demande);
+        }
+    }
+
+    /**
+     * Demande par id : en mémoire si elle est en attente dans une file chargée, sinon en base.
+     */
+    public DemandeParole trouver(int demandeId) throws SQLException {
+        DemandeParole demande = enAttenteParId.get(demandeId);
+        if (demande != null) {
+            return copie(demande);
+        }
+        // Dernier état accepté mais pas encore écrit (la base est en retard)
+        DemandeParole recente = nonPersistees.get(demandeId);
+        if (recente != null) {
+            return copie(recente);
+        }
+        DemandeParole enBase = stockage.parId(demandeId);
+        if (enBase == null) {
+            return null;
+        }
+        // Réunion ouverte dont la file n'est pas encore chargée : on la charge pour que la décision passe par elle
+        if (enBase.getStatut() == DemandeParole.Statut.EN_ATTENTE && !files.containsKey(enBase.getReunionId())
+                && stockage.estOuverte(enBase.getReunionId())) {
+            file(enBase.getReunionId());
+            demande = enAttenteParId.get(demandeId);
+            return demande != null ? copie(demande) : enBase;
+        }
+        return enBase;
+    }
+
+    /**
+     * Accorde ou refuse une demande en attente. Retourne false si elle n'est plus en attente
+     * (déjà traitée, retirée) ou inconnue.
+     */
+    public boolean decider(int demandeId, DemandeParole.Statut statut) throws SQLException {
+        if (statut == DemandeParole.Statut.EN_ATTENTE) {
+            throw new IllegalArgumentException("Une décision accorde ou refuse la demande");
+        }
+        DemandeParole demande = enAttenteParId.get(demandeId);
+        if (demande == null) {
+            return deciderHorsFile(demandeId, statut);
+        }
+        File file = files.get(demande.getReunionId());
+        if (file == null) {
+            return deciderHorsFile(demandeId, statut);
+        }
+        Contexte contexte = contexte(demande.getReunionId(), demande.getPersonneId());
+        synchronized (file) {
+            if (file.attente.get(demande.getPersonneId()) != demande) {
+                return false;
+            }
+            retirer(file, demande, statut,
+                    statut == DemandeParole.Statut.ACCORDEE ? Evenement.Type.ACCORDEE : Evenement.Type.REFUSEE, contexte);
+            decisions.incrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Retire la demande en attente d'un participant (il quitte la réunion ou y renonce).
+     * Elle est enregistrée REFUSEE en base, faute de statut dédié. Retourne false s'il n'en avait pas.
+     */
+    public boolean annuler(int reunionId, int personneId) throws SQLException {
+        File file = files.get(reunionId);
+        if (file == null) {
+            if (!stockage.estOuverte(reunionId)) {
+                return false;
+            }
+            file = file(reunionId);
+        }
+        synchronized (file) {
+            // Cas courant au départ d'un participant : rien à lire en base s'il n'a pas de demande
+            if (!file.attente.containsKey(personneId)) {
+                return false;
+            }
+        }
+        Contexte contexte = contexte(reunionId, personneId);
+        synchronized (file) {
+            DemandeParole demande = file.attente.get(personneId);
+            if (demande == null) {
+                return false;
+            }
+            retirer(file, demande, DemandeParole.Statut.REFUSEE, Evenement.Type.ANNULEE, contexte);
+            return true;
+        }
+    }
+
+    private void retirer(File file, DemandeParole demande, DemandeParole.Statut statut, Evenement.Type type,
+                         Contexte contexte) {
+        int position = 1;
+        for (DemandeParole d : file.attente.values()) {
+            if (d == demande) {
+                break;
+            }
+            position++;
+        }
+        file.attente.remove(demande.getPersonneId());
+        enAttenteParId.remove(demande.getId());
+        demande.setStatut(statut);
+        journaliser(demande, false);
+        signaler(file, type, demande, position, contexte);
+    }
+
+    private void signaler(File file, Evenement.Type type, DemandeParole demande, int position, Contexte contexte) {
+        int[] demandeurs = new int[file.attente.size()];
+        int i = 0;
+        for (Integer personneId : file.attente.keySet()) {
+            demandeurs[i++] = personneId;
+        }
+        Evenement evenement = new Evenement(type, ++file.sequence, copie(demande), position, demandeurs.length, demandeurs,
+                contexte.nom, contexte.dirigeants);
+        try {
+            observateur.surEvenement(evenement);
+        } catch (RuntimeException e) {
+            // La file reste cohérente : les clients combleront le trou avec un instantané
+            Journal.erreur("parole.diffusion.erreur", e, "reunion", demande.getReunionId());
+        }
+    }
+
+    /**
+     * Décision sur une demande d'une réunion qui n'est pas (ou plus) ouverte : directement en base, comme avant.
+     */
+    private boolean deciderHorsFile(int demandeId, DemandeParole.Statut statut) throws SQLException {
+        DemandeParole demande = trouver(demandeId);
+        if (demande == null || demande.getStatut() != DemandeParole.Statut.EN_ATTENTE) {
+            return false;
+        }
+        if (enAttenteParId.containsKey(demandeId)) {
+            // trouver() vient de charger la file de sa réunion
+            return decider(demandeId, statut);
+        }
+        demarrer();
+        demande.setStatut(statut);
+        journaliser(demande, false);
+        decisions.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Demandes en attente de la réunion, dans l'ordre de la file.
+     */
+    public List<DemandeParole> enAttente(int reunionId) throws SQLException {
+        File file = files.get(reunionId);
+        if (file == null) {
+            if (!stockage.estOuverte(reunionId)) {
+                return stockage.enAttente(reunionId);
+            }
+            file = file(reunionId);
+        }
+        synchronized (file) {
+            List<DemandeParole> resultat = new ArrayList<>(file.attente.size());
+            for (DemandeParole d : file.attente.values()) {
+                resultat.add(copie(d));
+            }
+            return resultat;
+        }
+    }
+
+    /**
+     * Demandes en attente et séquence courante de la file d'une réunion ouverte, null si la réunion n'est pas ouverte.
+     * Un client applique ensuite les changements de séquence supérieure.
+     */
+    public Instantane instantane(int reunionId) throws SQLException {
+        File file = files.get(reunionId);
+        if (file == null) {
+            if (!stockage.estOuverte(reunionId)) {
+                return null;
+            }
+            file = file(reunionId);
+        }
+        synchronized (file) {
+            List<DemandeParole> demandes = new ArrayList<>(file.attente.size());
+            for (DemandeParole d : file.attente.values()) {
+                demandes.add(copie(d));
+            }
+            return new Instantane(file.sequence, demandes);
+        }
+    }
+
+    /**
+     * Prochaine demande de la file (la plus ancienne), null si la file est vide.
+     */
+    public DemandeParole prochaine(int reunionId) throws SQLException {
+        File file = file(reunionId);
+        synchronized (file) {
+            Iterator<DemandeParole> it = file.attente.values().iterator();
+            return it.hasNext() ? copie(it.next()) : null;
+        }
+    }
+
+    /**
+     * Oublie la file d'une réunion clôturée. Les demandes restées en attente le restent en base.
+     */
+    public void fermer(int reunionId) {
+        File file = files.remove(reunionId);
+        if (file != null) {
+            synchronized (file) {
+                for (DemandeParole d : file.attente.values()) {
+                    enAttenteParId.remove(d.getId(), d);
+                }
+                file.attente.clear();
+            }
+        }
+    }
+
+    /**
+     * File de la réunion, reconstruite depuis la base au premier accès.
+     */
+    private File file(int reunionId) throws SQLException {
+        File file = files.get(reunionId);
+        if (file != null) {
+            return file;
+        }
+        File chargee = new File(generations.incrementAndGet() << 32);
+        for (DemandeParole d : stockage.enAttente(reunionId)) {
+            chargee.attente.putIfAbsent(d.getPersonneId(), d);
+        }
+        synchronized (chargee) {
+            File existante = files.putIfAbsent(reunionId, chargee);
+            if (existante != null) {
+                return existante;
+            }
+            // Transitions acceptées mais pas encore en base : elles priment sur ce qui vient d'être lu
+            for (DemandeParole recente : nonPersistees.values()) {
+                if (recente.getReunionId() != reunionId) {
+                    continue;
+                }
+                DemandeParole lue = chargee.attente.get(recente.getPersonneId());
+                if (lue != null && lue.getId() == recente.getId() && recente.getStatut() != DemandeParole.Statut.EN_ATTENTE) {
+                    chargee.attente.remove(recente.getPersonneId());
+                } else if (lue == null && recente.getStatut() == DemandeParole.Statut.EN_ATTENTE) {
+                    chargee.attente.put(recente.getPersonneId(), copie(recente));
+                }
+            }
+            for (DemandeParole d : chargee.attente.values()) {
+                enAttenteParId.put(d.getId(), d);
+            }
+            reconstructions.incrementAndGet();
+        }
+        return chargee;
+    }
+
+    /**
+     * Nom du demandeur et dirigeants de la réunion, lus (en général dans les caches) avant de prendre le verrou
+     * de la file. Un échec de lecture ne bloque pas le changement : la diffusion se contente de moins.
+     */
+    private Contexte contexte(int reunionId, int personneId) {
+        String nom = null;
+        int[] dirigeants = new int[0];
+        try {
+            nom = stockage.nom(personneId);
+        } catch (SQLException e) {
+            Journal.erreur("parole.demandeur.erreur", "personne", personneId, "erreur", e.getMessage());
+        }
+        try {
+            dirigeants = stockage.dirigeants(reunionId);
+        } catch (SQLException e) {
+            Journal.erreur("parole.dirigeants.erreur", "reunion", reunionId, "erreur", e.getMessage());
+        }
+        return new Contexte(nom != null ? nom : "Utilisateur " + personneId, dirigeants);
+    }
+
+    private void journaliser(DemandeParole demande, boolean creation) {
+        // Instantané : la demande en mémoire peut encore changer avant d'être écrite
+        DemandeParole etat = copie(demande);
+        nonPersistees.put(etat.getId(), etat);
+        journal.offer(new Transition(etat, creation));
+    }
+
+    private static DemandeParole copie(DemandeParole d) {
+        return new DemandeParole(d.getId(), d.getPersonneId(), d.getReunionId(), d.getHeureDemande(), d.getStatut());
+    }
+
+    /**
+     * Initialise le compteur d'id et lance l'écrivain à la première demande.
+     */
+    private void demarrer() throws SQLException {
+        if (ecrivain.estDemarre()) {
+            return;
+        }
+        synchronized (verrouDemarrage) {
+            if (ecrivain.estDemarre()) {
+                return;
+            }
+            prochainId = new AtomicInteger(stockage.dernierId());
+            ecrivain.demarrer();
+        }
+    }
+
+    /**
+     * Regroupe les transitions du lot par demande (seul le dernier statut compte) puis les écrit en une transaction.
+     * Les reprises et le rejet des demandes que la base refuse sont l'affaire de {@link EcrivainParLots}.
+     */
+    private void ecrire(List<Transition> lot) throws SQLException {
+        Map<Integer, DemandeParole> dernierEtat = new LinkedHashMap<>();
+        Map<Integer, Boolean> creation = new LinkedHashMap<>();
+        for (Transition t : lot) {
+            dernierEtat.put(t.etat.getId(), t.etat);
+            // Une demande créée puis décidée dans le même lot n'est insérée qu'une fois, avec son statut final
+            creation.merge(t.etat.getId(), t.creation, Boolean::logicalOr);
+        }
+        List<DemandeParole> nouvelles = new ArrayList<>();
+        List<DemandeParole> modifiees = new ArrayList<>();
+        dernierEtat.forEach((id, etat) -> (creation.get(id) ? nouvelles : modifiees).add(etat));
+        stockage.enregistrer(nouvelles, modifiees);
+    }
+
+    private void oublier(List<Transition> lot) {
+        for (Transition t : lot) {
+            // Une transition plus récente, encore dans le journal, reste visible
+            nonPersistees.remove(t.etat.getId(), t.etat);
+        }
+    }
+
+    /**
+     * Refuse les nouvelles demandes, écrit le journal en base puis attend la fin de l'écrivain.
+     */
+    public void arreter() {
+        ecrivain.arreter();
+    }
+
+    public int getProfondeurJournal() {
+        return journal.size();
+    }
+
+    public int getFilesChargees() {
+        return files.size();
+    }
+
+    public long getDemandes() {
+        return demandes.get();
+    }
+
+    public long getDecisions() {
+        return decisions.get();
+    }
+
+    public long getReconstructions() {
+        return reconstructions.get();
+    }
+
+    public long getEcrites() {
+        return ecrivain.getEcrits();
+    }
+
+    public long getLots() {
+        return ecrivain.getLots();
+    }
+
+    public long getEchecsEcriture() {
+        return ecrivain.getEchecs();
+    }
+
+    public long getPerdues() {
+        return ecrivain.getPerdus();
+    }
+
+    /**
+     * Transitions rejetées par la base (demande d'une réunion supprimée...) : appliquées en mémoire, jamais écrites.
+     */
+    public long getRejetees() {
+        return ecrivain.getRejetes();
+    }
+
+    /**
+     * Entrée du journal : état de la demande après la transition ; creation si elle n'existe pas encore en base.
+     */
+    private static final class Transition {
+        final DemandeParole etat;
+        final boolean creation;
+
+        Transition(DemandeParole etat, boolean creation) {
+            this.etat = etat;
+            this.creation = creation;
+        }
+    }
+
+    private static final class Contexte {
+        final String nom;
+        final int[] dirigeants;
+
+        Contexte(String nom, int[] dirigeants) {
+            this.nom = nom;
+            this.dirigeants = dirigeants;
+        }
+    }
+
+    /**
+     * File d'une réunion : demandes en attente par participant, dans l'ordre d'arrivée.
+     */
+    private static final class File {
+        final LinkedHashMap<Integer, DemandeParole> attente = new LinkedHashMap<>();
+        long sequence;
+
+        File(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+
+    private static final class StockageBase implements Stockage {
+        @Override
+        public int dernierId() throws SQLException {
+            return DemandeParoleManager.getInstance().obtenirDernierId();
+        }
+
+        @Override
+        public List<DemandeParole> enAttente(int reunionId) throws SQLException {
+            return DemandeParoleManager.getInstance().obtenirDemandesEnAttente(reunionId);
+        }
+
+        @Override
+        public DemandeParole parId(int demandeId) throws SQLException {
+            return DemandeParoleManager.getInstance().obtenirDemandeParoleParId(demandeId);
+        }
+
+        @Override
+        public void enregistrer(List<DemandeParole> nouvelles, List<DemandeParole> modifiees) throws SQLException {
+            DemandeParoleManager.getInstance().enregistrerLot(nouvelles, modifiees);
+        }
+
+        @Override
+        public boolean estOuverte(int reunionId) throws SQLException {
+            ReunionManager.EtatReunion etat = ReunionManager.getInstance().obtenirEtatReunion(reunionId);
+            return etat != null && "OUVERTE".equals(etat.getStatut());
+        }
+
+        @Override
+        public String nom(int personneId) throws SQLException {
+            PersonneManager.Affichage personne = PersonneManager.getInstance().obtenirAffichageParId(personneId);
+            return personne != null ? personne.getNomComplet() : null;
+        }
+
+        @Override
+        public int[] dirigeants(int reunionId) throws SQLException {
+            ReunionManager.EtatReunion etat = ReunionManager.getInstance().obtenirEtatReunion(reunionId);
+            if (etat == null) {
+                return new int[0];
+            }
+            return etat.getAnimateurId() != null
+                    ? new int[]{etat.getOrganisateurId(), etat.getAnimateurId()}
+                    : new int[]{etat.getOrganisateurId()};
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package serveur;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme à intervalles log-linéaires (à la HdrHistogram) : chaque puissance de 2 est découpée en
+ * 2^bitsSousIntervalles intervalles, pour une taille fixe quel que soit le nombre de mesures. Les valeurs
+ * inférieures au nombre de sous-intervalles sont exactes.
+ * Enregistrement sans verrou depuis n'importe quel thread.
+ *
+ * Les métriques du serveur se contentent de 16 sous-intervalles (erreur relative d'au plus ~6 %) ; le générateur
+ * de charge en prend 32 (~3 %) pour ses percentiles. L'unité est celle de l'appelant (microsecondes pour les
+ * durées, nombre de sessions pour les diffusions).
+ */
+public final class Histogramme {
+
+    private final int bitsSousIntervalles;
+    private final int sousIntervalles;
+    private final AtomicLongArray comptes;
+    private final LongAdder total = new LongAdder();
+    private final LongAdder somme = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 16 sous-intervalles par puissance de 2.
+     */
+    public Histogramme() {
+        this(4);
+    }
+
+    public Histogramme(int bitsSousIntervalles) {
+        if (bitsSousIntervalles < 1 || bitsSousIntervalles > 10) {
+            throw new IllegalArgumentException("Bits de sous-intervalles invalides: " + bitsSousIntervalles);
+        }
+        this.bitsSousIntervalles = bitsSousIntervalles;
+        this.sousIntervalles = 1 << bitsSousIntervalles;
+        this.comptes = new AtomicLongArray(64 * sousIntervalles);
+    }
+
+    public void enregistrer(long valeur) {
+        long v = Math.max(0, valeur);
+        comptes.incrementAndGet(indice(v));
+        total.increment();
+        somme.add(v);
+        max.accumulate(v);
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    public long getSomme() {
+        return somme.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMoyenne() {
+        long n = total.sum();
+        return n == 0 ? 0 : (double) somme.sum() / n;
+    }
+
+    /**
+     * Nombre de mesures au plus égales à chacune des bornes (croissantes), en un seul parcours.
+     * Une mesure est comptée sous une borne si tout son intervalle l'est : à la précision de l'histogramme
+     * près au voisinage de la borne.
+     */
+    long[] cumuls(long[] bornes) {
+        long[] resultat = new long[bornes.length];
+        long cumul = 0;
+        int b = 0;
+        for (int i = 0; i < comptes.length() && b < bornes.length; i++) {
+            while (b < bornes.length && borneSuperieure(i) > bornes[b]) {
+                resultat[b++] = cumul;
+            }
+            cumul += comptes.get(i);
+        }
+        while (b < bornes.length) {
+            resultat[b++] = cumul;
+        }
+        return resultat;
+    }
+
+    /**
+     * Plus petite borne d'intervalle sous laquelle se trouvent au moins p % des mesures, sans dépasser
+     * le maximum observé (0 si aucune mesure).
+     */
+    public long percentile(double p) {
+        long n = total.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long rang = Math.max(1, (long) Math.ceil(p / 100.0 * n));
+        long cumul = 0;
+        for (int i = 0; i < comptes.length(); i++) {
+            cumul += comptes.get(i);
+            if (cumul >= rang) {
+                return Math.min(borneSuperieure(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    int indice(long valeur) {
+        if (valeur < sousIntervalles) {
+            return (int) valeur;
+        }
+        int decalage = 63 - Long.numberOfLeadingZeros(valeur) - bitsSousIntervalles;
+        int sous = (int) (valeur >>> decalage) & (sousIntervalles - 1);
+        return (decalage + 1) * sousIntervalles + sous;
+    }
+
+    long borneSuperieure(int indice) {
+        if (indice < sousIntervalles) {
+            return indice;
+        }
+        int decalage = indice / sousIntervalles - 1;
+        long sous = indice % sousIntervalles;
+        return ((sousIntervalles + sous + 1) << decalage) - 1;
+    }
+
+    /**
+     * Résumé sur une ligne, en millisecondes, pour des mesures en microsecondes.
+     */
+    public String resume() {
+        return String.format("n=%d moy=%.2fms p50=%.2fms p90=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms",
+                getTotal(), getMoyenne() / 1000.0, percentile(50) / 1000.0, percentile(90) / 1000.0,
+                percentile(99) / 1000.0, percentile(99.9) / 1000.0, getMax() / 1000.0);
+    }
+}
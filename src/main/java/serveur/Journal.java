@@ -0,0 +1,374 @@
+package serveur;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Journal du serveur : événements nommés à niveaux, avec champs clé/valeur, écrits par un thread dédié.
+ *
+ * Le thread qui journalise ne fait que déposer l'événement dans un anneau de taille fixe (sans verrou) ;
+ * la mise en forme et l'écriture sur la console se font sur le thread "journal". Si l'anneau est plein,
+ * l'événement est abandonné et compté plutôt que de ralentir une requête.
+ * Les événements par message (trames reçues...) passent par echantillon() : un sur tpbmo.log.echantillon.
+ * Les mots de passe sont masqués, qu'ils soient passés en champ ou contenus dans une charge JSON.
+ *
+ * Ligne écrite : 2026-01-01T10:00:00.000 INFO  [thread] evenement cle=valeur cle="valeur avec espaces"
+ *
+ * Réglages : tpbmo.log.niveau (DEBUG, INFO, ATTENTION, ERREUR ; défaut INFO), tpbmo.log.capacite (défaut 8192),
+ * tpbmo.log.echantillon (défaut 100).
+ */
+public final class Journal {
+
+    public enum Niveau {DEBUG, INFO, ATTENTION, ERREUR}
+
+    /**
+     * Destination des lignes mises en forme, appelée uniquement par le thread d'écriture.
+     */
+    interface Sortie {
+        void ecrire(Niveau niveau, String ligne);
+
+        void vider();
+    }
+
+    private static final Set<String> CLES_SECRETES = Set.of("password", "motdepasse", "mdp", "passwordconfirm");
+    private static final Pattern SECRET_JSON = Pattern.compile(
+            "(\"(?i:password|motDePasse|mdp|passwordConfirm)\"\\s*:\\s*)\"(?:[^\"\\\\]|\\\\.)*\"");
+    private static final String MASQUE = "***";
+    private static final DateTimeFormatter HORODATAGE = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+
+    private static final Journal INSTANCE = new Journal(
+            Niveau.valueOf(System.getProperty("tpbmo.log.niveau", "INFO")),
+            Integer.getInteger("tpbmo.log.capacite", 8192),
+            Integer.getInteger("tpbmo.log.echantillon", 100),
+            new SortieConsole());
+
+    static {
+        INSTANCE.demarrer();
+        Runtime.getRuntime().addShutdownHook(new Thread(INSTANCE::arreterEcriture, "arret-journal"));
+    }
+
+    private final Niveau seuil;
+    private final int echantillon;
+    private final Sortie sortie;
+
+    // Anneau multi-producteurs / consommateur unique : la case i est libre pour la position p quand sequences[i] == p,
+    // remplie quand elle vaut p + 1
+    private final Entree[] cases;
+    private final AtomicLongArray sequences;
+    private final int masque;
+    private final AtomicLong tete = new AtomicLong();
+    private long queue;
+
+    private final ConcurrentHashMap<String, AtomicLong> compteursEchantillon = new ConcurrentHashMap<>();
+    private final LongAdder deposes = new LongAdder();
+    private final LongAdder abandonnes = new LongAdder();
+    private final AtomicLong ecrits = new AtomicLong();
+
+    private volatile Thread ecrivain;
+    private volatile boolean endormi;
+    private volatile boolean arrete;
+
+    Journal(Niveau seuil, int capacite, int echantillon, Sortie sortie) {
+        if (capacite < 2 || echantillon < 1) {
+            throw new IllegalArgumentException("Capacité ou échantillonnage du journal invalide: " + capacite + "/" + echantillon);
+        }
+        int taille = Integer.highestOneBit(capacite - 1) << 1;
+        this.seuil = seuil;
+        this.echantillon = echantillon;
+        this.sortie = sortie;
+        this.cases = new Entree[taille];
+        this.sequences = new AtomicLongArray(taille);
+        this.masque = taille - 1;
+        for (int i = 0; i < taille; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public static Journal getInstance() {
+        return INSTANCE;
+    }
+
+    // === Façade ===
+
+    public static boolean actif(Niveau niveau) {
+        return INSTANCE.accepte(niveau);
+    }
+
+    public static void debug(String evenement, Object... champs) {
+        INSTANCE.journaliser(Niveau.DEBUG, evenement, null, champs);
+    }
+
+    public static void info(String evenement, Object... champs) {
+        INSTANCE.journaliser(Niveau.INFO, evenement, null, champs);
+    }
+
+    public static void attention(String evenement, Object... champs) {
+        INSTANCE.journaliser(Niveau.ATTENTION, evenement, null, champs);
+    }
+
+    public static void attention(String evenement, Throwable erreur, Object... champs) {
+        INSTANCE.journaliser(Niveau.ATTENTION, evenement, erreur, champs);
+    }
+
+    public static void erreur(String evenement, Object... champs) {
+        INSTANCE.journaliser(Niveau.ERREUR, evenement, null, champs);
+    }
+
+    public static void erreur(String evenement, Throwable erreur, Object... champs) {
+        INSTANCE.journaliser(Niveau.ERREUR, evenement, erreur, champs);
+    }
+
+    /**
+     * Événement fréquent (un par message) : seul un sur tpbmo.log.echantillon est écrit, avec le champ echantillon.
+     */
+    public static void echantillon(Niveau niveau, String evenement, Object... champs) {
+        INSTANCE.journaliserEchantillon(niveau, evenement, champs);
+    }
+
+    // === Dépôt (threads appelants) ===
+
+    boolean accepte(Niveau niveau) {
+        return niveau.compareTo(seuil) >= 0;
+    }
+
+    void journaliser(Niveau niveau, String evenement, Throwable erreur, Object[] champs) {
+        if (!accepte(niveau)) {
+            return;
+        }
+        deposer(new Entree(System.currentTimeMillis(), niveau, Thread.currentThread().getName(), evenement, erreur, champs, 0));
+    }
+
+    void journaliserEchantillon(Niveau niveau, String evenement, Object[] champs) {
+        if (!accepte(niveau)) {
+            return;
+        }
+        AtomicLong compteur = compteursEchantillon.computeIfAbsent(evenement, e -> new AtomicLong());
+        if (compteur.getAndIncrement() % echantillon != 0) {
+            return;
+        }
+        deposer(new Entree(System.currentTimeMillis(), niveau, Thread.currentThread().getName(), evenement, null, champs, echantillon));
+    }
+
+    private void deposer(Entree entree) {
+        long position;
+        int indice;
+        while (true) {
+            position = tete.get();
+            indice = (int) (position & masque);
+            long ecart = sequences.get(indice) - position;
+            if (ecart == 0) {
+                if (tete.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (ecart < 0) {
+                // Anneau plein : le thread d'écriture est en retard, on n'attend pas
+                abandonnes.increment();
+                return;
+            }
+        }
+        cases[indice] = entree;
+        sequences.set(indice, position + 1);
+        deposes.increment();
+        if (endormi) {
+            Thread t = ecrivain;
+            if (t != null) {
+                LockSupport.unpark(t);
+            }
+        }
+    }
+
+    // === Écriture (thread "journal") ===
+
+    void demarrer() {
+        Thread t = new Thread(this::boucleEcriture, "journal");
+        t.setDaemon(true);
+        ecrivain = t;
+        t.start();
+    }
+
+    private void boucleEcriture() {
+        while (!arrete) {
+            if (vider() == 0) {
+                sortie.vider();
+                endormi = true;
+                // Un dépôt a pu arriver juste avant que endormi passe à vrai
+                if (!disponible()) {
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+                }
+                endormi = false;
+            }
+        }
+        vider();
+        sortie.vider();
+    }
+
+    private boolean disponible() {
+        return sequences.get((int) (queue & masque)) == queue + 1;
+    }
+
+    /**
+     * Écrit les événements déposés ; retourne leur nombre. Appelé par un seul thread à la fois.
+     */
+    int vider() {
+        int n = 0;
+        while (disponible()) {
+            int indice = (int) (queue & masque);
+            Entree entree = cases[indice];
+            cases[indice] = null;
+            sequences.set(indice, queue + cases.length);
+            queue++;
+            try {
+                sortie.ecrire(entree.niveau, formater(entree));
+                ecrits.incrementAndGet();
+            } catch (RuntimeException e) {
+                abandonnes.increment();
+            }
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Écrit ce qui reste dans l'anneau et arrête le thread d'écriture (arrêt du serveur).
+     */
+    public void arreterEcriture() {
+        arrete = true;
+        Thread t = ecrivain;
+        if (t != null) {
+            LockSupport.unpark(t);
+            try {
+                t.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    static String formater(Entree entree) {
+        StringBuilder ligne = new StringBuilder(128);
+        ligne.append(HORODATAGE.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(entree.instant), ZoneId.systemDefault())))
+                .append(' ').append(entree.niveau.name());
+        for (int i = entree.niveau.name().length(); i < 9; i++) {
+            ligne.append(' ');
+        }
+        ligne.append('[').append(entree.thread).append("] ").append(entree.evenement);
+        Object[] champs = entree.champs;
+        for (int i = 0; i + 1 < champs.length; i += 2) {
+            String cle = String.valueOf(champs[i]);
+            ligne.append(' ').append(cle).append('=');
+            valeur(ligne, CLES_SECRETES.contains(cle.toLowerCase()) ? MASQUE : champs[i + 1]);
+        }
+        if (entree.echantillon > 0) {
+            ligne.append(" echantillon=").append(entree.echantillon);
+        }
+        if (entree.erreur != null) {
+            ligne.append(" erreur=");
+            valeur(ligne, String.valueOf(entree.erreur.getMessage()));
+            StringWriter pile = new StringWriter();
+            entree.erreur.printStackTrace(new PrintWriter(pile));
+            ligne.append(System.lineSeparator()).append(pile.toString().stripTrailing());
+        }
+        return ligne.toString();
+    }
+
+    private static void valeur(StringBuilder ligne, Object valeur) {
+        if (valeur instanceof Number || valeur instanceof Boolean) {
+            ligne.append(valeur);
+            return;
+        }
+        String texte = masquer(String.valueOf(valeur));
+        boolean simple = !texte.isEmpty();
+        for (int i = 0; i < texte.length() && simple; i++) {
+            char c = texte.charAt(i);
+            simple = c > ' ' && c != '"' && c != '=';
+        }
+        if (simple) {
+            ligne.append(texte);
+            return;
+        }
+        ligne.append('"');
+        for (int i = 0; i < texte.length(); i++) {
+            char c = texte.charAt(i);
+            switch (c) {
+                case '"' -> ligne.append("\\\"");
+                case '\\' -> ligne.append("\\\\");
+                case '\n' -> ligne.append("\\n");
+                case '\r' -> ligne.append("\\r");
+                default -> ligne.append(c);
+            }
+        }
+        ligne.append('"');
+    }
+
+    /**
+     * Remplace les valeurs des champs de mot de passe d'une charge JSON par ***.
+     */
+    public static String masquer(String texte) {
+        if (texte.indexOf('"') < 0) {
+            return texte;
+        }
+        Matcher m = SECRET_JSON.matcher(texte);
+        return m.find() ? m.replaceAll("$1\"" + MASQUE + "\"") : texte;
+    }
+
+    public long getDeposes() {
+        return deposes.sum();
+    }
+
+    public long getAbandonnes() {
+        return abandonnes.sum();
+    }
+
+    public long getEcrits() {
+        return ecrits.get();
+    }
+
+    static final class Entree {
+        final long instant;
+        final Niveau niveau;
+        final String thread;
+        final String evenement;
+        final Throwable erreur;
+        final Object[] champs;
+        final int echantillon;
+
+        Entree(long instant, Niveau niveau, String thread, String evenement, Throwable erreur, Object[] champs, int echantillon) {
+            this.instant = instant;
+            this.niveau = niveau;
+            this.thread = thread;
+            this.evenement = evenement;
+            this.erreur = erreur;
+            this.champs = champs;
+            this.echantillon = echantillon;
+        }
+    }
+
+    /**
+     * Console : ATTENTION et ERREUR sur la sortie d'erreur, le reste sur la sortie standard.
+     */
+    private static final class SortieConsole implements Sortie {
+        @Override
+        public void ecrire(Niveau niveau, String ligne) {
+            (niveau.compareTo(Niveau.ATTENTION) >= 0 ? System.err : System.out).println(ligne);
+        }
+
+        @Override
+        public void vider() {
+            System.out.flush();
+            System.err.flush();
+        }
+    }
+}
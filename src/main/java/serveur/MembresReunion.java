@@ -0,0 +1,181 @@
+package serveur;
+
+import model.MessageManager;
+import model.ParticipationManager;
+import model.Personne;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Participants de chaque réunion, versionnés, pour pousser des arrivées/départs au lieu de la liste complète.
+ *
+ * L'ensemble d'une réunion est lu en base au premier accès puis tenu à jour par les entrées et sorties
+ * (après leur écriture en base). Chaque changement effectif augmente la version de 1 et est diffusé sous
+ * le verrou de la réunion, donc dans l'ordre des versions. Un client applique les changements dont la version
+ * suit la sienne et redemande la liste (getParticipants, qui porte la version) s'il constate un trou.
+ * Un ensemble rechargé repart d'une autre plage de versions : les clients de l'ancien voient forcément un trou.
+ */
+public class MembresReunion {
+
+    /**
+     * Lecture des participants en base, remplaçable pour les tests.
+     */
+    interface Stockage {
+        /** Nom affiché par id de personne, dans l'ordre de la base. */
+        Map<Integer, String> participants(int reunionId) throws SQLException;
+    }
+
+    /**
+     * Diffusion d'un changement, appelée sous le verrou de la réunion avec la nouvelle version : ne doit pas bloquer.
+     */
+    interface Diffusion {
+        void diffuser(long version);
+    }
+
+    /**
+     * Participants d'une réunion à une version donnée.
+     */
+    public static final class Instantane {
+        private final long version;
+        private final Map<Integer, String> noms;
+
+        Instantane(long version, Map<Integer, String> noms) {
+            this.version = version;
+            this.noms = noms;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public Map<Integer, String> getNoms() {
+            return noms;
+        }
+    }
+
+    private static final MembresReunion INSTANCE = new MembresReunion(new StockageBase());
+
+    private final Stockage stockage;
+    private final ConcurrentHashMap<Integer, Membres> reunions = new ConcurrentHashMap<>();
+    private final AtomicLong generations = new AtomicLong();
+    private final AtomicLong chargements = new AtomicLong();
+    private final AtomicLong changements = new AtomicLong();
+
+    MembresReunion(Stockage stockage) {
+        this.stockage = stockage;
+    }
+
+    public static MembresReunion getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Liste courante des participants et sa version, remise à l'envoi sous le verrou de la réunion :
+     * aucun changement de version supérieure ne peut partir vers la session avant elle.
+     */
+    public void instantane(int reunionId, Consumer<Instantane> envoi) throws SQLException {
+        Membres membres = membres(reunionId);
+        synchronized (membres) {
+            envoi.accept(new Instantane(membres.version, new LinkedHashMap<>(membres.noms)));
+        }
+    }
+
+    /**
+     * Enregistre l'arrivée d'un participant déjà inscrit en base. Si elle change l'ensemble, la version augmente
+     * et la diffusion est appelée ; retourne false si le participant y figurait déjà (rien n'est diffusé).
+     */
+    public boolean entrer(int reunionId, int personneId, String nom, Diffusion diffusion) throws SQLException {
+        Membres membres = membres(reunionId);
+        synchronized (membres) {
+            if (nom.equals(membres.noms.put(personneId, nom))) {
+                return false;
+            }
+            changer(membres, diffusion);
+            return true;
+        }
+    }
+
+    /**
+     * Enregistre le départ d'un participant déjà retiré de la base ; retourne false s'il n'y figurait pas.
+     */
+    public boolean sortir(int reunionId, int personneId, Diffusion diffusion) throws SQLException {
+        Membres membres = membres(reunionId);
+        synchronized (membres) {
+            if (membres.noms.remove(personneId) == null) {
+                return false;
+            }
+            changer(membres, diffusion);
+            return true;
+        }
+    }
+
+    /**
+     * Oublie une réunion clôturée ou supprimée ; elle sera relue en base (nouvelle plage de versions) si besoin.
+     */
+    public void oublier(int reunionId) {
+        reunions.remove(reunionId);
+    }
+
+    private void changer(Membres membres, Diffusion diffusion) {
+        membres.version++;
+        changements.incrementAndGet();
+        try {
+            diffusion.diffuser(membres.version);
+        } catch (RuntimeException e) {
+            // L'ensemble reste juste : les clients combleront le trou avec la liste complète
+            Journal.erreur("membres.diffusion.erreur", e);
+        }
+    }
+
+    private Membres membres(int reunionId) throws SQLException {
+        Membres membres = reunions.get(reunionId);
+        if (membres != null) {
+            return membres;
+        }
+        Membres charge = new Membres(generations.incrementAndGet() << 32, stockage.participants(reunionId));
+        membres = reunions.putIfAbsent(reunionId, charge);
+        if (membres != null) {
+            return membres;
+        }
+        chargements.incrementAndGet();
+        return charge;
+    }
+
+    public int getReunionsChargees() {
+        return reunions.size();
+    }
+
+    public long getChargements() {
+        return chargements.get();
+    }
+
+    public long getChangements() {
+        return changements.get();
+    }
+
+    private static final class Membres {
+        final LinkedHashMap<Integer, String> noms;
+        long version;
+
+        Membres(long version, Map<Integer, String> noms) {
+            this.version = version;
+            this.noms = new LinkedHashMap<>(noms);
+        }
+    }
+
+    private static final class StockageBase implements Stockage {
+        @Override
+        public Map<Integer, String> participants(int reunionId) throws SQLException {
+            Map<Integer, String> noms = new LinkedHashMap<>();
+            for (Personne personne : ParticipationManager.getInstance().obtenirParticipants(reunionId)) {
+                noms.put(personne.getId(), MessageManager.nomAffiche(personne.getPrenom(), personne.getNom(), personne.getId()));
+            }
+            return noms;
+        }
+    }
+}
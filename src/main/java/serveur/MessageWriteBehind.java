@@ -0,0 +1,170 @@
+package serveur;
+
+import model.Message;
+import model.MessageManager;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistance différée des messages de chat : le message reçoit son id et son heure côté serveur,
+ * est diffusé immédiatement, puis placé dans un journal borné que vide un unique thread écrivain
+ * par lots JDBC ({@link EcrivainParLots} : dès que le lot est plein ou que le plus ancien message attend
+ * depuis delaiMaxMs ; un message que la base refuse définitivement est rejeté sans bloquer les autres).
+ *
+ * Les id sont attribués ici à partir du MAX(id) de la table : en cours d'exécution, aucun autre chemin
+ * du serveur ne doit insérer dans message (MessageManager.envoyerMessage n'est utilisé que par TestManager).
+ * Les messages non encore écrits restent visibles via enAttente() pour que l'historique ne les perde pas.
+ */
+public class MessageWriteBehind {
+
+    private static final MessageWriteBehind INSTANCE = new MessageWriteBehind(
+            Integer.getInteger("tpbmo.messages.capacite", 10_000),
+            Integer.getInteger("tpbmo.messages.tailleLot", 200),
+            Long.getLong("tpbmo.messages.delaiMaxMs", 200L),
+            Long.getLong("tpbmo.messages.attenteMaxMs", 500L));
+
+    private final long attenteMaxMs;
+    private final BlockingQueue<Message> journal;
+    // Messages acceptés mais pas encore validés en base, par id (donc dans l'ordre d'envoi)
+    private final ConcurrentSkipListMap<Integer, Message> nonPersistes = new ConcurrentSkipListMap<>();
+
+    private final EcrivainParLots<Message> ecrivain;
+
+    private final Object verrouDemarrage = new Object();
+    private AtomicInteger prochainId;
+
+    private final AtomicLong acceptes = new AtomicLong();
+    private final AtomicLong refuses = new AtomicLong();
+
+    MessageWriteBehind(int capacite, int tailleLot, long delaiMaxMs, long attenteMaxMs) {
+        if (capacite < 1 || tailleLot < 1) {
+            throw new IllegalArgumentException("Capacité ou taille de lot invalide: " + capacite + "/" + tailleLot);
+        }
+        this.journal = new ArrayBlockingQueue<>(capacite);
+        this.attenteMaxMs = attenteMaxMs;
+        this.ecrivain = new EcrivainParLots<>("messages", journal, tailleLot, delaiMaxMs,
+                lot -> MessageManager.getInstance().enregistrerLot(lot), this::oublier, Message::getId);
+    }
+
+    public static MessageWriteBehind getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Attribue id et heure au message puis le place dans le journal.
+     * Si le journal reste plein au-delà de attenteMaxMs, le message est refusé (contre-pression) :
+     * l'appelant doit alors signaler l'échec au client plutôt que de diffuser.
+     */
+    public Message enregistrer(int personneId, String nomExpediteur, int reunionId, String contenu) throws SQLException {
+        if (!ecrivain.estActif()) {
+            throw new SQLException("Arrêt en cours : message non accepté");
+        }
+        demarrer();
+        Message message = new Message(prochainId.incrementAndGet(), personneId, reunionId, contenu);
+        message.setHeureEnvoi(LocalDateTime.now());
+        message.setNomExpediteur(nomExpediteur);
+
+        nonPersistes.put(message.getId(), message);
+        boolean accepte;
+        try {
+            accepte = journal.offer(message, attenteMaxMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepte = false;
+        }
+        if (!accepte) {
+            nonPersistes.remove(message.getId());
+            refuses.incrementAndGet();
+            throw new SQLException("Journal des messages saturé (" + journal.size() + " en attente), réessayez");
+        }
+        acceptes.incrementAndGet();
+        return message;
+    }
+
+    /**
+     * Messages de la réunion acceptés mais pas encore écrits en base, dans l'ordre d'envoi.
+     */
+    public List<Message> enAttente(int reunionId) {
+        List<Message> resultat = new ArrayList<>();
+        for (Message m : nonPersistes.values()) {
+            if (m.getIdReunion() == reunionId) {
+                resultat.add(m);
+            }
+        }
+        return resultat;
+    }
+
+    /**
+     * Initialise le compteur d'id et lance l'écrivain au premier message.
+     */
+    private void demarrer() throws SQLException {
+        if (ecrivain.estDemarre()) {
+            return;
+        }
+        synchronized (verrouDemarrage) {
+            if (ecrivain.estDemarre()) {
+                return;
+            }
+            prochainId = new AtomicInteger(MessageManager.getInstance().obtenirDernierId());
+            ecrivain.demarrer();
+        }
+    }
+
+    private void oublier(List<Message> lot) {
+        for (Message m : lot) {
+            nonPersistes.remove(m.getId());
+        }
+    }
+
+    /**
+     * Refuse les nouveaux messages, vide le journal en base puis attend la fin de l'écrivain.
+     * Appelé à l'arrêt du serveur et par le hook d'arrêt de la JVM ; sans effet la seconde fois.
+     */
+    public void arreter() {
+        ecrivain.arreter();
+    }
+
+    public int getProfondeur() {
+        return journal.size();
+    }
+
+    public long getAcceptes() {
+        return acceptes.get();
+    }
+
+    public long getEcrits() {
+        return ecrivain.getEcrits();
+    }
+
+    public long getLots() {
+        return ecrivain.getLots();
+    }
+
+    public long getRefuses() {
+        return refuses.get();
+    }
+
+    public long getEchecsEcriture() {
+        return ecrivain.getEchecs();
+    }
+
+    public long getPerdus() {
+        return ecrivain.getPerdus();
+    }
+
+    /**
+     * Messages rejetés par la base (contrainte violée, donnée invalide) : diffusés mais jamais écrits.
+     */
+    public long getRejetes() {
+        return ecrivain.getRejetes();
+    }
+}
@@ -0,0 +1,336 @@
+package serveur;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Mesure des instructions SQL exécutées sur les connexions rendues par {@link Database}.
+ *
+ * La connexion est enveloppée dans un proxy, de même que les Statement/PreparedStatement qu'elle crée et les
+ * ResultSet qu'ils rendent. Par gabarit SQL (le texte de l'instruction, espaces réduits et littéraux remplacés
+ * par ?) : exécutions, erreurs, lignes lues ou modifiées et histogramme des durées. La durée est celle de
+ * l'appel execute* ; les lignes d'une requête sont comptées au fil des next() et ajoutées à la fermeture du
+ * ResultSet ou de l'instruction, ou à l'exécution suivante.
+ *
+ * Une exécution plus longue que tpbmo.sql.lenteMs (défaut 200, 0 pour désactiver) est journalisée en
+ * "sql.lente" avec son gabarit, sa durée et son nombre de lignes ; les paramètres ne sont jamais journalisés.
+ * Réglage : tpbmo.sql.mesures=false retire les proxys.
+ */
+public final class MesuresSql {
+
+    public static final boolean ACTIVES = Boolean.parseBoolean(System.getProperty("tpbmo.sql.mesures", "true"));
+    static final long SEUIL_LENTE_MS = Long.getLong("tpbmo.sql.lenteMs", 200L);
+    // Borne le nombre de séries exposées si du SQL construit dynamiquement échappe à la normalisation
+    static final int MAX_GABARITS = 256;
+    static final String AUTRES = "(autres)";
+
+    private static final MesuresSql INSTANCE = new MesuresSql(SEUIL_LENTE_MS);
+
+    private static final Pattern CHAINES = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+    private static final Pattern NOMBRES = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern ESPACES = Pattern.compile("\\s+");
+
+    /**
+     * Compteurs d'un gabarit SQL.
+     */
+    static final class Gabarit {
+        final String texte;
+        final LongAdder executions = new LongAdder();
+        final LongAdder erreurs = new LongAdder();
+        final LongAdder lignes = new LongAdder();
+        final Histogramme durees = new Histogramme(); // microsecondes
+
+        Gabarit(String texte) {
+            this.texte = texte;
+        }
+    }
+
+    private final Map<String, Gabarit> gabarits = new ConcurrentHashMap<>();
+    // Cache texte brut -> gabarit : la normalisation n'est faite qu'une fois par instruction distincte
+    private final Map<String, Gabarit> parTexte = new ConcurrentHashMap<>();
+    private final long seuilLenteNs;
+    private final LongAdder lentes = new LongAdder();
+
+    MesuresSql(long seuilLenteMs) {
+        this.seuilLenteNs = TimeUnit.MILLISECONDS.toNanos(seuilLenteMs);
+    }
+
+    public static MesuresSql getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Enveloppe une connexion : ses instructions seront mesurées. close() et le reste sont délégués tels quels.
+     */
+    public Connection envelopper(Connection connexion) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new GestionnaireConnexion(connexion));
+    }
+
+    /**
+     * Gabarits connus, par texte normalisé.
+     */
+    Map<String, Gabarit> getGabarits() {
+        return Collections.unmodifiableMap(gabarits);
+    }
+
+    public long getLentes() {
+        return lentes.sum();
+    }
+
+    /**
+     * Texte normalisé d'une instruction : littéraux remplacés par ?, espaces réduits.
+     */
+    static String normaliser(String sql) {
+        String texte = CHAINES.matcher(sql).replaceAll("?");
+        texte = NOMBRES.matcher(texte).replaceAll("?");
+        return ESPACES.matcher(texte).replaceAll(" ").trim();
+    }
+
+    Gabarit gabarit(String sql) {
+        if (sql == null) {
+            return gabarits.computeIfAbsent(AUTRES, Gabarit::new);
+        }
+        Gabarit g = parTexte.get(sql);
+        if (g != null) {
+            return g;
+        }
+        String texte = normaliser(sql);
+        g = gabarits.get(texte);
+        if (g == null) {
+            g = gabarits.size() < MAX_GABARITS
+                    ? gabarits.computeIfAbsent(texte, Gabarit::new)
+                    : gabarits.computeIfAbsent(AUTRES, Gabarit::new);
+        }
+        if (parTexte.size() < 4 * MAX_GABARITS) {
+            parTexte.put(sql, g);
+        }
+        return g;
+    }
+
+    void enregistrer(Gabarit g, long dureeNs, long lignes) {
+        g.executions.increment();
+        g.lignes.add(lignes);
+        g.durees.enregistrer(TimeUnit.NANOSECONDS.toMicros(dureeNs));
+        if (seuilLenteNs > 0 && dureeNs >= seuilLenteNs) {
+            lentes.increment();
+            Journal.attention("sql.lente", "requete", g.texte,
+                    "dureeMs", TimeUnit.NANOSECONDS.toMillis(dureeNs), "lignes", lignes);
+        }
+    }
+
+    void echec(Gabarit g, long dureeNs, Throwable cause) {
+        g.executions.increment();
+        g.erreurs.increment();
+        g.durees.enregistrer(TimeUnit.NANOSECONDS.toMicros(dureeNs));
+        Journal.debug("sql.echec", "requete", g.texte, "dureeMs", TimeUnit.NANOSECONDS.toMillis(dureeNs),
+                "erreur", cause.getMessage());
+    }
+
+    private static Object deleguer(Object cible, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(cible, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private final class GestionnaireConnexion implements InvocationHandler {
+        private final Connection cible;
+
+        GestionnaireConnexion(Connection cible) {
+            this.cible = cible;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "ConnexionMesuree[" + cible + "]";
+                case "createStatement":
+                    return instruction(Statement.class, (Statement) deleguer(cible, method, args), null);
+                case "prepareStatement":
+                    return instruction(PreparedStatement.class, (Statement) deleguer(cible, method, args), (String) args[0]);
+                case "prepareCall":
+                    return instruction(CallableStatement.class, (Statement) deleguer(cible, method, args), (String) args[0]);
+                default:
+                    return deleguer(cible, method, args);
+            }
+        }
+
+        private Object instruction(Class<? extends Statement> type, Statement cible, String sql) {
+            return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{type},
+                    new GestionnaireInstruction(cible, sql == null ? null : gabarit(sql)));
+        }
+    }
+
+    /**
+     * Lecture en cours d'un ResultSet : ses lignes sont comptées jusqu'à ce qu'elle soit terminée.
+     */
+    private final class Lecture {
+        final Gabarit gabarit;
+        final long dureeNs;
+        long lignes;
+        boolean terminee;
+
+        Lecture(Gabarit gabarit, long dureeNs) {
+            this.gabarit = gabarit;
+            this.dureeNs = dureeNs;
+        }
+
+        void terminer() {
+            if (!terminee) {
+                terminee = true;
+                enregistrer(gabarit, dureeNs, lignes);
+            }
+        }
+    }
+
+    /**
+     * Une instruction n'est utilisée que par un thread à la fois (contrat JDBC) : pas de synchronisation.
+     */
+    private final class GestionnaireInstruction implements InvocationHandler {
+        private final Statement cible;
+        private final Gabarit prepare;
+        private Gabarit lot;
+        private Lecture lecture;
+
+        GestionnaireInstruction(Statement cible, Gabarit prepare) {
+            this.cible = cible;
+            this.prepare = prepare;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String nom = method.getName();
+            switch (nom) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "close":
+                    terminerLecture();
+                    return deleguer(cible, method, args);
+                case "addBatch":
+                    if (args != null && args.length == 1) {
+                        lot = gabarit((String) args[0]);
+                    }
+                    return deleguer(cible, method, args);
+                case "getResultSet":
+                    Object rs = deleguer(cible, method, args);
+                    return rs != null && lecture != null && !lecture.terminee ? lecture((ResultSet) rs, lecture) : rs;
+                default:
+                    if (!nom.startsWith("execute")) {
+                        return deleguer(cible, method, args);
+                    }
+                    return executer(method, args, nom);
+            }
+        }
+
+        private Object executer(Method method, Object[] args, String nom) throws Throwable {
+            terminerLecture();
+            Gabarit g;
+            if (args != null && args.length > 0 && args[0] instanceof String) {
+                g = gabarit((String) args[0]);
+            } else if (prepare != null) {
+                g = prepare;
+            } else {
+                g = lot != null ? lot : gabarit(null);
+            }
+
+            long debut = System.nanoTime();
+            Object resultat;
+            try {
+                resultat = method.invoke(cible, args);
+            } catch (InvocationTargetException e) {
+                echec(g, System.nanoTime() - debut, e.getCause());
+                throw e.getCause();
+            }
+            long duree = System.nanoTime() - debut;
+
+            if (resultat instanceof ResultSet) {
+                lecture = new Lecture(g, duree);
+                return lecture((ResultSet) resultat, lecture);
+            }
+            if (resultat instanceof Boolean) {
+                // execute() : le ResultSet éventuel sera obtenu par getResultSet
+                if ((Boolean) resultat) {
+                    lecture = new Lecture(g, duree);
+                } else {
+                    enregistrer(g, duree, Math.max(0, cible.getUpdateCount()));
+                }
+            } else {
+                enregistrer(g, duree, lignes(resultat));
+            }
+            if (nom.endsWith("Batch")) {
+                lot = null;
+            }
+            return resultat;
+        }
+
+        private void terminerLecture() {
+            if (lecture != null) {
+                lecture.terminer();
+                lecture = null;
+            }
+        }
+    }
+
+    private static long lignes(Object resultat) {
+        if (resultat instanceof Number) {
+            return Math.max(0, ((Number) resultat).longValue());
+        }
+        long total = 0;
+        if (resultat instanceof int[]) {
+            for (int n : (int[]) resultat) {
+                total += Math.max(0, n); // SUCCESS_NO_INFO (-2) : nombre inconnu
+            }
+        } else if (resultat instanceof long[]) {
+            for (long n : (long[]) resultat) {
+                total += Math.max(0, n);
+            }
+        }
+        return total;
+    }
+
+    private ResultSet lecture(ResultSet cible, Lecture lecture) {
+        return (ResultSet) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "next":
+                            Object suivante = deleguer(cible, method, args);
+                            if ((Boolean) suivante && !lecture.terminee) {
+                                lecture.lignes++;
+                            }
+                            return suivante;
+                        case "close":
+                            lecture.terminer();
+                            return deleguer(cible, method, args);
+                        default:
+                            return deleguer(cible, method, args);
+                    }
+                });
+    }
+}
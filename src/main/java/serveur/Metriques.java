@@ -0,0 +1,233 @@
+package serveur;
+
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.NetworkListener;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.http.util.HttpStatus;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métriques du serveur au format texte de Prometheus, servies en HTTP sur http://hote:port/metrics.
+ *
+ * Les mesures sont prises là où elles ont lieu (routeur d'actions, diffusion, pool JDBC) sans verrou ;
+ * l'exposition ne fait que les lire. Par couple (modele, action) : histogramme des durées, invocations,
+ * erreurs et exécutions en cours. Par gabarit SQL : durées, lignes et erreurs (voir {@link MesuresSql}).
+ * Globalement : sessions ouvertes et par réunion, taille des diffusions, attente et détention des connexions
+ * JDBC, trames sortantes, boîtes de session et journal.
+ *
+ * Réglages : tpbmo.metriques.port (défaut 9090, 0 pour ne pas démarrer le serveur HTTP), tpbmo.metriques.hote
+ * (défaut localhost).
+ */
+public final class Metriques {
+
+    public static final int PORT = Integer.getInteger("tpbmo.metriques.port", 9090);
+    public static final String HOTE = System.getProperty("tpbmo.metriques.hote", "localhost");
+    public static final String CHEMIN = "/metrics";
+
+    /** Bornes des histogrammes de durée, en microsecondes (100 µs à 10 s). */
+    static final long[] BORNES_DUREE_US = {100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000};
+    /** Bornes de l'histogramme des diffusions, en nombre de sessions destinataires. */
+    static final long[] BORNES_DIFFUSION = {0, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000};
+
+    private static final Metriques INSTANCE = new Metriques();
+
+    private final Histogramme diffusions = new Histogramme();
+    private final Histogramme attentesConnexion = new Histogramme();
+    private final Histogramme detentionsConnexion = new Histogramme();
+
+    private HttpServer serveurHttp;
+
+    Metriques() {
+    }
+
+    public static Metriques getInstance() {
+        return INSTANCE;
+    }
+
+    // === Mesures ===
+
+    /**
+     * Une diffusion vers le nombre de sessions donné.
+     */
+    public void diffusion(int destinataires) {
+        diffusions.enregistrer(destinataires);
+    }
+
+    public void attenteConnexion(long nanos) {
+        attentesConnexion.enregistrer(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * Durée entre l'emprunt d'une connexion JDBC et sa restitution.
+     */
+    public void detentionConnexion(long nanos) {
+        detentionsConnexion.enregistrer(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    // === Exposition ===
+
+    /**
+     * Toutes les métriques, au format texte de Prometheus (version 0.0.4).
+     */
+    public String exposer() {
+        return exposer(ActionHandler.getRouteur());
+    }
+
+    String exposer(ActionRouter routeur) {
+        StringBuilder sb = new StringBuilder(16 * 1024);
+
+        Map<String, ActionRouter.Route> routes = new TreeMap<>(routeur.getRoutes());
+        entete(sb, "tpbmo_action_duree_secondes", "histogram", "Durée de traitement des actions");
+        routes.values().forEach(r -> histogramme(sb, "tpbmo_action_duree_secondes", etiquettes(r), r.durees, BORNES_DUREE_US, 1e6));
+        entete(sb, "tpbmo_action_invocations_total", "counter", "Actions exécutées");
+        routes.values().forEach(r -> ligne(sb, "tpbmo_action_invocations_total", etiquettes(r), r.invocations.sum()));
+        entete(sb, "tpbmo_action_erreurs_total", "counter", "Actions terminées par une exception");
+        routes.values().forEach(r -> ligne(sb, "tpbmo_action_erreurs_total", etiquettes(r), r.erreurs.sum()));
+        entete(sb, "tpbmo_action_en_cours", "gauge", "Actions en cours d'exécution");
+        routes.values().forEach(r -> ligne(sb, "tpbmo_action_en_cours", etiquettes(r), r.enCours.get()));
+        entete(sb, "tpbmo_actions_inconnues_total", "counter", "Messages dont le couple (modele, action) n'est pas déclaré");
+        ligne(sb, "tpbmo_actions_inconnues_total", "", routeur.getInconnues());
+
+        entete(sb, "tpbmo_sessions_ouvertes", "gauge", "Sessions WebSocket ouvertes");
+        ligne(sb, "tpbmo_sessions_ouvertes", "", ServeurWebSocket.getSessions().size());
+        entete(sb, "tpbmo_sessions_reunion", "gauge", "Sessions présentes par réunion");
+        SessionRegistry.effectifsReunions().forEach((reunionId, n) ->
+                ligne(sb, "tpbmo_sessions_reunion", "reunion=\"" + echapper(reunionId) + "\"", n));
+
+        entete(sb, "tpbmo_diffusion_destinataires", "histogram", "Nombre de sessions destinataires par diffusion");
+        histogramme(sb, "tpbmo_diffusion_destinataires", "", diffusions, BORNES_DIFFUSION, 1);
+
+        entete(sb, "tpbmo_bd_attente_connexion_secondes", "histogram", "Attente d'une connexion du pool JDBC");
+        histogramme(sb, "tpbmo_bd_attente_connexion_secondes", "", attentesConnexion, BORNES_DUREE_US, 1e6);
+        entete(sb, "tpbmo_bd_detention_connexion_secondes", "histogram", "Durée d'emprunt des connexions JDBC");
+        histogramme(sb, "tpbmo_bd_detention_connexion_secondes", "", detentionsConnexion, BORNES_DUREE_US, 1e6);
+
+        exposerSql(sb, MesuresSql.getInstance());
+        entete(sb, "tpbmo_unites_travail_total", "counter", "Transactions d'action validées ou annulées");
+        ligne(sb, "tpbmo_unites_travail_total", "resultat=\"validee\"", UniteDeTravail.getValidees());
+        ligne(sb, "tpbmo_unites_travail_total", "resultat=\"annulee\"", UniteDeTravail.getAnnulees());
+
+        OutboundDispatcher envoi = OutboundDispatcher.getInstance();
+        entete(sb, "tpbmo_trames_sortantes_total", "counter", "Trames sortantes par résultat");
+        ligne(sb, "tpbmo_trames_sortantes_total", "resultat=\"envoyee\"", envoi.getEnvoyees());
+        ligne(sb, "tpbmo_trames_sortantes_total", "resultat=\"abandonnee\"", envoi.getAbandonnees());
+        ligne(sb, "tpbmo_trames_sortantes_total", "resultat=\"echec\"", envoi.getEchecs());
+        entete(sb, "tpbmo_clients_lents_deconnectes_total", "counter", "Sessions fermées pour file sortante pleine");
+        ligne(sb, "tpbmo_clients_lents_deconnectes_total", "", envoi.getDeconnexions());
+
+        ActionDispatcher actions = ActionDispatcher.getInstance();
+        entete(sb, "tpbmo_boites_messages_total", "counter", "Messages entrants déposés ou rejetés (boîte pleine)");
+        ligne(sb, "tpbmo_boites_messages_total", "resultat=\"depose\"", actions.getDeposes());
+        ligne(sb, "tpbmo_boites_messages_total", "resultat=\"rejete\"", actions.getRejetes());
+
+        Journal journal = Journal.getInstance();
+        entete(sb, "tpbmo_journal_evenements_total", "counter", "Événements du journal déposés ou abandonnés (anneau plein)");
+        ligne(sb, "tpbmo_journal_evenements_total", "resultat=\"depose\"", journal.getDeposes());
+        ligne(sb, "tpbmo_journal_evenements_total", "resultat=\"abandonne\"", journal.getAbandonnes());
+        return sb.toString();
+    }
+
+    static void exposerSql(StringBuilder sb, MesuresSql mesures) {
+        Map<String, MesuresSql.Gabarit> gabarits = new TreeMap<>(mesures.getGabarits());
+        entete(sb, "tpbmo_sql_duree_secondes", "histogram", "Durée d'exécution des instructions SQL par gabarit");
+        gabarits.values().forEach(g -> histogramme(sb, "tpbmo_sql_duree_secondes", etiquette(g), g.durees, BORNES_DUREE_US, 1e6));
+        entete(sb, "tpbmo_sql_lignes_total", "counter", "Lignes lues ou modifiées par gabarit");
+        gabarits.values().forEach(g -> ligne(sb, "tpbmo_sql_lignes_total", etiquette(g), g.lignes.sum()));
+        entete(sb, "tpbmo_sql_erreurs_total", "counter", "Instructions SQL terminées par une exception");
+        gabarits.values().forEach(g -> ligne(sb, "tpbmo_sql_erreurs_total", etiquette(g), g.erreurs.sum()));
+        entete(sb, "tpbmo_sql_lentes_total", "counter", "Instructions SQL au-delà du seuil de lenteur");
+        ligne(sb, "tpbmo_sql_lentes_total", "", mesures.getLentes());
+    }
+
+    private static String etiquette(MesuresSql.Gabarit gabarit) {
+        return "requete=\"" + echapper(gabarit.texte) + "\"";
+    }
+
+    private static String etiquettes(ActionRouter.Route route) {
+        return "modele=\"" + echapper(route.modele) + "\",action=\"" + echapper(route.action) + "\"";
+    }
+
+    private static void entete(StringBuilder sb, String nom, String type, String aide) {
+        sb.append("# HELP ").append(nom).append(' ').append(aide).append('\n');
+        sb.append("# TYPE ").append(nom).append(' ').append(type).append('\n');
+    }
+
+    private static void ligne(StringBuilder sb, String nom, String etiquettes, long valeur) {
+        sb.append(nom);
+        if (!etiquettes.isEmpty()) {
+            sb.append('{').append(etiquettes).append('}');
+        }
+        sb.append(' ').append(valeur).append('\n');
+    }
+
+    /**
+     * Séries _bucket/_sum/_count ; diviseur convertit l'unité de l'histogramme dans celle de la métrique.
+     */
+    private static void histogramme(StringBuilder sb, String nom, String etiquettes, Histogramme h, long[] bornes, double diviseur) {
+        // Les mesures continuent pendant la lecture : +Inf ne doit jamais être inférieur au dernier intervalle
+        long[] cumuls = h.cumuls(bornes);
+        long total = Math.max(h.getTotal(), cumuls[cumuls.length - 1]);
+        String prefixe = etiquettes.isEmpty() ? "" : etiquettes + ",";
+        for (int i = 0; i < bornes.length; i++) {
+            sb.append(nom).append("_bucket{").append(prefixe).append("le=\"").append(format(bornes[i] / diviseur))
+                    .append("\"} ").append(cumuls[i]).append('\n');
+        }
+        sb.append(nom).append("_bucket{").append(prefixe).append("le=\"+Inf\"} ").append(total).append('\n');
+        sb.append(nom).append("_sum");
+        if (!etiquettes.isEmpty()) {
+            sb.append('{').append(etiquettes).append('}');
+        }
+        sb.append(' ').append(format(h.getSomme() / diviseur)).append('\n');
+        ligne(sb, nom + "_count", etiquettes, total);
+    }
+
+    private static String format(double valeur) {
+        return BigDecimal.valueOf(valeur).stripTrailingZeros().toPlainString();
+    }
+
+    private static String echapper(String valeur) {
+        return valeur.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    // === Serveur HTTP ===
+
+    /**
+     * Démarre le serveur HTTP des métriques (Grizzly, comme le conteneur WebSocket) ; sans effet si le port vaut 0.
+     */
+    public synchronized void demarrer() throws IOException {
+        if (PORT <= 0 || serveurHttp != null) {
+            return;
+        }
+        HttpServer serveur = new HttpServer();
+        serveur.addListener(new NetworkListener("metriques", HOTE, PORT));
+        serveur.getServerConfiguration().addHttpHandler(new HttpHandler() {
+            @Override
+            public void service(Request requete, Response reponse) throws Exception {
+                if (!"GET".equals(requete.getMethod().getMethodString())) {
+                    reponse.setStatus(HttpStatus.METHOD_NOT_ALLOWED_405);
+                    return;
+                }
+                reponse.setContentType("text/plain; version=0.0.4; charset=utf-8");
+                reponse.getWriter().write(exposer());
+            }
+        }, CHEMIN);
+        serveur.start();
+        serveurHttp = serveur;
+        Journal.info("metriques.demarrage", "url", "http://" + HOTE + ":" + PORT + CHEMIN);
+    }
+
+    public synchronized void arreter() {
+        if (serveurHttp != null) {
+            serveurHttp.shutdownNow();
+            serveurHttp = null;
+        }
+    }
+}
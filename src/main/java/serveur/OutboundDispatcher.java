@@ -0,0 +1,258 @@
+package serveur;
+
+import javax.websocket.CloseReason;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Couche d'envoi non bloquante : chaque session possède une file bornée de trames sortantes,
+ * vidée une trame à la fois via getAsyncRemote() sur un exécuteur dédié.
+ * Un client lent ne bloque donc plus le thread qui traite l'action ni les autres destinataires.
+ *
+ * Tous les envois du serveur doivent passer par ici pour conserver l'ordre des trames d'une session.
+ */
+public class OutboundDispatcher {
+
+    /**
+     * Comportement lorsqu'une file de session est pleine.
+     */
+    public enum PolitiqueDebordement {
+        /** Abandonne la trame la plus ancienne encore en attente. */
+        SUPPRIMER_PLUS_ANCIENNE,
+        /** Ferme la session du consommateur trop lent. */
+        DECONNECTER
+    }
+
+    private static final OutboundDispatcher INSTANCE = new OutboundDispatcher(
+            Integer.getInteger("tpbmo.envoi.capacite", 1024),
+            PolitiqueDebordement.valueOf(System.getProperty("tpbmo.envoi.politique", "SUPPRIMER_PLUS_ANCIENNE")),
+            Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+                Thread t = new Thread(r, "envoi-websocket");
+                t.setDaemon(true);
+                return t;
+            }));
+
+    private final int capacite;
+    private final PolitiqueDebordement politique;
+    private final Executor executeur;
+    private final ConcurrentHashMap<String, FileSortante> files = new ConcurrentHashMap<>();
+
+    private final AtomicLong envoyees = new AtomicLong();
+    private final AtomicLong abandonnees = new AtomicLong();
+    private final AtomicLong echecs = new AtomicLong();
+    private final AtomicLong deconnexions = new AtomicLong();
+
+    OutboundDispatcher(int capacite, PolitiqueDebordement politique, Executor executeur) {
+        if (capacite < 1) {
+            throw new IllegalArgumentException("Capacité de file invalide: " + capacite);
+        }
+        this.capacite = capacite;
+        this.politique = politique;
+        this.executeur = executeur;
+    }
+
+    public static OutboundDispatcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Met une trame texte en file pour la session. Ne bloque jamais.
+     */
+    public void envoyer(Session session, String message) {
+        envoyer(session, Trame.de(message));
+    }
+
+    public void envoyer(Session session, Trame trame) {
+        if (session == null || !session.isOpen()) {
+            return;
+        }
+        fileDe(session).ajouter(trame);
+    }
+
+    /**
+     * Met la même trame en file pour chacune des sessions.
+     * La trame est partagée : rien n'est réencodé ni alloué par destinataire hormis le nœud de file.
+     */
+    public void diffuser(Collection<Session> sessions, Trame trame) {
+        Metriques.getInstance().diffusion(sessions.size());
+        for (Session s : sessions) {
+            envoyer(s, trame);
+        }
+    }
+
+    public void diffuser(Collection<Session> sessions, String message) {
+        diffuser(sessions, Trame.de(message));
+    }
+
+    private FileSortante fileDe(Session session) {
+        // get() d'abord : computeIfAbsent allouerait une lambda capturante à chaque appel
+        FileSortante file = files.get(session.getId());
+        if (file == null) {
+            file = files.computeIfAbsent(session.getId(), id -> new FileSortante(session));
+        }
+        return file;
+    }
+
+    /**
+     * Oublie la file d'une session fermée.
+     */
+    public void liberer(Session session) {
+        FileSortante file = files.remove(session.getId());
+        if (file != null) {
+            file.vider();
+        }
+    }
+
+    /**
+     * Nombre de trames en attente pour la session (0 si aucune file).
+     */
+    public int profondeur(Session session) {
+        FileSortante file = files.get(session.getId());
+        return file != null ? file.taille.get() : 0;
+    }
+
+    /**
+     * Profondeur de file par identifiant de session, pour la supervision.
+     */
+    public Map<String, Integer> profondeurs() {
+        Map<String, Integer> resultat = new HashMap<>();
+        files.forEach((id, file) -> resultat.put(id, file.taille.get()));
+        return resultat;
+    }
+
+    public long getEnvoyees() {
+        return envoyees.get();
+    }
+
+    public long getAbandonnees() {
+        return abandonnees.get();
+    }
+
+    public long getEchecs() {
+        return echecs.get();
+    }
+
+    public long getDeconnexions() {
+        return deconnexions.get();
+    }
+
+    private final class FileSortante {
+        private final Session session;
+        private final ConcurrentLinkedDeque<Trame> trames = new ConcurrentLinkedDeque<>();
+        private final AtomicInteger taille = new AtomicInteger();
+        // Une seule trame à la fois chez le conteneur : l'API async refuse les envois concurrents
+        private final AtomicBoolean enCours = new AtomicBoolean(false);
+        // Créés une fois par session plutôt qu'à chaque trame
+        private final Runnable tacheEnvoi = this::envoyerSuivante;
+        private final SendHandler accuse = this::surAccuse;
+        // Fixé à l'ouverture, avant le premier envoi
+        private final boolean binaire;
+
+        FileSortante(Session session) {
+            this.session = session;
+            this.binaire = SessionRegistry.estBinaire(session);
+        }
+
+        void ajouter(Trame trame) {
+            if (taille.get() >= capacite && !deborder()) {
+                return;
+            }
+            trames.offerLast(trame);
+            taille.incrementAndGet();
+            planifier();
+        }
+
+        /**
+         * Applique la politique de débordement ; retourne true si la trame peut malgré tout être ajoutée.
+         */
+        private boolean deborder() {
+            if (politique == PolitiqueDebordement.DECONNECTER) {
+                abandonnees.incrementAndGet();
+                if (session.isOpen()) {
+                    deconnexions.incrementAndGet();
+                    try {
+                        session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER,
+                                "Client trop lent: " + capacite + " trames en attente"));
+                    } catch (IOException e) {
+                        Journal.attention("envoi.fermeture.echec", "session", session.getId(), "erreur", e.getMessage());
+                    }
+                }
+                liberer(session);
+                return false;
+            }
+            if (trames.pollFirst() != null) {
+                taille.decrementAndGet();
+                abandonnees.incrementAndGet();
+            }
+            return true;
+        }
+
+        private void planifier() {
+            if (enCours.compareAndSet(false, true)) {
+                executeur.execute(tacheEnvoi);
+            }
+        }
+
+        private void envoyerSuivante() {
+            Trame trame = trames.pollFirst();
+            if (trame == null) {
+                enCours.set(false);
+                // Une trame a pu arriver entre le poll et la remise à false
+                if (!trames.isEmpty()) {
+                    planifier();
+                }
+                return;
+            }
+            taille.decrementAndGet();
+
+            if (!session.isOpen()) {
+                vider();
+                enCours.set(false);
+                return;
+            }
+            try {
+                ByteBuffer octets = binaire ? trame.binaire() : null;
+                if (octets != null) {
+                    session.getAsyncRemote().sendBinary(octets, accuse);
+                } else {
+                    session.getAsyncRemote().sendText(trame.texte(), accuse);
+                }
+            } catch (RuntimeException e) {
+                echecs.incrementAndGet();
+                Journal.attention("envoi.echec", "session", session.getId(), "erreur", e.getMessage());
+                executeur.execute(tacheEnvoi);
+            }
+        }
+
+        private void surAccuse(SendResult resultat) {
+            if (resultat.isOK()) {
+                envoyees.incrementAndGet();
+            } else {
+                echecs.incrementAndGet();
+                Journal.attention("envoi.echec", "session", session.getId(), "erreur", resultat.getException().getMessage());
+            }
+            executeur.execute(tacheEnvoi);
+        }
+
+        void vider() {
+            int retirees = 0;
+            while (trames.pollFirst() != null) {
+                retirees++;
+            }
+            taille.addAndGet(-retirees);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package serveur;
+
+import org.json.JSONObject;
+
+import javax.websocket.Session;
+
+/**
+ * Une action reçue d'un client : l'enveloppe (modele, action) analysée une seule fois,
+ * les données et la session d'origine, avec des accès typés aux champs.
+ * Les champs sont lus directement dans le texte (ou la trame binaire) reçu ;
+ * getDonnees() ne construit l'arbre JSON qu'au besoin.
+ */
+public final class Requete {
+
+    private final String modele;
+    private final String action;
+    private final Donnees donnees;
+    private final Session session;
+
+    Requete(String modele, String action, Donnees donnees, Session session) {
+        this.modele = modele;
+        this.action = action;
+        this.donnees = donnees;
+        this.session = session;
+    }
+
+    public String getModele() {
+        return modele;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    /**
+     * Message complet, pour les traitements qui lisent encore le JSON directement.
+     */
+    public JSONObject getDonnees() {
+        return donnees.versJson();
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * Champ texte, chaîne vide s'il est absent.
+     */
+    public String texte(String cle) {
+        return donnees.texte(cle);
+    }
+
+    /**
+     * Champ entier, envoyé en nombre ou en texte ; -1 s'il est absent ou invalide.
+     */
+    public int entier(String cle) {
+        return donnees.entier(cle, -1);
+    }
+
+    /**
+     * Champ entier facultatif : null s'il est absent, nul ou invalide.
+     */
+    public Integer entierOptionnel(String cle) {
+        if (donnees.estNul(cle)) {
+            return null;
+        }
+        int valeur = donnees.entier(cle, Integer.MIN_VALUE);
+        return valeur == Integer.MIN_VALUE ? null : valeur;
+    }
+
+    public int reunionId() {
+        return entier("reunionId");
+    }
+
+    public int userId() {
+        return entier("userId");
+    }
+
+    @Override
+    public String toString() {
+        return modele + "/" + action;
+    }
+}
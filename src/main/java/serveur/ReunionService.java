@@ -3,6 +3,7 @@ package serveur;
 import model.*;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import protocole.ProtocoleBinaire;
 
 import javax.websocket.Session;
 import java.io.IOException;
@@ -15,123 +16,45 @@ import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class ReunionService implements WebSocketAction {
 
-    @Override
-    public void execute(JSONObject data, Session session) throws IOException {
-        String action = data.optString("action");
-
-        System.out.println("ReunionService - Action reçue: " + action);
-        System.out.println("ReunionService - Données reçues: " + data.toString());
-
-        String reponseStr = null;
-        boolean actionEnvoieSaPropreReponse = false;
-
-        try {
-            switch (action) {
-                case "creation":
-                    reponseStr = creerReunion(data, session);
-                    break;
-                case "rejoindre":
-                    reponseStr = rejoindreReunion(data, session);
-                    break;
-                case "details":
-                    reponseStr = obtenirDetailsReunion(data);
-                    break;
-                case "modifier":
-                    reponseStr = modifierReunion(data);
-                    break;
-                case "ouvrir":
-                    reponseStr = ouvrirReunion(data);
-                    break;
-                case "cloturer":
-                    reponseStr = cloturerReunion(data);
-                    break;
-                case "envoyerMessage":
-                    envoyerMessage(data, session);
-                    actionEnvoieSaPropreReponse = true;
-                    break;
-                case "demanderParole":
-                    handleDemanderParole(data, session);
-                    actionEnvoieSaPropreReponse = true;
-                    break;
-                case "gererDemandeParole":
-                    handleGererDemandeParole(data, session);
-                    actionEnvoieSaPropreReponse = true;
-                    break;
-                case "getDemandesParole":
-                    envoyerDemandesParole(data, session);
-                    actionEnvoieSaPropreReponse = true;
-                    break;
-                case "inviterMembre":
-                    handleInviterMembre(data, session);
-                    actionEnvoieSaPropreReponse = true;
-                    break;
-                case "quitterReunion":
-                    reponseStr = quitterReunion(data, session);
-                    break;
-                case "getHistoriqueMessages":
-                    envoyerHistoriqueMessages(data, session);
-                    actionEnvoieSaPropreReponse = true;
-                    break;
-                case "getParticipants":
-                    envoyerListeParticipants(data, session);
-                    actionEnvoieSaPropreReponse = true;
-                    break;
-                case "getReunionsUtilisateur":
-                    envoyerReunionsUtilisateur(data, session);
-                    actionEnvoieSaPropreReponse = true;
-                    break;
-                case "getPendingInvitations":
-                    envoyerInvitationsEnAttente(data, session);
-                    actionEnvoieSaPropreReponse = true;
-                    break;
-                case "updateInvitationStatus":
-                    mettreAJourStatutInvitation(data, session);
-                    actionEnvoieSaPropreReponse = true;
-                    break;
-                case "autoriserAccesPrivee":
-                    autoriserAccesReunionPrivee(data, session);
-                    actionEnvoieSaPropreReponse = true;
-                    break;
-                case "supprimerReunion":
-                    supprimerReunion(data, session);
-                    actionEnvoieSaPropreReponse = true;
-                default:
-                    reponseStr = genererReponseErreur("Action inconnue '" + action + "' dans le modèle reunion").toString();
-                    break;
-            }
+    // Taille de page de l'historique quand le client n'en demande pas, et plafond accepté
+    private static final int PAGE_HISTORIQUE_DEFAUT = 50;
+    private static final int PAGE_HISTORIQUE_MAX = 200;
 
-            if (!actionEnvoieSaPropreReponse && reponseStr != null && session.isOpen()) {
-                session.getBasicRemote().sendText(reponseStr);
-            }
+    @Override
+    public String modele() {
+        return "reunion";
+    }
 
-        } catch (SQLException e) {
-            System.err.println("Erreur SQL dans ReunionService pour action '" + action + "': " + e.getMessage());
-            e.printStackTrace();
-            if (session.isOpen()) {
-                session.getBasicRemote().sendText(genererReponseErreur("Erreur serveur SQL: " + e.getMessage()).toString());
-            }
-        } catch (IOException e) {
-            System.err.println("Erreur IO dans ReunionService pour action '" + action + "': " + e.getMessage());
-            e.printStackTrace();
-            if (session.isOpen()) {
-                try {
-                    session.getBasicRemote().sendText(genererReponseErreur("Erreur serveur IO: " + e.getMessage()).toString());
-                } catch (IOException ex) {
-                    System.err.println("Impossible d'envoyer le message d'erreur IO: " + ex.getMessage());
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Erreur inattendue dans ReunionService pour action '" + action + "': " + e.getMessage());
-            e.printStackTrace();
-            if (session.isOpen()) {
-                session.getBasicRemote().sendText(genererReponseErreur("Erreur serveur inattendue: " + e.getMessage()).toString());
-            }
-        }
+    @Override
+    public void enregistrer(ActionRouter.Routes routes) {
+        routes.repondre("creation", r -> creerReunion(r.getDonnees(), r.getSession()))
+              .repondre("rejoindre", r -> rejoindreReunion(r.getDonnees(), r.getSession()))
+              .repondre("details", r -> obtenirDetailsReunion(r.getDonnees()))
+              .repondre("modifier", r -> modifierReunion(r.getDonnees()))
+              .repondre("ouvrir", r -> ouvrirReunion(r.getDonnees()))
+              .repondre("cloturer", r -> cloturerReunion(r.getDonnees()))
+              .traiter("envoyerMessage", this::envoyerMessage)
+              .traiter("demanderParole", r -> handleDemanderParole(r.getDonnees(), r.getSession()))
+              .traiter("gererDemandeParole", r -> handleGererDemandeParole(r.getDonnees(), r.getSession()))
+              .traiter("annulerDemandeParole", r -> handleAnnulerDemandeParole(r.getDonnees(), r.getSession()))
+              .traiter("getDemandesParole", r -> envoyerDemandesParole(r.getDonnees(), r.getSession()))
+              .traiter("inviterMembre", r -> handleInviterMembre(r.getDonnees(), r.getSession()))
+              .repondre("quitterReunion", r -> quitterReunion(r.getDonnees(), r.getSession()))
+              .traiter("getHistoriqueMessages", r -> envoyerHistoriqueMessages(r.getDonnees(), r.getSession()))
+              .traiter("getParticipants", r -> envoyerListeParticipants(r.getDonnees(), r.getSession()))
+              .traiter("getReunionsUtilisateur", r -> envoyerReunionsUtilisateur(r.getDonnees(), r.getSession()))
+              .traiter("getPendingInvitations", r -> envoyerInvitationsEnAttente(r.getDonnees(), r.getSession()))
+              .traiter("updateInvitationStatus", r -> mettreAJourStatutInvitation(r.getDonnees(), r.getSession()))
+              .traiter("autoriserAccesPrivee", r -> autoriserAccesReunionPrivee(r.getDonnees(), r.getSession()))
+              .repondre("supprimerReunion", r -> supprimerReunion(r.getDonnees()));
     }
 
     // === FONCTIONNALITÉS EXISTANTES AMÉLIORÉES ===
@@ -158,26 +81,28 @@ public class ReunionService implements WebSocketAction {
         String typeStr = data.optString("type", "STANDARD").toUpperCase();
         Reunion.Type type = Reunion.Type.valueOf(typeStr);
 
-        ReunionManager reunionManager = new ReunionManager();
-        Reunion nouvelleReunion = reunionManager.planifierReunion(nom, sujet, agenda, debut, duree, type, idOrganisateur, idAnimateur);
+        // Réunion, participation et autorisation de l'organisateur : une connexion, une seule validation
+        Reunion nouvelleReunion = UniteDeTravail.executer(conn -> {
+            Reunion reunion = ReunionManager.getInstance()
+                    .planifierReunion(nom, sujet, agenda, debut, duree, type, idOrganisateur, idAnimateur);
 
-        // Ajouter l'organisateur comme participant
-        try (Connection conn = Database.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement("INSERT INTO participation (personne_id, reunion_id) VALUES (?, ?)")) {
-            pstmt.setInt(1, idOrganisateur);
-            pstmt.setInt(2, nouvelleReunion.getId());
-            pstmt.executeUpdate();
-        }
-
-        // Pour les réunions privées, autoriser l'organisateur
-        if (type == Reunion.Type.PRIVEE) {
-            try (Connection conn = Database.getConnection();
-                 PreparedStatement pstmt = conn.prepareStatement("INSERT INTO autorisation_reunion_privee (personne_id, reunion_id) VALUES (?, ?)")) {
+            // Ajouter l'organisateur comme participant
+            try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO participation (personne_id, reunion_id) VALUES (?, ?)")) {
                 pstmt.setInt(1, idOrganisateur);
-                pstmt.setInt(2, nouvelleReunion.getId());
+                pstmt.setInt(2, reunion.getId());
                 pstmt.executeUpdate();
             }
-        }
+
+            // Pour les réunions privées, autoriser l'organisateur
+            if (type == Reunion.Type.PRIVEE) {
+                try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO autorisation_reunion_privee (personne_id, reunion_id) VALUES (?, ?)")) {
+                    pstmt.setInt(1, idOrganisateur);
+                    pstmt.setInt(2, reunion.getId());
+                    pstmt.executeUpdate();
+                }
+            }
+            return reunion;
+        });
 
         reponseJson.put("statut", "succes").put("message", "Réunion créée avec succès");
         JSONObject reunionData = new JSONObject();
@@ -218,23 +143,15 @@ public class ReunionService implements WebSocketAction {
         String typeReunion = null;
         String statutReunion = null;
 
-        try (Connection conn = Database.getConnection();
-             PreparedStatement stmtFindReunion = prepareStatementForReunionLookup(conn, codeOuId)) {
-
-            if (stmtFindReunion == null) {
-                 reponseJson.put("statut", "echec").put("message", "Format de code/ID de réunion invalide.");
-                 return reponseJson.toString();
-            }
-
-            try (ResultSet rs = stmtFindReunion.executeQuery()) {
-                if (rs.next()) {
-                    reunionId = rs.getInt("id");
-                    nomReunionTrouve = rs.getString("nom");
-                    organisateurId = rs.getInt("organisateur_id");
-                    typeReunion = rs.getString("type");
-                    statutReunion = rs.getString("statut") != null ? rs.getString("statut") : "PLANIFIEE";
-                }
-            }
+        Integer animateurId = null;
+        ReunionManager.EtatReunion etat = rechercherEtatReunion(codeOuId);
+        if (etat != null) {
+            reunionId = etat.getId();
+            nomReunionTrouve = etat.getNom();
+            organisateurId = etat.getOrganisateurId();
+            animateurId = etat.getAnimateurId();
+            typeReunion = etat.getType().toString();
+            statutReunion = etat.getStatut() != null ? etat.getStatut() : "PLANIFIEE";
         }
 
         if (reunionId == -1) {
@@ -245,7 +162,7 @@ public class ReunionService implements WebSocketAction {
         /*
         // Vérifier les autorisations pour les réunions privées
         if ("PRIVEE".equals(typeReunion)) {
-            AutorisationReunionPriveeManager autoManager = new AutorisationReunionPriveeManager();
+            AutorisationReunionPriveeManager autoManager = AutorisationReunionPriveeManager.getInstance();
             if (!autoManager.estAutorise(userId, reunionId)) {
                 reponseJson.put("statut", "echec").put("message", "Accès refusé : réunion privée");
                 return reponseJson.toString();
@@ -258,23 +175,14 @@ public class ReunionService implements WebSocketAction {
             // L'organisateur peut toujours entrer
             if (userId != organisateurId) {
                 // Vérifier si c'est l'animateur
-                try (Connection conn = Database.getConnection();
-                     PreparedStatement pstmt = conn.prepareStatement("SELECT animateur_id FROM reunion WHERE id = ?")) {
-                    pstmt.setInt(1, reunionId);
-                    try (ResultSet rs = pstmt.executeQuery()) {
-                        if (rs.next()) {
-                            Integer animateurId = rs.getObject("animateur_id") != null ? rs.getInt("animateur_id") : null;
-                            if (animateurId == null || userId != animateurId) {
-                                reponseJson.put("statut", "echec").put("message", "Réunion non ouverte. Seuls l'organisateur et l'animateur peuvent y accéder.");
-                                return reponseJson.toString();
-                            }
-                        }
-                    }
+                if (animateurId == null || userId != animateurId) {
+                    reponseJson.put("statut", "echec").put("message", "Réunion non ouverte. Seuls l'organisateur et l'animateur peuvent y accéder.");
+                    return reponseJson.toString();
                 }
             }
         }
 
-        ParticipationManager participationManager = new ParticipationManager();
+        ParticipationManager participationManager = ParticipationManager.getInstance();
         participationManager.entrerDansReunion(userId, reunionId);
 
         reponseJson.put("statut", "succes");
@@ -286,28 +194,27 @@ public class ReunionService implements WebSocketAction {
         reponseJson.put("statutReunion", statutReunion);
 
         if (session != null && session.isOpen()) {
-            session.getUserProperties().put("reunionId", String.valueOf(reunionId));
-            session.getUserProperties().put("userId", String.valueOf(userId));
+            SessionRegistry.associerUtilisateur(session, String.valueOf(userId));
+            SessionRegistry.associerReunion(session, String.valueOf(reunionId));
         }
 
         // Notifier les autres participants
-        notifierParticipants(reunionId, userId, "userJoined");
+        notifierMouvement(reunionId, userId, true);
 
         return reponseJson.toString();
     }
 
-  private void supprimerReunion(JSONObject data, Session session) {
+  private String supprimerReunion(JSONObject data) {
     try {
-        String reponse = supprimerReunionLogic(data);
-
+        return supprimerReunionLogic(data);
     } catch (Exception e) {
-        e.printStackTrace();
+        Journal.erreur("reunion.suppression.erreur", e, "reunion", data.optInt("reunionId", -1));
         JSONObject erreurJson = new JSONObject();
         erreurJson.put("modele", "reunion");
         erreurJson.put("action", "reponseSuppression");
         erreurJson.put("statut", "echec");
         erreurJson.put("message", "Erreur serveur lors de la suppression");
-
+        return erreurJson.toString();
     }
 }
 
@@ -326,68 +233,59 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
     }
 
     // Vérifier que la réunion existe et que l'utilisateur est l'organisateur
-    try (Connection conn = Database.getConnection();
-         PreparedStatement checkStmt = conn.prepareStatement("SELECT organisateur_id, nom, statut FROM reunion WHERE id = ?")) {
+    try {
+        ReunionManager reunionManager = ReunionManager.getInstance();
+        ReunionManager.EtatReunion etat = reunionManager.obtenirEtatReunion(reunionId);
+        if (etat == null) {
+            reponseJson.put("statut", "echec").put("message", "Réunion non trouvée");
+            return reponseJson.toString();
+        }
 
-        checkStmt.setInt(1, reunionId);
-        try (ResultSet rs = checkStmt.executeQuery()) {
-            if (!rs.next()) {
-                reponseJson.put("statut", "echec").put("message", "Réunion non trouvée");
-                return reponseJson.toString();
-            }
+        String nomReunion = etat.getNom();
 
-            int organisateurId = rs.getInt("organisateur_id");
-            String nomReunion = rs.getString("nom");
-            String statutReunion = rs.getString("statut");
+        // Vérifier les permissions
+        if (utilisateurId != etat.getOrganisateurId()) {
+            reponseJson.put("statut", "echec").put("message", "Seul l'organisateur peut supprimer la réunion");
+            return reponseJson.toString();
+        }
 
-            // Vérifier les permissions
-            if (utilisateurId != organisateurId) {
-                reponseJson.put("statut", "echec").put("message", "Seul l'organisateur peut supprimer la réunion");
-                return reponseJson.toString();
-            }
+        // Optionnel : empêcher la suppression de réunions ouvertes avec des participants actifs
+        if ("OUVERTE".equals(etat.getStatut())) {
+            // Vérifier s'il y a des participants connectés (autres que l'organisateur)
+            String participantsConnectesSql =
+                "SELECT COUNT(*) FROM participation p " +
+                "INNER JOIN personne per ON p.personne_id = per.id " +
+                "WHERE p.reunion_id = ? AND per.connecte = TRUE AND per.id != ?";
 
-            // Optionnel : empêcher la suppression de réunions ouvertes avec des participants actifs
-            if ("OUVERTE".equals(statutReunion)) {
-                // Vérifier s'il y a des participants connectés (autres que l'organisateur)
-                String participantsConnectesSql =
-                    "SELECT COUNT(*) FROM participation p " +
-                    "INNER JOIN personne per ON p.personne_id = per.id " +
-                    "WHERE p.reunion_id = ? AND per.connecte = TRUE AND per.id != ?";
-
-                try (PreparedStatement participantsStmt = conn.prepareStatement(participantsConnectesSql)) {
-                    participantsStmt.setInt(1, reunionId);
-                    participantsStmt.setInt(2, utilisateurId);
-                    try (ResultSet participantsRs = participantsStmt.executeQuery()) {
-                        if (participantsRs.next() && participantsRs.getInt(1) > 0) {
-                            reponseJson.put("statut", "echec")
-                                     .put("message", "Impossible de supprimer une réunion ouverte avec des participants connectés");
-                            return reponseJson.toString();
-                        }
+            try (Connection conn = Database.getConnection();
+                 PreparedStatement participantsStmt = conn.prepareStatement(participantsConnectesSql)) {
+                participantsStmt.setInt(1, reunionId);
+                participantsStmt.setInt(2, utilisateurId);
+                try (ResultSet participantsRs = participantsStmt.executeQuery()) {
+                    if (participantsRs.next() && participantsRs.getInt(1) > 0) {
+                        reponseJson.put("statut", "echec")
+                                 .put("message", "Impossible de supprimer une réunion ouverte avec des participants connectés");
+                        return reponseJson.toString();
                     }
                 }
             }
+        }
 
-            // Procéder à la suppression
-            String deleteSql = "DELETE FROM reunion WHERE id = ?";
-            try (PreparedStatement deleteStmt = conn.prepareStatement(deleteSql)) {
-                deleteStmt.setInt(1, reunionId);
-                int affectedRows = deleteStmt.executeUpdate();
-
-                if (affectedRows > 0) {
-                    reponseJson.put("statut", "succes")
-                             .put("message", "La réunion '" + nomReunion + "' a été supprimée avec succès");
+        // Procéder à la suppression (le manager oublie aussi l'état en cache)
+        if (reunionManager.supprimerReunion(reunionId, utilisateurId)) {
+            MembresReunion.getInstance().oublier(reunionId);
+            reponseJson.put("statut", "succes")
+                     .put("message", "La réunion '" + nomReunion + "' a été supprimée avec succès");
 
-                    // TODO: Notifier tous les participants de la suppression si nécessaire
-                    // notifierSuppression(reunionId, nomReunion);
+            // TODO: Notifier tous les participants de la suppression si nécessaire
+            // notifierSuppression(reunionId, nomReunion);
 
-                } else {
-                    reponseJson.put("statut", "echec")
-                             .put("message", "Erreur lors de la suppression de la réunion");
-                }
-            }
+        } else {
+            reponseJson.put("statut", "echec")
+                     .put("message", "Erreur lors de la suppression de la réunion");
         }
     } catch (SQLException e) {
-        e.printStackTrace();
+        Journal.erreur("reunion.suppression.erreur", e, "reunion", reunionId);
         reponseJson.put("statut", "echec")
                  .put("message", "Erreur de base de données : " + e.getMessage());
     }
@@ -413,33 +311,24 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
         }
 
         // Vérifier que l'utilisateur est l'organisateur
-        try (Connection conn = Database.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement("SELECT organisateur_id, statut FROM reunion WHERE id = ?")) {
-            pstmt.setInt(1, reunionId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (!rs.next()) {
-                    reponseJson.put("statut", "echec").put("message", "Réunion non trouvée");
-                    return reponseJson.toString();
-                }
-
-                int organisateurId = rs.getInt("organisateur_id");
-                String statut = rs.getString("statut");
-
-                if (utilisateurId != organisateurId) {
-                    reponseJson.put("statut", "echec").put("message", "Seul l'organisateur peut modifier la réunion");
-                    return reponseJson.toString();
-                }
+        ReunionManager reunionManager = ReunionManager.getInstance();
+        ReunionManager.EtatReunion etat = reunionManager.obtenirEtatReunion(reunionId);
+        if (etat == null) {
+            reponseJson.put("statut", "echec").put("message", "Réunion non trouvée");
+            return reponseJson.toString();
+        }
 
-                if ("OUVERTE".equals(statut) || "FERMEE".equals(statut)) {
-                    reponseJson.put("statut", "echec").put("message", "Impossible de modifier une réunion ouverte ou fermée");
-                    return reponseJson.toString();
-                }
-            }
+        if (utilisateurId != etat.getOrganisateurId()) {
+            reponseJson.put("statut", "echec").put("message", "Seul l'organisateur peut modifier la réunion");
+            return reponseJson.toString();
         }
 
+        if ("OUVERTE".equals(etat.getStatut()) || "FERMEE".equals(etat.getStatut())) {
+            reponseJson.put("statut", "echec").put("message", "Impossible de modifier une réunion ouverte ou fermée");
+            return reponseJson.toString();
+        }
 
         // Effectuer la modification
-        ReunionManager reunionManager = new ReunionManager();
         String nom = data.optString("nom");
         String sujet = data.optString("sujet");
         String agenda = data.optString("agenda");
@@ -477,52 +366,36 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
         }
 
         // Vérifier que l'utilisateur est l'animateur ou l'organisateur
-        try (Connection conn = Database.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(
-                 "SELECT organisateur_id, animateur_id, statut FROM reunion WHERE id = ?")) {
-            pstmt.setInt(1, reunionId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (!rs.next()) {
-                    reponseJson.put("statut", "echec").put("message", "Réunion non trouvée");
-                    return reponseJson.toString();
-                }
-
-                int organisateurId = rs.getInt("organisateur_id");
-                Integer animateurId = rs.getObject("animateur_id") != null ? rs.getInt("animateur_id") : null;
-                String statut = rs.getString("statut");
+        ReunionManager reunionManager = ReunionManager.getInstance();
+        ReunionManager.EtatReunion etat = reunionManager.obtenirEtatReunion(reunionId);
+        if (etat == null) {
+            reponseJson.put("statut", "echec").put("message", "Réunion non trouvée");
+            return reponseJson.toString();
+        }
 
-                if (utilisateurId != organisateurId && (animateurId == null || utilisateurId != animateurId)) {
-                    reponseJson.put("statut", "echec").put("message", "Seul l'organisateur ou l'animateur peut ouvrir la réunion");
-                    return reponseJson.toString();
-                }
+        if (!etat.estDirigeePar(utilisateurId)) {
+            reponseJson.put("statut", "echec").put("message", "Seul l'organisateur ou l'animateur peut ouvrir la réunion");
+            return reponseJson.toString();
+        }
 
-                if ("OUVERTE".equals(statut)) {
-                    reponseJson.put("statut", "echec").put("message", "La réunion est déjà ouverte");
-                    return reponseJson.toString();
-                }
+        if ("OUVERTE".equals(etat.getStatut())) {
+            reponseJson.put("statut", "echec").put("message", "La réunion est déjà ouverte");
+            return reponseJson.toString();
+        }
 
-                if ("FERMEE".equals(statut)) {
-                    reponseJson.put("statut", "echec").put("message", "Impossible d'ouvrir une réunion fermée");
-                    return reponseJson.toString();
-                }
-            }
+        if ("FERMEE".equals(etat.getStatut())) {
+            reponseJson.put("statut", "echec").put("message", "Impossible d'ouvrir une réunion fermée");
+            return reponseJson.toString();
         }
 
         // Ouvrir la réunion
-        try (Connection conn = Database.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(
-                 "UPDATE reunion SET statut = 'OUVERTE', heure_ouverture = NOW() WHERE id = ?")) {
-            pstmt.setInt(1, reunionId);
-            int affectedRows = pstmt.executeUpdate();
-
-            if (affectedRows > 0) {
-                reponseJson.put("statut", "succes").put("message", "Réunion ouverte avec succès");
+        if (reunionManager.ouvrirReunion(reunionId, utilisateurId)) {
+            reponseJson.put("statut", "succes").put("message", "Réunion ouverte avec succès");
 
-                // Notifier tous les participants que la réunion est ouverte
-                notifierTousParticipants(reunionId, "reunionOuverte", "La réunion vient d'être ouverte");
-            } else {
-                reponseJson.put("statut", "echec").put("message", "Erreur lors de l'ouverture");
-            }
+            // Notifier tous les participants que la réunion est ouverte
+            notifierTousParticipants(reunionId, "reunionOuverte", "La réunion vient d'être ouverte");
+        } else {
+            reponseJson.put("statut", "echec").put("message", "Erreur lors de l'ouverture");
         }
 
         return reponseJson.toString();
@@ -542,47 +415,33 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
         }
 
         // Vérifier que l'utilisateur est l'animateur ou l'organisateur
-        try (Connection conn = Database.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(
-                 "SELECT organisateur_id, animateur_id, statut FROM reunion WHERE id = ?")) {
-            pstmt.setInt(1, reunionId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (!rs.next()) {
-                    reponseJson.put("statut", "echec").put("message", "Réunion non trouvée");
-                    return reponseJson.toString();
-                }
-
-                int organisateurId = rs.getInt("organisateur_id");
-                Integer animateurId = rs.getObject("animateur_id") != null ? rs.getInt("animateur_id") : null;
-                String statut = rs.getString("statut");
+        ReunionManager reunionManager = ReunionManager.getInstance();
+        ReunionManager.EtatReunion etat = reunionManager.obtenirEtatReunion(reunionId);
+        if (etat == null) {
+            reponseJson.put("statut", "echec").put("message", "Réunion non trouvée");
+            return reponseJson.toString();
+        }
 
-                if (utilisateurId != organisateurId && (animateurId == null || utilisateurId != animateurId)) {
-                    reponseJson.put("statut", "echec").put("message", "Seul l'organisateur ou l'animateur peut clôturer la réunion");
-                    return reponseJson.toString();
-                }
+        if (!etat.estDirigeePar(utilisateurId)) {
+            reponseJson.put("statut", "echec").put("message", "Seul l'organisateur ou l'animateur peut clôturer la réunion");
+            return reponseJson.toString();
+        }
 
-                if (!"OUVERTE".equals(statut)) {
-                    reponseJson.put("statut", "echec").put("message", "Seule une réunion ouverte peut être clôturée");
-                    return reponseJson.toString();
-                }
-            }
+        if (!"OUVERTE".equals(etat.getStatut())) {
+            reponseJson.put("statut", "echec").put("message", "Seule une réunion ouverte peut être clôturée");
+            return reponseJson.toString();
         }
 
         // Clôturer la réunion
-        try (Connection conn = Database.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(
-                 "UPDATE reunion SET statut = 'FERMEE', heure_fermeture = NOW() WHERE id = ?")) {
-            pstmt.setInt(1, reunionId);
-            int affectedRows = pstmt.executeUpdate();
+        if (reunionManager.cloturerReunion(reunionId, utilisateurId)) {
+            reponseJson.put("statut", "succes").put("message", "Réunion clôturée avec succès");
+            FilesParole.getInstance().fermer(reunionId);
+            MembresReunion.getInstance().oublier(reunionId);
 
-            if (affectedRows > 0) {
-                reponseJson.put("statut", "succes").put("message", "Réunion clôturée avec succès");
-
-                // Notifier tous les participants que la réunion est fermée
-                notifierTousParticipants(reunionId, "reunionFermee", "La réunion vient d'être clôturée");
-            } else {
-                reponseJson.put("statut", "echec").put("message", "Erreur lors de la clôture");
-            }
+            // Notifier tous les participants que la réunion est fermée
+            notifierTousParticipants(reunionId, "reunionFermee", "La réunion vient d'être clôturée");
+        } else {
+            reponseJson.put("statut", "echec").put("message", "Erreur lors de la clôture");
         }
 
         return reponseJson.toString();
@@ -597,74 +456,46 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
 
         if (reunionIdStr.isEmpty() || userId == -1) {
             response.put("success", false).put("message", "Données manquantes pour la demande de parole");
-            session.getBasicRemote().sendText(response.toString());
+            envoyerResultatParole(session, response);
             return;
         }
 
         int reunionId = Integer.parseInt(reunionIdStr);
 
         // Vérifier que la réunion est ouverte
-        try (Connection conn = Database.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(
-                 "SELECT statut, type FROM reunion WHERE id = ?")) {
-            pstmt.setInt(1, reunionId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (!rs.next()) {
-                    response.put("success", false).put("message", "Réunion non trouvée");
-                    session.getBasicRemote().sendText(response.toString());
-                    return;
-                }
-
-                String statut = rs.getString("statut");
-                String type = rs.getString("type");
-
-                if (!"OUVERTE".equals(statut)) {
-                    response.put("success", false).put("message", "La réunion n'est pas ouverte");
-                    session.getBasicRemote().sendText(response.toString());
-                    return;
-                }
-
-                // Pour les réunions démocratiques, accorder automatiquement la parole
-                if ("DEMOCRATIQUE".equals(type)) {
-                    DemandeParoleManager demandeManager = new DemandeParoleManager();
-                    DemandeParole demande = demandeManager.demanderParole(userId, reunionId);
-
-                    if (demande != null) {
-                        // Accorder automatiquement la parole en mode FIFO
-                        demandeManager.accordParole(demande.getId(), userId); // L'utilisateur lui-même "accorde"
-
-                        response.put("success", true).put("message", "Parole accordée automatiquement (réunion démocratique)");
-                        session.getBasicRemote().sendText(response.toString());
+        ReunionManager.EtatReunion etat = ReunionManager.getInstance().obtenirEtatReunion(reunionId);
+        if (etat == null) {
+            response.put("success", false).put("message", "Réunion non trouvée");
+            envoyerResultatParole(session, response);
+            return;
+        }
 
-                        // Notifier tous les participants
-                        notifierParticipants(reunionId, userId, "paroleAccordee");
-                        return;
-                    }
-                }
-            }
+        if (!"OUVERTE".equals(etat.getStatut())) {
+            response.put("success", false).put("message", "La réunion n'est pas ouverte");
+            envoyerResultatParole(session, response);
+            return;
         }
 
-        // Pour les réunions standards et privées : demande normale
-        DemandeParoleManager demandeManager = new DemandeParoleManager();
-        try {
-            DemandeParole demande = demandeManager.demanderParole(userId, reunionId);
-            if (demande != null) {
-                response.put("success", true).put("message", "Demande de parole enregistrée");
+        // Réunion démocratique : la parole est accordée aussitôt (FIFO de fait), sinon la demande rejoint la file
+        boolean democratique = etat.getType() == Reunion.Type.DEMOCRATIQUE;
+        DemandeParole demande = FilesParole.getInstance().demander(reunionId, userId, democratique);
+        if (demande == null) {
+            response.put("success", false).put("message", "Vous avez déjà une demande de parole en cours");
+        } else if (democratique) {
+            response.put("success", true).put("message", "Parole accordée automatiquement (réunion démocratique)");
+            envoyerResultatParole(session, response);
 
-                // Notifier l'animateur de la nouvelle demande
-                notifierAnimateur(reunionId, "nouvelleDemande", demande);
-            } else {
-                response.put("success", false).put("message", "Erreur lors de l'enregistrement de la demande");
-            }
-        } catch (SQLException e) {
-            if (e.getMessage().contains("Duplicate entry")) {
-                response.put("success", false).put("message", "Vous avez déjà une demande de parole en cours");
-            } else {
-                response.put("success", false).put("message", "Erreur serveur: " + e.getMessage());
-            }
+            // Notifier tous les participants
+            notifierParticipants(reunionId, userId, "paroleAccordee");
+            return;
+        } else {
+            response.put("success", true).put("message", "Demande de parole enregistrée");
+
+            // Notifier l'animateur de la nouvelle demande
+            notifierAnimateur(reunionId, "nouvelleDemande", demande);
         }
 
-        session.getBasicRemote().sendText(response.toString());
+        envoyerResultatParole(session, response);
     }
 
     private void handleGererDemandeParole(JSONObject data, Session session) throws IOException, SQLException {
@@ -677,37 +508,26 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
 
         if (demandeId == -1 || action.isEmpty() || animateurId == -1) {
             response.put("success", false).put("message", "Données manquantes");
-            session.getBasicRemote().sendText(response.toString());
+            envoyer(session, response.toString());
             return;
         }
 
         // Vérifier que l'utilisateur est bien l'animateur
-        DemandeParoleManager demandeManager = new DemandeParoleManager();
-        DemandeParole demande = demandeManager.obtenirDemandeParoleParId(demandeId);
+        FilesParole files = FilesParole.getInstance();
+        DemandeParole demande = files.trouver(demandeId);
 
         if (demande == null) {
             response.put("success", false).put("message", "Demande de parole non trouvée");
-            session.getBasicRemote().sendText(response.toString());
+            envoyer(session, response.toString());
             return;
         }
 
         // Vérifier les permissions d'animateur
-        try (Connection conn = Database.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(
-                 "SELECT animateur_id, organisateur_id FROM reunion WHERE id = ?")) {
-            pstmt.setInt(1, demande.getReunionId());
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    Integer animateurIdReunion = rs.getObject("animateur_id") != null ? rs.getInt("animateur_id") : null;
-                    int organisateurId = rs.getInt("organisateur_id");
-
-                    if (animateurId != organisateurId && (animateurIdReunion == null || animateurId != animateurIdReunion)) {
-                        response.put("success", false).put("message", "Seul l'animateur ou l'organisateur peut gérer les demandes de parole");
-                        session.getBasicRemote().sendText(response.toString());
-                        return;
-                    }
-                }
-            }
+        ReunionManager.EtatReunion etat = ReunionManager.getInstance().obtenirEtatReunion(demande.getReunionId());
+        if (etat != null && !etat.estDirigeePar(animateurId)) {
+            response.put("success", false).put("message", "Seul l'animateur ou l'organisateur peut gérer les demandes de parole");
+            envoyer(session, response.toString());
+            return;
         }
 
         // Traiter la demande
@@ -715,7 +535,7 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
         String messageResult = "";
 
         if ("accorder".equals(action)) {
-            resultat = demandeManager.accordParole(demandeId, animateurId);
+            resultat = files.decider(demandeId, DemandeParole.Statut.ACCORDEE);
             messageResult = resultat ? "Parole accordée" : "Erreur lors de l'accord de parole";
 
             if (resultat) {
@@ -723,7 +543,7 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
                 notifierParticipants(demande.getReunionId(), demande.getPersonneId(), "paroleAccordee");
             }
         } else if ("refuser".equals(action)) {
-            resultat = demandeManager.refuserParole(demandeId, animateurId);
+            resultat = files.decider(demandeId, DemandeParole.Statut.REFUSEE);
             messageResult = resultat ? "Parole refusée" : "Erreur lors du refus de parole";
 
             if (resultat) {
@@ -732,13 +552,26 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
             }
         }
 
+        // La file de l'animateur est mise à jour par le message "fileParole" de la décision
         response.put("success", resultat).put("message", messageResult);
-        session.getBasicRemote().sendText(response.toString());
+        envoyer(session, response.toString());
+    }
+
+    private void handleAnnulerDemandeParole(JSONObject data, Session session) throws SQLException {
+        JSONObject response = new JSONObject();
+        response.put("type", "annulationParoleResult");
+
+        String reunionIdStr = data.optString("reunionId");
+        int userId = data.optInt("userId", -1);
 
-        // Mettre à jour la liste des demandes pour l'animateur
-        if (resultat) {
-            envoyerDemandesParole(data, session);
+        if (reunionIdStr.isEmpty() || userId == -1) {
+            response.put("success", false).put("message", "Données manquantes pour l'annulation");
+        } else if (FilesParole.getInstance().annuler(Integer.parseInt(reunionIdStr), userId)) {
+            response.put("success", true).put("message", "Demande de parole annulée");
+        } else {
+            response.put("success", false).put("message", "Aucune demande de parole en attente");
         }
+        envoyer(session, response.toString());
     }
 
     private void envoyerDemandesParole(JSONObject data, Session session) throws IOException, SQLException {
@@ -749,16 +582,23 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
         if (reunionIdStr.isEmpty()) {
             response.put("error", "ID réunion manquant");
             response.put("demandes", new JSONArray());
-            session.getBasicRemote().sendText(response.toString());
+            envoyer(session, response.toString());
             return;
         }
 
         int reunionId = Integer.parseInt(reunionIdStr);
-        DemandeParoleManager demandeManager = new DemandeParoleManager();
-        List<DemandeParole> demandes = demandeManager.obtenirDemandesEnAttente(reunionId);
+        // Réunion ouverte : instantané de la file, à compléter par les messages "fileParole" de séquence supérieure
+        FilesParole.Instantane instantane = FilesParole.getInstance().instantane(reunionId);
+        List<DemandeParole> demandes;
+        if (instantane != null) {
+            demandes = instantane.getDemandes();
+            response.put("sequence", instantane.getSequence());
+        } else {
+            demandes = FilesParole.getInstance().enAttente(reunionId);
+        }
 
         JSONArray demandesArray = new JSONArray();
-        PersonneManager personneManager = new PersonneManager();
+        PersonneManager personneManager = PersonneManager.getInstance();
 
         for (DemandeParole demande : demandes) {
             JSONObject demandeJson = new JSONObject();
@@ -767,17 +607,15 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
             demandeJson.put("heureDemande", demande.getHeureDemande().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
 
             // Récupérer le nom du demandeur
-            Personne demandeur = personneManager.obtenirPersonneParId(demande.getPersonneId());
-            String nomDemandeur = (demandeur != null) ?
-                (demandeur.getPrenom() + " " + demandeur.getNom()).trim() :
-                "Utilisateur " + demande.getPersonneId();
+            PersonneManager.Affichage demandeur = personneManager.obtenirAffichageParId(demande.getPersonneId());
+            String nomDemandeur = (demandeur != null) ? demandeur.getNomComplet() : "Utilisateur " + demande.getPersonneId();
             demandeJson.put("nomDemandeur", nomDemandeur);
 
             demandesArray.put(demandeJson);
         }
 
         response.put("demandes", demandesArray);
-        session.getBasicRemote().sendText(response.toString());
+        envoyer(session, response.toString());
     }
 
     private void autoriserAccesReunionPrivee(JSONObject data, Session session) throws IOException, SQLException {
@@ -790,51 +628,42 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
 
         if (reunionId == -1 || loginAutorise.isEmpty() || organisateurId == -1) {
             response.put("success", false).put("message", "Données manquantes");
-            session.getBasicRemote().sendText(response.toString());
+            envoyer(session, response.toString());
             return;
         }
 
         // Vérifier que l'utilisateur est l'organisateur et que la réunion est privée
-        try (Connection conn = Database.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(
-                 "SELECT organisateur_id, type FROM reunion WHERE id = ?")) {
-            pstmt.setInt(1, reunionId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (!rs.next()) {
-                    response.put("success", false).put("message", "Réunion non trouvée");
-                    session.getBasicRemote().sendText(response.toString());
-                    return;
-                }
-
-                int orgId = rs.getInt("organisateur_id");
-                String type = rs.getString("type");
+        ReunionManager.EtatReunion etat = ReunionManager.getInstance().obtenirEtatReunion(reunionId);
+        if (etat == null) {
+            response.put("success", false).put("message", "Réunion non trouvée");
+            envoyer(session, response.toString());
+            return;
+        }
 
-                if (organisateurId != orgId) {
-                    response.put("success", false).put("message", "Seul l'organisateur peut autoriser l'accès");
-                    session.getBasicRemote().sendText(response.toString());
-                    return;
-                }
+        if (organisateurId != etat.getOrganisateurId()) {
+            response.put("success", false).put("message", "Seul l'organisateur peut autoriser l'accès");
+            envoyer(session, response.toString());
+            return;
+        }
 
-                if (!"PRIVEE".equals(type)) {
-                    response.put("success", false).put("message", "Cette réunion n'est pas privée");
-                    session.getBasicRemote().sendText(response.toString());
-                    return;
-                }
-            }
+        if (etat.getType() != Reunion.Type.PRIVEE) {
+            response.put("success", false).put("message", "Cette réunion n'est pas privée");
+            envoyer(session, response.toString());
+            return;
         }
 
         // Récupérer l'ID de la personne à autoriser
-        PersonneManager personneManager = new PersonneManager();
+        PersonneManager personneManager = PersonneManager.getInstance();
         Personne personneAutorisee = personneManager.obtenirPersonneParLogin(loginAutorise);
 
         if (personneAutorisee == null) {
             response.put("success", false).put("message", "Utilisateur '" + loginAutorise + "' non trouvé");
-            session.getBasicRemote().sendText(response.toString());
+            envoyer(session, response.toString());
             return;
         }
 
         // Autoriser l'accès
-        AutorisationReunionPriveeManager autoManager = new AutorisationReunionPriveeManager();
+        AutorisationReunionPriveeManager autoManager = AutorisationReunionPriveeManager.getInstance();
         boolean autorise = autoManager.autoriserAcces(personneAutorisee.getId(), reunionId);
 
         if (autorise) {
@@ -847,112 +676,121 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
             response.put("success", false).put("message", "Erreur lors de l'autorisation");
         }
 
-        session.getBasicRemote().sendText(response.toString());
+        envoyer(session, response.toString());
     }
 
     // === MÉTHODES UTILITAIRES ===
 
     private void notifierParticipants(int reunionId, int userId, String typeNotification) {
-        try (Connection conn = Database.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(
-                 "SELECT p.prenom, p.nom FROM personne p WHERE p.id = ?")) {
-            pstmt.setInt(1, userId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                String nomUtilisateur = "Utilisateur";
-                if (rs.next()) {
-                    nomUtilisateur = (rs.getString("prenom") + " " + rs.getString("nom")).trim();
-                }
-
-                JSONObject notification = new JSONObject();
-                notification.put("type", typeNotification);
-                notification.put("reunionId", reunionId);
-                notification.put("userId", userId);
-                notification.put("username", nomUtilisateur);
+        try {
+            diffuserEvenementParticipant(reunionId, userId, nomUtilisateur(userId), typeNotification, 0);
+        } catch (SQLException e) {
+            Journal.erreur("reunion.notification.erreur", "reunion", reunionId, "type", typeNotification,
+                    "erreur", e.getMessage());
+        }
+    }
 
-                diffuserMessageReunion(reunionId, notification.toString());
+    /**
+     * Arrivée ou départ d'un participant : la liste versionnée de la réunion est mise à jour et, si elle a changé,
+     * la notification porte la nouvelle version. Sinon (participant déjà présent), elle part sans version.
+     */
+    private void notifierMouvement(int reunionId, int userId, boolean entree) {
+        String type = entree ? "userJoined" : "userLeft";
+        try {
+            String nom = nomUtilisateur(userId);
+            MembresReunion.Diffusion diffusion = version -> diffuserEvenementParticipant(reunionId, userId, nom, type, version);
+            MembresReunion membres = MembresReunion.getInstance();
+            boolean change = entree ? membres.entrer(reunionId, userId, nom, diffusion) : membres.sortir(reunionId, userId, diffusion);
+            if (!change) {
+                diffusion.diffuser(0);
             }
         } catch (SQLException e) {
-            System.err.println("Erreur lors de la notification des participants: " + e.getMessage());
+            Journal.erreur("reunion.notification.erreur", "reunion", reunionId, "type", type, "erreur", e.getMessage());
         }
     }
 
-    private void notifierTousParticipants(int reunionId, String type, String message) {
-        JSONObject notification = new JSONObject();
-        notification.put("type", type);
-        notification.put("reunionId", reunionId);
-        notification.put("message", message);
+    private String nomUtilisateur(int userId) throws SQLException {
+        PersonneManager.Affichage personne = PersonneManager.getInstance().obtenirAffichageParId(userId);
+        return personne != null ? personne.getNomComplet() : "Utilisateur";
+    }
 
-        diffuserMessageReunion(reunionId, notification.toString());
+    private void diffuserEvenementParticipant(int reunionId, int userId, String nom, String type, long version) {
+        EcrivainJson notification = EcrivainJson.objet()
+                .champ("type", type)
+                .champ("reunionId", reunionId)
+                .champ("userId", userId)
+                .champ("username", nom);
+        if (version != 0) {
+            notification.champ("version", version);
+        }
+        diffuserMessageReunion(reunionId, Trame.de(notification.fin(),
+                ProtocoleBinaire.evenementParticipant(type, reunionId, userId, nom, version)));
+    }
+
+    private void notifierTousParticipants(int reunionId, String type, String message) {
+        diffuserMessageReunion(reunionId, EcrivainJson.objet()
+                .champ("type", type)
+                .champ("reunionId", reunionId)
+                .champ("message", message)
+                .trame());
     }
 
     private void notifierAnimateur(int reunionId, String type, DemandeParole demande) {
-        try (Connection conn = Database.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(
-                 "SELECT animateur_id, organisateur_id FROM reunion WHERE id = ?")) {
-            pstmt.setInt(1, reunionId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    Integer animateurId = rs.getObject("animateur_id") != null ? rs.getInt("animateur_id") : null;
-                    int organisateurId = rs.getInt("organisateur_id");
-
-                    JSONObject notification = new JSONObject();
-                    notification.put("type", type);
-                    notification.put("reunionId", reunionId);
-                    notification.put("demandeId", demande.getId());
-                    notification.put("demandeurId", demande.getPersonneId());
-
-                    // Notifier l'animateur s'il existe, sinon l'organisateur
-                    int destinataireId = (animateurId != null) ? animateurId : organisateurId;
-                    notifierUtilisateur(destinataireId, type, notification.toString());
-                }
+        try {
+            ReunionManager.EtatReunion etat = ReunionManager.getInstance().obtenirEtatReunion(reunionId);
+            if (etat != null) {
+                String notification = EcrivainJson.objet()
+                        .champ("type", type)
+                        .champ("reunionId", reunionId)
+                        .champ("demandeId", demande.getId())
+                        .champ("demandeurId", demande.getPersonneId())
+                        .fin();
+
+                // Notifier l'animateur s'il existe, sinon l'organisateur
+                int destinataireId = (etat.getAnimateurId() != null) ? etat.getAnimateurId() : etat.getOrganisateurId();
+                notifierUtilisateur(destinataireId, type, notification);
             }
         } catch (SQLException e) {
-            System.err.println("Erreur lors de la notification de l'animateur: " + e.getMessage());
+            Journal.erreur("reunion.notification.erreur", "reunion", reunionId, "type", type, "erreur", e.getMessage());
         }
     }
 
     private void notifierUtilisateur(int userId, String type, String message) {
-        JSONObject notification = new JSONObject();
-        notification.put("type", type);
-        notification.put("message", message);
-
-        for (Session s : ServeurWebSocket.getSessions()) {
-            if (s.isOpen() && String.valueOf(userId).equals(s.getUserProperties().get("userId"))) {
-                try {
-                    s.getBasicRemote().sendText(notification.toString());
-                } catch (IOException e) {
-                    System.err.println("Erreur notification utilisateur " + userId + ": " + e.getMessage());
-                }
-                break;
-            }
-        }
+        envoyerAUtilisateur(userId, EcrivainJson.objet().champ("type", type).champ("message", message).fin());
+    }
+
+    /**
+     * Réponse à une demande de parole, aussi disponible en binaire pour les sessions qui l'ont négocié.
+     */
+    private void envoyerResultatParole(Session session, JSONObject response) {
+        OutboundDispatcher.getInstance().envoyer(session, Trame.de(response.toString(),
+                ProtocoleBinaire.resultatDemandeParole(response.optBoolean("success"), response.optString("message"))));
+    }
+
+    private void envoyerAUtilisateur(int userId, String message) {
+        OutboundDispatcher.getInstance().diffuser(SessionRegistry.sessionsUtilisateur(userId), message);
     }
 
     private void diffuserMessageReunion(int reunionId, String message) {
-        String reunionIdStr = String.valueOf(reunionId);
-        for (Session s : ServeurWebSocket.getSessions()) {
-            if (s.isOpen() && reunionIdStr.equals(s.getUserProperties().get("reunionId"))) {
-                try {
-                    s.getBasicRemote().sendText(message);
-                } catch (IOException e) {
-                    System.err.println("Erreur diffusion message réunion " + reunionId + ": " + e.getMessage());
-                }
-            }
-        }
+        diffuserMessageReunion(reunionId, Trame.de(message));
+    }
+
+    private void diffuserMessageReunion(int reunionId, Trame trame) {
+        OutboundDispatcher.getInstance().diffuser(SessionRegistry.sessionsReunion(reunionId), trame);
     }
 
     // === MÉTHODES EXISTANTES (inchangées) ===
 
-    private PreparedStatement prepareStatementForReunionLookup(Connection conn, String codeOuId) throws SQLException {
+    /**
+     * Retrouve une réunion par son id (depuis le cache d'état) ou, à défaut, par son nom.
+     */
+    private ReunionManager.EtatReunion rechercherEtatReunion(String codeOuId) throws SQLException {
+        ReunionManager reunionManager = ReunionManager.getInstance();
         try {
-            int idPotentiel = Integer.parseInt(codeOuId);
-            PreparedStatement stmt = conn.prepareStatement("SELECT id, nom, organisateur_id, type, statut FROM reunion WHERE id = ?");
-            stmt.setInt(1, idPotentiel);
-            return stmt;
+            return reunionManager.obtenirEtatReunion(Integer.parseInt(codeOuId));
         } catch (NumberFormatException e) {
-            PreparedStatement stmt = conn.prepareStatement("SELECT id, nom, organisateur_id, type, statut FROM reunion WHERE nom = ?");
-            stmt.setString(1, codeOuId);
-            return stmt;
+            Reunion reunion = reunionManager.rechercherReunionParNom(codeOuId);
+            return reunion != null ? reunionManager.obtenirEtatReunion(reunion.getId()) : null;
         }
     }
 
@@ -960,7 +798,7 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
         JSONObject reponseJson = new JSONObject();
         reponseJson.put("modele", "reunion").put("action", "reponseDetails");
         int reunionId = data.optInt("id");
-        ReunionManager reunionManager = new ReunionManager();
+        ReunionManager reunionManager = ReunionManager.getInstance();
         Reunion reunion = reunionManager.consulterDetailsReunion(reunionId);
 
         if (reunion != null) {
@@ -975,49 +813,50 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
         return reponseJson.toString();
     }
 
-    private void envoyerMessage(JSONObject data, Session currentSession) throws IOException, SQLException {
-        String reunionIdStr = data.optString("reunionId");
-        String userIdStr = data.optString("userId");
-        String contenu = data.optString("contenu");
+    private void envoyerMessage(Requete requete) throws SQLException {
+        Session currentSession = requete.getSession();
+        int reunionId = requete.reunionId();
+        int userId = requete.userId();
+        String contenu = requete.texte("contenu");
 
-        if (reunionIdStr.isEmpty() || userIdStr.isEmpty() || contenu.isEmpty()) {
-            currentSession.getBasicRemote().sendText(genererReponseErreur("ID réunion/utilisateur ou contenu manquant.").toString());
+        if (reunionId == -1 || userId == -1 || contenu.isEmpty()) {
+            envoyer(currentSession, genererReponseErreur("ID réunion/utilisateur ou contenu manquant.").toString());
+            return;
+        }
+        // Vérifié avant d'accepter : le message est diffusé avant son INSERT, dont l'échec (clé étrangère vers
+        // la réunion) n'atteindrait plus le client
+        if (ReunionManager.getInstance().obtenirEtatReunion(reunionId) == null) {
+            envoyer(currentSession, genererReponseErreur("Réunion non trouvée.").toString());
             return;
         }
-        int userId = Integer.parseInt(userIdStr);
-        int reunionId = Integer.parseInt(reunionIdStr);
         String senderName = "Inconnu";
 
-        try (Connection conn = Database.getConnection();
-             PreparedStatement psUser = conn.prepareStatement("SELECT prenom, nom FROM personne WHERE id = ?")) {
-            psUser.setInt(1, userId);
-            try (ResultSet rsUser = psUser.executeQuery()) {
-                if (rsUser.next()) {
-                    senderName = (rsUser.getString("prenom") + " " + rsUser.getString("nom")).trim();
-                    if (senderName.isEmpty()) senderName = "Utilisateur " + userId;
-                } else {
-                     currentSession.getBasicRemote().sendText(genererReponseErreur("Utilisateur expéditeur non trouvé.").toString());
-                     return;
-                }
-            }
-            try (PreparedStatement psMsg = conn.prepareStatement("INSERT INTO message (personne_id, reunion_id, contenu, heure_envoi) VALUES (?, ?, ?, NOW())")) {
-                psMsg.setInt(1, userId);
-                psMsg.setInt(2, reunionId);
-                psMsg.setString(3, contenu);
-                psMsg.executeUpdate();
-            }
+        PersonneManager.Affichage expediteur = PersonneManager.getInstance().obtenirAffichageParId(userId);
+        if (expediteur == null) {
+            envoyer(currentSession, genererReponseErreur("Utilisateur expéditeur non trouvé.").toString());
+            return;
         }
+        senderName = expediteur.getNomComplet();
 
-        JSONObject broadcastJson = new JSONObject();
-        broadcastJson.put("type", "newMessage").put("reunionId", reunionIdStr).put("sender", senderName)
-                     .put("content", contenu).put("userId", userIdStr).put("timestamp", System.currentTimeMillis());
-
-        for (Session s : ServeurWebSocket.getSessions()) {
-            if (s.isOpen() && reunionIdStr.equals(s.getUserProperties().get("reunionId"))) {
-                try { s.getBasicRemote().sendText(broadcastJson.toString()); }
-                catch (IOException e) { System.err.println("Erreur diffusion msg à " + s.getId() + ": " + e.getMessage());}
-            }
+        // Id et heure attribués par le serveur ; l'INSERT est fait plus tard, par lots
+        Message message;
+        try {
+            message = MessageWriteBehind.getInstance().enregistrer(userId, senderName, reunionId, contenu);
+        } catch (SQLException e) {
+            envoyer(currentSession, genererReponseErreur("Message non envoyé: " + e.getMessage()).toString());
+            return;
         }
+
+        // Écrit directement dans un tampon réutilisé, puis encodé une seule fois (texte et binaire) pour toute la réunion
+        long timestamp = System.currentTimeMillis();
+        String texte = EcrivainJson.objet()
+                .champ("type", "newMessage").champ("id", message.getId()).champ("reunionId", String.valueOf(reunionId))
+                .champ("sender", senderName).champ("content", contenu).champ("userId", String.valueOf(userId))
+                .champ("timestamp", timestamp)
+                .fin();
+        Trame diffusion = Trame.de(texte,
+                ProtocoleBinaire.nouveauMessage(message.getId(), reunionId, userId, timestamp, senderName, contenu));
+        diffuserMessageReunion(reunionId, diffusion);
     }
 
     private void handleInviterMembre(JSONObject data, Session session) throws IOException, SQLException {
@@ -1029,46 +868,42 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
 
         if (reunionIdStr.isEmpty() || usernameToInvite.isEmpty() || inviterUserIdStr == null) {
              response.put("success", false).put("message", "Données d'invitation manquantes.");
-             session.getBasicRemote().sendText(response.toString()); return;
+             envoyer(session, response.toString()); return;
         }
         int reunionId = Integer.parseInt(reunionIdStr);
         int inviterUserId = Integer.parseInt(inviterUserIdStr);
-        int invitedPersonId = -1;
-        String reunionType = null;
-        Reunion reunionDetails = null;
 
-        try (Connection conn = Database.getConnection()) {
-            ReunionManager reunionManager = new ReunionManager();
-            reunionDetails = reunionManager.consulterDetailsReunion(reunionId);
-
-            if (reunionDetails == null) {
-                response.put("success", false).put("message", "Réunion non trouvée.");
-                session.getBasicRemote().sendText(response.toString()); return;
-            }
-            reunionType = reunionDetails.getType().toString();
-            if (inviterUserId != reunionDetails.getIdOrganisateur()) {
-                response.put("success", false).put("message", "Seul l'organisateur peut inviter.");
-                session.getBasicRemote().sendText(response.toString()); return;
-            }
+        // Réunion et personnes sont servies par les caches : lues hors transaction
+        ReunionManager.EtatReunion reunionDetails = ReunionManager.getInstance().obtenirEtatReunion(reunionId);
+        if (reunionDetails == null) {
+            response.put("success", false).put("message", "Réunion non trouvée.");
+            envoyer(session, response.toString()); return;
+        }
+        if (inviterUserId != reunionDetails.getOrganisateurId()) {
+            response.put("success", false).put("message", "Seul l'organisateur peut inviter.");
+            envoyer(session, response.toString()); return;
+        }
 
-            PersonneManager personneManager = new PersonneManager();
-            Personne personneAInviter = personneManager.obtenirPersonneParLogin(usernameToInvite);
-            if (personneAInviter == null) {
-                response.put("success", false).put("message", "Utilisateur '" + usernameToInvite + "' non trouvé.");
-                session.getBasicRemote().sendText(response.toString()); return;
-            }
-            invitedPersonId = personneAInviter.getId();
+        PersonneManager personneManager = PersonneManager.getInstance();
+        PersonneManager.Affichage personneAInviter = personneManager.obtenirAffichageParLogin(usernameToInvite);
+        if (personneAInviter == null) {
+            response.put("success", false).put("message", "Utilisateur '" + usernameToInvite + "' non trouvé.");
+            envoyer(session, response.toString()); return;
+        }
+        int invitedPersonId = personneAInviter.getId();
+        boolean privee = reunionDetails.getType() == Reunion.Type.PRIVEE;
 
-            ParticipationManager participationManager = new ParticipationManager();
+        // Participation, autorisation et invitation : une connexion, une seule validation
+        boolean dejaParticipant = UniteDeTravail.executer(conn -> {
+            ParticipationManager participationManager = ParticipationManager.getInstance();
             if (participationManager.estParticipant(invitedPersonId, reunionId)) {
-                response.put("success", false).put("message", "'" + usernameToInvite + "' participe déjà.");
-                session.getBasicRemote().sendText(response.toString()); return;
+                return true;
             }
 
             participationManager.entrerDansReunion(invitedPersonId, reunionId);
-            if("PRIVEE".equalsIgnoreCase(reunionType)){
-                try(PreparedStatement stmtAuth = conn.prepareStatement("INSERT INTO autorisation_reunion_privee (personne_id,reunion_id) VALUES (?,?) ON DUPLICATE KEY UPDATE personne_id=personne_id")){
-                    stmtAuth.setInt(1,invitedPersonId); stmtAuth.setInt(2,reunionId); stmtAuth.executeUpdate();
+            if (privee) {
+                try (PreparedStatement stmtAuth = conn.prepareStatement("INSERT INTO autorisation_reunion_privee (personne_id,reunion_id) VALUES (?,?) ON DUPLICATE KEY UPDATE personne_id=personne_id")) {
+                    stmtAuth.setInt(1, invitedPersonId); stmtAuth.setInt(2, reunionId); stmtAuth.executeUpdate();
                 }
             }
 
@@ -1081,31 +916,32 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
                 pstmtInvite.setInt(4, inviterUserId);
                 pstmtInvite.executeUpdate();
             }
-
-            response.put("success", true).put("message", "'" + usernameToInvite + "' a été invité(e) avec succès.");
-            session.getBasicRemote().sendText(response.toString());
-
-            // NOTIFICATION À L'UTILISATEUR INVITÉ
-            Personne inviterDetails = personneManager.obtenirPersonneParId(inviterUserId);
-            String inviterNomComplet = (inviterDetails != null) ? (inviterDetails.getPrenom() + " " + inviterDetails.getNom()).trim() : "Quelqu'un";
-            String nomReunionPourInvite = reunionDetails.getNom();
-
-            JSONObject notificationInvite = new JSONObject();
-            notificationInvite.put("type", "nouvelleInvitation")
-                              .put("reunionId", reunionId)
-                              .put("nomReunion", nomReunionPourInvite)
-                              .put("invitePar", inviterNomComplet)
-                              .put("dateReunion", reunionDetails.getDebut().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
-                              .put("message", inviterNomComplet + " vous a invité(e) à la réunion : " + nomReunionPourInvite);
-
-            for (Session s : ServeurWebSocket.getSessions()) {
-                if (s.isOpen() && String.valueOf(invitedPersonId).equals(s.getUserProperties().get("userId"))) {
-                    try { s.getBasicRemote().sendText(notificationInvite.toString()); }
-                    catch (IOException e) { System.err.println("Erreur notif invite à " + invitedPersonId + ": " + e.getMessage());}
-                    break;
-                }
-            }
+            return false;
+        });
+        if (dejaParticipant) {
+            response.put("success", false).put("message", "'" + usernameToInvite + "' participe déjà.");
+            envoyer(session, response.toString()); return;
         }
+
+        response.put("success", true).put("message", "'" + usernameToInvite + "' a été invité(e) avec succès.");
+        envoyer(session, response.toString());
+        // Inscrit en base par l'invitation : la liste versionnée des participants suit, une fois la transaction validée
+        notifierMouvement(reunionId, invitedPersonId, true);
+
+        // NOTIFICATION À L'UTILISATEUR INVITÉ
+        PersonneManager.Affichage inviterDetails = personneManager.obtenirAffichageParId(inviterUserId);
+        String inviterNomComplet = (inviterDetails != null) ? inviterDetails.getNomComplet() : "Quelqu'un";
+        String nomReunionPourInvite = reunionDetails.getNom();
+
+        JSONObject notificationInvite = new JSONObject();
+        notificationInvite.put("type", "nouvelleInvitation")
+                          .put("reunionId", reunionId)
+                          .put("nomReunion", nomReunionPourInvite)
+                          .put("invitePar", inviterNomComplet)
+                          .put("dateReunion", reunionDetails.getDebut().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                          .put("message", inviterNomComplet + " vous a invité(e) à la réunion : " + nomReunionPourInvite);
+
+        envoyerAUtilisateur(invitedPersonId, notificationInvite.toString());
     }
 
     private String quitterReunion(JSONObject data, Session session) throws SQLException {
@@ -1117,17 +953,25 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
             return reponseJson.put("statut", "echec").put("message", "Données manquantes.").toString();
         }
         if (session != null && session.isOpen()) {
-            session.getUserProperties().remove("reunionId");
+            SessionRegistry.dissocierReunion(session);
         }
-        ParticipationManager participationManager = new ParticipationManager();
-        boolean aQuitte = participationManager.sortirDeReunion(userId, Integer.parseInt(reunionIdStr));
+        ParticipationManager participationManager = ParticipationManager.getInstance();
+        int reunionId = Integer.parseInt(reunionIdStr);
+        boolean aQuitte = participationManager.sortirDeReunion(userId, reunionId);
         if (aQuitte) {
+            FilesParole.getInstance().annuler(reunionId, userId);
+            notifierMouvement(reunionId, userId, false);
             return reponseJson.put("statut", "succes").put("message", "Vous avez quitté la réunion.").toString();
         } else {
             return reponseJson.put("statut", "echec").put("message", "Sortie de réunion échouée (participation non trouvée?).").toString();
         }
     }
 
+    /**
+     * Historique paginé par curseur : sans curseur, la page la plus récente ;
+     * avec "beforeId", la page qui précède ; avec "afterId", celle qui suit.
+     * "hasMore" indique s'il reste des messages au-delà de la page dans le sens demandé.
+     */
     private void envoyerHistoriqueMessages(JSONObject data, Session session) throws IOException, SQLException {
         String reunionIdStr = data.optString("reunionId");
         JSONObject responseJson = new JSONObject().put("type", "historiqueMessages").put("reunionId", reunionIdStr);
@@ -1135,35 +979,61 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
 
         if (reunionIdStr.isEmpty()) {
             responseJson.put("error", "ID réunion manquant").put("messages", messagesJsonArray);
-            session.getBasicRemote().sendText(responseJson.toString()); return;
+            envoyer(session, responseJson.toString()); return;
         }
         try {
             int reunionId = Integer.parseInt(reunionIdStr);
-            MessageManager messageManager = new MessageManager();
-            List<Message> messages = messageManager.obtenirMessagesReunion(reunionId);
-            PersonneManager personneManager = new PersonneManager();
+            Integer avantId = data.has("beforeId") ? data.getInt("beforeId") : null;
+            Integer apresId = data.has("afterId") ? data.getInt("afterId") : null;
+            int limite = Math.max(1, Math.min(data.optInt("limit", PAGE_HISTORIQUE_DEFAUT), PAGE_HISTORIQUE_MAX));
+            boolean versLeBas = apresId != null;
+
+            // Relevé avant la requête : un lot validé entre les deux apparaît au pire deux fois, jamais zéro
+            List<Message> enAttente = MessageWriteBehind.getInstance().enAttente(reunionId);
+            MessageManager messageManager = MessageManager.getInstance();
+            // Un message de plus que la page pour savoir s'il en reste
+            List<Message> messages = messageManager.obtenirPageMessages(reunionId, avantId, apresId, limite + 1);
+
+            // Les messages pas encore écrits sont les plus récents : on les fusionne puis on garde
+            // les "limite" plus proches du curseur
+            Set<Integer> dejaLus = new HashSet<>();
+            for (Message msg : messages) dejaLus.add(msg.getId());
+            for (Message msg : enAttente) {
+                boolean dansLaPage = versLeBas ? msg.getId() > apresId : avantId == null || msg.getId() < avantId;
+                if (dansLaPage && dejaLus.add(msg.getId())) messages.add(msg);
+            }
+            messages.sort(Comparator.comparingInt(Message::getId));
+            boolean encore = messages.size() > limite;
+            if (encore) {
+                messages = versLeBas ? messages.subList(0, limite) : messages.subList(messages.size() - limite, messages.size());
+            }
 
+            // Un seul parcours : le nom de l'expéditeur vient de la jointure, sans requête par message
             for (Message msg : messages) {
-                JSONObject msgJson = new JSONObject();
-                msgJson.put("userId", msg.getIdPersonne());
-                msgJson.put("content", msg.getContenu());
-                Personne sender = personneManager.obtenirPersonneParId(msg.getIdPersonne());
-                String senderName = (sender != null) ? (sender.getPrenom() + " " + sender.getNom()).trim() : "Inconnu";
-                if (sender != null && senderName.isEmpty()) senderName = "Utilisateur " + sender.getId();
-                msgJson.put("sender", senderName);
-                if (msg.getHeureEnvoi() != null) {
-                    msgJson.put("timestamp", msg.getHeureEnvoi().toInstant(ZoneOffset.UTC).toEpochMilli());
-                }
-                messagesJsonArray.put(msgJson);
+                messagesJsonArray.put(messageHistoriqueJson(msg));
             }
-            responseJson.put("messages", messagesJsonArray);
-        } catch (NumberFormatException e) {
-            responseJson.put("error", "Format ID réunion invalide.").put("messages", messagesJsonArray);
+            responseJson.put("messages", messagesJsonArray).put("hasMore", encore);
+            if (avantId != null) responseJson.put("beforeId", avantId);
+            if (apresId != null) responseJson.put("afterId", apresId);
+        } catch (NumberFormatException | org.json.JSONException e) {
+            responseJson.put("error", "Format ID réunion ou curseur invalide.").put("messages", messagesJsonArray);
         } catch (SQLException e) {
-            System.err.println("SQL Error in envoyerHistoriqueMessages for reunion " + reunionIdStr + ": " + e.getMessage());
+            Journal.erreur("reunion.historique.erreur", "reunion", reunionIdStr, "erreur", e.getMessage());
             responseJson.put("error", "Erreur SQL (historique).").put("messages", messagesJsonArray);
         }
-        session.getBasicRemote().sendText(responseJson.toString());
+        envoyer(session, responseJson.toString());
+    }
+
+    private JSONObject messageHistoriqueJson(Message msg) {
+        JSONObject msgJson = new JSONObject();
+        msgJson.put("id", msg.getId());
+        msgJson.put("userId", msg.getIdPersonne());
+        msgJson.put("content", msg.getContenu());
+        msgJson.put("sender", msg.getNomExpediteur() != null ? msg.getNomExpediteur() : "Inconnu");
+        if (msg.getHeureEnvoi() != null) {
+            msgJson.put("timestamp", msg.getHeureEnvoi().toInstant(ZoneOffset.UTC).toEpochMilli());
+        }
+        return msgJson;
     }
 
     private void envoyerListeParticipants(JSONObject data, Session session) throws IOException, SQLException {
@@ -1173,28 +1043,29 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
 
         if (reunionIdStr.isEmpty()) {
             responseJson.put("error", "ID réunion manquant").put("participants", participantsJsonArray);
-            session.getBasicRemote().sendText(responseJson.toString()); return;
+            envoyer(session, responseJson.toString()); return;
         }
         try {
             int reunionId = Integer.parseInt(reunionIdStr);
-            ParticipationManager participationManager = new ParticipationManager();
-            List<Personne> participants = participationManager.obtenirParticipants(reunionId);
-            for (Personne personne : participants) {
-                JSONObject pJson = new JSONObject();
-                pJson.put("id", personne.getId());
-                String nomComplet = (personne.getPrenom() + " " + personne.getNom()).trim();
-                if (nomComplet.isEmpty()) nomComplet = "Utilisateur " + personne.getId();
-                pJson.put("nom", nomComplet);
-                participantsJsonArray.put(pJson);
-            }
-            responseJson.put("participants", participantsJsonArray);
+            // Liste complète et sa version : le client applique ensuite les userJoined/userLeft de version supérieure
+            MembresReunion.getInstance().instantane(reunionId, instantane -> {
+                for (Map.Entry<Integer, String> participant : instantane.getNoms().entrySet()) {
+                    JSONObject pJson = new JSONObject();
+                    pJson.put("id", participant.getKey());
+                    pJson.put("nom", participant.getValue());
+                    participantsJsonArray.put(pJson);
+                }
+                responseJson.put("participants", participantsJsonArray).put("version", instantane.getVersion());
+                envoyer(session, responseJson.toString());
+            });
+            return;
         } catch (NumberFormatException e) {
             responseJson.put("error", "Format ID réunion invalide.").put("participants", participantsJsonArray);
         } catch (SQLException e) {
-            System.err.println("SQL Error in envoyerListeParticipants for reunion " + reunionIdStr + ": " + e.getMessage());
+            Journal.erreur("reunion.participants.erreur", "reunion", reunionIdStr, "erreur", e.getMessage());
             responseJson.put("error", "Erreur SQL (participants).").put("participants", participantsJsonArray);
         }
-        session.getBasicRemote().sendText(responseJson.toString());
+        envoyer(session, responseJson.toString());
     }
 
     private void envoyerReunionsUtilisateur(JSONObject data, Session session) throws IOException, SQLException {
@@ -1206,7 +1077,7 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
         if (userId == -1) {
             responseJson.put("statut", "echec").put("message", "ID utilisateur manquant.");
             responseJson.put("reunions", new JSONArray());
-            session.getBasicRemote().sendText(responseJson.toString());
+            envoyer(session, responseJson.toString());
             return;
         }
         JSONArray reunionsArray = new JSONArray();
@@ -1237,12 +1108,12 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
             responseJson.put("statut", "succes");
             responseJson.put("reunions", reunionsArray);
         } catch (SQLException e) {
-            System.err.println("SQL Error in envoyerReunionsUtilisateur for user " + userId + ": " + e.getMessage());
+            Journal.erreur("reunion.liste.erreur", "utilisateur", userId, "erreur", e.getMessage());
             responseJson.put("statut", "echec");
             responseJson.put("message", "Erreur SQL (réunions).");
             responseJson.put("reunions", new JSONArray());
         }
-        session.getBasicRemote().sendText(responseJson.toString());
+        envoyer(session, responseJson.toString());
     }
 
     private void envoyerInvitationsEnAttente(JSONObject data, Session session) throws IOException, SQLException {
@@ -1253,7 +1124,7 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
         if (userId == -1) {
             responseJson.put("statut", "echec").put("message", "ID utilisateur manquant.");
             responseJson.put("invitations", new JSONArray());
-            session.getBasicRemote().sendText(responseJson.toString());
+            envoyer(session, responseJson.toString());
             return;
         }
 
@@ -1284,13 +1155,12 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
             responseJson.put("statut", "succes");
             responseJson.put("invitations", invitationsArray);
         } catch (SQLException e) {
-            System.err.println("Erreur SQL lors de la récupération des invitations pour l'utilisateur " + userId + ": " + e.getMessage());
-            e.printStackTrace();
+            Journal.erreur("invitation.liste.erreur", e, "utilisateur", userId);
             responseJson.put("statut", "echec");
             responseJson.put("message", "Erreur serveur SQL lors de la récupération des invitations.");
             responseJson.put("invitations", new JSONArray());
         }
-        session.getBasicRemote().sendText(responseJson.toString());
+        envoyer(session, responseJson.toString());
     }
 
     private void mettreAJourStatutInvitation(JSONObject data, Session session) throws IOException, SQLException {
@@ -1303,7 +1173,7 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
 
         if (invitationId == -1 || newStatusStr.isEmpty() || userId == -1) {
             responseJson.put("success", false).put("message", "Données manquantes pour mettre à jour l'invitation.");
-            session.getBasicRemote().sendText(responseJson.toString());
+            envoyer(session, responseJson.toString());
             return;
         }
 
@@ -1314,44 +1184,62 @@ private String supprimerReunionLogic(JSONObject data) throws SQLException {
              }
         } catch (IllegalArgumentException e) {
              responseJson.put("success", false).put("message", "Statut d'invitation invalide: " + newStatusStr);
-             session.getBasicRemote().sendText(responseJson.toString());
+             envoyer(session, responseJson.toString());
              return;
         }
 
         String sql = "UPDATE invitation_reunion SET statut = ? WHERE id = ? AND personne_invitee_id = ?";
-        try (Connection conn = Database.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, newStatusStr);
-            pstmt.setInt(2, invitationId);
-            pstmt.setInt(3, userId);
-
-            int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected > 0) {
-                responseJson.put("success", true).put("message", "Statut de l'invitation mis à jour avec succès en " + newStatusStr + ".");
-
+        // Statut et participation : une connexion, une seule validation
+        try {
+            // null si l'invitation n'a pas été trouvée, sinon la réunion rejointe (0 si l'invitation est refusée)
+            Integer reunionRejointe = UniteDeTravail.executer(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setString(1, newStatusStr);
+                    pstmt.setInt(2, invitationId);
+                    pstmt.setInt(3, userId);
+                    if (pstmt.executeUpdate() == 0) {
+                        return null;
+                    }
+                }
+                if (!"ACCEPTEE".equals(newStatusStr)) {
+                    return 0;
+                }
                 // Si acceptée, ajouter à la table participation si ce n'est pas déjà fait
-                if ("ACCEPTEE".equals(newStatusStr)) {
-                    int reunionId = -1;
-                    try (PreparedStatement stmtGetReunionId = conn.prepareStatement("SELECT reunion_id FROM invitation_reunion WHERE id = ?")) {
-                        stmtGetReunionId.setInt(1, invitationId);
-                        try(ResultSet rs = stmtGetReunionId.executeQuery()){
-                            if(rs.next()) reunionId = rs.getInt("reunion_id");
+                int reunionId;
+                try (PreparedStatement invitation = conn.prepareStatement("SELECT reunion_id FROM invitation_reunion WHERE id = ?")) {
+                    invitation.setInt(1, invitationId);
+                    try (ResultSet rs = invitation.executeQuery()) {
+                        if (!rs.next()) {
+                            return null;
                         }
-                    }
-                    if (reunionId != -1) {
-                        ParticipationManager pm = new ParticipationManager();
-                        pm.entrerDansReunion(userId, reunionId);
+                        reunionId = rs.getInt(1);
                     }
                 }
+                try (PreparedStatement participation = conn.prepareStatement(
+                        "INSERT INTO participation (personne_id, reunion_id) VALUES (?, ?) ON DUPLICATE KEY UPDATE personne_id = personne_id")) {
+                    participation.setInt(1, userId);
+                    participation.setInt(2, reunionId);
+                    participation.executeUpdate();
+                }
+                return reunionId;
+            });
+            if (reunionRejointe != null && reunionRejointe != 0) {
+                notifierMouvement(reunionRejointe, userId, true);
+            }
+            if (reunionRejointe != null) {
+                responseJson.put("success", true).put("message", "Statut de l'invitation mis à jour avec succès en " + newStatusStr + ".");
             } else {
                 responseJson.put("success", false).put("message", "Impossible de mettre à jour l'invitation (non trouvée ou non autorisée).");
             }
         } catch (SQLException e) {
-            System.err.println("Erreur SQL lors de la mise à jour du statut de l'invitation " + invitationId + ": " + e.getMessage());
-            e.printStackTrace();
+            Journal.erreur("invitation.statut.erreur", e, "invitation", invitationId);
             responseJson.put("success", false).put("message", "Erreur serveur SQL lors de la mise à jour du statut.");
         }
-        session.getBasicRemote().sendText(responseJson.toString());
+        envoyer(session, responseJson.toString());
+    }
+
+    private void envoyer(Session session, String message) {
+        OutboundDispatcher.getInstance().envoyer(session, message);
     }
 
     private JSONObject genererReponseErreur(String message) {
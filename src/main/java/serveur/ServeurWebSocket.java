@@ -1,10 +1,14 @@
 package serveur;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import javax.websocket.Extension;
 import javax.websocket.Session;
 import javax.websocket.CloseReason;
 import javax.websocket.OnClose;
@@ -13,7 +17,12 @@ import javax.websocket.OnMessage;
 import javax.websocket.OnOpen;
 import javax.websocket.server.ServerEndpoint;
 
+import model.PersonneManager;
+import model.ReunionManager;
+import org.glassfish.tyrus.core.TyrusServerEndpointConfigurator;
 import org.glassfish.tyrus.server.Server;
+import protocole.CompressionDeflate;
+import protocole.ProtocoleBinaire;
 
 public class ServeurWebSocket {
 
@@ -39,10 +48,16 @@ public class ServeurWebSocket {
         Server server = new Server("localhost", 8080, "", null, EndpointServeur.class);
         try {
             server.start();
+            Metriques.getInstance().demarrer();
             System.out.println("=================================================");
             System.out.println("🚀 Serveur WebSocket démarré avec succès !");
             System.out.println("📍 URL: ws://localhost:8080/");
             System.out.println("🗄️  Base de données: MySQL sur port 3306");
+            if (Metriques.PORT > 0) {
+                System.out.println("📊 Métriques: http://" + Metriques.HOTE + ":" + Metriques.PORT + Metriques.CHEMIN);
+            }
+            System.out.println("🗜️  Compression permessage-deflate: " + (CompressionDeflate.ACTIVE
+                    ? "à partir de " + CompressionDeflate.SEUIL + " octets" : "désactivée"));
             System.out.println("=================================================");
             System.out.println("Appuyez sur une touche pour arrêter le serveur...");
             System.in.read();
@@ -50,12 +65,61 @@ public class ServeurWebSocket {
             System.err.println("Erreur lors du démarrage du serveur: " + e.getMessage());
             e.printStackTrace();
         } finally {
+            Metriques.getInstance().arreter();
             server.stop();
+            ActionDispatcher actions = ActionDispatcher.getInstance();
+            actions.arreter(10_000);
+            System.out.println("Actions traitées (" + actions.getMode() + "): " + actions.getTraitees()
+                    + ", en erreur: " + actions.getErreurs() + ", attente cumulée de la limite BD: "
+                    + actions.getAttenteBdCumuleeMs() + " ms");
+            System.out.printf("Boîtes de session: %d déposés, %d rejetés, profondeur max %d, attente moyenne %.2f ms%n",
+                    actions.getDeposes(), actions.getRejetes(), actions.getProfondeurMaxObservee(), actions.getAttenteFileMoyenneMs());
+            ActionRouter routeur = ActionHandler.getRouteur();
+            Map<String, Long> erreursParAction = routeur.getErreurs();
+            routeur.getInvocations().forEach((action, n) -> {
+                if (n > 0) {
+                    System.out.println("   " + action + ": " + n + " appel(s), " + erreursParAction.get(action) + " en erreur");
+                }
+            });
+            // Vide le journal des messages tant que le pool est encore ouvert
+            MessageWriteBehind messages = MessageWriteBehind.getInstance();
+            messages.arreter();
+            System.out.println("Messages écrits: " + messages.getEcrits() + " en " + messages.getLots() + " lot(s), refusés: "
+                    + messages.getRefuses() + ", rejetés par la base: " + messages.getRejetes()
+                    + ", non persistés: " + messages.getPerdus());
+            FilesParole paroles = FilesParole.getInstance();
+            paroles.arreter();
+            System.out.println("Files de parole: " + paroles.getDemandes() + " demande(s), " + paroles.getDecisions()
+                    + " décision(s), " + paroles.getReconstructions() + " file(s) reconstruite(s), " + paroles.getEcrites()
+                    + " transition(s) écrite(s) en " + paroles.getLots() + " lot(s), rejetées par la base: "
+                    + paroles.getRejetees() + ", non persistées: " + paroles.getPerdues());
+            System.out.println("Statistiques du pool JDBC: " + Database.getStatistiquesPool());
+            OutboundDispatcher envoi = OutboundDispatcher.getInstance();
+            System.out.println("Trames envoyées: " + envoi.getEnvoyees() + ", abandonnées: " + envoi.getAbandonnees()
+                    + ", échecs: " + envoi.getEchecs() + ", clients lents déconnectés: " + envoi.getDeconnexions());
+            System.out.println("Compression: " + CompressionDeflate.resume());
+            System.out.println("Cache des personnes: " + PersonneManager.getSuccesCache() + " succès, "
+                    + PersonneManager.getEchecsCache() + " échecs ; cache des réunions: "
+                    + ReunionManager.getSuccesCache() + " succès, " + ReunionManager.getEchecsCache() + " échecs");
+            Database.fermerPool();
+            Journal journal = Journal.getInstance();
+            System.out.println("Journal: " + journal.getDeposes() + " événement(s), " + journal.getAbandonnes() + " abandonné(s)");
+            journal.arreterEcriture();
             System.out.println("Serveur arrêté.");
         }
     }
 
-    @ServerEndpoint("/")
+    /**
+     * Accepte permessage-deflate quand le client le propose (un endpoint annoté n'a pas d'extensions installées).
+     */
+    public static class ConfigurationEndpoint extends TyrusServerEndpointConfigurator {
+        @Override
+        public List<Extension> getNegotiatedExtensions(List<Extension> installees, List<Extension> demandees) {
+            return CompressionDeflate.negocier(demandees);
+        }
+    }
+
+    @ServerEndpoint(value = "/", configurator = ConfigurationEndpoint.class)
     public static class EndpointServeur {
 
         @OnOpen
@@ -66,6 +130,7 @@ public class ServeurWebSocket {
             String reunionId = null;
             String userId = null;
             String ipClient = null;
+            boolean binaire = false;
 
             if (query != null) {
                 String[] params = query.split("&");
@@ -82,63 +147,60 @@ public class ServeurWebSocket {
                             case "ipClient":
                                 ipClient = pair[1];
                                 break;
+                            case ProtocoleBinaire.PARAMETRE:
+                                binaire = ProtocoleBinaire.BINAIRE.equals(pair[1]);
+                                break;
                         }
                     }
                 }
             }
 
-            if (reunionId != null) session.getUserProperties().put("reunionId", reunionId);
-            if (userId != null) session.getUserProperties().put("userId", userId);
+            if (reunionId != null) SessionRegistry.associerReunion(session, reunionId);
+            if (userId != null) SessionRegistry.associerUtilisateur(session, userId);
             if (ipClient != null) session.getUserProperties().put("ipClient", ipClient);
-
-            System.out.println("✅ Nouvelle connexion établie:");
-            System.out.println("   Session ID: " + session.getId());
-            System.out.println("   IP Client: " + ipClient);
-            System.out.println("   Reunion ID: " + reunionId);
-            System.out.println("   User ID: " + userId);
-            System.out.println("   Total sessions actives: " + sessions.size());
-
-            try {
-                // CORRECTION: Envoyer un message JSON valide au lieu d'un texte brut
-                String welcomeMessage = String.format(
-                    "{\"type\":\"welcome\",\"message\":\"Connexion établie avec succès\",\"sessionId\":\"%s\"}",
-                    session.getId()
-                );
-                session.getBasicRemote().sendText(welcomeMessage);
-            } catch (IOException e) {
-                System.err.println("Erreur lors de l'envoi du message de bienvenue: " + e.getMessage());
-            }
+            if (binaire) SessionRegistry.activerBinaire(session);
+
+            Journal.info("ws.ouverture", "session", session.getId(), "ip", ipClient, "reunion", reunionId,
+                    "utilisateur", userId, "protocole", binaire ? ProtocoleBinaire.BINAIRE : ProtocoleBinaire.JSON,
+                    "sessions", sessions.size());
+
+            // Toujours en texte : le client y lit le protocole retenu avant d'envoyer du binaire
+            String welcomeMessage = String.format(
+                "{\"type\":\"welcome\",\"message\":\"Connexion établie avec succès\",\"sessionId\":\"%s\",\"protocole\":\"%s\"}",
+                session.getId(), binaire ? ProtocoleBinaire.BINAIRE : ProtocoleBinaire.JSON
+            );
+            OutboundDispatcher.getInstance().envoyer(session, welcomeMessage);
         }
 
         @OnMessage
         public void onMessage(String message, Session session) {
-            System.out.println("📨 Message reçu de " + session.getId() + ": " + message);
-            try {
-                ActionHandler.handleAction(message, session);
-            } catch (IOException e) {
-                System.err.println("Erreur lors du traitement du message: " + e.getMessage());
-                e.printStackTrace();
-
-                try {
-                    String errorResponse = "{\"type\":\"error\",\"message\":\"Erreur lors du traitement de la requête\"}";
-                    session.getBasicRemote().sendText(errorResponse);
-                } catch (IOException ioException) {
-                    System.err.println("Impossible d'envoyer la réponse d'erreur: " + ioException.getMessage());
-                }
-            }
+            Journal.echantillon(Journal.Niveau.DEBUG, "ws.message", "session", session.getId(),
+                    "taille", message.length(), "charge", message);
+            // Hors du thread d'E/S (selon tpbmo.actions.mode), dans l'ordre d'arrivée pour cette session
+            ActionDispatcher.getInstance().soumettre(message, session);
+        }
+
+        @OnMessage
+        public void onMessage(ByteBuffer message, Session session) {
+            // Copie : la trame est traitée plus tard, sur un autre thread que celui du conteneur
+            ByteBuffer copie = ByteBuffer.allocate(message.remaining()).put(message).flip();
+            Journal.echantillon(Journal.Niveau.DEBUG, "ws.trame", "session", session.getId(), "taille", copie.remaining());
+            ActionDispatcher.getInstance().soumettre(copie, session);
         }
 
         @OnClose
         public void onClose(Session session, CloseReason closeReason) {
             sessions.remove(session);
-            System.out.println("❌ Session " + session.getId() + " fermée. Raison: " + closeReason);
-            System.out.println("   Sessions restantes: " + sessions.size());
+            SessionRegistry.retirer(session);
+            OutboundDispatcher.getInstance().liberer(session);
+            ActionDispatcher.getInstance().liberer(session);
+            Journal.info("ws.fermeture", "session", session.getId(), "code", closeReason.getCloseCode().getCode(),
+                    "raison", closeReason.getReasonPhrase(), "sessions", sessions.size());
         }
 
         @OnError
         public void onError(Session session, Throwable throwable) {
-            System.err.println("💥 Erreur pour la session " + session.getId() + ": " + throwable.getMessage());
-            throwable.printStackTrace();
+            Journal.erreur("ws.erreur", throwable, "session", session.getId());
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,139 @@
+package serveur;
+
+import javax.websocket.Session;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Boîte aux lettres d'une session : les messages reçus y sont déposés et traités un par un,
+ * dans l'ordre de dépôt, par au plus une tâche à la fois sur l'exécuteur.
+ * Deux messages d'une même session ne s'exécutent donc jamais en parallèle,
+ * alors que les boîtes de sessions différentes avancent indépendamment.
+ *
+ * @param <M> type des messages déposés (trame texte ou binaire)
+ */
+public final class SessionMailbox<M> {
+
+    /**
+     * Observateur des événements de la boîte, pour les métriques.
+     */
+    interface Observateur {
+        void depose(int profondeur);
+
+        void rejete();
+
+        void traite(long attenteNanos);
+    }
+
+    private final Session session;
+    private final int profondeurMax;
+    private final Executor executeur;
+    private final BiConsumer<M, Session> traitement;
+    private final Observateur observateur;
+
+    private final ConcurrentLinkedQueue<Lettre<M>> lettres = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger profondeur = new AtomicInteger();
+    // Vrai tant qu'une tâche de vidage est planifiée ou en cours
+    private final AtomicBoolean active = new AtomicBoolean(false);
+    private final Runnable tacheVidage = this::vider;
+    private volatile boolean fermee;
+
+    SessionMailbox(Session session, int profondeurMax, Executor executeur,
+                   BiConsumer<M, Session> traitement, Observateur observateur) {
+        this.session = session;
+        this.profondeurMax = profondeurMax;
+        this.executeur = executeur;
+        this.traitement = traitement;
+        this.observateur = observateur;
+    }
+
+    /**
+     * Dépose un message ; retourne false si la boîte est pleine ou fermée, ou si l'exécuteur est arrêté
+     * (le message n'est pas traité).
+     */
+    boolean deposer(M message) {
+        if (fermee) {
+            return false;
+        }
+        int nouvelle = profondeur.incrementAndGet();
+        if (nouvelle > profondeurMax) {
+            profondeur.decrementAndGet();
+            observateur.rejete();
+            return false;
+        }
+        lettres.offer(new Lettre<>(message, System.nanoTime()));
+        observateur.depose(nouvelle);
+        return planifier();
+    }
+
+    /**
+     * Nombre de messages en attente de traitement.
+     */
+    int profondeur() {
+        return profondeur.get();
+    }
+
+    boolean estFermee() {
+        return fermee;
+    }
+
+    /**
+     * Refuse les dépôts suivants et abandonne les messages pas encore commencés.
+     */
+    void fermer() {
+        fermee = true;
+        int retirees = 0;
+        while (lettres.poll() != null) {
+            retirees++;
+        }
+        profondeur.addAndGet(-retirees);
+    }
+
+    private boolean planifier() {
+        if (active.compareAndSet(false, true)) {
+            try {
+                executeur.execute(tacheVidage);
+            } catch (RejectedExecutionException e) {
+                // Exécuteur arrêté (fin du serveur) : plus rien ne viderait la boîte, qui ne doit pas rester active
+                fermer();
+                active.set(false);
+                Journal.attention("boite.refusee", "session", session.getId(), "raison", "executeur arrete");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void vider() {
+        Lettre<M> lettre;
+        while ((lettre = lettres.poll()) != null) {
+            profondeur.decrementAndGet();
+            observateur.traite(System.nanoTime() - lettre.depotNanos);
+            try {
+                traitement.accept(lettre.message, session);
+            } catch (RuntimeException e) {
+                // Le traitement signale ses erreurs lui-même : on ne doit jamais bloquer la boîte
+                Journal.erreur("boite.erreur", e, "session", session.getId());
+            }
+        }
+        active.set(false);
+        // Un dépôt a pu arriver entre le dernier poll et la remise à false
+        if (!lettres.isEmpty()) {
+            planifier();
+        }
+    }
+
+    private static final class Lettre<M> {
+        final M message;
+        final long depotNanos;
+
+        Lettre(M message, long depotNanos) {
+            this.message = message;
+            this.depotNanos = depotNanos;
+        }
+    }
+}
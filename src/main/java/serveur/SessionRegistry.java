@@ -0,0 +1,163 @@
+package serveur;
+
+import javax.websocket.Session;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index concurrent des sessions WebSocket par réunion et par utilisateur.
+ * Les diffusions ne parcourent ainsi que les membres de la réunion concernée,
+ * et la recherche des sessions d'un utilisateur se fait en temps constant.
+ *
+ * Les propriétés "reunionId" et "userId" de la session restent renseignées :
+ * le registre en est le seul écrivain, afin que les deux vues restent cohérentes.
+ */
+public final class SessionRegistry {
+
+    private static final String PROP_REUNION = "reunionId";
+    private static final String PROP_UTILISATEUR = "userId";
+    private static final String PROP_BINAIRE = "protocoleBinaire";
+
+    private static final ConcurrentHashMap<String, Set<Session>> parReunion = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Set<Session>> parUtilisateur = new ConcurrentHashMap<>();
+
+    private SessionRegistry() {
+    }
+
+    /**
+     * Retire une session fermée de tous les index.
+     */
+    public static void retirer(Session session) {
+        synchronized (session) {
+            Object reunionId = session.getUserProperties().get(PROP_REUNION);
+            Object userId = session.getUserProperties().get(PROP_UTILISATEUR);
+            if (reunionId != null) enlever(parReunion, reunionId.toString(), session);
+            if (userId != null) enlever(parUtilisateur, userId.toString(), session);
+        }
+    }
+
+    /**
+     * Place la session dans une réunion (en la retirant de la précédente le cas échéant).
+     */
+    public static void associerReunion(Session session, String reunionId) {
+        synchronized (session) {
+            Object precedente = session.getUserProperties().put(PROP_REUNION, reunionId);
+            if (precedente != null && !precedente.toString().equals(reunionId)) {
+                enlever(parReunion, precedente.toString(), session);
+            }
+            ajouter(parReunion, reunionId, session);
+        }
+    }
+
+    /**
+     * Retire la session de sa réunion courante.
+     */
+    public static void dissocierReunion(Session session) {
+        synchronized (session) {
+            Object precedente = session.getUserProperties().remove(PROP_REUNION);
+            if (precedente != null) {
+                enlever(parReunion, precedente.toString(), session);
+            }
+        }
+    }
+
+    /**
+     * Rattache la session à un utilisateur (connexion ou entrée en réunion).
+     */
+    public static void associerUtilisateur(Session session, String userId) {
+        synchronized (session) {
+            Object precedent = session.getUserProperties().put(PROP_UTILISATEUR, userId);
+            if (precedent != null && !precedent.toString().equals(userId)) {
+                enlever(parUtilisateur, precedent.toString(), session);
+            }
+            ajouter(parUtilisateur, userId, session);
+        }
+    }
+
+    /**
+     * Sessions actuellement présentes dans la réunion (vue concurrente, ne pas modifier).
+     */
+    public static Set<Session> sessionsReunion(String reunionId) {
+        Set<Session> sessions = parReunion.get(reunionId);
+        return sessions != null ? sessions : Collections.emptySet();
+    }
+
+    public static Set<Session> sessionsReunion(int reunionId) {
+        return sessionsReunion(String.valueOf(reunionId));
+    }
+
+    /**
+     * Nombre de sessions par réunion ayant au moins une session, pour la supervision.
+     */
+    public static Map<String, Integer> effectifsReunions() {
+        Map<String, Integer> effectifs = new TreeMap<>();
+        parReunion.forEach((reunionId, sessions) -> {
+            int n = sessions.size();
+            if (n > 0) {
+                effectifs.put(reunionId, n);
+            }
+        });
+        return effectifs;
+    }
+
+    /**
+     * Sessions ouvertes par l'utilisateur (vue concurrente, ne pas modifier).
+     */
+    public static Set<Session> sessionsUtilisateur(String userId) {
+        Set<Session> sessions = parUtilisateur.get(userId);
+        return sessions != null ? sessions : Collections.emptySet();
+    }
+
+    public static Set<Session> sessionsUtilisateur(int userId) {
+        return sessionsUtilisateur(String.valueOf(userId));
+    }
+
+    /**
+     * Sessions de ces utilisateurs ouvertes dans cette réunion, à l'exclusion de celles qu'ils ont dans d'autres réunions.
+     */
+    public static Set<Session> sessionsUtilisateursDansReunion(int reunionId, Collection<Integer> userIds) {
+        String reunion = String.valueOf(reunionId);
+        Set<Session> sessions = new HashSet<>();
+        for (int userId : userIds) {
+            for (Session session : sessionsUtilisateur(userId)) {
+                if (reunion.equals(session.getUserProperties().get(PROP_REUNION))) {
+                    sessions.add(session);
+                }
+            }
+        }
+        return sessions;
+    }
+
+    /**
+     * Marque la session comme ayant négocié le protocole binaire (à l'ouverture, avant tout envoi).
+     */
+    public static void activerBinaire(Session session) {
+        session.getUserProperties().put(PROP_BINAIRE, Boolean.TRUE);
+    }
+
+    public static boolean estBinaire(Session session) {
+        Map<String, Object> proprietes = session.getUserProperties();
+        return proprietes != null && Boolean.TRUE.equals(proprietes.get(PROP_BINAIRE));
+    }
+
+    private static void ajouter(ConcurrentHashMap<String, Set<Session>> index, String cle, Session session) {
+        index.compute(cle, (k, sessions) -> {
+            if (sessions == null) sessions = ConcurrentHashMap.newKeySet();
+            sessions.add(session);
+            return sessions;
+        });
+    }
+
+    private static void enlever(ConcurrentHashMap<String, Set<Session>> index, String cle, Session session) {
+        // compute/computeIfPresent sont atomiques pour la clé : un ajout concurrent ne peut pas perdre son ensemble
+        index.computeIfPresent(cle, (k, sessions) -> {
+            sessions.remove(session);
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+}
@@ -0,0 +1,51 @@
+package serveur;
+
+import org.json.JSONObject;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Charge utile sortante encodée une seule fois, puis partagée par tous les destinataires d'une diffusion.
+ * Une trame peut aussi porter une forme binaire (ProtocoleBinaire), envoyée aux sessions qui l'ont négociée.
+ */
+public final class Trame {
+
+    private final String texte;
+    private final ByteBuffer binaire;
+
+    private Trame(String texte, ByteBuffer binaire) {
+        this.texte = texte;
+        this.binaire = binaire;
+    }
+
+    public static Trame de(String texte) {
+        return new Trame(texte, null);
+    }
+
+    public static Trame de(JSONObject json) {
+        return new Trame(json.toString(), null);
+    }
+
+    /**
+     * Trame disponible dans les deux protocoles ; binaire peut être null (texte pour tous).
+     */
+    public static Trame de(String texte, ByteBuffer binaire) {
+        return new Trame(texte, binaire != null ? binaire.asReadOnlyBuffer() : null);
+    }
+
+    public String texte() {
+        return texte;
+    }
+
+    /**
+     * Forme binaire (vue propre à l'appelant), ou null si la trame n'existe qu'en texte.
+     */
+    public ByteBuffer binaire() {
+        return binaire != null ? binaire.duplicate() : null;
+    }
+
+    @Override
+    public String toString() {
+        return texte;
+    }
+}
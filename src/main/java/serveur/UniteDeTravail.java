@@ -0,0 +1,116 @@
+package serveur;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exécute les instructions d'une action sur une seule connexion, en une seule transaction.
+ *
+ * Pendant {@link #executer(Travail)}, la connexion est attachée au thread : {@link Database#getConnection()}
+ * la rend aux managers appelés depuis le travail, sous une vue dont close(), commit(), rollback() et
+ * setAutoCommit() sont sans effet. Les managers n'ont donc rien à savoir de l'unité : leurs instructions
+ * rejoignent la transaction, qui est validée une fois à la fin du travail ou annulée s'il lève une exception.
+ * Une unité ouverte dans une autre la rejoint.
+ *
+ * Tout ce qui ne doit arriver qu'une fois la transaction validée (réponses, diffusions, caches mémoire
+ * partagés) se fait après executer().
+ */
+public final class UniteDeTravail {
+
+    /**
+     * Instructions d'une action ; la connexion reçue est celle de l'unité.
+     */
+    @FunctionalInterface
+    public interface Travail<T> {
+        T executer(Connection connexion) throws SQLException;
+    }
+
+    private static final ThreadLocal<Connection> COURANTE = new ThreadLocal<>();
+    private static final LongAdder validees = new LongAdder();
+    private static final LongAdder annulees = new LongAdder();
+
+    private UniteDeTravail() {
+    }
+
+    public static <T> T executer(Travail<T> travail) throws SQLException {
+        Connection englobante = COURANTE.get();
+        if (englobante != null) {
+            return travail.executer(englobante);
+        }
+        try (Connection connexion = Database.emprunterConnexion()) {
+            connexion.setAutoCommit(false);
+            COURANTE.set(partagee(connexion));
+            T resultat;
+            try {
+                resultat = travail.executer(COURANTE.get());
+                connexion.commit();
+            } catch (SQLException | RuntimeException | Error e) {
+                annuler(connexion, e);
+                throw e;
+            } finally {
+                COURANTE.remove();
+            }
+            validees.increment();
+            // Rétabli ici : sinon le pool ferait un rollback de plus avant de reprendre la connexion
+            connexion.setAutoCommit(true);
+            return resultat;
+        }
+    }
+
+    /**
+     * Connexion de l'unité en cours sur ce thread, ou null hors de toute unité.
+     */
+    static Connection courante() {
+        return COURANTE.get();
+    }
+
+    public static long getValidees() {
+        return validees.sum();
+    }
+
+    public static long getAnnulees() {
+        return annulees.sum();
+    }
+
+    private static void annuler(Connection connexion, Throwable cause) {
+        annulees.increment();
+        try {
+            connexion.rollback();
+            connexion.setAutoCommit(true);
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private static Connection partagee(Connection connexion) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                        case "commit":
+                        case "setAutoCommit":
+                            return null;
+                        case "rollback":
+                            if (args == null) {
+                                // L'exception qui a motivé l'annulation remonte jusqu'à l'unité, qui annule tout
+                                return null;
+                            }
+                            break;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(connexion, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
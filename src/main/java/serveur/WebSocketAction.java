@@ -1,9 +1,13 @@
 package serveur;
 
-import org.json.JSONObject;
-import javax.websocket.Session;
-import java.io.IOException;
-
 public interface WebSocketAction {
-    void execute(JSONObject data, Session session) throws IOException;
+    /**
+     * Valeur du champ "modele" des messages traités par ce service.
+     */
+    String modele();
+
+    /**
+     * Déclare, au démarrage, le traitement de chacune des actions du service.
+     */
+    void enregistrer(ActionRouter.Routes routes);
 }
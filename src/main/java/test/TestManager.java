@@ -22,12 +22,12 @@ public class TestManager {
     public TestManager() {
         try {
             connection = Database.getConnection();
-            personneManager = new PersonneManager();
-            reunionManager = new ReunionManager();
-            participationManager = new ParticipationManager();
-            autorisationManager = new AutorisationReunionPriveeManager();
-            demandeParoleManager = new DemandeParoleManager();
-            messageManager = new MessageManager();
+            personneManager = PersonneManager.getInstance();
+            reunionManager = ReunionManager.getInstance();
+            participationManager = ParticipationManager.getInstance();
+            autorisationManager = AutorisationReunionPriveeManager.getInstance();
+            demandeParoleManager = DemandeParoleManager.getInstance();
+            messageManager = MessageManager.getInstance();
         } catch (SQLException e) {
             e.printStackTrace();
             System.err.println("Erreur lors de l'initialisation des Managers ou de la connexion à la base de données.");
@@ -0,0 +1,97 @@
+package protocole;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Coût CPU de permessage-deflate sur les messages réels : diffusion de chat (sous le seuil par défaut),
+ * page d'historique de 50 messages et liste de 30 réunions. Le taux de compression est affiché
+ * une fois par message au démarrage (il ne dépend pas de la mesure).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+    private static final String CONTENU = "Bonjour à tous, on commence par le point 2 de l'agenda ?";
+
+    @Param({"diffusion", "historique", "reunions"})
+    public String message;
+
+    @Param({"1", "6"})
+    public int niveau;
+
+    private byte[] donnees;
+    private byte[] compresse;
+    private Deflater deflater;
+    private Inflater inflater;
+
+    @Setup
+    public void preparer() {
+        donnees = switch (message) {
+            case "diffusion" -> diffusion().getBytes(StandardCharsets.UTF_8);
+            case "historique" -> historique().getBytes(StandardCharsets.UTF_8);
+            default -> reunions().getBytes(StandardCharsets.UTF_8);
+        };
+        deflater = new Deflater(niveau, true);
+        inflater = new Inflater(true);
+        compresse = CompressionDeflate.compresser(deflater, donnees);
+        System.out.printf("%n%s (niveau %d) : %d -> %d octets (%.1f %%)%n", message, niveau, donnees.length,
+                compresse.length, 100.0 * compresse.length / donnees.length);
+    }
+
+    @TearDown
+    public void liberer() {
+        deflater.end();
+        inflater.end();
+    }
+
+    @Benchmark
+    public byte[] compresser() {
+        return CompressionDeflate.compresser(deflater, donnees);
+    }
+
+    @Benchmark
+    public byte[] decompresser() {
+        byte[] resultat = CompressionDeflate.decompresser(inflater, compresse, true, Integer.MAX_VALUE);
+        inflater.reset();
+        return resultat;
+    }
+
+    private static String diffusion() {
+        return new JSONObject().put("type", "newMessage").put("id", 1234).put("reunionId", "42")
+                .put("sender", "Eliel Onésime Assy").put("content", CONTENU).put("userId", "7")
+                .put("timestamp", 1_760_000_000_000L).toString();
+    }
+
+    private static String historique() {
+        JSONArray messages = new JSONArray();
+        for (int i = 0; i < 50; i++) {
+            messages.put(new JSONObject().put("id", 1000 + i).put("userId", 7 + i % 5).put("content", CONTENU + " (" + i + ")")
+                    .put("sender", "Participant " + (i % 5)).put("timestamp", 1_760_000_000_000L + 37_000L * i));
+        }
+        return new JSONObject().put("type", "historiqueMessages").put("reunionId", "42")
+                .put("messages", messages).put("hasMore", true).toString();
+    }
+
+    private static String reunions() {
+        JSONArray reunions = new JSONArray();
+        for (int i = 0; i < 30; i++) {
+            reunions.put(new JSONObject().put("id", 100 + i).put("nom", "Réunion d'équipe " + i)
+                    .put("sujet", "Suivi du projet et points divers").put("debut", "2025-06-" + (10 + i % 18) + "T09:30")
+                    .put("duree", 60).put("type", i % 3 == 0 ? "PRIVEE" : "STANDARD").put("idOrganisateur", 7)
+                    .put("idAnimateur", JSONObject.NULL).put("statut", "PLANIFIEE"));
+        }
+        return new JSONObject().put("modele", "reunion").put("action", "reponseGetReunionsUtilisateur")
+                .put("statut", "succes").put("reunions", reunions).toString();
+    }
+}
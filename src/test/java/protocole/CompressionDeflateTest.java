@@ -0,0 +1,144 @@
+package protocole;
+
+import org.glassfish.tyrus.core.extension.ExtendedExtension;
+import org.glassfish.tyrus.core.frame.Frame;
+import org.junit.jupiter.api.Test;
+
+import javax.websocket.Extension;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressionDeflateTest {
+
+    private static final byte TEXTE = 0x01;
+    private static final byte CONTINUATION = 0x00;
+
+    private final CompressionDeflate extension = new CompressionDeflate(256);
+    private final Contexte emetteur = new Contexte();
+    private final Contexte recepteur = new Contexte();
+
+    private static String historique(int messages) {
+        StringBuilder sb = new StringBuilder("{\"type\":\"historiqueMessages\",\"messages\":[");
+        for (int i = 0; i < messages; i++) {
+            sb.append("{\"id\":").append(1000 + i).append(",\"sender\":\"Eliel Onésime Assy\",")
+                    .append("\"content\":\"Point ").append(i).append(" de l'agenda ✓\"},");
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static Frame trame(byte opcode, boolean fin, byte[] donnees) {
+        return Frame.builder().fin(fin).opcode(opcode).payloadData(donnees).payloadLength(donnees.length).build();
+    }
+
+    @Test
+    void testGrosMessageCompresseEtRestitue() {
+        byte[] original = historique(50).getBytes(StandardCharsets.UTF_8);
+
+        Frame envoyee = extension.processOutgoing(emetteur, trame(TEXTE, true, original));
+        assertTrue(envoyee.isRsv1());
+        assertTrue(envoyee.getPayloadLength() < original.length / 3, "Un historique répétitif doit bien se compresser");
+
+        Frame recue = extension.processIncoming(recepteur, envoyee);
+        assertFalse(recue.isRsv1());
+        assertArrayEquals(original, recue.getPayloadData());
+    }
+
+    @Test
+    void testPetitMessageNonCompresse() {
+        byte[] original = "{\"type\":\"userJoined\",\"userId\":7}".getBytes(StandardCharsets.UTF_8);
+        Frame entree = trame(TEXTE, true, original);
+
+        Frame envoyee = extension.processOutgoing(emetteur, entree);
+        assertSame(entree, envoyee);
+        assertSame(envoyee, extension.processIncoming(recepteur, envoyee));
+    }
+
+    @Test
+    void testMessagesSuccessifsIndependants() {
+        // Sans reprise de contexte, chaque message se décompresse seul, y compris par un autre récepteur
+        for (int i = 0; i < 3; i++) {
+            byte[] original = historique(20 + i).getBytes(StandardCharsets.UTF_8);
+            Frame envoyee = extension.processOutgoing(emetteur, trame(TEXTE, true, original));
+            assertArrayEquals(original, extension.processIncoming(new Contexte(), envoyee).getPayloadData());
+        }
+    }
+
+    @Test
+    void testMessageCompresseFragmente() {
+        byte[] original = historique(40).getBytes(StandardCharsets.UTF_8);
+        byte[] compresse = extension.processOutgoing(emetteur, trame(TEXTE, true, original)).getPayloadData();
+        int milieu = compresse.length / 2;
+        byte[] debut = Arrays.copyOfRange(compresse, 0, milieu);
+        byte[] fin = Arrays.copyOfRange(compresse, milieu, compresse.length);
+
+        Frame premier = Frame.builder(trame(TEXTE, false, debut)).rsv1(true).build();
+        byte[] partie1 = extension.processIncoming(recepteur, premier).getPayloadData();
+        byte[] partie2 = extension.processIncoming(recepteur, trame(CONTINUATION, true, fin)).getPayloadData();
+
+        byte[] relu = new byte[partie1.length + partie2.length];
+        System.arraycopy(partie1, 0, relu, 0, partie1.length);
+        System.arraycopy(partie2, 0, relu, partie1.length, partie2.length);
+        assertArrayEquals(original, relu);
+    }
+
+    @Test
+    void testNegociation() {
+        Extension offre = new CompressionDeflate();
+        assertEquals(1, CompressionDeflate.negocier(List.of(offre)).size());
+
+        Extension fenetreReduite = new Extension() {
+            @Override
+            public String getName() {
+                return CompressionDeflate.NOM;
+            }
+
+            @Override
+            public List<Parameter> getParameters() {
+                return List.of(new Parameter() {
+                    @Override
+                    public String getName() {
+                        return CompressionDeflate.FENETRE_SERVEUR;
+                    }
+
+                    @Override
+                    public String getValue() {
+                        return "10";
+                    }
+                });
+            }
+        };
+        assertTrue(CompressionDeflate.negocier(List.of(fenetreReduite)).isEmpty());
+    }
+
+    @Test
+    void testDiffusionCompresseeUneSeuleFois() {
+        byte[] original = historique(30).getBytes(StandardCharsets.UTF_8);
+        byte[] envoi = original.clone();
+        long partagees = CompressionDeflate.getCompressionsPartagees();
+
+        Frame premiere = extension.processOutgoing(emetteur, trame(TEXTE, true, envoi));
+        Arrays.fill(envoi, (byte) ' '); // tableau de trame réutilisé : la mémoire n'en dépend pas
+        byte[] premiereCompressee = premiere.getPayloadData().clone();
+        Frame seconde = extension.processOutgoing(new Contexte(), trame(TEXTE, true, original.clone()));
+
+        assertEquals(partagees + 1, CompressionDeflate.getCompressionsPartagees());
+        assertTrue(seconde.isRsv1());
+        assertArrayEquals(premiereCompressee, seconde.getPayloadData());
+        assertNotSame(premiere.getPayloadData(), seconde.getPayloadData(), "Chaque connexion a sa copie");
+        assertArrayEquals(original, extension.processIncoming(recepteur, seconde).getPayloadData());
+    }
+
+    private static final class Contexte implements ExtendedExtension.ExtensionContext {
+        private final Map<String, Object> proprietes = new HashMap<>();
+
+        @Override
+        public Map<String, Object> getProperties() {
+            return proprietes;
+        }
+    }
+}
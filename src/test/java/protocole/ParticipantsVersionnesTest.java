@@ -0,0 +1,58 @@
+package protocole;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParticipantsVersionnesTest {
+
+    private static Map<Integer, String> liste(Object... idsEtNoms) {
+        Map<Integer, String> noms = new LinkedHashMap<>();
+        for (int i = 0; i < idsEtNoms.length; i += 2) {
+            noms.put((Integer) idsEtNoms[i], (String) idsEtNoms[i + 1]);
+        }
+        return noms;
+    }
+
+    @Test
+    void testChangementsConsecutifsAppliques() {
+        ParticipantsVersionnes participants = new ParticipantsVersionnes();
+        participants.remplacer(10, liste(1, "Ama", 2, "Kofi"));
+
+        assertEquals(ParticipantsVersionnes.Resultat.APPLIQUE, participants.entrer(11, 3, "Yao"));
+        assertEquals(ParticipantsVersionnes.Resultat.APPLIQUE, participants.sortir(12, 1));
+
+        assertEquals(liste(2, "Kofi", 3, "Yao"), participants.getNoms());
+        assertEquals(12, participants.getVersion());
+    }
+
+    @Test
+    void testChangementDejaComprisIgnore() {
+        ParticipantsVersionnes participants = new ParticipantsVersionnes();
+        participants.remplacer(10, liste(1, "Ama"));
+
+        assertEquals(ParticipantsVersionnes.Resultat.IGNORE, participants.sortir(10, 1));
+        assertTrue(participants.contient(1));
+    }
+
+    @Test
+    void testTrouSignale() {
+        ParticipantsVersionnes participants = new ParticipantsVersionnes();
+        participants.remplacer(10, liste(1, "Ama"));
+
+        assertEquals(ParticipantsVersionnes.Resultat.TROU, participants.entrer(12, 3, "Yao"));
+        assertFalse(participants.contient(3));
+        assertEquals(10, participants.getVersion(), "La liste reste à sa version jusqu'à la prochaine liste complète");
+    }
+
+    @Test
+    void testChangementsAvantLaListeCompleteIgnores() {
+        ParticipantsVersionnes participants = new ParticipantsVersionnes();
+
+        assertEquals(ParticipantsVersionnes.Resultat.IGNORE, participants.entrer(1, 3, "Yao"));
+        assertEquals(0, participants.taille());
+    }
+}
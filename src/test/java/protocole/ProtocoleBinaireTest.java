@@ -0,0 +1,108 @@
+package protocole;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProtocoleBinaireTest {
+
+    @Test
+    void testRequeteAllerRetour() {
+        ByteBuffer trame = ProtocoleBinaire.requete(ProtocoleBinaire.ENVOYER_MESSAGE, 42, 7, "Bonjour à tous ✓");
+        ProtocoleBinaire.RequeteBinaire requete = ProtocoleBinaire.lireRequete(trame);
+
+        assertEquals(ProtocoleBinaire.ENVOYER_MESSAGE, requete.getCode());
+        assertEquals("reunion", requete.getModele());
+        assertEquals("envoyerMessage", requete.getAction());
+        assertEquals(42, requete.getReunionId());
+        assertEquals(7, requete.getUserId());
+        assertEquals("Bonjour à tous ✓", requete.getContenu());
+    }
+
+    @Test
+    void testRequeteSansContenu() {
+        ProtocoleBinaire.RequeteBinaire requete = ProtocoleBinaire.lireRequete(
+                ProtocoleBinaire.requete(ProtocoleBinaire.DEMANDER_PAROLE, 3, 9, "ignoré"));
+
+        assertEquals("demanderParole", requete.getAction());
+        assertNull(requete.getContenu());
+        assertEquals("3", requete.versJson().getString("reunionId"));
+    }
+
+    @Test
+    void testDepuisJsonRejoindreParCode() {
+        JSONObject json = new JSONObject().put("modele", "reunion").put("action", "rejoindre").put("code", "12").put("userId", 5);
+        JSONObject relu = ProtocoleBinaire.versJson(ProtocoleBinaire.depuisJson(json));
+
+        assertEquals("rejoindre", relu.getString("action"));
+        assertEquals("12", relu.getString("code"));
+        assertEquals(5, relu.getInt("userId"));
+    }
+
+    @Test
+    void testDepuisJsonSansFormeBinaire() {
+        // Nom de réunion au lieu d'un identifiant, action hors du sous-ensemble, autre modèle
+        assertNull(ProtocoleBinaire.depuisJson(new JSONObject()
+                .put("modele", "reunion").put("action", "rejoindre").put("code", "Point hebdo").put("userId", 5)));
+        assertNull(ProtocoleBinaire.depuisJson(new JSONObject()
+                .put("modele", "reunion").put("action", "creerReunion").put("userId", 5)));
+        assertNull(ProtocoleBinaire.depuisJson(new JSONObject()
+                .put("modele", "authentification").put("action", "connexion")));
+    }
+
+    @Test
+    void testNouveauMessageIdentiqueAuJson() {
+        long timestamp = 1_735_000_000_123L;
+        ByteBuffer trame = ProtocoleBinaire.nouveauMessage(1001, 42, 7, timestamp, "Eliel", "Salut \"tout le monde\"");
+        int position = trame.position();
+        JSONObject json = ProtocoleBinaire.versJson(trame);
+
+        assertEquals("newMessage", json.getString("type"));
+        assertEquals(1001, json.getInt("id"));
+        assertEquals("42", json.getString("reunionId"));
+        assertEquals("7", json.getString("userId"));
+        assertEquals(timestamp, json.getLong("timestamp"));
+        assertEquals("Eliel", json.getString("sender"));
+        assertEquals("Salut \"tout le monde\"", json.getString("content"));
+        assertEquals(position, trame.position(), "versJson ne doit pas consommer la trame");
+    }
+
+    @Test
+    void testEvenementsParticipant() {
+        JSONObject parti = ProtocoleBinaire.versJson(ProtocoleBinaire.evenementParticipant("userLeft", 42, 7, "eliel"));
+        assertEquals("userLeft", parti.getString("type"));
+        assertEquals(42, parti.getInt("reunionId"));
+        assertEquals("eliel", parti.getString("username"));
+        assertFalse(parti.has("version"));
+
+        JSONObject arrive = ProtocoleBinaire.versJson(ProtocoleBinaire.evenementParticipant("userJoined", 42, 7, "eliel", (3L << 32) + 5));
+        assertEquals((3L << 32) + 5, arrive.getLong("version"));
+
+        assertNull(ProtocoleBinaire.evenementParticipant("reunionOuverte", 42, 7, "eliel"));
+    }
+
+    @Test
+    void testResultatDemandeParole() {
+        JSONObject json = ProtocoleBinaire.versJson(ProtocoleBinaire.resultatDemandeParole(false, "Déjà dans la file"));
+
+        assertEquals("demandeParoleResult", json.getString("type"));
+        assertFalse(json.getBoolean("success"));
+        assertEquals("Déjà dans la file", json.getString("message"));
+    }
+
+    @Test
+    void testTramesInvalides() {
+        ByteBuffer complete = ProtocoleBinaire.requete(ProtocoleBinaire.ENVOYER_MESSAGE, 42, 7, "message tronqué");
+        ByteBuffer tronquee = complete.duplicate();
+        tronquee.limit(complete.limit() - 3);
+
+        assertThrows(IllegalArgumentException.class, () -> ProtocoleBinaire.lireRequete(tronquee));
+        assertThrows(IllegalArgumentException.class, () -> ProtocoleBinaire.lireRequete(ByteBuffer.wrap(new byte[]{0x7f, 1, 1})));
+        assertThrows(IllegalArgumentException.class, () -> ProtocoleBinaire.versJson(ByteBuffer.allocate(0)));
+        assertThrows(IllegalArgumentException.class,
+                () -> ProtocoleBinaire.lireRequete(ProtocoleBinaire.nouveauMessage(1, 2, 3, 4L, "a", "b")));
+    }
+}
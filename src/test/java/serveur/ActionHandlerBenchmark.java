@@ -0,0 +1,108 @@
+package serveur;
+
+import model.Message;
+import model.MessageManager;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import javax.websocket.Session;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ActionHandler.handleAction de bout en bout sur une route enregistrée : reunion/getHistoriqueMessages
+ * (analyse JSON, aiguillage, page de messages lue dans une base H2 embarquée en mode MySQL, sérialisation
+ * de la réponse et mise en file d'envoi). L'action inconnue donne le coût fixe de l'aiguillage seul.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ActionHandlerBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:bench-actions;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final int PERSONNES = 20;
+    private static final int MESSAGES = 2_000;
+    private static final int REUNION = 1;
+
+    @Param({"50"})
+    public int limite;
+
+    private Session session;
+    private String historiqueRecent;
+    private String historiqueAncien;
+    private String actionInconnue;
+
+    @Setup
+    public void preparer() throws SQLException {
+        Database.configurerPool(ConnectionPool.creer(() -> DriverManager.getConnection(URL),
+                new ConnectionPool.Configuration().tailleMin(1).tailleMax(4)));
+        try (Connection c = Database.getConnection(); Statement st = c.createStatement()) {
+            st.execute("CREATE TABLE personne (id INT AUTO_INCREMENT PRIMARY KEY, nom VARCHAR(100), prenom VARCHAR(100), "
+                    + "login VARCHAR(100) UNIQUE, password VARCHAR(255), connecte BOOLEAN DEFAULT FALSE)");
+            st.execute("CREATE TABLE message (id INT AUTO_INCREMENT PRIMARY KEY, personne_id INT NOT NULL, "
+                    + "reunion_id INT NOT NULL, contenu TEXT NOT NULL, heure_envoi TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            st.execute("CREATE INDEX idx_message_reunion_id ON message (reunion_id, id)");
+            try (PreparedStatement ps = c.prepareStatement("INSERT INTO personne (nom, prenom, login, password) VALUES (?, ?, ?, ?)")) {
+                for (int i = 1; i <= PERSONNES; i++) {
+                    ps.setString(1, "Nom" + i);
+                    ps.setString(2, "Prenom" + i);
+                    ps.setString(3, "login" + i);
+                    ps.setString(4, "secret");
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+        List<Message> messages = new ArrayList<>(MESSAGES);
+        for (int id = 1; id <= MESSAGES; id++) {
+            Message message = new Message(id, id % PERSONNES + 1, REUNION, "Message d'historique numéro " + id);
+            message.setHeureEnvoi(LocalDateTime.now());
+            messages.add(message);
+        }
+        MessageManager.getInstance().enregistrerLot(messages);
+
+        session = SessionsDeBenchmark.creer("bench-action");
+        historiqueRecent = requete("getHistoriqueMessages").put("limit", limite).toString();
+        historiqueAncien = requete("getHistoriqueMessages").put("limit", limite).put("beforeId", MESSAGES / 2).toString();
+        actionInconnue = requete("actionInexistante").toString();
+    }
+
+    @TearDown
+    public void nettoyer() throws SQLException {
+        try (Connection c = Database.getConnection(); Statement st = c.createStatement()) {
+            st.execute("DROP ALL OBJECTS");
+        }
+        Database.fermerPool();
+    }
+
+    @Benchmark
+    public void historiqueRecent() throws IOException {
+        ActionHandler.handleAction(historiqueRecent, session);
+    }
+
+    @Benchmark
+    public void historiqueAncien() throws IOException {
+        ActionHandler.handleAction(historiqueAncien, session);
+    }
+
+    @Benchmark
+    public void actionInconnue() throws IOException {
+        ActionHandler.handleAction(actionInconnue, session);
+    }
+
+    private static JSONObject requete(String action) {
+        return new JSONObject().put("modele", "reunion").put("action", action)
+                .put("reunionId", String.valueOf(REUNION)).put("userId", "1");
+    }
+}
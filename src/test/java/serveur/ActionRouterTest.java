@@ -0,0 +1,98 @@
+package serveur;
+
+import org.junit.jupiter.api.Test;
+
+import javax.websocket.Session;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ActionRouterTest {
+
+    private final List<String> appels = new ArrayList<>();
+
+    private Session session() {
+        Session session = mock(Session.class);
+        // Session fermée : les réponses d'erreur ne sont pas envoyées
+        when(session.isOpen()).thenReturn(false);
+        return session;
+    }
+
+    private WebSocketAction service(String modele, String... actions) {
+        return new WebSocketAction() {
+            @Override
+            public String modele() {
+                return modele;
+            }
+
+            @Override
+            public void enregistrer(ActionRouter.Routes routes) {
+                for (String action : actions) {
+                    routes.traiter(action, requete -> appels.add(requete + ":" + requete.entier("reunionId")));
+                }
+            }
+        };
+    }
+
+    @Test
+    void testRouteParModeleEtAction() throws Exception {
+        ActionRouter routeur = ActionRouter.construire(service("reunion", "creation", "rejoindre"), service("authentification", "connexion"));
+
+        routeur.router("{\"modele\":\"reunion\",\"action\":\"rejoindre\",\"reunionId\":\"12\"}", session());
+        routeur.router("{\"modele\":\"authentification\",\"action\":\"connexion\"}", session());
+
+        assertEquals(List.of("reunion/rejoindre:12", "authentification/connexion:-1"), appels);
+        assertEquals(1, routeur.getInvocations().get("reunion/rejoindre").longValue());
+        assertEquals(0, routeur.getInvocations().get("reunion/creation").longValue());
+    }
+
+    @Test
+    void testActionOuModeleInconnuNExecuteRien() throws Exception {
+        ActionRouter routeur = ActionRouter.construire(service("reunion", "creation"));
+
+        routeur.router("{\"modele\":\"reunion\",\"action\":\"inconnue\"}", session());
+        routeur.router("{\"modele\":\"inconnu\",\"action\":\"creation\"}", session());
+
+        assertTrue(appels.isEmpty());
+        assertEquals(0, routeur.getInvocations().get("reunion/creation").longValue());
+    }
+
+    @Test
+    void testDoubleDeclarationRefusee() {
+        assertThrows(IllegalStateException.class,
+                () -> ActionRouter.construire(service("reunion", "creation"), service("reunion", "creation")));
+    }
+
+    @Test
+    void testErreurDuTraitementCompteeEtNonPropagee() throws Exception {
+        ActionRouter routeur = ActionRouter.construire(new WebSocketAction() {
+            @Override
+            public String modele() {
+                return "reunion";
+            }
+
+            @Override
+            public void enregistrer(ActionRouter.Routes routes) {
+                routes.traiter("creation", requete -> {
+                    throw new SQLException("base indisponible");
+                });
+            }
+        });
+
+        routeur.router("{\"modele\":\"reunion\",\"action\":\"creation\"}", session());
+
+        assertEquals(1, routeur.getInvocations().get("reunion/creation").longValue());
+        assertEquals(1, routeur.getErreurs().get("reunion/creation").longValue());
+    }
+
+    @Test
+    void testToutesLesActionsDuServeurSontDeclarees() {
+        assertTrue(ActionHandler.getRouteur().getActions().containsAll(List.of(
+                "authentification/connexion", "reunion/creation", "reunion/envoyerMessage",
+                "reunion/demanderParole", "reunion/annulerDemandeParole", "reunion/supprimerReunion")));
+        assertEquals(21, ActionHandler.getRouteur().getActions().size());
+    }
+}
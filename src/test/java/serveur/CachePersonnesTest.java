@@ -0,0 +1,81 @@
+package serveur;
+
+import model.PersonneManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachePersonnesTest {
+
+    // Le cache des personnes est statique : des ids et logins propres à ce test
+    private static final int ID = 990_001;
+    private static final String LOGIN = "cache-personnes";
+
+    private final PersonneManager personnes = PersonneManager.getInstance();
+    private final long dureeInitiale = PersonneManager.getDureeCacheMs();
+    private JdbcSimule base;
+    private volatile String nomEnBase = "Mensah";
+
+    @BeforeEach
+    void setUp() {
+        PersonneManager.invaliderCache(LOGIN);
+        base = new JdbcSimule()
+                .quand("FROM personne WHERE", (sql, parametres) -> List.of(JdbcSimule.ligne("id", ID,
+                        "nom", nomEnBase, "prenom", "Ama", "login", LOGIN, "password", "x", "connecte", false)))
+                .installer(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        PersonneManager.definirDureeCache(dureeInitiale);
+        PersonneManager.invaliderCache(LOGIN);
+        Database.fermerPool();
+    }
+
+    @Test
+    void testAffichageServiDepuisLeCacheParIdEtParLogin() throws Exception {
+        assertEquals("Mensah", personnes.obtenirAffichageParId(ID).getNom());
+        nomEnBase = "Autre";
+
+        assertEquals("Mensah", personnes.obtenirAffichageParId(ID).getNom());
+        assertEquals("Mensah", personnes.obtenirAffichageParLogin(LOGIN).getNom(), "Une lecture remplit les deux index");
+        assertEquals(1, requetesAffichage());
+    }
+
+    @Test
+    void testEntreeExpireeRelueEnBase() throws Exception {
+        PersonneManager.definirDureeCache(50);
+        assertEquals("Mensah", personnes.obtenirAffichageParLogin(LOGIN).getNom());
+        nomEnBase = "Autre";
+        assertEquals("Mensah", personnes.obtenirAffichageParLogin(LOGIN).getNom(), "Encore valide");
+
+        Thread.sleep(120);
+
+        assertEquals("Autre", personnes.obtenirAffichageParLogin(LOGIN).getNom());
+        assertEquals("Autre", personnes.obtenirAffichageParId(ID).getNom(), "L'id est rafraîchi avec le login");
+        assertEquals(2, requetesAffichage());
+    }
+
+    @Test
+    void testEnregistrementInvalideLeLogin() throws Exception {
+        assertEquals("Mensah", personnes.obtenirAffichageParLogin(LOGIN).getNom());
+        assertEquals("Mensah", personnes.obtenirAffichageParId(ID).getNom());
+        nomEnBase = "Nouveau";
+
+        assertNotNull(personnes.enregistrerPersonne("Nouveau", "Ama", LOGIN, "x"));
+
+        assertEquals("Nouveau", personnes.obtenirAffichageParLogin(LOGIN).getNom());
+        assertEquals("Nouveau", personnes.obtenirAffichageParId(ID).getNom());
+        assertEquals(2, requetesAffichage());
+    }
+
+    private long requetesAffichage() {
+        synchronized (base.executees) {
+            return base.executees.stream().filter(sql -> sql.startsWith("SELECT id, nom, prenom, login FROM")).count();
+        }
+    }
+}
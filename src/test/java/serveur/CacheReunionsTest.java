@@ -0,0 +1,65 @@
+package serveur;
+
+import model.ReunionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheReunionsTest {
+
+    // Le cache des réunions est statique : un id propre à ce test
+    private static final int REUNION = 987_001;
+
+    private final CountDownLatch lue = new CountDownLatch(1);
+    private final CountDownLatch reprendre = new CountDownLatch(1);
+    private final AtomicBoolean premiereLecture = new AtomicBoolean(true);
+    private volatile String nomEnBase = "Avant";
+
+    @AfterEach
+    void tearDown() {
+        Database.fermerPool();
+    }
+
+    @Test
+    void testLecteurEnRetardNeRemetPasLAncienEtatEnCache() throws Exception {
+        new JdbcSimule()
+                .quand("FROM reunion WHERE id = ?", (sql, parametres) -> {
+                    String nom = nomEnBase;
+                    if (premiereLecture.getAndSet(false)) {
+                        // Ligne lue ; le lecteur est suspendu avant de la mettre en cache
+                        lue.countDown();
+                        assertTrue(reprendre.await(5, TimeUnit.SECONDS));
+                    }
+                    return List.of(JdbcSimule.ligne("id", REUNION, "nom", nom, "debut", LocalDateTime.now(),
+                            "type", "STANDARD", "statut", "PLANIFIEE", "organisateur_id", 1, "animateur_id", null));
+                })
+                .installer(4);
+        ReunionManager reunions = ReunionManager.getInstance();
+
+        ExecutorService lecteur = Executors.newSingleThreadExecutor();
+        try {
+            Future<ReunionManager.EtatReunion> enRetard = lecteur.submit(() -> reunions.obtenirEtatReunion(REUNION));
+            assertTrue(lue.await(5, TimeUnit.SECONDS));
+
+            nomEnBase = "Après";
+            reunions.modifierReunion(REUNION, "Après", "sujet", "agenda", LocalDateTime.now(), 30);
+            reprendre.countDown();
+
+            assertEquals("Avant", enRetard.get(5, TimeUnit.SECONDS).getNom(), "Le lecteur rend ce qu'il a lu");
+        } finally {
+            lecteur.shutdownNow();
+        }
+        assertEquals("Après", reunions.obtenirEtatReunion(REUNION).getNom(), "L'état périmé ne doit pas être en cache");
+        assertEquals("Après", reunions.obtenirEtatReunion(REUNION).getNom());
+    }
+}
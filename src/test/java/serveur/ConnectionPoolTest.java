@@ -0,0 +1,116 @@
+package serveur;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class ConnectionPoolTest {
+
+    private final List<Connection> physiques = new ArrayList<>();
+    private ConnectionPool pool;
+
+    private ConnectionPool creerPool(ConnectionPool.Configuration config) {
+        pool = ConnectionPool.creer(() -> {
+            Connection c = mock(Connection.class);
+            when(c.isValid(anyInt())).thenReturn(true);
+            when(c.getAutoCommit()).thenReturn(true);
+            physiques.add(c);
+            return c;
+        }, config.periodeMaintenanceMs(0));
+        return pool;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) pool.fermer();
+    }
+
+    @Test
+    void testCloseRendLaConnexionAuPool() throws SQLException {
+        creerPool(new ConnectionPool.Configuration().tailleMin(0).tailleMax(2));
+
+        Connection premiere = pool.emprunter();
+        premiere.close();
+        Connection seconde = pool.emprunter();
+
+        assertEquals(1, physiques.size(), "La connexion physique doit être réutilisée");
+        verify(physiques.get(0), never()).close();
+        assertTrue(premiere.isClosed());
+        assertThrows(SQLException.class, () -> premiere.createStatement());
+        seconde.close();
+
+        ConnectionPool.Statistiques stats = pool.getStatistiques();
+        assertEquals(1, stats.total);
+        assertEquals(0, stats.actives);
+        assertEquals(2, stats.emprunts);
+    }
+
+    @Test
+    void testPoolPleinExpireApresDelai() throws SQLException {
+        creerPool(new ConnectionPool.Configuration().tailleMin(0).tailleMax(1).delaiAcquisitionMs(50));
+
+        Connection occupee = pool.emprunter();
+        assertThrows(SQLException.class, () -> pool.emprunter());
+        assertEquals(1, pool.getStatistiques().expirations);
+
+        occupee.close();
+        assertDoesNotThrow(() -> pool.emprunter().close());
+    }
+
+    @Test
+    void testConnexionInvalideRemplaceeAEmprunt() throws Exception {
+        creerPool(new ConnectionPool.Configuration().tailleMin(0).tailleMax(1));
+
+        pool.emprunter().close();
+        Connection morte = physiques.get(0);
+        when(morte.isValid(anyInt())).thenReturn(false);
+        Thread.sleep(600); // au-delà de la fenêtre où la validation est ignorée
+
+        pool.emprunter().close();
+
+        assertEquals(2, physiques.size());
+        verify(morte).close();
+    }
+
+    @Test
+    void testMaintenanceEvinceInactivesEtDetecteFuites() throws Exception {
+        creerPool(new ConnectionPool.Configuration().tailleMin(1).tailleMax(3)
+                .delaiInactiviteMs(1).seuilFuiteMs(1));
+
+        Connection a = pool.emprunter();
+        Connection b = pool.emprunter();
+        Connection fuite = pool.emprunter();
+        a.close();
+        b.close();
+        Thread.sleep(10);
+
+        pool.maintenir();
+
+        ConnectionPool.Statistiques stats = pool.getStatistiques();
+        assertEquals(1, stats.total, "Les deux inactives sont évincées, l'empruntée suffit au minimum");
+        assertEquals(0, stats.inactives);
+        assertEquals(1, stats.fuitesDetectees);
+        fuite.close();
+    }
+
+    @Test
+    void testRetourEnAutoCommitApresTransactionNonTerminee() throws SQLException {
+        creerPool(new ConnectionPool.Configuration().tailleMin(0).tailleMax(1));
+
+        Connection c = pool.emprunter();
+        Connection physique = physiques.get(0);
+        when(physique.getAutoCommit()).thenReturn(false);
+        c.close();
+
+        verify(physique).rollback();
+        verify(physique).setAutoCommit(true);
+    }
+}
@@ -0,0 +1,53 @@
+package serveur;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import javax.websocket.Session;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation d'une diffusion de chat dans une réunion : sérialisation par destinataire (ancien chemin)
+ * contre trame encodée une seule fois. À lire dans gc.alloc.rate.norm (-prof gc, actif par défaut dans le profil bench).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiffusionAllocationBenchmark {
+
+    @Param({"500"})
+    public int participants;
+
+    private final List<Session> sessions = new ArrayList<>();
+    private OutboundDispatcher envoi;
+    private JSONObject evenement;
+
+    @Setup
+    public void preparer() {
+        envoi = new OutboundDispatcher(1024, OutboundDispatcher.PolitiqueDebordement.SUPPRIMER_PLUS_ANCIENNE, Runnable::run);
+        for (int i = 0; i < participants; i++) {
+            sessions.add(SessionsDeBenchmark.creer("allocation-s" + i));
+        }
+        evenement = new JSONObject()
+                .put("type", "newMessage").put("reunionId", "42").put("sender", "Eliel Onésime Assy")
+                .put("content", "Bonjour à tous, on commence par le point 2 de l'agenda ?")
+                .put("userId", "1").put("timestamp", System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public void serialisationParDestinataire() {
+        for (Session s : sessions) {
+            envoi.envoyer(s, evenement.toString());
+        }
+    }
+
+    @Benchmark
+    public void trameEncodeeUneFois() {
+        envoi.diffuser(sessions, Trame.de(evenement));
+    }
+}
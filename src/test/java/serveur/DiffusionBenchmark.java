@@ -0,0 +1,57 @@
+package serveur;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import javax.websocket.Session;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Diffusion d'un message de chat à toute une réunion, comme ReunionService.envoyerMessage :
+ * construction de l'événement, encodage unique, puis mise en file pour chaque session de la réunion.
+ * L'envoi est exécuté sur le thread appelant et acquitté aussitôt par les sessions factices.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiffusionBenchmark {
+
+    @Param({"10", "100", "500"})
+    public int participants;
+
+    private final List<Session> sessions = new ArrayList<>();
+    private OutboundDispatcher envoi;
+    private String reunionId;
+    private int compteur;
+
+    @Setup
+    public void preparer() {
+        envoi = new OutboundDispatcher(1024, OutboundDispatcher.PolitiqueDebordement.SUPPRIMER_PLUS_ANCIENNE, Runnable::run);
+        reunionId = "bench-" + participants;
+        for (int i = 0; i < participants; i++) {
+            Session session = SessionsDeBenchmark.creer(reunionId + "-s" + i);
+            SessionRegistry.associerReunion(session, reunionId);
+            sessions.add(session);
+        }
+    }
+
+    @TearDown
+    public void nettoyer() {
+        sessions.forEach(SessionRegistry::retirer);
+        sessions.clear();
+    }
+
+    @Benchmark
+    public void diffuserChat() {
+        JSONObject evenement = new JSONObject().put("type", "newMessage").put("id", ++compteur)
+                .put("reunionId", reunionId).put("sender", "Eliel Onésime Assy")
+                .put("content", "Bonjour à tous, on commence par le point 2 de l'agenda ?")
+                .put("userId", "7").put("timestamp", System.currentTimeMillis());
+        envoi.diffuser(SessionRegistry.sessionsReunion(reunionId), Trame.de(evenement));
+    }
+}
@@ -0,0 +1,34 @@
+package serveur;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EcrivainJsonTest {
+
+    @Test
+    void testObjetRelitParOrgJson() {
+        String contenu = "guillemets \" barre \\ ligne\n tab\t contrôle \u0001 unicode é  ";
+        String texte = EcrivainJson.objet().champ("type", "newMessage").champ("id", 42L).champ("content", contenu)
+                .champ("ok", true).champ("absent", (String) null).champBrut("reunion", "{\"id\":3}").fin();
+
+        JSONObject json = new JSONObject(texte);
+        assertEquals("newMessage", json.getString("type"));
+        assertEquals(42, json.getInt("id"));
+        assertEquals(contenu, json.getString("content"));
+        assertTrue(json.getBoolean("ok"));
+        assertTrue(json.isNull("absent"));
+        assertEquals(3, json.getJSONObject("reunion").getInt("id"));
+    }
+
+    @Test
+    void testTamponReutiliseSansReste() {
+        String premier = EcrivainJson.objet().champ("a", "x".repeat(20_000)).fin();
+        String second = EcrivainJson.objet().champ("b", 1).fin();
+
+        assertEquals(20_008, premier.length());
+        assertEquals("{\"b\":1}", second);
+        assertEquals("{}", EcrivainJson.objet().fin());
+    }
+}
@@ -0,0 +1,103 @@
+package serveur;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EcrivainParLotsTest {
+
+    // Table simulée : les id négatifs violent une clé étrangère (réunion supprimée)
+    private final List<Integer> lignes = Collections.synchronizedList(new ArrayList<>());
+    private final List<Integer> oublies = Collections.synchronizedList(new ArrayList<>());
+    private final List<List<Integer>> ecritures = Collections.synchronizedList(new ArrayList<>());
+    private volatile int pannes;
+
+    private final LinkedBlockingQueue<Integer> journal = new LinkedBlockingQueue<>();
+    private final EcrivainParLots<Integer> ecrivain = new EcrivainParLots<>("test", journal, 10, 5,
+            this::ecrire, oublies::addAll, id -> id);
+
+    @AfterEach
+    void tearDown() {
+        ecrivain.arreter();
+    }
+
+    private void ecrire(List<Integer> lot) throws SQLException {
+        ecritures.add(new ArrayList<>(lot));
+        if (pannes > 0) {
+            pannes--;
+            throw new SQLTransientConnectionException("Connexion perdue", "08S01");
+        }
+        for (Integer id : lot) {
+            if (id < 0) {
+                // Comme le pilote MySQL : l'échec d'un lot arrive enveloppé dans une BatchUpdateException
+                throw new BatchUpdateException("Échec du lot", "23000", 1452, new int[0],
+                        new SQLIntegrityConstraintViolationException("fk_message_reunion", "23000", 1452));
+            }
+        }
+        lignes.addAll(lot);
+    }
+
+    @Test
+    void testLotEnViolationReprisLigneParLigne() {
+        ecrivain.ecrireLot(List.of(1, -2, 3));
+
+        assertEquals(List.of(1, 3), lignes, "Seule la ligne fautive est écartée");
+        assertEquals(List.of(List.of(1, -2, 3), List.of(1), List.of(-2), List.of(3)), ecritures,
+                "Pas de nouvelle tentative du lot après une violation de contrainte");
+        assertEquals(1, ecrivain.getRejetes());
+        assertEquals(2, ecrivain.getEcrits());
+        assertEquals(0, ecrivain.getPerdus());
+        assertEquals(List.of(1, -2, 3), oublies, "Le lot entier quitte la mémoire une fois réglé");
+    }
+
+    @Test
+    void testErreurPassagereReessayee() {
+        pannes = 1;
+
+        ecrivain.ecrireLot(List.of(1, 2));
+
+        assertEquals(List.of(1, 2), lignes);
+        assertEquals(2, ecritures.size());
+        assertEquals(1, ecrivain.getEchecs());
+        assertEquals(0, ecrivain.getRejetes());
+    }
+
+    @Test
+    void testLigneFautiveNeBloquePasLesSuivantes() throws InterruptedException {
+        ecrivain.demarrer();
+        journal.put(-1);
+        for (int i = 1; i <= 50; i++) {
+            journal.put(i);
+        }
+
+        ecrivain.arreter();
+
+        assertEquals(50, lignes.size());
+        assertEquals(1, ecrivain.getRejetes());
+        assertEquals(51, oublies.size());
+        assertTrue(journal.isEmpty());
+    }
+
+    @Test
+    void testClassementDesErreurs() {
+        assertTrue(EcrivainParLots.estDefinitive(new SQLIntegrityConstraintViolationException("doublon")));
+        assertTrue(EcrivainParLots.estDefinitive(new SQLException("Data too long for column 'contenu'", "22001")));
+        SQLException chainee = new SQLException("Échec du lot");
+        chainee.setNextException(new SQLException("Cannot add or update a child row", "23000"));
+        assertTrue(EcrivainParLots.estDefinitive(chainee));
+
+        assertFalse(EcrivainParLots.estDefinitive(new SQLException("Communications link failure", "08S01")));
+        assertFalse(EcrivainParLots.estDefinitive(new SQLException("Deadlock found", "40001")));
+        assertFalse(EcrivainParLots.estDefinitive(new SQLException("Sans état")));
+    }
+}
@@ -0,0 +1,64 @@
+package serveur;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EnveloppeTest {
+
+    @Test
+    void testChampsDuPremierNiveau() {
+        Enveloppe e = Enveloppe.lire("{ \"modele\" : \"reunion\", \"action\":\"envoyerMessage\", \"reunionId\":\"42\","
+                + "\"userId\":7, \"ouverte\":true, \"idAnimateur\":null, \"reunion\":{\"id\":3,\"nom\":\"a,b}\"}, \"ids\":[1,[2]]}");
+
+        assertEquals("reunion", e.texte("modele"));
+        assertEquals("envoyerMessage", e.texte("action"));
+        assertEquals(42, e.entier("reunionId", -1));
+        assertEquals(7, e.entier("userId", -1));
+        assertEquals("7", e.texte("userId"));
+        assertTrue(e.booleen("ouverte", false));
+        assertTrue(e.estNul("idAnimateur"));
+        assertEquals("", e.texte("idAnimateur"));
+        assertEquals(3, new JSONObject(e.texte("reunion")).getInt("id"));
+        assertEquals("[1,[2]]", e.texte("ids"));
+    }
+
+    @Test
+    void testChampsAbsentsOuInvalides() {
+        Enveloppe e = Enveloppe.lire("{\"userId\":\"abc\",\"grand\":12345678901}");
+
+        assertFalse(e.contient("modele"));
+        assertEquals("", e.texte("modele"));
+        assertEquals(-1, e.entier("modele", -1));
+        assertEquals(-1, e.entier("userId", -1));
+        assertEquals(new JSONObject("{\"grand\":12345678901}").optInt("grand"), e.entier("grand", -1));
+        assertEquals(0, Enveloppe.lire("{}").entier("x", 0));
+    }
+
+    @Test
+    void testEchappementsCommeOrgJson() {
+        String texte = new JSONObject().put("contenu", "guillemets \" barre \\ ligne\nunicode é   fin")
+                .put("cl\"e", "v").toString();
+        Enveloppe e = Enveloppe.lire(texte);
+
+        assertEquals(new JSONObject(texte).getString("contenu"), e.texte("contenu"));
+        assertEquals("v", e.texte("cl\"e"));
+        assertEquals("a/b\té", Enveloppe.lire("{\"x\":\"a\\/b\\t\\u00e9\"}").texte("x"));
+    }
+
+    @Test
+    void testMessageMalFormeLeveJSONException() {
+        assertThrows(JSONException.class, () -> Enveloppe.lire("pas du json").texte("modele"));
+        assertThrows(JSONException.class, () -> Enveloppe.lire("{\"modele\":\"reunion").texte("modele"));
+        assertThrows(JSONException.class, () -> Enveloppe.lire("{\"modele\" \"reunion\"}").texte("modele"));
+    }
+
+    @Test
+    void testVersJsonConstruitUneSeuleFois() {
+        Enveloppe e = Enveloppe.lire("{\"a\":1}");
+        assertSame(e.versJson(), e.versJson());
+        assertEquals(1, e.versJson().getInt("a"));
+    }
+}
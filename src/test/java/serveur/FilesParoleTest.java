@@ -0,0 +1,274 @@
+package serveur;
+
+import model.DemandeParole;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilesParoleTest {
+
+    private final Base base = new Base();
+    private final List<FilesParole.Evenement> evenements = Collections.synchronizedList(new ArrayList<>());
+    private final FilesParole files = new FilesParole(base, evenements::add, 100, 5);
+
+    @AfterEach
+    void tearDown() {
+        base.enPanne = false;
+        files.arreter();
+    }
+
+    @Test
+    void testFileFifoEtUneDemandeParParticipant() throws SQLException {
+        DemandeParole premiere = files.demander(1, 10, false);
+        DemandeParole seconde = files.demander(1, 20, false);
+
+        assertNull(files.demander(1, 10, false), "Une seule demande en attente par participant");
+        assertEquals(List.of(premiere.getId(), seconde.getId()), ids(files.enAttente(1)));
+        assertEquals(premiere.getId(), files.prochaine(1).getId());
+        assertTrue(files.enAttente(2).isEmpty());
+    }
+
+    @Test
+    void testDecisionRetireDeLaFile() throws SQLException {
+        DemandeParole premiere = files.demander(1, 10, false);
+        DemandeParole seconde = files.demander(1, 20, false);
+
+        assertTrue(files.decider(premiere.getId(), DemandeParole.Statut.ACCORDEE));
+        assertFalse(files.decider(premiere.getId(), DemandeParole.Statut.REFUSEE), "Déjà décidée");
+        assertEquals(DemandeParole.Statut.ACCORDEE, files.trouver(premiere.getId()).getStatut());
+        assertEquals(List.of(seconde.getId()), ids(files.enAttente(1)));
+
+        // Le participant peut redemander la parole une fois servi
+        assertNotNull(files.demander(1, 10, false));
+    }
+
+    @Test
+    void testReunionDemocratiqueAccordeSansFile() throws SQLException {
+        DemandeParole demande = files.demander(1, 10, true);
+
+        assertEquals(DemandeParole.Statut.ACCORDEE, demande.getStatut());
+        assertTrue(files.enAttente(1).isEmpty());
+    }
+
+    @Test
+    void testTransitionsEcritesEnBaseAvecIdsSuivants() throws SQLException {
+        base.lignes.put(41, new DemandeParole(41, 99, 7, LocalDateTime.now(), DemandeParole.Statut.ACCORDEE));
+        DemandeParole accordee = files.demander(1, 10, false);
+        DemandeParole refusee = files.demander(1, 20, false);
+        files.decider(accordee.getId(), DemandeParole.Statut.ACCORDEE);
+        files.decider(refusee.getId(), DemandeParole.Statut.REFUSEE);
+
+        files.arreter();
+
+        assertEquals(42, accordee.getId(), "Les id reprennent après le plus grand id en base");
+        assertEquals(DemandeParole.Statut.ACCORDEE, base.lignes.get(42).getStatut());
+        assertEquals(DemandeParole.Statut.REFUSEE, base.lignes.get(43).getStatut());
+        assertEquals(0, files.getPerdues());
+    }
+
+    @Test
+    void testDemandeRefuseeParLaBaseNeBloquePasLesAutres() throws SQLException {
+        // Réunion 2 supprimée entre-temps : ses demandes violent la clé étrangère
+        base.supprimees.add(2);
+        DemandeParole orpheline = files.demander(2, 10, false);
+        DemandeParole demande = files.demander(1, 20, false);
+        files.decider(demande.getId(), DemandeParole.Statut.ACCORDEE);
+
+        files.arreter();
+
+        assertNull(base.lignes.get(orpheline.getId()));
+        assertEquals(DemandeParole.Statut.ACCORDEE, base.lignes.get(demande.getId()).getStatut());
+        assertEquals(1, files.getRejetees());
+        assertEquals(0, files.getPerdues());
+    }
+
+    @Test
+    void testFileReconstruiteDepuisLaBase() throws SQLException {
+        LocalDateTime t = LocalDateTime.now().minusMinutes(5);
+        base.lignes.put(5, new DemandeParole(5, 10, 1, t, DemandeParole.Statut.EN_ATTENTE));
+        base.lignes.put(6, new DemandeParole(6, 20, 1, t.plusSeconds(1), DemandeParole.Statut.EN_ATTENTE));
+        base.lignes.put(7, new DemandeParole(7, 30, 1, t.plusSeconds(2), DemandeParole.Statut.REFUSEE));
+
+        assertEquals(List.of(5, 6), ids(files.enAttente(1)));
+        assertNull(files.demander(1, 20, false), "La demande relue en base compte comme en attente");
+        assertTrue(files.decider(5, DemandeParole.Statut.ACCORDEE));
+        assertEquals(1, files.getReconstructions());
+    }
+
+    @Test
+    void testTransitionsNonEcritesPriventSurLaBaseALaReconstruction() throws SQLException {
+        base.lignes.put(5, new DemandeParole(5, 10, 1, LocalDateTime.now(), DemandeParole.Statut.EN_ATTENTE));
+        base.enPanne = true;
+
+        assertTrue(files.decider(5, DemandeParole.Statut.REFUSEE));
+        DemandeParole nouvelle = files.demander(1, 20, false);
+        files.fermer(1);
+
+        // La base n'a encore rien reçu : la file rechargée doit tout de même refléter les deux transitions
+        assertEquals(List.of(nouvelle.getId()), ids(files.enAttente(1)));
+        assertEquals(DemandeParole.Statut.REFUSEE, files.trouver(5).getStatut());
+    }
+
+    @Test
+    void testReunionNonOuverteLueEnBase() throws SQLException {
+        base.ouvertes.clear();
+        base.lignes.put(5, new DemandeParole(5, 10, 3, LocalDateTime.now(), DemandeParole.Statut.EN_ATTENTE));
+
+        assertEquals(List.of(5), ids(files.enAttente(3)));
+        assertEquals(0, files.getFilesChargees());
+        assertTrue(files.decider(5, DemandeParole.Statut.REFUSEE));
+        files.arreter();
+        assertEquals(DemandeParole.Statut.REFUSEE, base.lignes.get(5).getStatut());
+    }
+
+    @Test
+    void testEvenementsSequencesAvecPositions() throws SQLException {
+        DemandeParole a = files.demander(1, 10, false);
+        files.demander(1, 20, false);
+        files.demander(1, 30, false);
+        files.decider(a.getId(), DemandeParole.Statut.ACCORDEE);
+        assertTrue(files.annuler(1, 30));
+        assertFalse(files.annuler(1, 30), "Plus de demande en attente");
+
+        assertEquals(5, evenements.size());
+        for (int i = 1; i < evenements.size(); i++) {
+            assertEquals(evenements.get(i - 1).getSequence() + 1, evenements.get(i).getSequence(), "Séquences consécutives");
+        }
+        assertEquals(FilesParole.Evenement.Type.AJOUTEE, evenements.get(2).getType());
+        assertEquals(3, evenements.get(2).getPosition());
+        assertEquals(FilesParole.Evenement.Type.ACCORDEE, evenements.get(3).getType());
+        assertEquals(1, evenements.get(3).getPosition(), "La tête de file libère la position 1");
+        assertArrayEquals(new int[]{20, 30}, evenements.get(3).getDemandeurs());
+        FilesParole.Evenement annulation = evenements.get(4);
+        assertEquals(FilesParole.Evenement.Type.ANNULEE, annulation.getType());
+        assertEquals(2, annulation.getPosition());
+        assertEquals(1, annulation.getTaille());
+        assertEquals(DemandeParole.Statut.REFUSEE, annulation.getDemande().getStatut(), "Annulation enregistrée comme refus");
+    }
+
+    @Test
+    void testEvenementPorteNomEtDirigeantsLusAvantLeVerrou() throws SQLException {
+        files.demander(1, 10, false);
+        DemandeParole inconnu = files.demander(1, 404, false);
+        files.decider(inconnu.getId(), DemandeParole.Statut.REFUSEE);
+
+        assertEquals("Personne 10", evenements.get(0).getNomDemandeur());
+        assertArrayEquals(new int[]{101}, evenements.get(0).getDirigeants());
+        assertEquals("Utilisateur 404", evenements.get(2).getNomDemandeur(), "Personne introuvable");
+    }
+
+    @Test
+    void testInstantaneALaSequenceDuDernierEvenement() throws SQLException {
+        files.demander(1, 10, false);
+        files.demander(1, 20, false);
+
+        FilesParole.Instantane instantane = files.instantane(1);
+        assertEquals(evenements.get(1).getSequence(), instantane.getSequence());
+        assertEquals(2, instantane.getDemandes().size());
+        assertNull(files.instantane(3), "Pas d'instantané pour une réunion non ouverte");
+    }
+
+    @Test
+    void testFileRechargeeChangeDePlageDeSequences() throws SQLException {
+        files.demander(1, 10, false);
+        long avant = files.instantane(1).getSequence();
+        files.fermer(1);
+
+        long apres = files.instantane(1).getSequence();
+        assertNotEquals(avant + 1, apres, "Un client à jour sur l'ancienne file doit constater un trou");
+        files.demander(1, 20, false);
+        assertEquals(apres + 1, evenements.get(evenements.size() - 1).getSequence());
+    }
+
+    private static List<Integer> ids(List<DemandeParole> demandes) {
+        List<Integer> ids = new ArrayList<>();
+        for (DemandeParole d : demandes) {
+            ids.add(d.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Table demande_parole simulée ; toutes les réunions sont ouvertes sauf indication contraire.
+     */
+    private static final class Base implements FilesParole.Stockage {
+        final Map<Integer, DemandeParole> lignes = Collections.synchronizedMap(new TreeMap<>());
+        final List<Integer> ouvertes = new ArrayList<>(List.of(1, 2));
+        final List<Integer> supprimees = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean enPanne;
+
+        @Override
+        public int dernierId() {
+            synchronized (lignes) {
+                return lignes.isEmpty() ? 0 : new TreeMap<>(lignes).lastKey();
+            }
+        }
+
+        @Override
+        public List<DemandeParole> enAttente(int reunionId) {
+            List<DemandeParole> resultat = new ArrayList<>();
+            synchronized (lignes) {
+                for (DemandeParole d : lignes.values()) {
+                    if (d.getReunionId() == reunionId && d.getStatut() == DemandeParole.Statut.EN_ATTENTE) {
+                        resultat.add(copie(d));
+                    }
+                }
+            }
+            return resultat;
+        }
+
+        @Override
+        public DemandeParole parId(int demandeId) {
+            DemandeParole d = lignes.get(demandeId);
+            return d == null ? null : copie(d);
+        }
+
+        @Override
+        public void enregistrer(List<DemandeParole> nouvelles, List<DemandeParole> modifiees) throws SQLException {
+            if (enPanne) {
+                throw new SQLException("Base indisponible");
+            }
+            for (DemandeParole d : nouvelles) {
+                if (supprimees.contains(d.getReunionId())) {
+                    throw new SQLIntegrityConstraintViolationException("fk_demande_reunion", "23000");
+                }
+            }
+            for (DemandeParole d : nouvelles) {
+                assertNull(lignes.put(d.getId(), copie(d)), "Demande insérée deux fois: " + d.getId());
+            }
+            for (DemandeParole d : modifiees) {
+                assertNotNull(lignes.get(d.getId()), "Mise à jour d'une demande absente: " + d.getId());
+                lignes.get(d.getId()).setStatut(d.getStatut());
+            }
+        }
+
+        @Override
+        public boolean estOuverte(int reunionId) {
+            return ouvertes.contains(reunionId);
+        }
+
+        @Override
+        public String nom(int personneId) {
+            return personneId == 404 ? null : "Personne " + personneId;
+        }
+
+        @Override
+        public int[] dirigeants(int reunionId) {
+            return new int[]{100 + reunionId};
+        }
+
+        private static DemandeParole copie(DemandeParole d) {
+            return new DemandeParole(d.getId(), d.getPersonneId(), d.getReunionId(), d.getHeureDemande(), d.getStatut());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package serveur;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistogrammeTest {
+
+    @Test
+    void testChaqueValeurEstSousLaBorneDeSonIntervalle() {
+        for (int bits : new int[]{4, 5}) {
+            Histogramme h = new Histogramme(bits);
+            for (long v = 0; v < 1_000_000; v += 7) {
+                int i = h.indice(v);
+                assertTrue(v <= h.borneSuperieure(i), "valeur " + v + ", " + bits + " bits");
+                assertTrue(i == 0 || v > h.borneSuperieure(i - 1), "valeur " + v + ", " + bits + " bits");
+            }
+            assertTrue(h.indice(Long.MAX_VALUE) < 64 << bits);
+        }
+    }
+
+    @Test
+    void testPercentilesAvecErreurRelativeBornee() {
+        // 32 sous-intervalles, comme le générateur de charge : ~3 %
+        Histogramme h = new Histogramme(5);
+        for (int v = 1; v <= 100_000; v++) {
+            h.enregistrer(v);
+        }
+
+        assertEquals(100_000, h.getTotal());
+        assertEquals(100_000, h.getMax());
+        assertEquals(50_000, h.percentile(50), 50_000 * 0.035);
+        assertEquals(99_000, h.percentile(99), 99_000 * 0.035);
+        assertEquals(100_000, h.percentile(100));
+        assertEquals(50_000.5, h.getMoyenne(), 0.001);
+    }
+
+    @Test
+    void testPrecisionSelonLeNombreDeSousIntervalles() {
+        Histogramme metriques = new Histogramme();
+        Histogramme charge = new Histogramme(5);
+        for (int v = 1; v <= 100_000; v++) {
+            metriques.enregistrer(v);
+            charge.enregistrer(v);
+        }
+
+        assertEquals(50_000, metriques.percentile(50), 50_000 * 0.065);
+        assertTrue(Math.abs(charge.percentile(50) - 50_000) <= Math.abs(metriques.percentile(50) - 50_000));
+    }
+
+    @Test
+    void testHistogrammeVide() {
+        Histogramme h = new Histogramme(5);
+        assertEquals(0, h.percentile(99));
+        assertEquals(0, h.getMoyenne());
+    }
+}
@@ -0,0 +1,269 @@
+package serveur;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base JDBC simulée pour les tests, sans serveur MySQL : connexions, instructions et résultats sont des proxys.
+ *
+ * Par défaut une requête ne rend aucune ligne, une mise à jour modifie une ligne, un lot rend un tableau vide
+ * et les clés générées valent 1. {@link #quand(String, Reponse)} règle les lignes rendues par les instructions
+ * dont le SQL contient un fragment donné (la première règle qui correspond s'applique ; "" correspond à tout).
+ * Les appels de transaction reçus par les connexions physiques (setAutoCommit, commit, rollback) sont
+ * enregistrés dans l'ordre, de même que les instructions exécutées.
+ */
+final class JdbcSimule {
+
+    /**
+     * Lignes rendues par une instruction, d'après son SQL et ses paramètres (par position, à partir de 1).
+     * Peut lever une SQLException pour simuler un échec, ou bloquer pour ordonner des threads.
+     */
+    @FunctionalInterface
+    interface Reponse {
+        List<Map<String, Object>> lignes(String sql, Map<Integer, Object> parametres) throws Exception;
+    }
+
+    private static final class Regle {
+        final String fragment;
+        final Reponse reponse;
+
+        Regle(String fragment, Reponse reponse) {
+            this.fragment = fragment;
+            this.reponse = reponse;
+        }
+    }
+
+    private final List<Regle> regles = new CopyOnWriteArrayList<>();
+    private volatile int lignesModifiees = 1;
+    private volatile int[] comptesLot = new int[0];
+    private volatile long pauseMs;
+
+    final AtomicInteger connexions = new AtomicInteger();
+    final List<String> transactions = Collections.synchronizedList(new ArrayList<>());
+    final List<String> executees = Collections.synchronizedList(new ArrayList<>());
+
+    JdbcSimule quand(String fragment, Reponse reponse) {
+        regles.add(new Regle(fragment, reponse));
+        return this;
+    }
+
+    JdbcSimule lignesModifiees(int lignes) {
+        this.lignesModifiees = lignes;
+        return this;
+    }
+
+    JdbcSimule comptesLot(int... comptes) {
+        this.comptesLot = comptes;
+        return this;
+    }
+
+    /**
+     * Durée de chaque executeQuery / executeUpdate.
+     */
+    JdbcSimule pause(long ms) {
+        this.pauseMs = ms;
+        return this;
+    }
+
+    /**
+     * Installe un pool de connexions simulées comme pool de {@link Database} ; à fermer par Database.fermerPool().
+     */
+    JdbcSimule installer(int tailleMax) {
+        Database.configurerPool(ConnectionPool.creer(this::connexion, new ConnectionPool.Configuration()
+                .tailleMin(0).tailleMax(tailleMax).seuilFuiteMs(0).periodeMaintenanceMs(0)));
+        return this;
+    }
+
+    /**
+     * Une ligne de résultat ; les colonnes sont lues par nom ou par position, dans l'ordre donné.
+     */
+    static Map<String, Object> ligne(Object... colonnesEtValeurs) {
+        Map<String, Object> ligne = new LinkedHashMap<>();
+        for (int i = 0; i < colonnesEtValeurs.length; i += 2) {
+            ligne.put((String) colonnesEtValeurs[i], colonnesEtValeurs[i + 1]);
+        }
+        return ligne;
+    }
+
+    /**
+     * Nouvelle connexion physique.
+     */
+    Connection connexion() {
+        connexions.incrementAndGet();
+        boolean[] autoCommit = {true};
+        boolean[] fermee = {false};
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "prepareStatement":
+                            return instruction((String) args[0]);
+                        case "createStatement":
+                            return instruction(null);
+                        case "setAutoCommit":
+                            autoCommit[0] = (Boolean) args[0];
+                            transactions.add("setAutoCommit(" + args[0] + ")");
+                            return null;
+                        case "getAutoCommit":
+                            return autoCommit[0];
+                        case "commit":
+                        case "rollback":
+                            transactions.add(method.getName());
+                            return null;
+                        case "isValid":
+                            return !fermee[0];
+                        case "isClosed":
+                            return fermee[0];
+                        case "close":
+                            fermee[0] = true;
+                            return null;
+                        default:
+                            return objet(proxy, method, args, "ConnexionSimulee");
+                    }
+                });
+    }
+
+    private PreparedStatement instruction(String prepare) {
+        Map<Integer, Object> parametres = new TreeMap<>();
+        return (PreparedStatement) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    String nom = method.getName();
+                    String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : prepare;
+                    if (nom.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        parametres.put((Integer) args[0], nom.equals("setNull") ? null : args[1]);
+                        return null;
+                    }
+                    switch (nom) {
+                        case "executeQuery":
+                            pause();
+                            executees.add(sql);
+                            return resultat(lignes(sql, parametres));
+                        case "executeUpdate":
+                            pause();
+                            executees.add(sql);
+                            lignes(sql, parametres);
+                            return lignesModifiees;
+                        case "executeBatch":
+                            executees.add(sql);
+                            return comptesLot.clone();
+                        case "getGeneratedKeys":
+                            return resultat(List.of(ligne("GENERATED_KEY", 1)));
+                        case "clearParameters":
+                            parametres.clear();
+                            return null;
+                        default:
+                            return objet(proxy, method, args, "InstructionSimulee[" + prepare + "]");
+                    }
+                });
+    }
+
+    private List<Map<String, Object>> lignes(String sql, Map<Integer, Object> parametres) throws Exception {
+        for (Regle regle : regles) {
+            if (sql != null && sql.contains(regle.fragment)) {
+                return regle.reponse.lignes(sql, new TreeMap<>(parametres));
+            }
+        }
+        return List.of();
+    }
+
+    private void pause() throws InterruptedException {
+        if (pauseMs > 0) {
+            Thread.sleep(pauseMs);
+        }
+    }
+
+    /**
+     * Résultat simulé sur des lignes données.
+     */
+    static ResultSet resultat(List<Map<String, Object>> lignes) {
+        int[] courante = {-1};
+        Object[] derniere = {null};
+        return (ResultSet) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    String nom = method.getName();
+                    if (nom.equals("next")) {
+                        return ++courante[0] < lignes.size();
+                    }
+                    if (nom.equals("wasNull")) {
+                        return derniere[0] == null;
+                    }
+                    if (nom.startsWith("get") && args != null && args.length >= 1
+                            && (args[0] instanceof String || args[0] instanceof Integer)) {
+                        Object valeur = colonne(lignes.get(courante[0]), args[0]);
+                        derniere[0] = valeur;
+                        return convertir(valeur, nom);
+                    }
+                    return objet(proxy, method, args, "ResultatSimule");
+                });
+    }
+
+    private static Object colonne(Map<String, Object> ligne, Object cle) throws SQLException {
+        if (cle instanceof Integer) {
+            int position = (Integer) cle;
+            if (position < 1 || position > ligne.size()) {
+                throw new SQLException("Colonne " + position + " absente");
+            }
+            return new ArrayList<>(ligne.values()).get(position - 1);
+        }
+        if (!ligne.containsKey(cle)) {
+            throw new SQLException("Colonne " + cle + " absente");
+        }
+        return ligne.get(cle);
+    }
+
+    private static Object convertir(Object valeur, String getter) {
+        switch (getter) {
+            case "getInt":
+                return valeur == null ? 0 : ((Number) valeur).intValue();
+            case "getLong":
+                return valeur == null ? 0L : ((Number) valeur).longValue();
+            case "getBoolean":
+                return valeur != null && (valeur instanceof Boolean ? (Boolean) valeur : ((Number) valeur).intValue() != 0);
+            case "getString":
+                return valeur == null ? null : valeur.toString();
+            case "getTimestamp":
+                return valeur instanceof LocalDateTime ? Timestamp.valueOf((LocalDateTime) valeur) : valeur;
+            default:
+                return valeur;
+        }
+    }
+
+    /**
+     * Méthodes d'Object et tout le reste (close, setFetchSize...) : sans effet, valeur par défaut du type rendu.
+     */
+    private static Object objet(Object proxy, Method method, Object[] args, String description) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return description;
+            default:
+                Class<?> type = method.getReturnType();
+                if (type == boolean.class) {
+                    return false;
+                }
+                if (type == int.class) {
+                    return 0;
+                }
+                if (type == long.class) {
+                    return 0L;
+                }
+                return null;
+        }
+    }
+}
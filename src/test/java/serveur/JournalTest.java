@@ -0,0 +1,110 @@
+package serveur;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournalTest {
+
+    private final List<String> lignes = Collections.synchronizedList(new ArrayList<>());
+
+    private final Journal.Sortie sortie = new Journal.Sortie() {
+        @Override
+        public void ecrire(Journal.Niveau niveau, String ligne) {
+            lignes.add(ligne);
+        }
+
+        @Override
+        public void vider() {
+        }
+    };
+
+    @Test
+    void testChampsEtMiseEnForme() {
+        Journal journal = new Journal(Journal.Niveau.INFO, 16, 10, sortie);
+        journal.journaliser(Journal.Niveau.INFO, "ws.ouverture", null,
+                new Object[]{"session", "a1", "sessions", 3, "raison", "fermeture normale"});
+        journal.journaliser(Journal.Niveau.DEBUG, "ws.message", null, new Object[]{"session", "a1"});
+
+        assertEquals(1, journal.vider(), "DEBUG est sous le seuil INFO");
+        String ligne = lignes.get(0);
+        assertTrue(ligne.contains(" INFO "), ligne);
+        assertTrue(ligne.endsWith("ws.ouverture session=a1 sessions=3 raison=\"fermeture normale\""), ligne);
+    }
+
+    @Test
+    void testMotsDePasseMasques() {
+        Journal journal = new Journal(Journal.Niveau.DEBUG, 16, 1, sortie);
+        journal.journaliser(Journal.Niveau.INFO, "auth", null, new Object[]{"login", "ama", "password", "secret"});
+        journal.journaliser(Journal.Niveau.DEBUG, "ws.message", null, new Object[]{"charge",
+                "{\"modele\":\"authentification\",\"action\":\"connexion\",\"login\":\"ama\",\"password\" : \"s3cr\\\"et\"}"});
+        journal.vider();
+
+        assertTrue(lignes.get(0).endsWith("login=ama password=***"), lignes.get(0));
+        assertFalse(lignes.get(1).contains("s3cr"), lignes.get(1));
+        assertTrue(lignes.get(1).contains("***"), lignes.get(1));
+        assertTrue(lignes.get(1).contains("ama"), "Le reste de la charge est conservé");
+    }
+
+    @Test
+    void testEchantillonnageParEvenement() {
+        Journal journal = new Journal(Journal.Niveau.DEBUG, 64, 10, sortie);
+        for (int i = 0; i < 25; i++) {
+            journal.journaliserEchantillon(Journal.Niveau.DEBUG, "ws.message", new Object[]{"i", i});
+            journal.journaliserEchantillon(Journal.Niveau.DEBUG, "ws.trame", new Object[]{"i", i});
+        }
+        journal.vider();
+
+        assertEquals(6, lignes.size(), "3 sur 25 pour chacun des deux événements");
+        assertTrue(lignes.get(0).endsWith("ws.message i=0 echantillon=10"), lignes.get(0));
+        assertTrue(lignes.get(2).endsWith("ws.message i=10 echantillon=10"), lignes.get(2));
+    }
+
+    @Test
+    void testAnneauPleinAbandonneSansBloquer() {
+        Journal journal = new Journal(Journal.Niveau.INFO, 4, 1, sortie);
+        for (int i = 0; i < 6; i++) {
+            journal.journaliser(Journal.Niveau.INFO, "e" + i, null, new Object[0]);
+        }
+
+        assertEquals(2, journal.getAbandonnes());
+        assertEquals(4, journal.vider());
+        assertTrue(lignes.get(3).endsWith("e3"));
+
+        // Les cases libérées sont réutilisées
+        journal.journaliser(Journal.Niveau.INFO, "e6", null, new Object[0]);
+        assertEquals(1, journal.vider());
+        assertTrue(lignes.get(4).endsWith("e6"));
+    }
+
+    @Test
+    void testProducteursConcurrentsRienDePerduNiDouble() throws Exception {
+        Journal journal = new Journal(Journal.Niveau.INFO, 1024, 1, sortie);
+        journal.demarrer();
+        int threads = 4;
+        int parThread = 5_000;
+        List<Thread> producteurs = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int numero = t;
+            Thread producteur = new Thread(() -> {
+                for (int i = 0; i < parThread; i++) {
+                    journal.journaliser(Journal.Niveau.INFO, "e", null, new Object[]{"t", numero, "i", i});
+                }
+            });
+            producteurs.add(producteur);
+            producteur.start();
+        }
+        for (Thread producteur : producteurs) {
+            producteur.join();
+        }
+        journal.arreterEcriture();
+
+        assertEquals(threads * parThread, journal.getDeposes() + journal.getAbandonnes());
+        assertEquals(journal.getDeposes(), journal.getEcrits());
+        assertEquals(journal.getEcrits(), lignes.size());
+    }
+}
@@ -0,0 +1,95 @@
+package serveur;
+
+import model.AutorisationReunionPriveeManager;
+import model.DemandeParoleManager;
+import model.MessageManager;
+import model.ParticipationManager;
+import model.PersonneManager;
+import model.ReunionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ManagersConnexionsTest {
+
+    private static final int OPERATIONS = 100_000;
+    private static final int THREADS = 8;
+
+    // Les requêtes ne rendent aucune ligne, les écritures modifient une ligne et les clés générées valent 1
+    private final JdbcSimule base = new JdbcSimule();
+
+    @AfterEach
+    void tearDown() {
+        Database.fermerPool();
+    }
+
+    private static void operation(int i) throws SQLException {
+        switch (i % 8) {
+            case 0:
+                ParticipationManager.getInstance().estParticipant(i, 1);
+                break;
+            case 1:
+                AutorisationReunionPriveeManager.getInstance().autoriserAcces(i, 1);
+                break;
+            case 2:
+                // Insertion puis relecture de la demande créée, sur la même connexion
+                DemandeParoleManager.getInstance().demanderParole(i, 1);
+                break;
+            case 3:
+                MessageManager.getInstance().obtenirPageMessages(1, null, null, 50);
+                break;
+            case 4:
+                PersonneManager.getInstance().obtenirPersonneParId(i);
+                break;
+            case 5:
+                ReunionManager.getInstance().reunionExiste(i);
+                break;
+            case 6:
+                PersonneManager.getInstance().deconnecter(i);
+                break;
+            default:
+                // Transaction : autocommit coupé puis rétabli avant de rendre la connexion
+                MessageManager.getInstance().enregistrerLot(List.of());
+                break;
+        }
+    }
+
+    @Test
+    void testConnexionsBorneesSur100000Operations() throws Exception {
+        base.installer(20);
+
+        ExecutorService executeur = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> resultats = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int premier = t;
+                resultats.add(executeur.submit(() -> {
+                    for (int i = premier; i < OPERATIONS; i += THREADS) {
+                        operation(i);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> resultat : resultats) {
+                resultat.get();
+            }
+        } finally {
+            executeur.shutdownNow();
+        }
+
+        ConnectionPool.Statistiques stats = Database.getStatistiquesPool();
+        assertEquals(0, stats.actives, "Toutes les connexions doivent être rendues");
+        assertEquals(OPERATIONS, stats.emprunts, "Une seule connexion par opération");
+        assertTrue(base.connexions.get() <= THREADS, "Au plus une connexion physique par thread: " + base.connexions.get());
+        assertEquals(0, stats.recupereesSansFermeture);
+        assertEquals(0, stats.expirations);
+    }
+}
@@ -0,0 +1,59 @@
+package serveur;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MembresReunionTest {
+
+    private final Map<Integer, String> base = new LinkedHashMap<>(Map.of(1, "Ama"));
+    private final MembresReunion membres = new MembresReunion(reunionId -> new LinkedHashMap<>(base));
+    private final List<Long> diffusees = new ArrayList<>();
+
+    private MembresReunion.Instantane instantane(int reunionId) throws Exception {
+        List<MembresReunion.Instantane> recu = new ArrayList<>();
+        membres.instantane(reunionId, recu::add);
+        return recu.get(0);
+    }
+
+    @Test
+    void testVersionsConsecutivesEtDiffusees() throws Exception {
+        long depart = instantane(1).getVersion();
+
+        assertTrue(membres.entrer(1, 2, "Kofi", diffusees::add));
+        assertTrue(membres.sortir(1, 1, diffusees::add));
+
+        assertEquals(List.of(depart + 1, depart + 2), diffusees);
+        MembresReunion.Instantane apres = instantane(1);
+        assertEquals(depart + 2, apres.getVersion());
+        assertEquals(Map.of(2, "Kofi"), apres.getNoms());
+    }
+
+    @Test
+    void testSansChangementRienNestDiffuse() throws Exception {
+        long depart = instantane(1).getVersion();
+
+        assertFalse(membres.entrer(1, 1, "Ama", diffusees::add), "Déjà présent");
+        assertFalse(membres.sortir(1, 9, diffusees::add), "Jamais entré");
+
+        assertTrue(diffusees.isEmpty());
+        assertEquals(depart, instantane(1).getVersion());
+    }
+
+    @Test
+    void testReunionRelueApresOubliChangeDePlage() throws Exception {
+        long avant = instantane(1).getVersion();
+        membres.oublier(1);
+        base.put(2, "Kofi");
+
+        MembresReunion.Instantane relue = instantane(1);
+        assertTrue(relue.getVersion() > avant + 1, "Un client de l'ancienne liste doit constater un trou");
+        assertEquals(2, relue.getNoms().size());
+        assertEquals(2, membres.getChargements());
+    }
+}
@@ -0,0 +1,122 @@
+package serveur;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MesuresSqlTest {
+
+    /**
+     * Connexion simulée : chaque requête rend {@code lignes} lignes, chaque mise à jour en modifie {@code lignes},
+     * après une pause de {@code pauseMs} ; le SQL contenant "ECHEC" lève une SQLException.
+     */
+    private static Connection connexion(int lignes, long pauseMs) {
+        List<Map<String, Object>> rendues = new ArrayList<>();
+        for (int i = 1; i <= lignes; i++) {
+            rendues.add(JdbcSimule.ligne("id", i));
+        }
+        return new JdbcSimule()
+                .quand("ECHEC", (sql, parametres) -> {
+                    throw new SQLException("échec simulé");
+                })
+                .quand("", (sql, parametres) -> rendues)
+                .lignesModifiees(lignes)
+                .comptesLot(1, Statement.SUCCESS_NO_INFO, 1)
+                .pause(pauseMs)
+                .connexion();
+    }
+
+    @Test
+    void testNormalisationDesLitterauxEtEspaces() {
+        assertEquals("SELECT * FROM personne WHERE login = ? AND id > ?",
+                MesuresSql.normaliser("SELECT *\n  FROM personne WHERE login = 'l''ami' AND id > 42"));
+        assertEquals("SELECT id FROM t2 WHERE id = ?", MesuresSql.normaliser("SELECT id FROM t2 WHERE id = ?"));
+    }
+
+    @Test
+    void testLignesLuesCompteesALaFermetureDeLInstruction() throws SQLException {
+        MesuresSql mesures = new MesuresSql(0);
+        Connection c = mesures.envelopper(connexion(3, 0));
+
+        String sql = "SELECT id FROM reunion WHERE id = ?";
+        for (int i = 0; i < 2; i++) {
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                ResultSet rs = ps.executeQuery(); // jamais fermé, comme dans plusieurs managers
+                while (rs.next()) {
+                    // lecture
+                }
+            }
+        }
+
+        MesuresSql.Gabarit g = mesures.getGabarits().get(sql);
+        assertNotNull(g);
+        assertEquals(2, g.executions.sum());
+        assertEquals(6, g.lignes.sum());
+        assertEquals(2, g.durees.getTotal());
+        assertEquals(0, g.erreurs.sum());
+    }
+
+    @Test
+    void testMisesAJourLotsEtErreurs() throws SQLException {
+        MesuresSql mesures = new MesuresSql(0);
+        Connection c = mesures.envelopper(connexion(2, 0));
+
+        try (PreparedStatement ps = c.prepareStatement("UPDATE personne SET nom = ? WHERE id = ?")) {
+            ps.executeUpdate();
+            ps.executeBatch();
+        }
+        try (Statement st = c.createStatement()) {
+            assertThrows(SQLException.class, () -> st.executeQuery("SELECT 'ECHEC' FROM dual"));
+        }
+
+        MesuresSql.Gabarit maj = mesures.getGabarits().get("UPDATE personne SET nom = ? WHERE id = ?");
+        assertEquals(2, maj.executions.sum());
+        assertEquals(2 + 2, maj.lignes.sum(), "SUCCESS_NO_INFO ne doit pas être compté");
+        MesuresSql.Gabarit echec = mesures.getGabarits().get("SELECT ? FROM dual");
+        assertEquals(1, echec.erreurs.sum());
+    }
+
+    @Test
+    void testRequeteLenteComptee() throws SQLException {
+        MesuresSql mesures = new MesuresSql(15);
+        Connection c = mesures.envelopper(connexion(1, 0));
+        try (PreparedStatement ps = c.prepareStatement("SELECT 1")) {
+            ps.executeUpdate();
+        }
+        assertEquals(0, mesures.getLentes());
+
+        Connection lente = mesures.envelopper(connexion(1, 40));
+        try (PreparedStatement ps = lente.prepareStatement("SELECT 1")) {
+            ps.executeUpdate();
+        }
+        assertEquals(1, mesures.getLentes());
+    }
+
+    @Test
+    void testExpositionParGabarit() throws SQLException {
+        MesuresSql mesures = new MesuresSql(0);
+        try (PreparedStatement ps = mesures.envelopper(connexion(4, 0)).prepareStatement("SELECT \"x\" FROM t")) {
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    // lecture
+                }
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        Metriques.exposerSql(sb, mesures);
+        String texte = sb.toString();
+
+        assertTrue(texte.contains("tpbmo_sql_duree_secondes_count{requete=\"SELECT \\\"x\\\" FROM t\"} 1"), texte);
+        assertTrue(texte.contains("tpbmo_sql_lignes_total{requete=\"SELECT \\\"x\\\" FROM t\"} 4"), texte);
+        assertTrue(texte.contains("tpbmo_sql_lentes_total 0"), texte);
+    }
+}
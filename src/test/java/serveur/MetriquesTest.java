@@ -0,0 +1,82 @@
+package serveur;
+
+import org.junit.jupiter.api.Test;
+
+import javax.websocket.Session;
+import java.lang.reflect.Proxy;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetriquesTest {
+
+    // Session fermée : les réponses d'erreur ne sont pas envoyées
+    private static final Session SESSION = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(),
+            new Class<?>[]{Session.class}, (proxy, methode, args) -> methode.getReturnType() == boolean.class ? false : null);
+
+    private static ActionRouter routeur() {
+        return ActionRouter.construire(new WebSocketAction() {
+            @Override
+            public String modele() {
+                return "reunion";
+            }
+
+            @Override
+            public void enregistrer(ActionRouter.Routes routes) {
+                routes.traiter("rejoindre", requete -> { })
+                      .traiter("creation", requete -> {
+                          throw new IllegalStateException("échec simulé");
+                      });
+            }
+        });
+    }
+
+    @Test
+    void testHistogrammeCumulsParBorne() {
+        Histogramme h = new Histogramme();
+        for (long v : new long[]{3, 15, 100, 1_000, 50_000}) {
+            h.enregistrer(v);
+        }
+
+        assertArrayEquals(new long[]{1, 2, 2, 4, 5}, h.cumuls(new long[]{5, 15, 90, 1_100, 60_000}));
+        assertEquals(5, h.getTotal());
+        assertEquals(51_118, h.getSomme());
+        assertEquals(15, h.percentile(40), "Valeurs sous 16 exactes");
+    }
+
+    @Test
+    void testExpositionParAction() throws Exception {
+        ActionRouter routeur = routeur();
+        routeur.router("{\"modele\":\"reunion\",\"action\":\"rejoindre\"}", SESSION);
+        routeur.router("{\"modele\":\"reunion\",\"action\":\"rejoindre\"}", SESSION);
+        routeur.router("{\"modele\":\"reunion\",\"action\":\"creation\"}", SESSION);
+        routeur.router("{\"modele\":\"reunion\",\"action\":\"inconnue\"}", SESSION);
+
+        String texte = new Metriques().exposer(routeur);
+
+        assertTrue(texte.contains("# TYPE tpbmo_action_duree_secondes histogram\n"), texte);
+        assertTrue(texte.contains("tpbmo_action_duree_secondes_bucket{modele=\"reunion\",action=\"rejoindre\",le=\"+Inf\"} 2\n"), texte);
+        assertTrue(texte.contains("tpbmo_action_duree_secondes_count{modele=\"reunion\",action=\"rejoindre\"} 2\n"), texte);
+        assertTrue(texte.contains("tpbmo_action_duree_secondes_bucket{modele=\"reunion\",action=\"rejoindre\",le=\"0.0001\"} "), texte);
+        assertTrue(texte.contains("tpbmo_action_erreurs_total{modele=\"reunion\",action=\"creation\"} 1\n"), texte);
+        assertTrue(texte.contains("tpbmo_action_en_cours{modele=\"reunion\",action=\"creation\"} 0\n"), texte);
+        assertTrue(texte.contains("tpbmo_actions_inconnues_total 1\n"), texte);
+    }
+
+    @Test
+    void testIntervallesCumulesCroissants() throws Exception {
+        ActionRouter routeur = routeur();
+        for (int i = 0; i < 50; i++) {
+            routeur.router("{\"modele\":\"reunion\",\"action\":\"rejoindre\"}", SESSION);
+        }
+
+        long precedent = -1;
+        for (String ligne : new Metriques().exposer(routeur).split("\n")) {
+            if (ligne.startsWith("tpbmo_action_duree_secondes_bucket{modele=\"reunion\",action=\"rejoindre\"")) {
+                long valeur = Long.parseLong(ligne.substring(ligne.lastIndexOf(' ') + 1));
+                assertTrue(valeur >= precedent, ligne);
+                precedent = valeur;
+            }
+        }
+        assertEquals(50, precedent);
+    }
+}
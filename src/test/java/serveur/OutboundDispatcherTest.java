@@ -0,0 +1,93 @@
+package serveur;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.websocket.CloseReason;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class OutboundDispatcherTest {
+
+    private Session session;
+    private final List<String> tramesEnvoyees = new ArrayList<>();
+    private final List<SendHandler> accuses = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        session = mock(Session.class);
+        RemoteEndpoint.Async asyncRemote = mock(RemoteEndpoint.Async.class);
+        when(session.getId()).thenReturn("s1");
+        when(session.isOpen()).thenReturn(true);
+        when(session.getAsyncRemote()).thenReturn(asyncRemote);
+        // Le conteneur n'acquitte pas tout seul : le test décide quand une trame est "partie"
+        doAnswer(invocation -> {
+            tramesEnvoyees.add(invocation.getArgument(0));
+            accuses.add(invocation.getArgument(1));
+            return null;
+        }).when(asyncRemote).sendText(anyString(), any(SendHandler.class));
+    }
+
+    private void acquitterDerniere() {
+        accuses.get(accuses.size() - 1).onResult(new SendResult());
+    }
+
+    @Test
+    void testUneSeuleTrameEnVolEtOrdreFifo() {
+        OutboundDispatcher envoi = new OutboundDispatcher(10, OutboundDispatcher.PolitiqueDebordement.SUPPRIMER_PLUS_ANCIENNE, Runnable::run);
+
+        envoi.envoyer(session, "a");
+        envoi.envoyer(session, "b");
+        envoi.envoyer(session, "c");
+
+        assertEquals(List.of("a"), tramesEnvoyees);
+        assertEquals(2, envoi.profondeur(session));
+
+        acquitterDerniere();
+        acquitterDerniere();
+        acquitterDerniere();
+
+        assertEquals(List.of("a", "b", "c"), tramesEnvoyees);
+        assertEquals(0, envoi.profondeur(session));
+        assertEquals(3, envoi.getEnvoyees());
+    }
+
+    @Test
+    void testDebordementSupprimeLaPlusAncienne() {
+        OutboundDispatcher envoi = new OutboundDispatcher(2, OutboundDispatcher.PolitiqueDebordement.SUPPRIMER_PLUS_ANCIENNE, Runnable::run);
+
+        envoi.envoyer(session, "a"); // en vol
+        envoi.envoyer(session, "b");
+        envoi.envoyer(session, "c");
+        envoi.envoyer(session, "d"); // file pleine : "b" est abandonnée
+
+        assertEquals(2, envoi.profondeur(session));
+        assertEquals(1, envoi.getAbandonnees());
+
+        acquitterDerniere();
+        acquitterDerniere();
+        assertEquals(List.of("a", "c", "d"), tramesEnvoyees);
+    }
+
+    @Test
+    void testDebordementDeconnecteLeClientLent() throws Exception {
+        OutboundDispatcher envoi = new OutboundDispatcher(1, OutboundDispatcher.PolitiqueDebordement.DECONNECTER, Runnable::run);
+
+        envoi.envoyer(session, "a"); // en vol
+        envoi.envoyer(session, "b");
+        envoi.envoyer(session, "c");
+
+        verify(session).close(any(CloseReason.class));
+        assertEquals(1, envoi.getDeconnexions());
+        assertEquals(0, envoi.profondeur(session));
+    }
+}
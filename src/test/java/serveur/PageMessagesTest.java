@@ -0,0 +1,114 @@
+package serveur;
+
+import model.Message;
+import model.MessageManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PageMessagesTest {
+
+    private static final int REUNION = 7;
+
+    private final MessageManager messages = MessageManager.getInstance();
+
+    /**
+     * Table message simulée : ids 1 à 10, tous dans la réunion 7 sauf le 6 (autre réunion).
+     * La requête est évaluée d'après les paramètres liés, comme le ferait l'index (reunion_id, id).
+     */
+    @BeforeEach
+    void setUp() {
+        List<Map<String, Object>> table = new ArrayList<>();
+        for (int id = 1; id <= 10; id++) {
+            table.add(JdbcSimule.ligne("id", id, "personne_id", 1, "reunion_id", id == 6 ? 99 : REUNION,
+                    "contenu", "m" + id, "heure_envoi", LocalDateTime.now(), "nom", "Mensah", "prenom", "Ama"));
+        }
+
+        new JdbcSimule()
+                .quand("FROM message m JOIN personne p", (sql, parametres) -> {
+                    int reunion = (Integer) parametres.get(1);
+                    boolean apres = sql.contains("m.id > ?");
+                    boolean avant = sql.contains("m.id < ?");
+                    Integer curseur = apres || avant ? (Integer) parametres.get(2) : null;
+                    int limite = (Integer) parametres.get(apres || avant ? 3 : 2);
+                    List<Map<String, Object>> page = new ArrayList<>();
+                    for (Map<String, Object> ligne : table) {
+                        int id = (int) ligne.get("id");
+                        if ((int) ligne.get("reunion_id") == reunion
+                                && (!apres || id > curseur) && (!avant || id < curseur)) {
+                            page.add(ligne);
+                        }
+                    }
+                    Comparator<Map<String, Object>> parId = Comparator.comparingInt(l -> (int) l.get("id"));
+                    page.sort(sql.contains("ORDER BY m.id ASC") ? parId : parId.reversed());
+                    return page.subList(0, Math.min(limite, page.size()));
+                })
+                .installer(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Database.fermerPool();
+    }
+
+    @Test
+    void testDernierePageEnOrdreChronologique() throws Exception {
+        assertEquals(List.of(8, 9, 10), ids(messages.obtenirPageMessages(REUNION, null, null, 3)));
+    }
+
+    @Test
+    void testPagesPrecedentesJusquAuDebut() throws Exception {
+        assertEquals(List.of(5, 7), ids(messages.obtenirPageMessages(REUNION, 8, null, 2)),
+                "Le message d'une autre réunion est sauté");
+        assertEquals(List.of(1, 2, 3), ids(messages.obtenirPageMessages(REUNION, 4, null, 5)), "Dernière page incomplète");
+        assertTrue(messages.obtenirPageMessages(REUNION, 1, null, 5).isEmpty(), "Rien avant le premier message");
+    }
+
+    @Test
+    void testParcoursArriereSansTrouNiDoublon() throws Exception {
+        List<Integer> vus = new ArrayList<>();
+        Integer avant = null;
+        for (int page = 0; page < 10; page++) {
+            List<Message> lus = messages.obtenirPageMessages(REUNION, avant, null, 3);
+            if (lus.isEmpty()) {
+                break;
+            }
+            vus.addAll(0, ids(lus));
+            avant = lus.get(0).getId();
+        }
+        assertEquals(List.of(1, 2, 3, 4, 5, 7, 8, 9, 10), vus);
+    }
+
+    @Test
+    void testMessagesSuivantsApresUnCurseur() throws Exception {
+        assertEquals(List.of(7, 8), ids(messages.obtenirPageMessages(REUNION, null, 5, 2)));
+        assertEquals(List.of(10), ids(messages.obtenirPageMessages(REUNION, null, 9, 5)));
+        assertTrue(messages.obtenirPageMessages(REUNION, null, 10, 5).isEmpty(), "Rien après le plus récent");
+    }
+
+    @Test
+    void testNomExpediteurEtChamps() throws Exception {
+        Message m = messages.obtenirPageMessages(REUNION, null, null, 1).get(0);
+        assertEquals(10, m.getId());
+        assertEquals(REUNION, m.getIdReunion());
+        assertEquals("m10", m.getContenu());
+        assertEquals("Ama Mensah", m.getNomExpediteur());
+        assertNotNull(m.getHeureEnvoi());
+    }
+
+    private static List<Integer> ids(List<Message> page) {
+        List<Integer> ids = new ArrayList<>();
+        for (Message m : page) {
+            ids.add(m.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,116 @@
+package serveur;
+
+import model.Message;
+import model.MessageManager;
+import model.PersonneManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MessageManager et PersonneManager contre une base H2 embarquée en mode MySQL, derrière le pool de Database.
+ * Les valeurs absolues ne sont pas celles de MySQL ; ce sont les écarts entre versions qui comptent.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistanceBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final int PERSONNES = 100;
+    private static final int MESSAGES = 5_000;
+    private static final int REUNION = 1;
+
+    private MessageManager messageManager;
+    private PersonneManager personneManager;
+    private int prochainId = MESSAGES;
+    private int personneCourante;
+
+    @Setup
+    public void preparer() throws SQLException {
+        Database.configurerPool(ConnectionPool.creer(() -> DriverManager.getConnection(URL),
+                new ConnectionPool.Configuration().tailleMin(1).tailleMax(4)));
+        try (Connection c = Database.getConnection(); Statement st = c.createStatement()) {
+            st.execute("CREATE TABLE personne (id INT AUTO_INCREMENT PRIMARY KEY, nom VARCHAR(100), prenom VARCHAR(100), "
+                    + "login VARCHAR(100) UNIQUE, password VARCHAR(255), connecte BOOLEAN DEFAULT FALSE)");
+            st.execute("CREATE TABLE message (id INT AUTO_INCREMENT PRIMARY KEY, personne_id INT NOT NULL, "
+                    + "reunion_id INT NOT NULL, contenu TEXT NOT NULL, heure_envoi TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            st.execute("CREATE INDEX idx_message_reunion_id ON message (reunion_id, id)");
+            try (PreparedStatement ps = c.prepareStatement("INSERT INTO personne (nom, prenom, login, password) VALUES (?, ?, ?, ?)")) {
+                for (int i = 1; i <= PERSONNES; i++) {
+                    ps.setString(1, "Nom" + i);
+                    ps.setString(2, "Prenom" + i);
+                    ps.setString(3, "login" + i);
+                    ps.setString(4, "secret");
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+        messageManager = MessageManager.getInstance();
+        messageManager.enregistrerLot(lot(1, MESSAGES));
+        personneManager = PersonneManager.getInstance();
+    }
+
+    @TearDown
+    public void nettoyer() throws SQLException {
+        try (Connection c = Database.getConnection(); Statement st = c.createStatement()) {
+            st.execute("DROP ALL OBJECTS");
+        }
+        Database.fermerPool();
+    }
+
+    @Benchmark
+    public List<Message> pageHistoriqueRecente() throws SQLException {
+        return messageManager.obtenirPageMessages(REUNION, null, null, 51);
+    }
+
+    @Benchmark
+    public List<Message> pageHistoriqueAncienne() throws SQLException {
+        return messageManager.obtenirPageMessages(REUNION, MESSAGES / 2, null, 51);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(50)
+    public void enregistrerLotDe50() throws SQLException {
+        messageManager.enregistrerLot(lot(prochainId + 1, 50));
+        prochainId += 50;
+    }
+
+    @Benchmark
+    public Object personneParIdSansCache() throws SQLException {
+        return personneManager.obtenirPersonneParId(personneSuivante());
+    }
+
+    @Benchmark
+    public Object personneParIdAvecCache() throws SQLException {
+        return personneManager.obtenirAffichageParId(personneSuivante());
+    }
+
+    private int personneSuivante() {
+        personneCourante = personneCourante % PERSONNES + 1;
+        return personneCourante;
+    }
+
+    private static List<Message> lot(int premierId, int taille) {
+        List<Message> lot = new ArrayList<>(taille);
+        for (int i = 0; i < taille; i++) {
+            Message message = new Message(premierId + i, (premierId + i) % PERSONNES + 1, REUNION,
+                    "Message de charge numéro " + (premierId + i));
+            message.setHeureEnvoi(LocalDateTime.now());
+            lot.add(message);
+        }
+        return lot;
+    }
+}
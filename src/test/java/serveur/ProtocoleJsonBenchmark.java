@@ -0,0 +1,93 @@
+package serveur;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analyse et sérialisation des messages réels du protocole : requête de chat, diffusion newMessage
+ * et page d'historique de 50 messages. Les variantes "Flux" utilisent Enveloppe et EcrivainJson,
+ * les autres org.json (arbre complet), pour comparaison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProtocoleJsonBenchmark {
+
+    private static final String CONTENU = "Bonjour à tous, on commence par le point 2 de l'agenda ?";
+
+    private String requeteChat;
+    private String diffusionChat;
+    private String pageHistorique;
+
+    @Setup
+    public void preparer() {
+        requeteChat = new JSONObject().put("modele", "reunion").put("action", "envoyerMessage")
+                .put("reunionId", "42").put("userId", "7").put("contenu", CONTENU).toString();
+        diffusionChat = diffusion(1234).toString();
+        pageHistorique = historique().toString();
+    }
+
+    @Benchmark
+    public JSONObject analyserRequeteChat() {
+        return new JSONObject(requeteChat);
+    }
+
+    /**
+     * Ce que fait ActionRouter pour une requête de chat : modele, action puis les trois champs utiles.
+     */
+    @Benchmark
+    public int analyserRequeteChatFlux() {
+        Enveloppe enveloppe = Enveloppe.lire(requeteChat);
+        return enveloppe.texte("modele").length() + enveloppe.texte("action").length()
+                + enveloppe.entier("reunionId", -1) + enveloppe.entier("userId", -1) + enveloppe.texte("contenu").length();
+    }
+
+    @Benchmark
+    public String serialiserDiffusion() {
+        return diffusion(1234).toString();
+    }
+
+    @Benchmark
+    public String serialiserDiffusionFlux() {
+        return EcrivainJson.objet().champ("type", "newMessage").champ("id", 1234).champ("reunionId", "42")
+                .champ("sender", "Eliel Onésime Assy").champ("content", CONTENU).champ("userId", "7")
+                .champ("timestamp", 1_760_000_000_000L + 1234).fin();
+    }
+
+    @Benchmark
+    public JSONObject analyserDiffusion() {
+        return new JSONObject(diffusionChat);
+    }
+
+    @Benchmark
+    public String serialiserHistorique() {
+        return historique().toString();
+    }
+
+    @Benchmark
+    public JSONObject analyserHistorique() {
+        return new JSONObject(pageHistorique);
+    }
+
+    private static JSONObject diffusion(int id) {
+        return new JSONObject().put("type", "newMessage").put("id", id).put("reunionId", "42")
+                .put("sender", "Eliel Onésime Assy").put("content", CONTENU).put("userId", "7")
+                .put("timestamp", 1_760_000_000_000L + id);
+    }
+
+    private static JSONObject historique() {
+        JSONArray messages = new JSONArray();
+        for (int i = 0; i < 50; i++) {
+            messages.put(new JSONObject().put("id", 1000 + i).put("userId", 7).put("content", CONTENU)
+                    .put("sender", "Eliel Onésime Assy").put("timestamp", 1_760_000_000_000L + i));
+        }
+        return new JSONObject().put("type", "historiqueMessages").put("reunionId", "42")
+                .put("messages", messages).put("hasMore", true);
+    }
+}
@@ -0,0 +1,145 @@
+package serveur;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.websocket.Session;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SessionMailboxTest {
+
+    private final ExecutorService executeur = Executors.newFixedThreadPool(8);
+    private final AtomicInteger rejets = new AtomicInteger();
+
+    private final SessionMailbox.Observateur observateur = new SessionMailbox.Observateur() {
+        @Override
+        public void depose(int profondeur) {
+        }
+
+        @Override
+        public void rejete() {
+            rejets.incrementAndGet();
+        }
+
+        @Override
+        public void traite(long attenteNanos) {
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        executeur.shutdownNow();
+    }
+
+    private Session session(String id) {
+        Session session = mock(Session.class);
+        when(session.getId()).thenReturn(id);
+        return session;
+    }
+
+    @Test
+    void testMessagesTraitesDansLOrdreSansChevauchement() throws Exception {
+        int total = 2_000;
+        List<String> traites = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger enCours = new AtomicInteger();
+        AtomicInteger chevauchements = new AtomicInteger();
+        CountDownLatch fini = new CountDownLatch(total);
+
+        SessionMailbox<String> boite = new SessionMailbox<>(session("s1"), total, executeur, (message, s) -> {
+            if (enCours.incrementAndGet() > 1) chevauchements.incrementAndGet();
+            traites.add(message);
+            enCours.decrementAndGet();
+            fini.countDown();
+        }, observateur);
+
+        for (int i = 0; i < total; i++) {
+            assertTrue(boite.deposer("m" + i));
+        }
+
+        assertTrue(fini.await(5, TimeUnit.SECONDS));
+        assertEquals(0, chevauchements.get(), "Deux messages d'une même session ne doivent jamais s'exécuter en même temps");
+        for (int i = 0; i < total; i++) {
+            assertEquals("m" + i, traites.get(i));
+        }
+        assertEquals(0, boite.profondeur());
+    }
+
+    @Test
+    void testSessionsDifferentesAvancentEnParallele() throws Exception {
+        CountDownLatch lentEnCours = new CountDownLatch(1);
+        CountDownLatch liberation = new CountDownLatch(1);
+        CountDownLatch rapideTraite = new CountDownLatch(1);
+
+        SessionMailbox<String> lente = new SessionMailbox<>(session("lente"), 10, executeur, (message, s) -> {
+            lentEnCours.countDown();
+            try {
+                liberation.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, observateur);
+        SessionMailbox<String> rapide = new SessionMailbox<>(session("rapide"), 10, executeur,
+                (message, s) -> rapideTraite.countDown(), observateur);
+
+        lente.deposer("bloque");
+        assertTrue(lentEnCours.await(5, TimeUnit.SECONDS));
+        rapide.deposer("passe");
+
+        assertTrue(rapideTraite.await(5, TimeUnit.SECONDS), "Une session bloquée ne doit pas retenir les autres");
+        liberation.countDown();
+    }
+
+    @Test
+    void testBoitePleineRefuseLesDepots() {
+        // Exécuteur qui ne lance rien : les messages restent dans la boîte
+        SessionMailbox<String> boite = new SessionMailbox<>(session("s1"), 2, tache -> { }, (message, s) -> { }, observateur);
+
+        assertTrue(boite.deposer("a"));
+        assertTrue(boite.deposer("b"));
+        assertFalse(boite.deposer("c"));
+
+        assertEquals(2, boite.profondeur());
+        assertEquals(1, rejets.get());
+    }
+
+    @Test
+    void testFermetureAbandonneLesMessagesEnAttente() {
+        List<String> traites = new ArrayList<>();
+        List<Runnable> planifiees = new ArrayList<>();
+        SessionMailbox<String> boite = new SessionMailbox<>(session("s1"), 10, planifiees::add,
+                (message, s) -> traites.add(message), observateur);
+
+        boite.deposer("a");
+        boite.deposer("b");
+        boite.fermer();
+        planifiees.forEach(Runnable::run);
+
+        assertTrue(traites.isEmpty());
+        assertEquals(0, boite.profondeur());
+        assertFalse(boite.deposer("c"));
+    }
+
+    @Test
+    void testExecuteurArreteNeLaissePasLaBoiteActive() throws Exception {
+        executeur.shutdown();
+        List<String> traites = Collections.synchronizedList(new ArrayList<>());
+        SessionMailbox<String> boite = new SessionMailbox<>(session("s-arret"), 10, executeur,
+                (message, s) -> traites.add(message), observateur);
+
+        assertFalse(boite.deposer("a"), "Le refus de l'exécuteur ne remonte pas en exception");
+        assertTrue(boite.estFermee());
+        assertEquals(0, boite.profondeur(), "Le message refusé ne reste pas en attente");
+        assertFalse(boite.deposer("b"));
+        assertTrue(traites.isEmpty());
+    }
+}
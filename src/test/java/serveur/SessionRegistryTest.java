@@ -0,0 +1,103 @@
+package serveur;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.websocket.Session;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionRegistryTest {
+
+    // Le registre est statique : des réunions et utilisateurs propres à ce test
+    private static final String R1 = "registre-r1";
+    private static final String R2 = "registre-r2";
+    private static final String U1 = "registre-u1";
+    private static final String U2 = "registre-u2";
+
+    private final Session a = SessionsDeBenchmark.creer("a");
+    private final Session b = SessionsDeBenchmark.creer("b");
+
+    @AfterEach
+    void tearDown() {
+        SessionRegistry.retirer(a);
+        SessionRegistry.retirer(b);
+    }
+
+    @Test
+    void testIndexParReunionEtParUtilisateur() {
+        SessionRegistry.associerUtilisateur(a, U1);
+        SessionRegistry.associerReunion(a, R1);
+        SessionRegistry.associerUtilisateur(b, U1);
+        SessionRegistry.associerReunion(b, R1);
+
+        assertEquals(Set.of(a, b), SessionRegistry.sessionsReunion(R1));
+        assertEquals(Set.of(a, b), SessionRegistry.sessionsUtilisateur(U1), "Un utilisateur peut avoir plusieurs sessions");
+        assertEquals(Integer.valueOf(2), SessionRegistry.effectifsReunions().get(R1));
+        assertEquals(R1, a.getUserProperties().get("reunionId"), "Les propriétés de la session restent renseignées");
+        assertTrue(SessionRegistry.sessionsReunion(R2).isEmpty());
+    }
+
+    @Test
+    void testReassociationRetireDeLaPrecedente() {
+        SessionRegistry.associerReunion(a, R1);
+        SessionRegistry.associerUtilisateur(a, U1);
+
+        SessionRegistry.associerReunion(a, R2);
+        SessionRegistry.associerUtilisateur(a, U2);
+
+        assertTrue(SessionRegistry.sessionsReunion(R1).isEmpty());
+        assertEquals(Set.of(a), SessionRegistry.sessionsReunion(R2));
+        assertTrue(SessionRegistry.sessionsUtilisateur(U1).isEmpty());
+        assertEquals(Set.of(a), SessionRegistry.sessionsUtilisateur(U2));
+        assertNull(SessionRegistry.effectifsReunions().get(R1), "Une réunion vide n'est plus indexée");
+
+        // Réassocier à la même réunion ne change rien
+        SessionRegistry.associerReunion(a, R2);
+        assertEquals(Set.of(a), SessionRegistry.sessionsReunion(R2));
+    }
+
+    @Test
+    void testRetraitALaFermeture() {
+        SessionRegistry.associerUtilisateur(a, U1);
+        SessionRegistry.associerReunion(a, R1);
+        SessionRegistry.associerUtilisateur(b, U1);
+        SessionRegistry.associerReunion(b, R1);
+
+        SessionRegistry.retirer(a);
+
+        assertEquals(Set.of(b), SessionRegistry.sessionsReunion(R1));
+        assertEquals(Set.of(b), SessionRegistry.sessionsUtilisateur(U1));
+
+        SessionRegistry.retirer(b);
+        assertTrue(SessionRegistry.sessionsReunion(R1).isEmpty());
+        assertTrue(SessionRegistry.sessionsUtilisateur(U1).isEmpty());
+        assertNull(SessionRegistry.effectifsReunions().get(R1));
+    }
+
+    @Test
+    void testDissociationDeLaReunionGardeLUtilisateur() {
+        SessionRegistry.associerUtilisateur(a, U1);
+        SessionRegistry.associerReunion(a, R1);
+
+        SessionRegistry.dissocierReunion(a);
+
+        assertTrue(SessionRegistry.sessionsReunion(R1).isEmpty());
+        assertNull(a.getUserProperties().get("reunionId"));
+        assertEquals(Set.of(a), SessionRegistry.sessionsUtilisateur(U1));
+    }
+
+    @Test
+    void testSessionsDesUtilisateursLimiteesALaReunion() {
+        SessionRegistry.associerUtilisateur(a, "987");
+        SessionRegistry.associerReunion(a, "9871");
+        SessionRegistry.associerUtilisateur(b, "987");
+        SessionRegistry.associerReunion(b, "9872");
+
+        assertEquals(Set.of(a), SessionRegistry.sessionsUtilisateursDansReunion(9871, List.of(987, 988)),
+                "La session ouverte dans une autre réunion n'est pas visée");
+        assertTrue(SessionRegistry.sessionsUtilisateursDansReunion(9873, List.of(987)).isEmpty());
+    }
+}
@@ -0,0 +1,44 @@
+package serveur;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sessions factices pour les benchmarks : ouvertes, et dont le conteneur acquitte chaque envoi immédiatement,
+ * afin de ne mesurer que le coût côté serveur.
+ */
+final class SessionsDeBenchmark {
+
+    private static final SendResult OK = new SendResult();
+
+    private SessionsDeBenchmark() {
+    }
+
+    static Session creer(String id) {
+        RemoteEndpoint.Async async = (RemoteEndpoint.Async) Proxy.newProxyInstance(
+                RemoteEndpoint.Async.class.getClassLoader(), new Class<?>[]{RemoteEndpoint.Async.class},
+                (proxy, methode, args) -> {
+                    if (args != null && args.length == 2 && args[1] instanceof SendHandler) {
+                        ((SendHandler) args[1]).onResult(OK);
+                    }
+                    return null;
+                });
+        Map<String, Object> proprietes = new ConcurrentHashMap<>();
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, methode, args) -> switch (methode.getName()) {
+                    case "getId" -> id;
+                    case "isOpen" -> true;
+                    case "getAsyncRemote" -> async;
+                    case "getUserProperties" -> proprietes;
+                    case "hashCode" -> id.hashCode();
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "Session[" + id + "]";
+                    default -> null;
+                });
+    }
+}
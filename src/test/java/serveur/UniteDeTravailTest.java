@@ -0,0 +1,86 @@
+package serveur;
+
+import model.MessageManager;
+import model.ParticipationManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UniteDeTravailTest {
+
+    private final JdbcSimule base = new JdbcSimule();
+
+    @BeforeEach
+    void setUp() {
+        base.installer(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Database.fermerPool();
+    }
+
+    @Test
+    void testUneConnexionEtUneValidationPourToutLeTravail() throws SQLException {
+        String resultat = UniteDeTravail.executer(conn -> {
+            ParticipationManager.getInstance().entrerDansReunion(1, 2);
+            ParticipationManager.getInstance().estParticipant(1, 2);
+            // Le lot gère sa propre transaction : ici il rejoint celle de l'unité
+            MessageManager.getInstance().enregistrerLot(List.of());
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO invitation_reunion (reunion_id) VALUES (?)")) {
+                ps.setInt(1, 2);
+                ps.executeUpdate();
+            }
+            assertEquals(1, Database.getStatistiquesPool().actives, "Les managers ne doivent pas rendre la connexion");
+            return "ok";
+        });
+
+        assertEquals("ok", resultat);
+        ConnectionPool.Statistiques stats = Database.getStatistiquesPool();
+        assertEquals(1, stats.emprunts);
+        assertEquals(0, stats.actives);
+        assertEquals(List.of("setAutoCommit(false)", "commit", "setAutoCommit(true)"), base.transactions);
+    }
+
+    @Test
+    void testExceptionAnnuleLaTransaction() {
+        long annulees = UniteDeTravail.getAnnulees();
+
+        SQLException e = assertThrows(SQLException.class, () -> UniteDeTravail.executer(conn -> {
+            ParticipationManager.getInstance().entrerDansReunion(1, 2);
+            throw new SQLException("échec simulé");
+        }));
+
+        assertEquals("échec simulé", e.getMessage());
+        assertFalse(base.transactions.contains("commit"));
+        assertTrue(base.transactions.contains("rollback"));
+        assertEquals(annulees + 1, UniteDeTravail.getAnnulees());
+        assertEquals(0, Database.getStatistiquesPool().actives);
+    }
+
+    @Test
+    void testUniteImbriqueeRejointLEnglobante() throws SQLException {
+        UniteDeTravail.executer(exterieure -> UniteDeTravail.executer(interieure -> {
+            assertSame(exterieure, interieure);
+            return null;
+        }));
+
+        assertEquals(1, Database.getStatistiquesPool().emprunts);
+        assertEquals(1, base.transactions.stream().filter("commit"::equals).count());
+    }
+
+    @Test
+    void testHorsUniteChaqueOperationEmprunteSaConnexion() throws SQLException {
+        ParticipationManager.getInstance().entrerDansReunion(1, 2);
+        ParticipationManager.getInstance().estParticipant(1, 2);
+
+        assertEquals(2, Database.getStatistiquesPool().emprunts);
+        assertTrue(base.transactions.isEmpty(), "Pas de transaction hors d'une unité");
+    }
+}